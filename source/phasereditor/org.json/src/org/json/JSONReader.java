@@ -0,0 +1,994 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2018 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package org.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A pull parser of JSON text. Unlike {@link JSONTokener}, it does not build a
+ * {@link JSONObject} tree of the whole document: the caller walks the tokens,
+ * reads the values it needs with the typed <code>next*</code> methods and
+ * skips the rest of the subtrees with {@link #skipValue()}. Numbers are parsed
+ * directly from the text, without boxing them.
+ * <p>
+ * For example, to read the <code>frames</code> array of an object:
+ * 
+ * <pre>
+ * reader.beginObject();
+ * while (reader.hasNext()) {
+ * 	if (reader.nextName().equals("frames")) {
+ * 		reader.beginArray();
+ * 		while (reader.hasNext()) {
+ * 			...
+ * 		}
+ * 		reader.endArray();
+ * 	} else {
+ * 		reader.skipValue();
+ * 	}
+ * }
+ * reader.endObject();
+ * </pre>
+ * 
+ * Use {@link #nextValue()}, {@link #nextObject()} or {@link #nextArray()} to
+ * read a subtree as regular JSON objects. They return the same value types as
+ * the {@link JSONTokener} based constructors.
+ * <p>
+ * Like {@link JSONTokener}, it accepts trailing commas, missing array
+ * elements, single quoted strings and unquoted keys and values. An unquoted
+ * value is converted with {@link JSONObject#stringToValue(String)}, so
+ * <code>.5</code> is the string ".5" and <code>True</code> is a boolean. In
+ * addition, a leading byte order mark is skipped.
+ * 
+ * @author arian
+ *
+ */
+public class JSONReader implements Closeable {
+
+	/**
+	 * The kind of the next token in the text.
+	 */
+	public enum Token {
+		BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+	}
+
+	private static final int SCOPE_EMPTY_DOCUMENT = 0;
+	private static final int SCOPE_NONEMPTY_DOCUMENT = 1;
+	private static final int SCOPE_EMPTY_ARRAY = 2;
+	private static final int SCOPE_NONEMPTY_ARRAY = 3;
+	private static final int SCOPE_EMPTY_OBJECT = 4;
+	private static final int SCOPE_DANGLING_NAME = 5;
+	private static final int SCOPE_NONEMPTY_OBJECT = 6;
+
+	/**
+	 * The fast path of {@link #nextDouble()}: both the mantissa and the power
+	 * of ten are exact doubles, so a single division is correctly rounded.
+	 */
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	private final Reader _reader;
+	private final char[] _buffer;
+	private int _pos;
+	private int _limit;
+
+	/**
+	 * The number of characters read before the current buffer.
+	 */
+	private long _offset;
+	private long _line;
+	private long _lineStart;
+
+	private int[] _stack;
+	private int _stackSize;
+
+	private Token _peeked;
+	private boolean _peekedBoolean;
+	private String _peekedName;
+	private String _peekedString;
+	private char _quote;
+	/**
+	 * The text of the current unquoted value.
+	 */
+	private char[] _number;
+	private int _numberLength;
+	private boolean _numberIsInteger;
+	private final StringBuilder _builder;
+
+	/**
+	 * Construct a JSONReader from a Reader.
+	 * 
+	 * @param reader
+	 *            A reader.
+	 */
+	public JSONReader(Reader reader) {
+		_reader = reader;
+		_buffer = new char[8192];
+		_line = 1;
+		_stack = new int[32];
+		_stack[_stackSize++] = SCOPE_EMPTY_DOCUMENT;
+		_number = new char[32];
+		_builder = new StringBuilder();
+	}
+
+	/**
+	 * Construct a JSONReader from an UTF-8 InputStream.
+	 * 
+	 * @param input
+	 *            The source.
+	 */
+	public JSONReader(InputStream input) {
+		this(new InputStreamReader(input, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Construct a JSONReader from a string.
+	 * 
+	 * @param source
+	 *            A source string.
+	 */
+	public JSONReader(String source) {
+		this(new StringReader(source));
+	}
+
+	/**
+	 * @return The kind of the next token, without consuming it.
+	 */
+	public Token peek() throws JSONException {
+		if (_peeked == null) {
+			_peeked = doPeek();
+		}
+		return _peeked;
+	}
+
+	/**
+	 * @return If the current array or object has more elements.
+	 */
+	public boolean hasNext() throws JSONException {
+		Token token = peek();
+		return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+	}
+
+	public void beginObject() throws JSONException {
+		expect(Token.BEGIN_OBJECT);
+		push(SCOPE_EMPTY_OBJECT);
+		_peeked = null;
+	}
+
+	public void endObject() throws JSONException {
+		expect(Token.END_OBJECT);
+		_stackSize--;
+		_peeked = null;
+	}
+
+	public void beginArray() throws JSONException {
+		expect(Token.BEGIN_ARRAY);
+		push(SCOPE_EMPTY_ARRAY);
+		_peeked = null;
+	}
+
+	public void endArray() throws JSONException {
+		expect(Token.END_ARRAY);
+		_stackSize--;
+		_peeked = null;
+	}
+
+	/**
+	 * @return The name of the next object member.
+	 */
+	public String nextName() throws JSONException {
+		expect(Token.NAME);
+		_peeked = null;
+
+		if (_peekedName != null) {
+			String name = _peekedName;
+			_peekedName = null;
+			return name;
+		}
+
+		return readString();
+	}
+
+	/**
+	 * @return The next string value. A number is returned as its literal text.
+	 */
+	public String nextString() throws JSONException {
+		Token token = peek();
+
+		if (token == Token.STRING) {
+			_peeked = null;
+
+			if (_peekedString != null) {
+				String str = _peekedString;
+				_peekedString = null;
+				return str;
+			}
+
+			return readString();
+		}
+
+		if (token == Token.NUMBER) {
+			_peeked = null;
+			return new String(_number, 0, _numberLength);
+		}
+
+		throw syntaxError("Expected a string but was " + token);
+	}
+
+	public boolean nextBoolean() throws JSONException {
+		expect(Token.BOOLEAN);
+		_peeked = null;
+		return _peekedBoolean;
+	}
+
+	public void nextNull() throws JSONException {
+		expect(Token.NULL);
+		_peeked = null;
+	}
+
+	/**
+	 * @return The next number, as a double. A string with a number is accepted
+	 *         too.
+	 */
+	public double nextDouble() throws JSONException {
+		Token token = peek();
+
+		if (token == Token.STRING) {
+			String str = nextString();
+			try {
+				return Double.parseDouble(str);
+			} catch (NumberFormatException e) {
+				throw syntaxError("Expected a number but was '" + str + "'");
+			}
+		}
+
+		expect(Token.NUMBER);
+		_peeked = null;
+
+		return parseDouble();
+	}
+
+	/**
+	 * @return The next number, as a long. Numbers with a fraction are accepted
+	 *         if they have an exact long value.
+	 */
+	public long nextLong() throws JSONException {
+		Token token = peek();
+
+		if (token == Token.STRING) {
+			return parseExactLong(nextString());
+		}
+
+		expect(Token.NUMBER);
+		_peeked = null;
+
+		if (_numberIsInteger && _numberLength <= 18) {
+			return parseLong();
+		}
+
+		return parseExactLong(new String(_number, 0, _numberLength));
+	}
+
+	/**
+	 * @return The next number, as an int. Numbers with a fraction are accepted
+	 *         if they have an exact int value.
+	 */
+	public int nextInt() throws JSONException {
+		long l = nextLong();
+		int i = (int) l;
+
+		if (i != l) {
+			throw syntaxError("Expected an int but was " + l);
+		}
+
+		return i;
+	}
+
+	/**
+	 * Skip the next value, with all its content. If the next token is a member
+	 * name, only the name is skipped.
+	 */
+	public void skipValue() throws JSONException {
+		int depth = 0;
+
+		do {
+			Token token = peek();
+			_peeked = null;
+
+			switch (token) {
+			case BEGIN_OBJECT:
+				push(SCOPE_EMPTY_OBJECT);
+				depth++;
+				break;
+			case BEGIN_ARRAY:
+				push(SCOPE_EMPTY_ARRAY);
+				depth++;
+				break;
+			case END_OBJECT:
+			case END_ARRAY:
+				_stackSize--;
+				depth--;
+				break;
+			case NAME:
+				if (_peekedName != null) {
+					_peekedName = null;
+				} else {
+					skipString();
+				}
+				break;
+			case STRING:
+				if (_peekedString != null) {
+					_peekedString = null;
+				} else {
+					skipString();
+				}
+				break;
+			case END_DOCUMENT:
+				_peeked = token;
+				throw syntaxError("Unexpected end of document");
+			default:
+				break;
+			}
+		} while (depth > 0);
+	}
+
+	/**
+	 * Read the next value as a {@link JSONObject}, a {@link JSONArray}, a
+	 * String, a Boolean, an Integer, a Long, a Double or the
+	 * {@link JSONObject#NULL} object, like {@link JSONTokener#nextValue()}.
+	 */
+	public Object nextValue() throws JSONException {
+		Token token = peek();
+
+		switch (token) {
+		case BEGIN_OBJECT:
+			return nextObject();
+		case BEGIN_ARRAY:
+			return nextArray();
+		case STRING:
+			return nextString();
+		case NUMBER:
+			_peeked = null;
+			return numberValue();
+		case BOOLEAN:
+			return nextBoolean() ? Boolean.TRUE : Boolean.FALSE;
+		case NULL:
+			nextNull();
+			return JSONObject.NULL;
+		default:
+			throw syntaxError("Expected a value but was " + token);
+		}
+	}
+
+	public JSONObject nextObject() throws JSONException {
+		JSONObject obj = new JSONObject();
+
+		beginObject();
+
+		while (hasNext()) {
+			String key = nextName();
+			obj.putOnce(key, nextValue());
+		}
+
+		endObject();
+
+		return obj;
+	}
+
+	public JSONArray nextArray() throws JSONException {
+		JSONArray array = new JSONArray();
+
+		beginArray();
+
+		while (hasNext()) {
+			array.put(nextValue());
+		}
+
+		endArray();
+
+		return array;
+	}
+
+	@Override
+	public void close() throws IOException {
+		_reader.close();
+	}
+
+	/**
+	 * Make a JSONException to signal a syntax error.
+	 *
+	 * @param message
+	 *            The error message.
+	 * @return A JSONException object, suitable for throwing
+	 */
+	public JSONException syntaxError(String message) {
+		long index = _offset + _pos;
+		return new JSONException(
+				message + " at " + index + " [character " + (index - _lineStart + 1) + " line " + _line + "]");
+	}
+
+	private void expect(Token expected) throws JSONException {
+		Token token = peek();
+
+		if (token != expected) {
+			throw syntaxError("Expected " + expected + " but was " + token);
+		}
+	}
+
+	private void push(int scope) {
+		if (_stackSize == _stack.length) {
+			int[] stack = new int[_stackSize * 2];
+			System.arraycopy(_stack, 0, stack, 0, _stackSize);
+			_stack = stack;
+		}
+		_stack[_stackSize++] = scope;
+	}
+
+	private Token doPeek() throws JSONException {
+		int scope = _stack[_stackSize - 1];
+		int c;
+
+		switch (scope) {
+		case SCOPE_EMPTY_DOCUMENT:
+			_stack[_stackSize - 1] = SCOPE_NONEMPTY_DOCUMENT;
+			c = nextNonWhitespace();
+			if (c == '\uFEFF') {
+				c = nextNonWhitespace();
+			}
+			return readValueToken(c);
+
+		case SCOPE_NONEMPTY_DOCUMENT:
+			c = nextNonWhitespace();
+			if (c == -1) {
+				return Token.END_DOCUMENT;
+			}
+			throw syntaxError("Unexpected text after the end of the document");
+
+		case SCOPE_EMPTY_ARRAY:
+			_stack[_stackSize - 1] = SCOPE_NONEMPTY_ARRAY;
+			c = nextNonWhitespace();
+			if (c == ']') {
+				return Token.END_ARRAY;
+			}
+			return readElementToken(c);
+
+		case SCOPE_NONEMPTY_ARRAY:
+			c = nextNonWhitespace();
+			if (c == ']') {
+				return Token.END_ARRAY;
+			}
+			if (c != ',') {
+				throw syntaxError("Expected a ',' or ']'");
+			}
+			c = nextNonWhitespace();
+			if (c == ']') {
+				return Token.END_ARRAY;
+			}
+			return readElementToken(c);
+
+		case SCOPE_EMPTY_OBJECT:
+		case SCOPE_NONEMPTY_OBJECT:
+			c = nextNonWhitespace();
+			if (c == '}') {
+				return Token.END_OBJECT;
+			}
+			if (scope == SCOPE_NONEMPTY_OBJECT) {
+				if (c != ',' && c != ';') {
+					throw syntaxError("Expected a ',' or '}'");
+				}
+				c = nextNonWhitespace();
+				if (c == '}') {
+					return Token.END_OBJECT;
+				}
+			}
+			if (c == '"' || c == '\'') {
+				_quote = (char) c;
+			} else {
+				_peekedName = readUnquotedName(c);
+			}
+			_stack[_stackSize - 1] = SCOPE_DANGLING_NAME;
+			return Token.NAME;
+
+		case SCOPE_DANGLING_NAME:
+			c = nextNonWhitespace();
+			if (c != ':') {
+				throw syntaxError("Expected a ':' after a key");
+			}
+			_stack[_stackSize - 1] = SCOPE_NONEMPTY_OBJECT;
+			return readValueToken(nextNonWhitespace());
+
+		default:
+			throw new IllegalStateException();
+		}
+	}
+
+	/**
+	 * Like {@link #readValueToken(int)}, but a missing element, like in
+	 * <code>[1,,2]</code>, is a null value. The comma is read again later.
+	 */
+	private Token readElementToken(int c) throws JSONException {
+		if (c == ',') {
+			_pos--;
+			return Token.NULL;
+		}
+		return readValueToken(c);
+	}
+
+	/**
+	 * Read the token that starts with <code>c</code>. The content of the quoted
+	 * strings is read later, by {@link #readString()} or {@link #skipString()}.
+	 */
+	private Token readValueToken(int c) throws JSONException {
+		switch (c) {
+		case '{':
+			return Token.BEGIN_OBJECT;
+		case '[':
+			return Token.BEGIN_ARRAY;
+		case '"':
+		case '\'':
+			_quote = (char) c;
+			return Token.STRING;
+		case -1:
+			throw syntaxError("Unexpected end of document");
+		default:
+			return readUnquotedValue((char) c);
+		}
+	}
+
+	private String readUnquotedName(int first) throws JSONException {
+		StringBuilder sb = _builder;
+		sb.setLength(0);
+
+		int c = first;
+
+		while (c >= ' ' && ",:]}/\\\"[{;=#".indexOf(c) < 0) {
+			sb.append((char) c);
+
+			if (_pos == _limit && !fill()) {
+				c = -1;
+				break;
+			}
+
+			c = _buffer[_pos++];
+		}
+
+		if (c != -1) {
+			_pos--;
+		}
+
+		String name = sb.toString().trim();
+
+		if (name.length() == 0) {
+			throw syntaxError("Expected a key");
+		}
+
+		// JSONObject uses the string of the value as key, so 1.0e1 is "10.0"
+
+		return JSONObject.stringToValue(name).toString();
+	}
+
+	/**
+	 * Read the unquoted text until the next delimiter, like
+	 * {@link JSONTokener#nextValue()} does, and compute its token with the rules
+	 * of {@link JSONObject#stringToValue(String)}. The common numbers are
+	 * recognized without creating a string.
+	 */
+	private Token readUnquotedValue(char first) throws JSONException {
+		_numberLength = 0;
+
+		int c = first;
+
+		while (c >= ' ' && ",:]}/\\\"[{;=#".indexOf(c) < 0) {
+			if (_numberLength == _number.length) {
+				char[] number = new char[_numberLength * 2];
+				System.arraycopy(_number, 0, number, 0, _numberLength);
+				_number = number;
+			}
+
+			_number[_numberLength++] = (char) c;
+
+			if (_pos == _limit && !fill()) {
+				c = -1;
+				break;
+			}
+
+			c = _buffer[_pos++];
+		}
+
+		if (c != -1) {
+			_pos--;
+		}
+
+		while (_numberLength > 0 && _number[_numberLength - 1] <= ' ') {
+			_numberLength--;
+		}
+
+		if (_numberLength == 0) {
+			throw syntaxError("Missing value");
+		}
+
+		if (isSimpleNumber()) {
+			return Token.NUMBER;
+		}
+
+		if (unquotedEquals("true")) {
+			_peekedBoolean = true;
+			return Token.BOOLEAN;
+		}
+
+		if (unquotedEquals("false")) {
+			_peekedBoolean = false;
+			return Token.BOOLEAN;
+		}
+
+		if (unquotedEquals("null")) {
+			return Token.NULL;
+		}
+
+		Object value = JSONObject.stringToValue(new String(_number, 0, _numberLength));
+
+		if (value instanceof Number) {
+			_numberIsInteger = value instanceof Integer || value instanceof Long;
+			return Token.NUMBER;
+		}
+
+		_peekedString = (String) value;
+
+		return Token.STRING;
+	}
+
+	/**
+	 * @return If the unquoted text is an integer of no more than 18 digits
+	 *         without leading zeros, or a decimal number of no more than 15
+	 *         digits. {@link JSONObject#stringToValue(String)} converts both to
+	 *         numbers.
+	 */
+	private boolean isSimpleNumber() {
+		int i = _number[0] == '-' ? 1 : 0;
+		int start = i;
+		int dot = -1;
+
+		for (; i < _numberLength; i++) {
+			char c = _number[i];
+			if (c == '.' && dot < 0) {
+				dot = i;
+			} else if (c < '0' || c > '9') {
+				return false;
+			}
+		}
+
+		int digits = _numberLength - start;
+
+		if (dot < 0) {
+			_numberIsInteger = true;
+			return digits > 0 && _numberLength <= 18 && (_number[start] != '0' || _numberLength == 1);
+		}
+
+		_numberIsInteger = false;
+		return dot > start && dot < _numberLength - 1 && digits <= 16;
+	}
+
+	/**
+	 * Compare the unquoted text with the given keyword, ignoring case, like
+	 * {@link String#equalsIgnoreCase(String)}.
+	 */
+	private boolean unquotedEquals(String keyword) {
+		if (_numberLength != keyword.length()) {
+			return false;
+		}
+
+		for (int i = 0; i < _numberLength; i++) {
+			char c1 = _number[i];
+			char c2 = keyword.charAt(i);
+			if (c1 != c2 && Character.toUpperCase(c1) != Character.toUpperCase(c2)
+					&& Character.toLowerCase(c1) != Character.toLowerCase(c2)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Parse the current integer number, of no more than 18 digits.
+	 */
+	private long parseLong() throws JSONException {
+		boolean negative = _number[0] == '-';
+		int i = negative ? 1 : 0;
+		long value = 0;
+
+		if (i == _numberLength) {
+			throw syntaxError("Invalid number");
+		}
+
+		for (; i < _numberLength; i++) {
+			char c = _number[i];
+			if (c < '0' || c > '9') {
+				throw syntaxError("Invalid number " + new String(_number, 0, _numberLength));
+			}
+			value = value * 10 + (c - '0');
+		}
+
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Parse a number without rounding it to a double, so integers of more than
+	 * 15 digits keep all of them.
+	 * 
+	 * @throws JSONException
+	 *             If the number overflows a long or it has a fraction.
+	 */
+	private long parseExactLong(String str) throws JSONException {
+		try {
+			return Long.parseLong(str);
+		} catch (NumberFormatException e) {
+			// a fraction or an exponent, like 1.0 or 1e3
+			try {
+				return new BigDecimal(str).longValueExact();
+			} catch (NumberFormatException | ArithmeticException e2) {
+				throw syntaxError("Expected a long but was '" + str + "'");
+			}
+		}
+	}
+
+	private double parseDouble() throws JSONException {
+		if (_numberIsInteger && _numberLength <= 16) {
+			return parseLong();
+		}
+
+		// the fast path, for numbers like 123.456
+
+		boolean negative = _number[0] == '-';
+		int i = negative ? 1 : 0;
+		long mantissa = 0;
+		int digits = 0;
+		int fraction = -1;
+
+		for (; i < _numberLength; i++) {
+			char c = _number[i];
+			if (c >= '0' && c <= '9') {
+				mantissa = mantissa * 10 + (c - '0');
+				digits++;
+				if (fraction >= 0) {
+					fraction++;
+				}
+			} else if (c == '.' && fraction < 0) {
+				fraction = 0;
+			} else {
+				break;
+			}
+		}
+
+		if (i == _numberLength && digits > 0 && digits <= 15 && fraction > 0 && fraction < POWERS_OF_TEN.length) {
+			double d = mantissa / POWERS_OF_TEN[fraction];
+			return negative ? -d : d;
+		}
+
+		return parseDoubleString(new String(_number, 0, _numberLength));
+	}
+
+	private double parseDoubleString(String str) throws JSONException {
+		try {
+			return Double.parseDouble(str);
+		} catch (NumberFormatException e) {
+			throw syntaxError("Invalid number " + str);
+		}
+	}
+
+	/**
+	 * @return The current number with the same type
+	 *         {@link JSONObject#stringToValue(String)} returns.
+	 */
+	private Object numberValue() throws JSONException {
+		if (_numberIsInteger && _numberLength <= 18) {
+			long l = parseLong();
+			int i = (int) l;
+			if (i == l) {
+				return Integer.valueOf(i);
+			}
+			return Long.valueOf(l);
+		}
+
+		return JSONObject.stringToValue(new String(_number, 0, _numberLength));
+	}
+
+	/**
+	 * Read the content of the string which opening quote was consumed.
+	 */
+	private String readString() throws JSONException {
+		char quote = _quote;
+
+		// fast path: the whole string is in the buffer and has no escapes
+
+		for (int i = _pos; i < _limit; i++) {
+			char c = _buffer[i];
+			if (c == quote) {
+				String str = new String(_buffer, _pos, i - _pos);
+				_pos = i + 1;
+				return str;
+			}
+			if (c == '\\' || c == '\n') {
+				break;
+			}
+		}
+
+		StringBuilder sb = _builder;
+		sb.setLength(0);
+
+		while (true) {
+			int start = _pos;
+
+			while (_pos < _limit) {
+				char c = _buffer[_pos];
+
+				if (c == quote) {
+					sb.append(_buffer, start, _pos - start);
+					_pos++;
+					return sb.toString();
+				}
+
+				if (c == '\\') {
+					sb.append(_buffer, start, _pos - start);
+					_pos++;
+					sb.append(readEscape());
+					start = _pos;
+					continue;
+				}
+
+				if (c == '\n') {
+					newLine(_pos);
+				}
+
+				_pos++;
+			}
+
+			sb.append(_buffer, start, _pos - start);
+
+			if (!fill()) {
+				throw syntaxError("Unterminated string");
+			}
+		}
+	}
+
+	private void skipString() throws JSONException {
+		char quote = _quote;
+
+		while (true) {
+			while (_pos < _limit) {
+				char c = _buffer[_pos++];
+
+				if (c == quote) {
+					return;
+				}
+
+				if (c == '\\') {
+					readEscape();
+				} else if (c == '\n') {
+					newLine(_pos - 1);
+				}
+			}
+
+			if (!fill()) {
+				throw syntaxError("Unterminated string");
+			}
+		}
+	}
+
+	private char readEscape() throws JSONException {
+		int c = read();
+
+		switch (c) {
+		case 'b':
+			return '\b';
+		case 't':
+			return '\t';
+		case 'n':
+			return '\n';
+		case 'f':
+			return '\f';
+		case 'r':
+			return '\r';
+		case 'u':
+			int value = 0;
+			for (int i = 0; i < 4; i++) {
+				int h = Character.digit(read(), 16);
+				if (h < 0) {
+					throw syntaxError("Illegal escape.");
+				}
+				value = value << 4 | h;
+			}
+			return (char) value;
+		case '"':
+		case '\'':
+		case '\\':
+		case '/':
+			return (char) c;
+		default:
+			throw syntaxError("Illegal escape.");
+		}
+	}
+
+	private int read() throws JSONException {
+		if (_pos == _limit && !fill()) {
+			return -1;
+		}
+		return _buffer[_pos++];
+	}
+
+	private int nextNonWhitespace() throws JSONException {
+		while (true) {
+			while (_pos < _limit) {
+				char c = _buffer[_pos++];
+
+				switch (c) {
+				case '\n':
+					newLine(_pos - 1);
+					break;
+				default:
+					// like JSONTokener, skip all the control characters
+					if (c > ' ') {
+						return c;
+					}
+					break;
+				}
+			}
+
+			if (!fill()) {
+				return -1;
+			}
+		}
+	}
+
+	private void newLine(int pos) {
+		_line++;
+		_lineStart = _offset + pos + 1;
+	}
+
+	private boolean fill() throws JSONException {
+		_offset += _limit;
+		_pos = 0;
+		_limit = 0;
+
+		try {
+			int n;
+			do {
+				n = _reader.read(_buffer, 0, _buffer.length);
+			} while (n == 0);
+
+			if (n < 0) {
+				return false;
+			}
+
+			_limit = n;
+			return true;
+		} catch (IOException e) {
+			throw new JSONException(e);
+		}
+	}
+}
@@ -0,0 +1,630 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2018 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package org.json;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Writes JSON text as UTF-8 bytes, directly to an OutputStream. The text is
+ * encoded in a byte buffer that is reused by the next writers of the same
+ * thread, so no intermediate strings are created.
+ * <p>
+ * The content can be written by events, with the <code>begin*</code>,
+ * <code>end*</code>, {@link #name(String)} and <code>value</code> methods, or
+ * as {@link JSONObject} and {@link JSONArray} trees, with
+ * {@link #value(Object)}. The trees are written in the same format of
+ * {@link JSONObject#toString(int)}, so
+ * 
+ * <pre>
+ * JSONStreamWriter.write(obj, output, 2);
+ * </pre>
+ * 
+ * writes the same bytes of
+ * 
+ * <pre>
+ * output.write(obj.toString(2).getBytes(StandardCharsets.UTF_8));
+ * </pre>
+ * 
+ * @author arian
+ *
+ */
+public class JSONStreamWriter implements Closeable, Flushable {
+
+	private static final int SCOPE_EMPTY_DOCUMENT = 0;
+	private static final int SCOPE_NONEMPTY_DOCUMENT = 1;
+	private static final int SCOPE_EMPTY_ARRAY = 2;
+	private static final int SCOPE_NONEMPTY_ARRAY = 3;
+	private static final int SCOPE_EMPTY_OBJECT = 4;
+	private static final int SCOPE_DANGLING_NAME = 5;
+	private static final int SCOPE_NONEMPTY_OBJECT = 6;
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+	private static final ThreadLocal<byte[]> _buffers = new ThreadLocal<>();
+
+	private final OutputStream _output;
+	private final int _indentFactor;
+	private byte[] _buffer;
+	private int _count;
+	private int[] _stack;
+	private int _stackSize;
+
+	/**
+	 * Write a JSON value in the given output, in the format of
+	 * {@link JSONObject#toString(int)}.
+	 * 
+	 * @param value
+	 *            The value. A {@link JSONObject}, a {@link JSONArray} or any
+	 *            value accepted by them.
+	 * @param output
+	 *            The destination. It is flushed, but not closed.
+	 * @param indentFactor
+	 *            The number of spaces to add to each level of indentation.
+	 */
+	public static void write(Object value, OutputStream output, int indentFactor) throws JSONException {
+		JSONStreamWriter writer = new JSONStreamWriter(output, indentFactor);
+		try {
+			writer.value(value);
+			writer.flush();
+		} finally {
+			writer.release();
+		}
+	}
+
+	/**
+	 * Make a writer without indentation.
+	 */
+	public JSONStreamWriter(OutputStream output) {
+		this(output, 0);
+	}
+
+	/**
+	 * @param output
+	 *            The destination.
+	 * @param indentFactor
+	 *            The number of spaces to add to each level of indentation.
+	 */
+	public JSONStreamWriter(OutputStream output, int indentFactor) {
+		_output = output;
+		_indentFactor = indentFactor;
+
+		_buffer = _buffers.get();
+
+		if (_buffer == null) {
+			_buffer = new byte[BUFFER_SIZE];
+		} else {
+			_buffers.set(null);
+		}
+
+		_stack = new int[32];
+		_stack[_stackSize++] = SCOPE_EMPTY_DOCUMENT;
+	}
+
+	public JSONStreamWriter beginObject() throws JSONException {
+		beforeValue();
+		push(SCOPE_EMPTY_OBJECT);
+		writeByte('{');
+		return this;
+	}
+
+	public JSONStreamWriter endObject() throws JSONException {
+		return end(SCOPE_EMPTY_OBJECT, SCOPE_NONEMPTY_OBJECT, '}');
+	}
+
+	public JSONStreamWriter beginArray() throws JSONException {
+		beforeValue();
+		push(SCOPE_EMPTY_ARRAY);
+		writeByte('[');
+		return this;
+	}
+
+	public JSONStreamWriter endArray() throws JSONException {
+		return end(SCOPE_EMPTY_ARRAY, SCOPE_NONEMPTY_ARRAY, ']');
+	}
+
+	/**
+	 * Write the name of the next object member.
+	 */
+	public JSONStreamWriter name(String name) throws JSONException {
+		if (name == null) {
+			throw new JSONException("Null key.");
+		}
+
+		int scope = _stack[_stackSize - 1];
+
+		if (scope == SCOPE_NONEMPTY_OBJECT) {
+			writeByte(',');
+		} else if (scope != SCOPE_EMPTY_OBJECT) {
+			throw new JSONException("Misplaced key.");
+		}
+
+		newLine(_stackSize - 1);
+		writeQuoted(name);
+		writeByte(':');
+
+		if (_indentFactor > 0) {
+			writeByte(' ');
+		}
+
+		_stack[_stackSize - 1] = SCOPE_DANGLING_NAME;
+
+		return this;
+	}
+
+	public JSONStreamWriter value(String value) throws JSONException {
+		if (value == null) {
+			return nullValue();
+		}
+
+		beforeValue();
+		writeQuoted(value);
+		return this;
+	}
+
+	public JSONStreamWriter value(boolean value) throws JSONException {
+		beforeValue();
+		writeASCII(value ? "true" : "false");
+		return this;
+	}
+
+	public JSONStreamWriter value(long value) throws JSONException {
+		beforeValue();
+		writeLong(value);
+		return this;
+	}
+
+	public JSONStreamWriter value(double value) throws JSONException {
+		beforeValue();
+		writeDouble(value);
+		return this;
+	}
+
+	public JSONStreamWriter nullValue() throws JSONException {
+		beforeValue();
+		writeASCII("null");
+		return this;
+	}
+
+	/**
+	 * Write any value accepted by {@link JSONObject}. The {@link JSONObject} and
+	 * {@link JSONArray} values are written with all their content.
+	 */
+	public JSONStreamWriter value(Object value) throws JSONException {
+		beforeValue();
+		writeValue(value, (_stackSize - 1) * _indentFactor);
+		return this;
+	}
+
+	@Override
+	public void flush() throws JSONException {
+		try {
+			flushBuffer();
+			_output.flush();
+		} catch (IOException e) {
+			throw new JSONException(e);
+		}
+	}
+
+	/**
+	 * Flush and close the output.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			flushBuffer();
+			_output.close();
+		} finally {
+			release();
+		}
+
+		if (_stackSize > 1 || _stack[0] != SCOPE_NONEMPTY_DOCUMENT) {
+			throw new IOException("Incomplete document.");
+		}
+	}
+
+	private void release() {
+		if (_buffer != null) {
+			_buffers.set(_buffer);
+			_buffer = null;
+		}
+	}
+
+	private void beforeValue() throws JSONException {
+		switch (_stack[_stackSize - 1]) {
+		case SCOPE_EMPTY_DOCUMENT:
+			_stack[_stackSize - 1] = SCOPE_NONEMPTY_DOCUMENT;
+			break;
+		case SCOPE_NONEMPTY_ARRAY:
+			writeByte(',');
+			newLine(_stackSize - 1);
+			break;
+		case SCOPE_EMPTY_ARRAY:
+			_stack[_stackSize - 1] = SCOPE_NONEMPTY_ARRAY;
+			newLine(_stackSize - 1);
+			break;
+		case SCOPE_DANGLING_NAME:
+			_stack[_stackSize - 1] = SCOPE_NONEMPTY_OBJECT;
+			break;
+		case SCOPE_NONEMPTY_DOCUMENT:
+			throw new JSONException("Value after the end of the document.");
+		default:
+			throw new JSONException("Value out of sequence.");
+		}
+	}
+
+	private JSONStreamWriter end(int emptyScope, int nonemptyScope, char c) throws JSONException {
+		int scope = _stack[_stackSize - 1];
+
+		if (scope != emptyScope && scope != nonemptyScope) {
+			throw new JSONException(c == ']' ? "Misplaced endArray." : "Misplaced endObject.");
+		}
+
+		_stackSize--;
+
+		if (scope == nonemptyScope) {
+			newLine(_stackSize - 1);
+		}
+
+		writeByte(c);
+
+		return this;
+	}
+
+	private void push(int scope) {
+		if (_stackSize == _stack.length) {
+			int[] stack = new int[_stackSize * 2];
+			System.arraycopy(_stack, 0, stack, 0, _stackSize);
+			_stack = stack;
+		}
+		_stack[_stackSize++] = scope;
+	}
+
+	private void newLine(int depth) throws JSONException {
+		if (_indentFactor > 0) {
+			writeByte('\n');
+			indent(depth * _indentFactor);
+		}
+	}
+
+	private void indent(int indent) throws JSONException {
+		for (int i = 0; i < indent; i++) {
+			writeByte(' ');
+		}
+	}
+
+	/**
+	 * Write a value like {@link JSONObject#writeValue(java.io.Writer, Object, int, int)}.
+	 */
+	@SuppressWarnings("unchecked")
+	private void writeValue(Object value, int indent) throws JSONException {
+		if (value == null || value.equals(null)) {
+			writeASCII("null");
+		} else if (value instanceof String) {
+			writeQuoted((String) value);
+		} else if (value instanceof JSONObject) {
+			writeObject((JSONObject) value, indent);
+		} else if (value instanceof JSONArray) {
+			writeArray((JSONArray) value, indent);
+		} else if (value instanceof Integer || value instanceof Long || value instanceof Short
+				|| value instanceof Byte) {
+			writeLong(((Number) value).longValue());
+		} else if (value instanceof Double) {
+			writeDouble(((Double) value).doubleValue());
+		} else if (value instanceof Number) {
+			writeASCII(JSONObject.numberToString((Number) value));
+		} else if (value instanceof Boolean) {
+			writeASCII(value.toString());
+		} else if (value instanceof Map) {
+			writeObject(new JSONObject((Map<String, Object>) value), indent);
+		} else if (value instanceof Collection) {
+			writeArray(new JSONArray((Collection<Object>) value), indent);
+		} else if (value.getClass().isArray()) {
+			writeArray(new JSONArray(value), indent);
+		} else if (value instanceof JSONString) {
+			Object o;
+			try {
+				o = ((JSONString) value).toJSONString();
+			} catch (Exception e) {
+				throw new JSONException(e);
+			}
+			if (o == null) {
+				writeQuoted(value.toString());
+			} else {
+				writeString(o.toString());
+			}
+		} else {
+			writeQuoted(value.toString());
+		}
+	}
+
+	private void writeObject(JSONObject obj, int indent) throws JSONException {
+		int length = obj.length();
+
+		writeByte('{');
+
+		if (length == 1) {
+			String key = obj.keys().next();
+			writeQuoted(key);
+			writeByte(':');
+			if (_indentFactor > 0) {
+				writeByte(' ');
+			}
+			writeValue(obj.opt(key), indent);
+		} else if (length != 0) {
+			int newIndent = indent + _indentFactor;
+			boolean comma = false;
+
+			for (String key : obj.keySet()) {
+				if (comma) {
+					writeByte(',');
+				}
+				if (_indentFactor > 0) {
+					writeByte('\n');
+				}
+				indent(newIndent);
+				writeQuoted(key);
+				writeByte(':');
+				if (_indentFactor > 0) {
+					writeByte(' ');
+				}
+				writeValue(obj.opt(key), newIndent);
+				comma = true;
+			}
+
+			if (_indentFactor > 0) {
+				writeByte('\n');
+			}
+
+			indent(indent);
+		}
+
+		writeByte('}');
+	}
+
+	private void writeArray(JSONArray array, int indent) throws JSONException {
+		int length = array.length();
+
+		writeByte('[');
+
+		if (length == 1) {
+			writeValue(array.opt(0), indent);
+		} else if (length != 0) {
+			int newIndent = indent + _indentFactor;
+
+			for (int i = 0; i < length; i++) {
+				if (i > 0) {
+					writeByte(',');
+				}
+				if (_indentFactor > 0) {
+					writeByte('\n');
+				}
+				indent(newIndent);
+				writeValue(array.opt(i), newIndent);
+			}
+
+			if (_indentFactor > 0) {
+				writeByte('\n');
+			}
+
+			indent(indent);
+		}
+
+		writeByte(']');
+	}
+
+	private void writeLong(long value) throws JSONException {
+		if (value == Long.MIN_VALUE) {
+			writeASCII(Long.toString(value));
+			return;
+		}
+
+		if (value < 0) {
+			writeByte('-');
+			value = -value;
+		}
+
+		ensure(20);
+
+		int start = _count;
+		do {
+			_buffer[_count++] = (byte) ('0' + value % 10);
+			value /= 10;
+		} while (value != 0);
+
+		for (int i = start, j = _count - 1; i < j; i++, j--) {
+			byte b = _buffer[i];
+			_buffer[i] = _buffer[j];
+			_buffer[j] = b;
+		}
+	}
+
+	/**
+	 * Write a double like {@link JSONObject#numberToString(Number)}.
+	 */
+	private void writeDouble(double value) throws JSONException {
+		if (Double.isInfinite(value) || Double.isNaN(value)) {
+			throw new JSONException("JSON does not allow non-finite numbers.");
+		}
+
+		if (value == (long) value && Math.abs(value) < 1e7 && !(value == 0 && 1 / value < 0)) {
+			// Double.toString() uses the "1.0E7" notation from 10^7
+			writeLong((long) value);
+			return;
+		}
+
+		writeASCII(JSONObject.numberToString(Double.valueOf(value)));
+	}
+
+	private void writeASCII(String str) throws JSONException {
+		int len = str.length();
+		ensure(len);
+		for (int i = 0; i < len; i++) {
+			_buffer[_count++] = (byte) str.charAt(i);
+		}
+	}
+
+	/**
+	 * Write a string without quotes, as UTF-8.
+	 */
+	private void writeString(String str) throws JSONException {
+		int len = str.length();
+		for (int i = 0; i < len; i++) {
+			writeChar(str.charAt(i), str, i);
+			if (Character.isHighSurrogate(str.charAt(i)) && i + 1 < len
+					&& Character.isLowSurrogate(str.charAt(i + 1))) {
+				i++;
+			}
+		}
+	}
+
+	/**
+	 * Write a quoted string, with the escapes of
+	 * {@link JSONObject#quote(String, java.io.Writer)}.
+	 */
+	private void writeQuoted(String str) throws JSONException {
+		writeByte('"');
+
+		int len = str.length();
+		char c = 0;
+
+		for (int i = 0; i < len; i++) {
+			char b = c;
+			c = str.charAt(i);
+
+			switch (c) {
+			case '\\':
+			case '"':
+				writeByte('\\');
+				writeByte(c);
+				break;
+			case '/':
+				if (b == '<') {
+					writeByte('\\');
+				}
+				writeByte(c);
+				break;
+			case '\b':
+				writeEscape('b');
+				break;
+			case '\t':
+				writeEscape('t');
+				break;
+			case '\n':
+				writeEscape('n');
+				break;
+			case '\f':
+				writeEscape('f');
+				break;
+			case '\r':
+				writeEscape('r');
+				break;
+			default:
+				if (c < ' ' || (c >= '\u0080' && c < '\u00a0') || (c >= '\u2000' && c < '\u2100')) {
+					ensure(6);
+					_buffer[_count++] = '\\';
+					_buffer[_count++] = 'u';
+					_buffer[_count++] = HEX[c >> 12 & 0xf];
+					_buffer[_count++] = HEX[c >> 8 & 0xf];
+					_buffer[_count++] = HEX[c >> 4 & 0xf];
+					_buffer[_count++] = HEX[c & 0xf];
+				} else {
+					writeChar(c, str, i);
+					if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(str.charAt(i + 1))) {
+						i++;
+						c = str.charAt(i);
+					}
+				}
+			}
+		}
+
+		writeByte('"');
+	}
+
+	private void writeEscape(char c) throws JSONException {
+		ensure(2);
+		_buffer[_count++] = '\\';
+		_buffer[_count++] = (byte) c;
+	}
+
+	/**
+	 * Encode the char <code>c</code>, at the index <code>i</code> of
+	 * <code>str</code>, as UTF-8. A surrogate pair is encoded as a single code
+	 * point.
+	 */
+	private void writeChar(char c, String str, int i) throws JSONException {
+		ensure(4);
+
+		if (c < 0x80) {
+			_buffer[_count++] = (byte) c;
+		} else if (c < 0x800) {
+			_buffer[_count++] = (byte) (0xc0 | c >> 6);
+			_buffer[_count++] = (byte) (0x80 | c & 0x3f);
+		} else if (Character.isHighSurrogate(c) && i + 1 < str.length()
+				&& Character.isLowSurrogate(str.charAt(i + 1))) {
+			int cp = Character.toCodePoint(c, str.charAt(i + 1));
+			_buffer[_count++] = (byte) (0xf0 | cp >> 18);
+			_buffer[_count++] = (byte) (0x80 | cp >> 12 & 0x3f);
+			_buffer[_count++] = (byte) (0x80 | cp >> 6 & 0x3f);
+			_buffer[_count++] = (byte) (0x80 | cp & 0x3f);
+		} else if (Character.isSurrogate(c)) {
+			// a lone surrogate, like String.getBytes(UTF_8)
+			_buffer[_count++] = '?';
+		} else {
+			_buffer[_count++] = (byte) (0xe0 | c >> 12);
+			_buffer[_count++] = (byte) (0x80 | c >> 6 & 0x3f);
+			_buffer[_count++] = (byte) (0x80 | c & 0x3f);
+		}
+	}
+
+	private void writeByte(char c) throws JSONException {
+		ensure(1);
+		_buffer[_count++] = (byte) c;
+	}
+
+	private void ensure(int n) throws JSONException {
+		if (_buffer == null) {
+			throw new JSONException("The writer is closed.");
+		}
+
+		if (_count + n > _buffer.length) {
+			try {
+				flushBuffer();
+			} catch (IOException e) {
+				throw new JSONException(e);
+			}
+		}
+	}
+
+	private void flushBuffer() throws IOException {
+		if (_count > 0) {
+			_output.write(_buffer, 0, _count);
+			_count = 0;
+		}
+	}
+}
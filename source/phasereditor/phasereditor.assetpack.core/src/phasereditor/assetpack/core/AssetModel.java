@@ -59,7 +59,7 @@ public abstract class AssetModel implements IAssetKey, IAdaptable {
 
 	static {
 		PhaserJSDoc jsdoc = PhaserJSDoc.getInstance();
-		PhaserType phaserType = jsdoc.getTypesMap().get("Phaser.Loader");
+		PhaserType phaserType = jsdoc.getType("Phaser.Loader");
 
 		// the phaserType can be null if the phaser version is wrong.
 		if (phaserType != null) {
@@ -146,6 +146,8 @@ public abstract class AssetModel implements IAssetKey, IAdaptable {
 	private String _help;
 	private AssetSectionModel _section;
 	private IFile[] _lastUsedFiles;
+	private transient Set<IPath> _indexedPaths;
+	private transient volatile Map<String, List<IAssetElementModel>> _subElementsIndex;
 
 	public AssetModel(String key, AssetType type, AssetSectionModel section) throws JSONException {
 		_key = key;
@@ -185,6 +187,9 @@ public abstract class AssetModel implements IAssetKey, IAdaptable {
 
 	public void setKey(String key, boolean notify) {
 		_key = key;
+		if (_section != null && _section.getPack() != null) {
+			_section.getPack().invalidateKeyIndex();
+		}
 		if (notify) {
 			firePropertyChange("key");
 			AssetPackModel model = getPack();
@@ -261,7 +266,20 @@ public abstract class AssetModel implements IAssetKey, IAdaptable {
 
 	public void firePropertyChange(String property) {
 		_support.firePropertyChange(property, true, false);
-		getPack().setDirty(true);
+		AssetPackModel pack = getPack();
+		pack.setDirty(true);
+		if (isUsedFilesProperty(property)) {
+			pack.updateUsedFilesIndex(this);
+		}
+		_subElementsIndex = null;
+	}
+
+	/**
+	 * If the given property can change the files used by the asset, like the
+	 * URL properties.
+	 */
+	private static boolean isUsedFilesProperty(String property) {
+		return property.startsWith("url") || property.endsWith("URL") || property.equals("section");
 	}
 
 	@SuppressWarnings("static-method")
@@ -273,6 +291,76 @@ public abstract class AssetModel implements IAssetKey, IAdaptable {
 		return _lastUsedFiles;
 	}
 
+	/**
+	 * Compute the path of the files referenced by the URLs of this asset,
+	 * including the files that do not exist. The assets with URLs override it.
+	 * 
+	 * @return A new, modifiable set of paths.
+	 */
+	@SuppressWarnings("static-method")
+	protected Set<IPath> computeReferencedPaths() {
+		return new HashSet<>();
+	}
+
+	/**
+	 * Compute the path of the files referenced by this asset, including the
+	 * files that do not exist, and the files used in the last build.
+	 * 
+	 * @return The set of paths.
+	 */
+	public Set<IPath> computeUsedPaths() {
+		Set<IPath> paths = computeReferencedPaths();
+
+		for (IFile file : _lastUsedFiles) {
+			if (file != null) {
+				paths.add(file.getFullPath());
+			}
+		}
+
+		return paths;
+	}
+
+	/**
+	 * The paths registered in the pack used-files index. Only accessed by the
+	 * pack, under its lock.
+	 */
+	Set<IPath> getIndexedPaths() {
+		return _indexedPaths;
+	}
+
+	void setIndexedPaths(Set<IPath> indexedPaths) {
+		_indexedPaths = indexedPaths;
+	}
+
+	/**
+	 * The path of the file referenced by the given URL, even if the file does
+	 * not exist.
+	 * 
+	 * @return The workspace path, or <code>null</code> if the URL is empty.
+	 */
+	public IPath getPathFromUrl(String url) {
+		if (url == null || url.length() == 0) {
+			return null;
+		}
+
+		return getPack().getWebContentFolder().getFile(new Path(url)).getFullPath();
+	}
+
+	public Set<IPath> getPathsFromUrls(String... urls) {
+		return getPathsFromUrls(Arrays.asList(urls));
+	}
+
+	public Set<IPath> getPathsFromUrls(List<String> urls) {
+		Set<IPath> paths = new HashSet<>();
+		for (String url : urls) {
+			IPath path = getPathFromUrl(url);
+			if (path != null) {
+				paths.add(path);
+			}
+		}
+		return paths;
+	}
+
 	public List<IFile> getFilesFromUrls(String... urls) {
 		return getFilesFromUrls(Arrays.asList(urls));
 	}
@@ -307,6 +395,33 @@ public abstract class AssetModel implements IAssetKey, IAdaptable {
 		return Collections.emptyList();
 	}
 
+	/**
+	 * Find the sub-elements with the given name. The sub-elements are indexed
+	 * by name on demand, the index is discarded when the asset is built or
+	 * changed.
+	 * 
+	 * @param name
+	 *            The name of the element.
+	 * @return The matching elements.
+	 */
+	public List<IAssetElementModel> findSubElements(String name) {
+		Map<String, List<IAssetElementModel>> index = _subElementsIndex;
+
+		if (index == null) {
+			index = new HashMap<>();
+
+			for (IAssetElementModel elem : getSubElements()) {
+				index.computeIfAbsent(elem.getName(), k -> new ArrayList<>(1)).add(elem);
+			}
+
+			_subElementsIndex = index;
+		}
+
+		List<IAssetElementModel> list = index.get(name);
+
+		return list == null ? Collections.emptyList() : list;
+	}
+
 	/**
 	 * Return <code>null</code> if the given string is <code>null</code> or the
 	 * empty string.
@@ -328,8 +443,12 @@ public abstract class AssetModel implements IAssetKey, IAdaptable {
 	public final void build(List<IStatus> problems) {
 		_lastUsedFiles = computeUsedFiles();
 
+		getPack().updateUsedFilesIndex(this);
+
 		internalBuild(problems);
 
+		// the sub-elements are re-created
+		_subElementsIndex = null;
 	}
 
 	protected abstract void internalBuild(List<IStatus> problems);
@@ -30,9 +30,7 @@ import java.util.Set;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
-import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IResourceDelta;
-import org.eclipse.core.resources.IResourceDeltaVisitor;
 import org.eclipse.core.resources.IWorkspaceRoot;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
@@ -42,6 +40,8 @@ import org.eclipse.core.runtime.IStatus;
 import phasereditor.assetpack.core.AssetPackCore.PackDelta;
 import phasereditor.project.core.IProjectBuildParticipant;
 import phasereditor.project.core.ProjectCore;
+import phasereditor.project.core.ResourceDeltaIndex;
+import phasereditor.project.core.ResourceDeltaIndex.FileDelta;
 
 /**
  * @author arian
@@ -91,105 +91,79 @@ public class AssetPackBuildParticipant implements IProjectBuildParticipant {
 
 			IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
 
+			ResourceDeltaIndex index = ResourceDeltaIndex.getIndex(env, mainDelta);
+
 			// check for the packs to delete
 
-			mainDelta.accept(new IResourceDeltaVisitor() {
-
-				@Override
-				public boolean visit(IResourceDelta delta) throws CoreException {
-					IResource deltaResource = delta.getResource();
-
-					List<AssetPackModel> packs = AssetPackCore.getAssetPackModels(project);
-
-					if (deltaResource instanceof IFile) {
-						IFile deltaFile = (IFile) deltaResource;
-
-						int kind = delta.getKind();
-
-						switch (kind) {
-						case IResourceDelta.REMOVED:
-							for (AssetPackModel pack : packs) {
-								if (deltaFile.equals(pack.getFile())) {
-									IPath movedTo = delta.getMovedToPath();
-									if (movedTo == null) {
-										// removed: delete pack from map
-										AssetPackCore.removeAssetPackModel(pack);
-									} else {
-										// moved: update the pack
-										if (movedTo.getFileExtension().equals("json")) {
-											AssetPackCore.moveAssetPackModel(root.getFile(movedTo), pack);
-										} else {
-											AssetPackCore.removeAssetPackModel(pack);
-										}
-									}
-
-									// add the pack and all assets to the
-									// delta
-									packDelta.add(pack);
-									packDelta.getAssets().addAll(pack.getAssets());
-								}
-							}
-							break;
-						case IResourceDelta.CHANGED:
-							if (AssetPackCore.isAssetPackFile(deltaFile)) {
-								try {
-									AssetPackCore.resetAssetPackModel(deltaFile);
-								} catch (Exception e) {
-									AssetPackCore.logError(e);
-								}
-							}
-							break;
-						case IResourceDelta.ADDED:
-							// just added:
-							IPath movedFrom = delta.getMovedFromPath();
-							if (movedFrom == null && AssetPackCore.isAssetPackFile(deltaFile)) {
-								AssetPackCore.getAssetPackModel(deltaFile, true);
+			for (FileDelta delta : index.getFileDeltas()) {
+				IFile deltaFile = delta.getFile();
+
+				switch (delta.getKind()) {
+				case IResourceDelta.REMOVED:
+					AssetPackModel pack = AssetPackCore.getAssetPackModel(deltaFile, false);
+					if (pack != null) {
+						IPath movedTo = delta.getMovedToPath();
+						if (movedTo == null) {
+							// removed: delete pack from map
+							AssetPackCore.removeAssetPackModel(pack);
+						} else {
+							// moved: update the pack
+							if (movedTo.getFileExtension().equals("json")) {
+								AssetPackCore.moveAssetPackModel(root.getFile(movedTo), pack);
+							} else {
+								AssetPackCore.removeAssetPackModel(pack);
 							}
-							break;
-						default:
-							break;
 						}
+
+						// add the pack and all assets to the
+						// delta
+						packDelta.add(pack);
+						packDelta.getAssets().addAll(pack.getAssets());
+					}
+					break;
+				case IResourceDelta.CHANGED:
+					if (isAssetPackFile(delta)) {
+						try {
+							AssetPackCore.resetAssetPackModel(deltaFile);
+						} catch (Exception e) {
+							AssetPackCore.logError(e);
+						}
+					}
+					break;
+				case IResourceDelta.ADDED:
+					// just added:
+					IPath movedFrom = delta.getMovedFromPath();
+					if (movedFrom == null && isAssetPackFile(delta)) {
+						AssetPackCore.getAssetPackModel(deltaFile, true);
 					}
-					return true;
+					break;
+				default:
+					break;
 				}
-			});
+			}
 
 			// compute delta packs affected by the change
 
-			List<AssetPackModel> allPacks = AssetPackCore.getAssetPackModels(project);
-
 			// TODO: probably this is not going to work.
 			// delta packs can be computed by comparing the old model with the
 			// new model.
 
-			mainDelta.accept(new IResourceDeltaVisitor() {
-
-				@Override
-				public boolean visit(IResourceDelta delta) throws CoreException {
-					IResource resource = delta.getResource();
-					if (resource instanceof IFile) {
+			for (FileDelta delta : index.getFileDeltas()) {
+				IPath movedTo = delta.getMovedToPath();
+				IPath movedFrom = delta.getMovedFromPath();
+				IPath deltaPath = delta.getFile().getFullPath();
 
-						IPath movedTo = delta.getMovedToPath();
-						IPath movedFrom = delta.getMovedFromPath();
-						IPath deltaPath = resource.getFullPath();
-
-						for (AssetPackModel pack : allPacks) {
-							if (movedTo != null) {
-								packDelta.add(pack.computeDelta(movedTo));
-							}
-
-							if (movedFrom != null) {
-								packDelta.add(pack.computeDelta(movedFrom));
-							}
+				for (IPath path : new IPath[] { movedTo, movedFrom, deltaPath }) {
+					if (path == null) {
+						continue;
+					}
 
-							if (deltaPath != null) {
-								packDelta.add(pack.computeDelta(deltaPath));
-							}
-						}
+					// only the packs using the file are affected
+					for (AssetPackModel pack : AssetPackCore.findAssetPackModelsUsingPath(project, path)) {
+						packDelta.add(pack.computeDelta(path));
 					}
-					return true;
 				}
-			});
+			}
 
 			// build and validate all the affected packs
 			{
@@ -244,6 +218,12 @@ public class AssetPackBuildParticipant implements IProjectBuildParticipant {
 		}
 	}
 
+	private static boolean isAssetPackFile(FileDelta delta) throws CoreException {
+		// the content type is already computed by the index, so check it first
+		return AssetPackContentDescriber.CONTENT_TYPE_ID.equals(delta.getContentTypeId())
+				&& AssetPackCore.isAssetPackFile(delta.getFile());
+	}
+
 	private static void createAssetPackMarker(IFile file, IStatus problem) {
 		ProjectCore.createErrorMarker(AssetPackCore.ASSET_PACK_PROBLEM_ID, problem, file);
 	}
@@ -28,13 +28,14 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
@@ -49,6 +50,7 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IConfigurationElement;
 import org.eclipse.core.runtime.IExtension;
 import org.eclipse.core.runtime.IExtensionPoint;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.Status;
@@ -114,7 +116,9 @@ public class AssetPackCore {
 	public static List<AssetModel> findAssetResourceReferencesInPack(IFile assetFile, AssetPackModel pack) {
 		List<AssetModel> list = new ArrayList<>();
 
-		for (AssetModel asset : pack.getAssets()) {
+		// the index contains the files of the last build too, so check only
+		// the candidates with the current files
+		for (AssetModel asset : pack.findAssetsUsingPath(assetFile.getFullPath())) {
 			IFile[] usedFiles = asset.computeUsedFiles();
 			for (IFile file : usedFiles) {
 				if (assetFile.equals(file)) {
@@ -486,20 +490,174 @@ public class AssetPackCore {
 		}
 	}
 
-	protected static Map<IFile, AssetPackModel> _filePackMap = new HashMap<>();
+	/**
+	 * The asset packs of a project. Writes are serialized by the registry
+	 * monitor, reads are lock-free: the files map is concurrent and the list
+	 * of packs is a copy-on-write snapshot.
+	 */
+	private static class ProjectPackRegistry {
+		private final Map<IFile, AssetPackModel> _filePackMap = new ConcurrentHashMap<>();
+		private volatile List<AssetPackModel> _packs = Collections.emptyList();
+		/**
+		 * The packs using a file: the files of the assets (see
+		 * {@link AssetPackModel#findAssetsUsingPath(IPath)}) and the pack file
+		 * itself. The sets are copy-on-write.
+		 */
+		private final Map<IPath, Set<AssetPackModel>> _pathPacksMap = new ConcurrentHashMap<>();
 
-	public static List<AssetPackModel> getAssetPackModels(IProject project) {
-		synchronized (_filePackMap) {
-			List<AssetPackModel> list = new ArrayList<>();
-			for (AssetPackModel model : _filePackMap.values()) {
-				IFile file = model.getFile();
-				IProject project2 = file.getProject();
-				if (project2.equals(project)) {
-					list.add(model);
+		public AssetPackModel get(IFile file) {
+			return _filePackMap.get(file);
+		}
+
+		public List<AssetPackModel> getPacks() {
+			return _packs;
+		}
+
+		public synchronized void put(IFile file, AssetPackModel model) {
+			AssetPackModel old = _filePackMap.put(file, model);
+
+			if (old != null && old != model) {
+				removeUsedPaths(old);
+			}
+
+			addUsedPath(model, file.getFullPath());
+
+			for (IPath path : model.getUsedPaths()) {
+				addUsedPath(model, path);
+			}
+
+			updatePacks();
+		}
+
+		public synchronized void remove(IFile file) {
+			AssetPackModel model = _filePackMap.remove(file);
+
+			if (model != null) {
+				removeUsedPaths(model);
+				updatePacks();
+			}
+		}
+
+		public Set<AssetPackModel> getPacksUsingPath(IPath path) {
+			Set<AssetPackModel> packs = _pathPacksMap.get(path);
+			return packs == null ? Collections.emptySet() : packs;
+		}
+
+		public void addUsedPath(AssetPackModel pack, IPath path) {
+			_pathPacksMap.compute(path, (k, packs) -> {
+				if (packs != null && packs.contains(pack)) {
+					return packs;
 				}
+				Set<AssetPackModel> set = packs == null ? new HashSet<>() : new HashSet<>(packs);
+				set.add(pack);
+				return Collections.unmodifiableSet(set);
+			});
+		}
+
+		public void removeUsedPath(AssetPackModel pack, IPath path) {
+			_pathPacksMap.computeIfPresent(path, (k, packs) -> {
+				if (!packs.contains(pack)) {
+					return packs;
+				}
+				Set<AssetPackModel> set = new HashSet<>(packs);
+				set.remove(pack);
+				return set.isEmpty() ? null : Collections.unmodifiableSet(set);
+			});
+		}
+
+		private void removeUsedPaths(AssetPackModel pack) {
+			for (IPath path : new ArrayList<>(_pathPacksMap.keySet())) {
+				removeUsedPath(pack, path);
 			}
-			return list;
 		}
+
+		private void updatePacks() {
+			_packs = Collections.unmodifiableList(new ArrayList<>(_filePackMap.values()));
+		}
+	}
+
+	private static final Map<IProject, ProjectPackRegistry> _projectPacksMap = new ConcurrentHashMap<>();
+
+	private static ProjectPackRegistry getRegistry(IProject project) {
+		return _projectPacksMap.computeIfAbsent(project, k -> new ProjectPackRegistry());
+	}
+
+	/**
+	 * Get the asset packs of the given project.
+	 * 
+	 * @param project
+	 *            The project.
+	 * @return An unmodifiable snapshot of the project packs. It is not
+	 *         affected by the packs added or removed later.
+	 */
+	public static List<AssetPackModel> getAssetPackModels(IProject project) {
+		ProjectPackRegistry registry = _projectPacksMap.get(project);
+
+		if (registry == null) {
+			return Collections.emptyList();
+		}
+
+		return registry.getPacks();
+	}
+
+	/**
+	 * Find the packs affected by a change in the given file: the packs with
+	 * assets using the file (or that used it in the last build), or the pack
+	 * of the file.
+	 * 
+	 * @param project
+	 *            The project of the packs.
+	 * @param path
+	 *            The full path of the file. The file may not exist.
+	 * @return The packs using the file.
+	 */
+	public static Set<AssetPackModel> findAssetPackModelsUsingPath(IProject project, IPath path) {
+		ProjectPackRegistry registry = _projectPacksMap.get(project);
+
+		if (registry == null) {
+			return Collections.emptySet();
+		}
+
+		return registry.getPacksUsingPath(path);
+	}
+
+	/**
+	 * Called by the pack when the first of its assets starts to use the file of
+	 * the given path.
+	 */
+	static void usedPathAdded(AssetPackModel pack, IPath path) {
+		ProjectPackRegistry registry = getRegisteredPackRegistry(pack);
+
+		if (registry != null) {
+			registry.addUsedPath(pack, path);
+		}
+	}
+
+	/**
+	 * Called by the pack when none of its assets uses the file of the given
+	 * path.
+	 */
+	static void usedPathRemoved(AssetPackModel pack, IPath path) {
+		ProjectPackRegistry registry = getRegisteredPackRegistry(pack);
+
+		if (registry != null && !path.equals(pack.getFile().getFullPath())) {
+			registry.removeUsedPath(pack, path);
+		}
+	}
+
+	/**
+	 * The registry of the pack, only if the pack is the registered one (and not,
+	 * for example, a copy used by an editor).
+	 */
+	private static ProjectPackRegistry getRegisteredPackRegistry(AssetPackModel pack) {
+		IFile file = pack.getFile();
+		ProjectPackRegistry registry = _projectPacksMap.get(file.getProject());
+
+		if (registry != null && registry.get(file) == pack) {
+			return registry;
+		}
+
+		return null;
 	}
 
 	/**
@@ -515,18 +673,7 @@ public class AssetPackCore {
 		List<Object> list = new ArrayList<>();
 		List<AssetPackModel> packs = getAssetPackModels(project);
 		for (AssetPackModel pack : packs) {
-			List<AssetModel> assets = pack.getAssets();
-			for (AssetModel asset : assets) {
-				if (asset.getKey().equals(key)) {
-					list.add(asset);
-				}
-				List<? extends IAssetElementModel> elems = asset.getSubElements();
-				for (IAssetElementModel elem : elems) {
-					if (elem.getName().equals(key)) {
-						list.add(elem);
-					}
-				}
-			}
+			list.addAll(pack.findAssetObjects(key));
 		}
 		return list;
 	}
@@ -542,9 +689,11 @@ public class AssetPackCore {
 			discoverAssetPackModels(project);
 		}
 
-		synchronized (_filePackMap) {
-			return new ArrayList<>(_filePackMap.values());
+		List<AssetPackModel> list = new ArrayList<>();
+		for (ProjectPackRegistry registry : _projectPacksMap.values()) {
+			list.addAll(registry.getPacks());
 		}
+		return list;
 	}
 
 	public static void discoverAssetPackModels(IProject project) {
@@ -580,40 +729,48 @@ public class AssetPackCore {
 	}
 
 	public static AssetPackModel getAssetPackModel(IFile file, boolean forceCreate) {
+		if (!forceCreate) {
+			ProjectPackRegistry registry = _projectPacksMap.get(file.getProject());
+			return registry == null ? null : registry.get(file);
+		}
 
-		synchronized (_filePackMap) {
+		ProjectPackRegistry registry = getRegistry(file.getProject());
 
-			if (_filePackMap.containsKey(file)) {
-				return _filePackMap.get(file);
-			}
+		AssetPackModel model = registry.get(file);
+
+		if (model != null) {
+			return model;
+		}
+
+		synchronized (registry) {
+			model = registry.get(file);
 
-			if (forceCreate) {
-				AssetPackModel model;
+			if (model == null) {
 				try {
 					model = new AssetPackModel(file);
-					_filePackMap.put(file, model);
-
-					return model;
+					registry.put(file, model);
 				} catch (Exception e) {
 					e.printStackTrace();
 					throw new RuntimeException(e);
 				}
 			}
 
-			return null;
+			return model;
 		}
 	}
 
 	public static AssetPackModel resetAssetPackModel(IFile file) throws Exception {
-		synchronized (_filePackMap) {
+		ProjectPackRegistry registry = getRegistry(file.getProject());
+
+		synchronized (registry) {
 
 			if (file.exists()) {
 				AssetPackModel model = new AssetPackModel(file);
-				_filePackMap.put(file, model);
+				registry.put(file, model);
 				return model;
 			}
 
-			_filePackMap.remove(file);
+			registry.remove(file);
 
 			return null;
 		}
@@ -629,19 +786,22 @@ public class AssetPackCore {
 		for (AssetPackModel pack : list) {
 			removeAssetPackModel(pack);
 		}
+		_projectPacksMap.remove(project);
 	}
 
 	public static void moveAssetPackModel(IFile newFile, AssetPackModel model) {
-		synchronized (_filePackMap) {
+		IFile oldFile = model.getFile();
 
-			IFile oldFile = model.getFile();
+		ProjectPackRegistry oldRegistry = _projectPacksMap.get(oldFile.getProject());
 
-			_filePackMap.remove(oldFile);
+		if (oldRegistry != null) {
+			oldRegistry.remove(oldFile);
+		}
 
-			if (newFile != null) {
-				_filePackMap.put(newFile, model);
-				model.setFile(newFile);
-			}
+		if (newFile != null) {
+			// the new file could be in other project
+			getRegistry(newFile.getProject()).put(newFile, model);
+			model.setFile(newFile);
 		}
 	}
 
@@ -859,4 +1019,4 @@ public class AssetPackCore {
 
 		return null;
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -31,9 +31,11 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -67,6 +69,8 @@ public final class AssetPackModel {
 	protected List<AssetSectionModel> _sections;
 	private IFile _file;
 	private boolean _dirty;
+	private Map<IPath, Set<AssetModel>> _usedFilesIndex;
+	private KeyIndex _keyIndex;
 
 	public AssetPackModel(IFile file) throws Exception {
 		this(readJSON(file), file);
@@ -108,24 +112,204 @@ public final class AssetPackModel {
 			return delta;
 		}
 
-		for (AssetModel asset : getAssets()) {
-			IFile[] lastUsedFiles = asset.getLastUsedFiles();
-			IFile[] usedFiles = asset.computeUsedFiles();
-			IFile[][] allfiles = { lastUsedFiles, usedFiles };
-
-			for (IFile[] files : allfiles) {
-				for (IFile file : files) {
-					if (file != null) {
-						IPath path = file.getFullPath();
-						if (path.equals(deltaFilePath)) {
-							delta.add(asset);
-						}
+		for (AssetModel asset : findAssetsUsingPath(deltaFilePath)) {
+			delta.add(asset);
+		}
+
+		return delta;
+	}
+
+	/**
+	 * Find the assets that use (or used in the last build) the file of the
+	 * given path. The file may not exist.
+	 * 
+	 * @param path
+	 *            The full path of the file.
+	 * @return The list of assets.
+	 */
+	public synchronized List<AssetModel> findAssetsUsingPath(IPath path) {
+		Set<AssetModel> assets = getUsedFilesIndex().get(path);
+
+		if (assets == null) {
+			return Collections.emptyList();
+		}
+
+		List<AssetModel> list = new ArrayList<>(assets.size());
+
+		for (AssetModel asset : assets) {
+			// the asset could be moved to other pack
+			if (asset.getPack() == this) {
+				list.add(asset);
+			}
+		}
+
+		return list;
+	}
+
+	private Map<IPath, Set<AssetModel>> getUsedFilesIndex() {
+		if (_usedFilesIndex == null) {
+			_usedFilesIndex = new HashMap<>();
+
+			for (AssetModel asset : getAssets()) {
+				indexAsset(asset);
+			}
+		}
+
+		return _usedFilesIndex;
+	}
+
+	/**
+	 * Update the used-files index with the current files of the asset. It is
+	 * called when the asset is built, added or modified.
+	 */
+	synchronized void updateUsedFilesIndex(AssetModel asset) {
+		if (_usedFilesIndex == null) {
+			// it will be computed on demand
+			return;
+		}
+
+		unindexAsset(asset);
+
+		if (asset.getPack() == this) {
+			indexAsset(asset);
+		}
+	}
+
+	synchronized void removeFromUsedFilesIndex(AssetModel asset) {
+		if (_usedFilesIndex != null) {
+			unindexAsset(asset);
+		}
+	}
+
+	/**
+	 * The paths of the files used by the assets of this pack.
+	 */
+	synchronized Set<IPath> getUsedPaths() {
+		return new HashSet<>(getUsedFilesIndex().keySet());
+	}
+
+	private void indexAsset(AssetModel asset) {
+		Set<IPath> paths = asset.computeUsedPaths();
+
+		for (IPath path : paths) {
+			Set<AssetModel> assets = _usedFilesIndex.get(path);
+
+			if (assets == null) {
+				assets = new HashSet<>();
+				_usedFilesIndex.put(path, assets);
+				AssetPackCore.usedPathAdded(this, path);
+			}
+
+			assets.add(asset);
+		}
+
+		asset.setIndexedPaths(paths);
+	}
+
+	private void unindexAsset(AssetModel asset) {
+		Set<IPath> paths = asset.getIndexedPaths();
+
+		if (paths == null) {
+			return;
+		}
+
+		for (IPath path : paths) {
+			Set<AssetModel> assets = _usedFilesIndex.get(path);
+			if (assets != null) {
+				assets.remove(asset);
+				if (assets.isEmpty()) {
+					_usedFilesIndex.remove(path);
+					AssetPackCore.usedPathRemoved(this, path);
+				}
+			}
+		}
+
+		asset.setIndexedPaths(null);
+	}
+
+	/**
+	 * Index of the keys of the sections and assets. It is computed on demand
+	 * and discarded when a section or asset is added, removed or renamed. The
+	 * elements are indexed by each asset (see
+	 * {@link AssetModel#findSubElements(String)}).
+	 */
+	private static class KeyIndex {
+		// section key -> section
+		Map<String, AssetSectionModel> sections = new HashMap<>();
+
+		// section key -> asset key -> asset
+		Map<String, Map<String, AssetModel>> sectionAssets = new HashMap<>();
+
+		// asset key -> assets of all the sections
+		Map<String, List<AssetModel>> assets = new HashMap<>();
+	}
+
+	private synchronized KeyIndex getKeyIndex() {
+		if (_keyIndex == null) {
+			KeyIndex index = new KeyIndex();
+
+			for (AssetSectionModel section : _sections) {
+				String sectionKey = section.getKey();
+
+				Map<String, AssetModel> sectionAssets = null;
+
+				if (sectionKey != null) {
+					index.sections.putIfAbsent(sectionKey, section);
+					sectionAssets = index.sectionAssets.computeIfAbsent(sectionKey, k -> new HashMap<>());
+				}
+
+				for (AssetModel asset : section.getAssets()) {
+					String key = asset.getKey();
+
+					if (key == null) {
+						continue;
+					}
+
+					index.assets.computeIfAbsent(key, k -> new ArrayList<>(1)).add(asset);
+
+					if (sectionAssets != null) {
+						// like in the linear search, the first asset wins
+						sectionAssets.putIfAbsent(key, asset);
 					}
 				}
 			}
+
+			_keyIndex = index;
 		}
 
-		return delta;
+		return _keyIndex;
+	}
+
+	/**
+	 * Discard the key index. It is called when a section or asset is added,
+	 * removed or renamed.
+	 */
+	synchronized void invalidateKeyIndex() {
+		_keyIndex = null;
+	}
+
+	/**
+	 * Find the assets or asset elements with the given key.
+	 * 
+	 * @param key
+	 *            The key of the asset or the name of the element.
+	 * @return The list of matching assets, from the key index, followed by the
+	 *         matching elements of all the assets.
+	 */
+	public List<Object> findAssetObjects(String key) {
+		List<Object> list = new ArrayList<>();
+
+		List<AssetModel> assets = getKeyIndex().assets.get(key);
+
+		if (assets != null) {
+			list.addAll(assets);
+		}
+
+		for (AssetModel asset : getAssets()) {
+			list.addAll(asset.findSubElements(key));
+		}
+
+		return list;
 	}
 
 	public List<IStatus> build() {
@@ -442,6 +626,10 @@ public final class AssetPackModel {
 	public void addSection(int index, AssetSectionModel section, boolean notify) {
 		section.setPack(this);
 		_sections.add(index, section);
+		invalidateKeyIndex();
+		for (AssetModel asset : section.getAssets()) {
+			updateUsedFilesIndex(asset);
+		}
 		if (notify) {
 			setDirty(true);
 		}
@@ -449,6 +637,10 @@ public final class AssetPackModel {
 
 	public void removeSection(AssetSectionModel section, boolean notify) {
 		_sections.remove(section);
+		invalidateKeyIndex();
+		for (AssetModel asset : section.getAssets()) {
+			removeFromUsedFilesIndex(asset);
+		}
 		if (notify) {
 			setDirty(true);
 		}
@@ -472,23 +664,16 @@ public final class AssetPackModel {
 		if (key == null) {
 			return null;
 		}
-		for (AssetSectionModel section : _sections) {
-			String key2 = section.getKey();
-			if (key2 != null && key2.equals(key)) {
-				return section;
-			}
-		}
-		return null;
+		return getKeyIndex().sections.get(key);
 	}
 
 	public AssetModel findAsset(String sectionKey, String assetKey) {
-		AssetSectionModel section = findSection(sectionKey);
-
-		if (section == null) {
+		if (sectionKey == null || assetKey == null) {
 			return null;
 		}
+		Map<String, AssetModel> assets = getKeyIndex().sectionAssets.get(sectionKey);
 
-		return section.findAsset(assetKey);
+		return assets == null ? null : assets.get(assetKey);
 	}
 
 	public String createKey(String prefix) {
@@ -598,7 +783,7 @@ public final class AssetPackModel {
 			if (section == null) {
 				return null;
 			}
-			asset = section.findAsset(obj.getString("asset"));
+			asset = findAsset(section.getKey(), obj.getString("asset"));
 
 			if (asset == null) {
 				return null;
@@ -606,12 +791,8 @@ public final class AssetPackModel {
 
 			if (obj.has("sprite")) {
 				String spriteName = obj.getString("sprite");
-				for (IAssetElementModel elem : asset.getSubElements()) {
-					if (elem.getName().equals(spriteName)) {
-						return elem;
-					}
-				}
-				return null;
+				List<IAssetElementModel> elems = asset.findSubElements(spriteName);
+				return elems.isEmpty() ? null : elems.get(0);
 			}
 
 			return asset;
@@ -71,6 +71,10 @@ public class AssetSectionModel implements IAdaptable {
 	public void addAsset(int index, AssetModel asset, boolean notify) {
 		asset.setSection(this, notify);
 		_assets.add(index, asset);
+		if (_pack != null) {
+			_pack.updateUsedFilesIndex(asset);
+			_pack.invalidateKeyIndex();
+		}
 		if (notify) {
 			getPack().setDirty(true);
 		}
@@ -90,6 +94,9 @@ public class AssetSectionModel implements IAdaptable {
 
 	public void setKey(String key, boolean notify) {
 		_key = key;
+		if (_pack != null) {
+			_pack.invalidateKeyIndex();
+		}
 		if (notify) {
 			firePropertyChange("key");
 			getPack().firePropertyChange(AssetPackModel.PROP_ASSET_KEY);
@@ -127,6 +134,10 @@ public class AssetSectionModel implements IAdaptable {
 
 	public void removeAsset(AssetModel asset, boolean notify) {
 		_assets.remove(asset);
+		if (_pack != null) {
+			_pack.removeFromUsedFilesIndex(asset);
+			_pack.invalidateKeyIndex();
+		}
 		if (notify) {
 			getPack().setDirty(true);
 		}
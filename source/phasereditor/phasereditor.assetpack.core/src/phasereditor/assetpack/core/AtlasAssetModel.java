@@ -22,27 +22,21 @@
 package phasereditor.assetpack.core;
 
 import java.io.ByteArrayInputStream;
-import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
-
-import javax.xml.parsers.DocumentBuilderFactory;
+import java.util.Set;
 
 import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.swt.graphics.Point;
 import org.eclipse.swt.graphics.Rectangle;
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 import phasereditor.atlas.core.AtlasCore;
 import phasereditor.atlas.core.AtlasFrame;
-import phasereditor.ui.PhaserEditorUI;
 
 public class AtlasAssetModel extends AssetModel {
 	private String _textureURL;
@@ -105,6 +99,11 @@ public class AtlasAssetModel extends AssetModel {
 		return new IFile[] { getFileFromUrl(_textureURL), getFileFromUrl(_atlasURL) };
 	}
 
+	@Override
+	protected Set<IPath> computeReferencedPaths() {
+		return getPathsFromUrls(_textureURL, _atlasURL);
+	}
+
 	public IFile getTextureFile() {
 		return getFileFromUrl(getTextureURL());
 	}
@@ -190,63 +189,28 @@ public class AtlasAssetModel extends AssetModel {
 	}
 
 	private synchronized void buildFrames() {
-
-		// TODO: use AtlasCore.readAtlasFrames(..) method.
-
 		List<Frame> list = new ArrayList<>();
 		try {
+			List<AtlasFrame> frames = null;
+
 			String data = normalizeString(_atlasData);
+
 			if (data == null) {
 				IFile file = getFileFromUrl(_atlasURL);
 				if (file != null && file.exists()) {
-					try (InputStream input = file.getContents()) {
-						data = PhaserEditorUI.readString(input);
-					}
+					frames = AtlasCore.readAtlasFrames(file, _format);
 				}
+			} else {
+				frames = AtlasCore.readAtlasFrames(new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)),
+						_format);
 			}
 
-			if (data == null) {
-				_frames = list;
-				return;
-			}
-
-			JSONObject obj;
-			switch (_format) {
-			case AtlasCore.TEXTURE_ATLAS_JSON_ARRAY:
-				obj = new JSONObject(data);
-				JSONArray array = obj.getJSONArray("frames");
-				for (int i = 0; i < array.length(); i++) {
-					JSONObject item = array.getJSONObject(i);
-					Frame fi = new Frame(this);
-					fi.update(AtlasFrame.fromArrayItem(item));
-					list.add(fi);
-				}
-				break;
-			case AtlasCore.TEXTURE_ATLAS_JSON_HASH:
-				obj = new JSONObject(data);
-				JSONObject frames = obj.getJSONObject("frames");
-				for (String k : frames.keySet()) {
-					JSONObject item = frames.getJSONObject(k);
+			if (frames != null) {
+				for (AtlasFrame frame : frames) {
 					Frame fi = new Frame(this);
-					fi.update(AtlasFrame.fromHashItem(k, item));
+					fi.update(frame);
 					list.add(fi);
 				}
-				break;
-			case AtlasCore.TEXTURE_ATLAS_XML_STARLING:
-				Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder()
-						.parse(new ByteArrayInputStream(data.getBytes()));
-				NodeList elems = doc.getElementsByTagName("SubTexture");
-				for (int i = 0; i < elems.getLength(); i++) {
-					Node elem = elems.item(i);
-					if (elem.getNodeType() == Node.ELEMENT_NODE) {
-						Frame fi = new Frame(this);
-						fi.update(AtlasFrame.fromXMLItem((Element) elem));
-						list.add(fi);
-					}
-				}
-				break;
-			default:
-				break;
 			}
 		} catch (Exception e) {
 			e.printStackTrace();
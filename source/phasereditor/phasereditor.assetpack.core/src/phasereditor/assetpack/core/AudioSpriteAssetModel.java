@@ -28,6 +28,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.ResourcesPlugin;
@@ -283,6 +284,13 @@ public class AudioSpriteAssetModel extends AudioAssetModel {
 		return list.toArray(new IFile[list.size()]);
 	}
 
+	@Override
+	protected Set<IPath> computeReferencedPaths() {
+		Set<IPath> paths = super.computeReferencedPaths();
+		paths.addAll(getPathsFromUrls(_jsonURL));
+		return paths;
+	}
+
 	@Override
 	public List<AssetAudioSprite> getSubElements() {
 		return getSpriteMap();
@@ -23,8 +23,10 @@ package phasereditor.assetpack.core;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.swt.graphics.Point;
 import org.eclipse.swt.graphics.Rectangle;
@@ -70,6 +72,11 @@ public class BitmapFontAssetModel extends AssetModel {
 		return new IFile[] { getFileFromUrl(_textureURL), getFileFromUrl(_atlasURL) };
 	}
 
+	@Override
+	protected Set<IPath> computeReferencedPaths() {
+		return getPathsFromUrls(_textureURL, _atlasURL);
+	}
+
 	public String getTextureURL() {
 		return _textureURL;
 	}
@@ -210,13 +217,31 @@ public class BitmapFontAssetModel extends AssetModel {
 		return _elements;
 	}
 
-	public BitmapFontModel createFontModel() {
+	private BitmapFontModel _fontModel;
+	private IFile _fontModelFile;
+	private long _fontModelStamp;
+
+	/**
+	 * The font model is shared, it is parsed again only if the atlas file
+	 * changed.
+	 */
+	public synchronized BitmapFontModel createFontModel() {
 		IFile file = getFileFromUrl(_atlasURL);
 		if (file == null) {
 			return null;
 		}
+
+		long stamp = file.getModificationStamp();
+
+		if (_fontModel != null && file.equals(_fontModelFile) && stamp == _fontModelStamp) {
+			return _fontModel;
+		}
+
 		try {
-			return BitmapFontModel.createFromFile(file);
+			_fontModel = BitmapFontModel.createFromFile(file);
+			_fontModelFile = file;
+			_fontModelStamp = stamp;
+			return _fontModel;
 		} catch (Exception e) {
 			e.printStackTrace();
 			return null;
@@ -23,8 +23,10 @@ package phasereditor.assetpack.core;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.swt.graphics.Point;
 import org.eclipse.swt.graphics.Rectangle;
@@ -128,6 +130,11 @@ public class ImageAssetModel extends AssetModel {
 		return new IFile[] { getUrlFile() };
 	}
 
+	@Override
+	protected Set<IPath> computeReferencedPaths() {
+		return getPathsFromUrls(_url);
+	}
+
 	@Override
 	public void internalBuild(List<IStatus> problems) {
 		validateUrl(problems, "url", _url);
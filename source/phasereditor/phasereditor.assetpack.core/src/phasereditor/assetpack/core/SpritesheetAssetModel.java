@@ -25,9 +25,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.swt.graphics.ImageData;
 import org.eclipse.swt.graphics.Point;
@@ -95,6 +97,11 @@ public class SpritesheetAssetModel extends AssetModel {
 		return new IFile[] { getUrlFile() };
 	}
 
+	@Override
+	protected Set<IPath> computeReferencedPaths() {
+		return getPathsFromUrls(_url);
+	}
+
 	public int getFrameWidth() {
 		return _frameWidth;
 	}
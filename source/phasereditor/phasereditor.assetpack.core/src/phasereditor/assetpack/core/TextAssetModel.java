@@ -22,8 +22,10 @@
 package phasereditor.assetpack.core;
 
 import java.util.List;
+import java.util.Set;
 
 import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IStatus;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -55,6 +57,11 @@ public class TextAssetModel extends AssetModel {
 		return new IFile[] { getFileFromUrl(_url) };
 	}
 
+	@Override
+	protected Set<IPath> computeReferencedPaths() {
+		return getPathsFromUrls(_url);
+	}
+
 	@Override
 	protected void writeParameters(JSONObject obj) {
 		super.writeParameters(obj);
@@ -21,14 +21,14 @@
 // USE OR OTHER DEALINGS IN THE SOFTWARE.
 package phasereditor.assetpack.core;
 
-import java.io.BufferedReader;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IStatus;
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -43,7 +43,8 @@ public class TilemapAssetModel extends AssetModel {
 	private String _data;
 	private String _format;
 	private TilemapJSON _tilemapJSON;
-	private int[][] _csvData;
+	private TilemapCSVData _csvData;
+	private List<String> _csvErrors = new ArrayList<>();
 
 	public TilemapAssetModel(String key, AssetSectionModel section) throws JSONException {
 		super(key, AssetType.tilemap, section);
@@ -166,7 +167,8 @@ public class TilemapAssetModel extends AssetModel {
 			return;
 		}
 
-		_csvData = new int[0][0];
+		_csvData = TilemapCSVData.EMPTY;
+		_csvErrors = new ArrayList<>();
 		_tilemapJSON = new TilemapJSON();
 
 		if (isJSONFormat()) {
@@ -177,71 +179,30 @@ public class TilemapAssetModel extends AssetModel {
 
 	}
 
-	@SuppressWarnings("boxing")
 	private void buildTilemapCSV() {
-		List<List<Integer>> data = new ArrayList<>();
+		List<String> errors = new ArrayList<>();
 
 		try {
 			IFile file = getFileFromUrl(_url);
 			if (file != null && file.exists()) {
-				try (InputStream input = file.getContents()) {
-
-					StringBuilder token = new StringBuilder();
-
-					BufferedReader reader = new BufferedReader(new InputStreamReader(input));
-					String line;
-					while ((line = reader.readLine()) != null) {
-
-						List<Integer> dataRow = new ArrayList<>();
-
-						for (char c : line.toCharArray()) {
-							if (c == ',') {
-								Integer tile;
-								try {
-									tile = Integer.valueOf(Integer.parseInt(token.toString()));
-								} catch (Exception e) {
-									tile = -1;
-								}
-								dataRow.add(tile);
-								token = new StringBuilder();
-							} else {
-								token.append(c);
-							}
-						}
-
-						dataRow.add(Integer.valueOf(Integer.parseInt(token.toString())));
-						token = new StringBuilder();
-
-						data.add(dataRow);
+				IPath location = file.getLocation();
+
+				if (location == null) {
+					try (InputStream input = file.getContents()) {
+						_csvData = TilemapCSVData.read(input, errors);
 					}
+				} else {
+					_csvData = TilemapCSVData.read(location.toFile().toPath(), errors);
 				}
 			}
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
 
-		int rows = data.size();
-
-		if (rows == 0) {
-			_csvData = new int[0][0];
-		} else {
-			// row x column
-			int cols = data.get(0).size();
-
-			int[][] csvData = new int[rows][cols];
-
-			for (int i = 0; i < rows; i++) {
-				List<Integer> row = data.get(i);
-				for (int j = 0; j < cols; j++) {
-					csvData[i][j] = row.get(j).intValue();
-				}
-			}
-			_csvData = csvData;
-		}
-
+		_csvErrors = errors;
 	}
 
-	public int[][] getCsvData() {
+	public TilemapCSVData getCsvData() {
 		if (_csvData == null) {
 			buildTilemap();
 		}
@@ -335,6 +296,11 @@ public class TilemapAssetModel extends AssetModel {
 		return new IFile[] { getUrlFile() };
 	}
 
+	@Override
+	protected Set<IPath> computeReferencedPaths() {
+		return getPathsFromUrls(_url);
+	}
+
 	public String getUrl() {
 		return _url;
 	}
@@ -382,6 +348,11 @@ public class TilemapAssetModel extends AssetModel {
 		validateUrlAndData(problems, "url", _url, "data", _data);
 
 		buildTilemap();
+
+		for (String error : _csvErrors) {
+			problems.add(errorStatus(error + " In asset pack entry: '" + getSection().getKey() + "/"
+					+ getType().name() + "/" + getKey() + "'"));
+		}
 	}
 
 	@Override
@@ -0,0 +1,333 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2018 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.assetpack.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The tiles of a CSV tilemap. The tiles are stored in a flat array, row by row,
+ * with a stride of {@link #getColumns()}. Rows shorter than the longest row are
+ * filled with <code>-1</code> (no tile).
+ * 
+ * <p>
+ * Instances are immutable, a new one is created when the map is parsed again.
+ * </p>
+ * 
+ * @author arian
+ *
+ */
+public class TilemapCSVData {
+	public static final TilemapCSVData EMPTY = new TilemapCSVData(0, 0, new int[0]);
+
+	/**
+	 * Files bigger than this are memory-mapped.
+	 */
+	private static final long MAP_FILE_THRESHOLD = 1024 * 1024;
+
+	private static final int MAX_REPORTED_ERRORS = 10;
+
+	private int _rows;
+	private int _columns;
+	private int[] _cells;
+
+	private TilemapCSVData(int rows, int columns, int[] cells) {
+		_rows = rows;
+		_columns = columns;
+		_cells = cells;
+	}
+
+	public int getRows() {
+		return _rows;
+	}
+
+	public int getColumns() {
+		return _columns;
+	}
+
+	public boolean isEmpty() {
+		return _rows == 0 || _columns == 0;
+	}
+
+	/**
+	 * @return The tile index, or <code>-1</code> if there is no tile.
+	 * @throws IndexOutOfBoundsException
+	 *             If the cell is outside the map.
+	 */
+	public int get(int row, int column) {
+		if (row < 0 || row >= _rows || column < 0 || column >= _columns) {
+			throw new IndexOutOfBoundsException("Cell " + row + "," + column + " outside a map of " + _rows + "x"
+					+ _columns);
+		}
+
+		return _cells[row * _columns + column];
+	}
+
+	/**
+	 * The tiles, row by row. The tile of the cell <code>(row, column)</code> is at
+	 * <code>row * getColumns() + column</code>. Do not modify it.
+	 */
+	public int[] getCells() {
+		return _cells;
+	}
+
+	/**
+	 * @return The max tile index, or <code>-1</code> if the map is empty.
+	 */
+	public int getMaxTile() {
+		int max = -1;
+		int size = _rows * _columns;
+
+		for (int i = 0; i < size; i++) {
+			max = Math.max(max, _cells[i]);
+		}
+
+		return max;
+	}
+
+	/**
+	 * Parses a CSV file. Big files are memory-mapped.
+	 * 
+	 * @param errors
+	 *            The messages of the malformed cells are added here. Those cells
+	 *            are set to <code>-1</code>.
+	 */
+	public static TilemapCSVData read(Path file, List<String> errors) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+
+			if (size > MAP_FILE_THRESHOLD) {
+				return parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), errors);
+			}
+
+			ByteBuffer buf = ByteBuffer.allocate((int) size);
+
+			while (buf.hasRemaining() && channel.read(buf) != -1) {
+				// read all
+			}
+
+			buf.flip();
+
+			return parse(buf, errors);
+		}
+	}
+
+	/**
+	 * Parses a CSV content.
+	 * 
+	 * @see #read(Path, List)
+	 */
+	public static TilemapCSVData read(InputStream input, List<String> errors) throws IOException {
+		byte[] buf = new byte[64 * 1024];
+		int size = 0;
+		int n;
+
+		while ((n = input.read(buf, size, buf.length - size)) != -1) {
+			size += n;
+			if (size == buf.length) {
+				buf = Arrays.copyOf(buf, buf.length * 2);
+			}
+		}
+
+		return parse(ByteBuffer.wrap(buf, 0, size), errors);
+	}
+
+	/**
+	 * Parses the CSV bytes. The cells are integers, optionally surrounded by
+	 * spaces. Blank lines are ignored.
+	 * 
+	 * @see #read(Path, List)
+	 */
+	public static TilemapCSVData parse(ByteBuffer buf, List<String> errors) {
+		int start = buf.position();
+		int end = buf.limit();
+
+		// skip the UTF-8 BOM
+		if (end - start >= 3 && buf.get(start) == (byte) 0xEF && buf.get(start + 1) == (byte) 0xBB
+				&& buf.get(start + 2) == (byte) 0xBF) {
+			start += 3;
+		}
+
+		// count the separators, to allocate the cells only once
+		long capacity = 1;
+		for (int pos = start; pos < end; pos++) {
+			byte b = buf.get(pos);
+			if (b == ',' || b == '\n') {
+				capacity++;
+			}
+		}
+
+		if (capacity > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Too many cells");
+		}
+
+		int[] cells = new int[(int) capacity];
+		int count = 0;
+
+		int[] rowEnds = new int[64];
+		int rows = 0;
+		int columns = 0;
+		boolean jagged = false;
+
+		int rowStart = 0;
+		int errorCount = 0;
+		boolean blankLine = true;
+
+		// the state of the current cell
+		long value = 0;
+		int sign = 0;
+		int digits = 0;
+		boolean malformed = false;
+		boolean spaceAfterToken = false;
+		int cellStart = -1;
+
+		for (int pos = start; pos <= end; pos++) {
+			int b = pos == end ? '\n' : buf.get(pos);
+
+			switch (b) {
+			case ' ':
+			case '\t':
+			case '\r':
+				if (digits > 0 || sign != 0) {
+					spaceAfterToken = true;
+				}
+				continue;
+			case ',':
+			case '\n':
+				if (b == '\n' && blankLine) {
+					// skip blank lines
+					continue;
+				}
+
+				int tile;
+
+				if (digits == 0 || malformed) {
+					tile = -1;
+
+					if (errorCount < MAX_REPORTED_ERRORS) {
+						String text = cellStart == -1 ? "" : getText(buf, cellStart, pos).trim();
+						errors.add("Invalid tile index '" + text + "' at row " + (rows + 1) + ", column "
+								+ (count - rowStart + 1) + ".");
+					}
+
+					errorCount++;
+				} else {
+					tile = (int) (sign < 0 ? -value : value);
+				}
+
+				cells[count++] = tile;
+
+				if (b == '\n') {
+					int rowLength = count - rowStart;
+
+					if (rows > 0 && rowLength != columns) {
+						jagged = true;
+					}
+
+					columns = Math.max(columns, rowLength);
+
+					if (rows == rowEnds.length) {
+						rowEnds = Arrays.copyOf(rowEnds, rows * 2);
+					}
+
+					rowEnds[rows++] = count;
+					rowStart = count;
+					blankLine = true;
+				} else {
+					blankLine = false;
+				}
+
+				value = 0;
+				sign = 0;
+				digits = 0;
+				malformed = false;
+				spaceAfterToken = false;
+				cellStart = -1;
+				continue;
+			default:
+				break;
+			}
+
+			blankLine = false;
+
+			if (cellStart == -1) {
+				cellStart = pos;
+			}
+
+			if (b >= '0' && b <= '9') {
+				value = value * 10 + (b - '0');
+				digits++;
+
+				if (spaceAfterToken || value > Integer.MAX_VALUE) {
+					malformed = true;
+					value = 0;
+				}
+			} else if ((b == '-' || b == '+') && sign == 0 && digits == 0) {
+				sign = b == '-' ? -1 : 1;
+			} else {
+				malformed = true;
+			}
+		}
+
+		if (errorCount > MAX_REPORTED_ERRORS) {
+			errors.add("And " + (errorCount - MAX_REPORTED_ERRORS) + " more invalid tile indexes.");
+		}
+
+		if (rows == 0 || columns == 0) {
+			return EMPTY;
+		}
+
+		if (jagged) {
+			// pad the short rows with empty tiles
+			int[] padded = new int[rows * columns];
+			int from = 0;
+
+			for (int i = 0; i < rows; i++) {
+				int len = rowEnds[i] - from;
+				System.arraycopy(cells, from, padded, i * columns, len);
+				Arrays.fill(padded, i * columns + len, (i + 1) * columns, -1);
+				from = rowEnds[i];
+			}
+
+			cells = padded;
+		}
+
+		return new TilemapCSVData(rows, columns, cells);
+	}
+
+	private static String getText(ByteBuffer buf, int from, int to) {
+		byte[] bytes = new byte[Math.min(to - from, 32)];
+
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = buf.get(from + i);
+		}
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -22,8 +22,10 @@
 package phasereditor.assetpack.core;
 
 import java.util.List;
+import java.util.Set;
 
 import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IStatus;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -68,6 +70,11 @@ public class UrlAssetModel extends AssetModel {
 		return new IFile[] { getFileFromUrl(_url) };
 	}
 
+	@Override
+	protected Set<IPath> computeReferencedPaths() {
+		return getPathsFromUrls(_url);
+	}
+
 	@Override
 	public void internalBuild(List<IStatus> problems) {
 		validateUrl(problems, "url", _url);
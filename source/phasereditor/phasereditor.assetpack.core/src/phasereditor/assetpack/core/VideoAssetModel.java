@@ -23,8 +23,10 @@ package phasereditor.assetpack.core;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IStatus;
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -90,6 +92,11 @@ public class VideoAssetModel extends AssetModel {
 		return files.toArray(new IFile[files.size()]);
 	}
 
+	@Override
+	protected Set<IPath> computeReferencedPaths() {
+		return getPathsFromUrls(_urls);
+	}
+
 	@Override
 	public void internalBuild(List<IStatus> problems) {
 		validateUrlList(problems, "url", _urls);
@@ -168,7 +168,7 @@ public class TilemapCSVAssetPreviewComp extends Composite implements ISelectionC
 	@Override
 	public void selectionChanged(SelectionChangedEvent event) {
 		List<Point> sel = _tilemapCanvas.getSelectedCells();
-		_selectedIndexes = sel.stream().map(p -> _tilemapCanvas.getModel().getCsvData()[p.y][p.x]).distinct().sorted()
+		_selectedIndexes = sel.stream().map(p -> _tilemapCanvas.getModel().getCsvData().get(p.y, p.x)).distinct().sorted()
 				.collect(Collectors.toList());
 		String text = _selectedIndexes.stream().map(o -> o.toString()).collect(Collectors.joining(","));
 		_selectedFramesText.setText(text);
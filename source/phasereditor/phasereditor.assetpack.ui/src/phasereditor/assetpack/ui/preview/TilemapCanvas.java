@@ -64,6 +64,7 @@ import org.json.JSONObject;
 import org.json.JSONTokener;
 
 import phasereditor.assetpack.core.AssetPackCore;
+import phasereditor.assetpack.core.TilemapCSVData;
 import phasereditor.assetpack.core.ImageAssetModel;
 import phasereditor.assetpack.core.TilemapAssetModel;
 import phasereditor.assetpack.ui.SelectTextureDialog;
@@ -141,14 +142,9 @@ public class TilemapCanvas extends ZoomCanvas
 
 		_model = model;
 
-		int[][] map = _model == null ? null : _model.getCsvData();
+		TilemapCSVData map = _model == null ? null : _model.getCsvData();
 		if (map != null) {
-			int max = 0;
-			for (int i = 0; i < map.length; i++) {
-				for (int j = 0; j < map[i].length; j++) {
-					max = Math.max(map[i][j], max);
-				}
-			}
+			int max = Math.max(0, map.getMaxTile());
 
 			generateColors(max);
 
@@ -178,9 +174,9 @@ public class TilemapCanvas extends ZoomCanvas
 
 	void updateImageSize() {
 		if (_model != null) {
-			int[][] map = _model.getCsvData();
-			if (map[0].length > 0) {
-				_imageSize = new Point(map[0].length * getTileWidth(), map.length * getTileHeight());
+			TilemapCSVData map = _model.getCsvData();
+			if (!map.isEmpty()) {
+				_imageSize = new Point(map.getColumns() * getTileWidth(), map.getRows() * getTileHeight());
 				return;
 			}
 		}
@@ -213,9 +209,9 @@ public class TilemapCanvas extends ZoomCanvas
 	void buildMapImage() {
 		if (_model != null && _tileSetImage2 != null) {
 
-			int[][] map = _model.getCsvData();
+			TilemapCSVData map = _model.getCsvData();
 
-			if (map != null && map.length > 0) {
+			if (map != null && !map.isEmpty()) {
 
 				Point size = getImageSize();
 
@@ -226,12 +222,13 @@ public class TilemapCanvas extends ZoomCanvas
 
 				Graphics2D gc = mapImage.createGraphics();
 
-				for (int i = 0; i < map.length; i++) {
-					int[] row = map[i];
+				int[] cells = map.getCells();
+				int cols = map.getColumns();
 
-					for (int j = 0; j < row.length; j++) {
+				for (int i = 0; i < map.getRows(); i++) {
+					for (int j = 0; j < cols; j++) {
 
-						int frame = map[i][j];
+						int frame = cells[i * cols + j];
 
 						if (frame < 0) {
 							continue;
@@ -301,9 +298,9 @@ public class TilemapCanvas extends ZoomCanvas
 
 		if (_model != null) {
 
-			int[][] map = _model.getCsvData();
+			TilemapCSVData map = _model.getCsvData();
 
-			if (map != null && map.length > 0) {
+			if (map != null && !map.isEmpty()) {
 
 				ZoomCalculator calc = calc();
 
@@ -313,12 +310,13 @@ public class TilemapCanvas extends ZoomCanvas
 
 				if (_renderImage == null) {
 
-					for (int i = 0; i < map.length; i++) {
-						int[] row = map[i];
+					int[] cells = map.getCells();
+					int cols = map.getColumns();
 
-						for (int j = 0; j < row.length; j++) {
+					for (int i = 0; i < map.getRows(); i++) {
+						for (int j = 0; j < cols; j++) {
 
-							int frame = map[i][j];
+							int frame = cells[i * cols + j];
 
 							if (frame < 0) {
 								continue;
@@ -365,7 +363,7 @@ public class TilemapCanvas extends ZoomCanvas
 
 				try {
 
-					int frame = map[_mouseMapY][_mouseMapX];
+					int frame = map.get(_mouseMapY, _mouseMapX);
 
 					int cellY = (int) (offY + _mouseMapY * _tileHeight * scale);
 					int cellX = (int) (offX + _mouseMapX * _tileWidth * scale);
@@ -564,12 +562,13 @@ public class TilemapCanvas extends ZoomCanvas
 	private void selectAllFrames() {
 		try {
 			boolean selected = _selectedCells.contains(new Point(_mouseMapX, _mouseMapY));
-			int[][] map = _model.getCsvData();
-			int frame = map[_mouseMapY][_mouseMapX];
-			for (int i = 0; i < map.length; i++) {
-				int[] row = map[i];
-				for (int j = 0; j < row.length; j++) {
-					if (frame == map[i][j]) {
+			TilemapCSVData map = _model.getCsvData();
+			int frame = map.get(_mouseMapY, _mouseMapX);
+			int[] cells = map.getCells();
+			int cols = map.getColumns();
+			for (int i = 0; i < map.getRows(); i++) {
+				for (int j = 0; j < cols; j++) {
+					if (frame == cells[i * cols + j]) {
 						if (selected) {
 							_selectedCells.remove(new Point(j, i));
 						} else {
@@ -594,11 +593,12 @@ public class TilemapCanvas extends ZoomCanvas
 		Set<Integer> set = new HashSet<>(frames);
 		List<Point> newlist = new ArrayList<>();
 		try {
-			int[][] map = _model.getCsvData();
-			for (int i = 0; i < map.length; i++) {
-				int[] row = map[i];
-				for (int j = 0; j < row.length; j++) {
-					int frame = map[i][j];
+			TilemapCSVData map = _model.getCsvData();
+			int[] cells = map.getCells();
+			int cols = map.getColumns();
+			for (int i = 0; i < map.getRows(); i++) {
+				for (int j = 0; j < cols; j++) {
+					int frame = cells[i * cols + j];
 					if (set.contains(frame)) {
 						newlist.add(new Point(j, i));
 					}
@@ -626,7 +626,7 @@ public class TilemapCanvas extends ZoomCanvas
 			try {
 				// just validate the mouse is in range
 				@SuppressWarnings("unused")
-				int _tmp = getModel().getCsvData()[_mouseMapY][_mouseMapX];
+				int _tmp = getModel().getCsvData().get(_mouseMapY, _mouseMapX);
 
 				Point p = new Point(_mouseMapX, _mouseMapY);
 				if (_selectedCells.contains(p)) {
@@ -21,20 +21,24 @@
 // USE OR OTHER DEALINGS IN THE SOFTWARE.
 package phasereditor.atlas.core;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-import org.json.JSONTokener;
 
 public class AtlasCore {
 	public static final String TEXTURE_ATLAS_JSON_ARRAY = "TEXTURE_ATLAS_JSON_ARRAY";
@@ -47,11 +51,78 @@ public class AtlasCore {
 		return IMG_EXTS.contains(file.getFileExtension());
 	}
 
+	private static class CachedFormat {
+		long stamp;
+		String format;
+	}
+
+	private static class CachedFrames {
+		long stamp;
+		String format;
+		List<AtlasFrame> frames;
+	}
+
+	private static final Map<IFile, CachedFormat> _formatCache = new ConcurrentHashMap<>();
+
+	private static final Map<IFile, CachedFrames> _framesCache = new ConcurrentHashMap<>();
+
+	private static IResourceChangeListener _workspaceListener;
+
+	/**
+	 * Register (only once) a listener to remove from the caches the files that
+	 * are deleted or moved, and the files of the projects that are closed or
+	 * deleted.
+	 */
+	private static synchronized void installWorkspaceListener() {
+		if (_workspaceListener != null) {
+			return;
+		}
+
+		_workspaceListener = new IResourceChangeListener() {
+
+			@Override
+			public void resourceChanged(IResourceChangeEvent event) {
+				if (event.getType() == IResourceChangeEvent.PRE_CLOSE
+						|| event.getType() == IResourceChangeEvent.PRE_DELETE) {
+					IResource project = event.getResource();
+					if (project instanceof IProject) {
+						_formatCache.keySet().removeIf(file -> project.equals(file.getProject()));
+						_framesCache.keySet().removeIf(file -> project.equals(file.getProject()));
+					}
+					return;
+				}
+
+				IResourceDelta rootDelta = event.getDelta();
+
+				if (rootDelta == null) {
+					return;
+				}
+
+				try {
+					rootDelta.accept(delta -> {
+						IResource res = delta.getResource();
+						if (delta.getKind() == IResourceDelta.REMOVED && res instanceof IFile) {
+							_formatCache.remove(res);
+							_framesCache.remove(res);
+						}
+						return true;
+					});
+				} catch (CoreException e) {
+					e.printStackTrace();
+				}
+			}
+		};
+
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(_workspaceListener,
+				IResourceChangeEvent.POST_CHANGE | IResourceChangeEvent.PRE_CLOSE | IResourceChangeEvent.PRE_DELETE);
+	}
+
 	/**
 	 * Get the atlas JSON format of the given content. Possible values are
 	 * {@link AtlasAssetModel#TEXTURE_ATLAS_JSON_ARRAY} or
 	 * {@link AtlasAssetModel#TEXTURE_ATLAS_JSON_HASH}, or null if it does not
-	 * have any of those formats.
+	 * have any of those formats. Only the tokens until the <code>frames</code>
+	 * value are read.
 	 * 
 	 * @param contents
 	 *            The content to test.
@@ -59,24 +130,13 @@ public class AtlasCore {
 	 * @see #isAtlasXMLFormat(InputStream)
 	 */
 	public static String getAtlasJSONFormat(InputStream contents) {
-		try {
-			// try json format
-			JSONTokener tokener = new JSONTokener(new InputStreamReader(contents));
-			JSONObject obj = new JSONObject(tokener);
-			Object frames = obj.get("frames");
-			if (frames instanceof JSONArray) {
-				return TEXTURE_ATLAS_JSON_ARRAY;
-			}
-			return TEXTURE_ATLAS_JSON_HASH;
-		} catch (JSONException e) {
-			// no json
-		}
-		return null;
+		return AtlasFrameReader.detectJSONFormat(contents);
 	}
 
 	/**
 	 * Check if the given content has an XML atlas format
-	 * {@link AtlasAssetModel#TEXTURE_ATLAS_XML_STARLING}.
+	 * {@link AtlasAssetModel#TEXTURE_ATLAS_XML_STARLING}. Only the content until
+	 * the root element is read.
 	 * 
 	 * @param contents
 	 *            The content to test.
@@ -84,28 +144,12 @@ public class AtlasCore {
 	 * @see #getAtlasJSONFormat(InputStream)
 	 */
 	public static boolean isAtlasXMLFormat(InputStream contents) {
-		try {
-			BufferedReader reader = new BufferedReader(new InputStreamReader(contents));
-			String line;
-			while ((line = reader.readLine()) != null) {
-				StringBuilder sb = new StringBuilder();
-				for (char c : line.toCharArray()) {
-					if (Character.isLetter(c)) {
-						sb.append(c);
-					}
-				}
-				if (sb.toString().startsWith("TextureAtlas")) {
-					return true;
-				}
-			}
-		} catch (Exception e) {
-			// nothing
-		}
-		return false;
+		return AtlasFrameReader.isStarlingXML(contents);
 	}
 
 	/**
-	 * Return the atlas format of the file, or null if it is not an atlas.
+	 * Return the atlas format of the file, or null if it is not an atlas. The
+	 * result is cached until the file changes.
 	 * 
 	 * @param file
 	 *            The file to test.
@@ -117,23 +161,90 @@ public class AtlasCore {
 	 * @see #TEXTURE_ATLAS_XML_STARLING
 	 */
 	public static String getAtlasFormat(IFile file) throws CoreException {
+		String ext = file.getFileExtension();
+
+		if (ext == null) {
+			return null;
+		}
+
+		ext = ext.toLowerCase();
+
+		if (!ext.equals("json") && !ext.equals("xml")) {
+			return null;
+		}
+
+		long stamp = file.getModificationStamp();
+		CachedFormat cached = _formatCache.get(file);
+
+		if (cached != null && cached.stamp == stamp) {
+			return cached.format;
+		}
+
 		String format = null;
-		String ext = file.getFileExtension().toLowerCase();
-		if (ext.equals("json")) {
-			try (InputStream input = file.getContents()) {
+
+		try (InputStream input = file.getContents()) {
+			if (ext.equals("json")) {
 				format = getAtlasJSONFormat(input);
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
-		} else if (ext.equals("xml")) {
-			try (InputStream input = file.getContents()) {
-				if (isAtlasXMLFormat(input)) {
-					return TEXTURE_ATLAS_XML_STARLING;
-				}
-			} catch (IOException e) {
-				e.printStackTrace();
+			} else if (isAtlasXMLFormat(input)) {
+				format = TEXTURE_ATLAS_XML_STARLING;
 			}
+		} catch (IOException e) {
+			e.printStackTrace();
 		}
+
+		cached = new CachedFormat();
+		cached.stamp = stamp;
+		cached.format = format;
+		installWorkspaceListener();
+		_formatCache.put(file, cached);
+
 		return format;
 	}
+
+	/**
+	 * Read the frames of an atlas file. The frames are cached until the file
+	 * changes, and shared by all the callers, so do not modify them.
+	 * 
+	 * @param file
+	 *            The atlas file.
+	 * @param format
+	 *            The atlas format.
+	 * @return The frames.
+	 * @throws IOException
+	 *             If the file cannot be read or it has not the given format.
+	 * @throws CoreException
+	 *             If the file cannot be read.
+	 */
+	public static List<AtlasFrame> readAtlasFrames(IFile file, String format) throws IOException, CoreException {
+		long stamp = file.getModificationStamp();
+		CachedFrames cached = _framesCache.get(file);
+
+		if (cached != null && cached.stamp == stamp && cached.format.equals(format)) {
+			return cached.frames;
+		}
+
+		List<AtlasFrame> frames;
+
+		try (InputStream input = file.getContents()) {
+			frames = Collections.unmodifiableList(readAtlasFrames(input, format));
+		}
+
+		cached = new CachedFrames();
+		cached.stamp = stamp;
+		cached.format = format;
+		cached.frames = frames;
+		installWorkspaceListener();
+		_framesCache.put(file, cached);
+
+		return frames;
+	}
+
+	/**
+	 * Read the frames of an atlas content, in the given format.
+	 * 
+	 * @see #readAtlasFrames(IFile, String)
+	 */
+	public static List<AtlasFrame> readAtlasFrames(InputStream contents, String format) throws IOException {
+		return AtlasFrameReader.readFrames(contents, format);
+	}
 }
@@ -0,0 +1,395 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2018 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.atlas.core;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.json.JSONException;
+import org.json.JSONReader;
+import org.json.JSONReader.Token;
+
+/**
+ * Streaming readers of the atlas formats. They read the frames without
+ * building a JSON or XML DOM, and detect the format reading only the first
+ * tokens of the content.
+ * 
+ * @author arian
+ *
+ */
+class AtlasFrameReader {
+
+	private static final int RECT_X = 1;
+	private static final int RECT_Y = 2;
+	private static final int RECT_W = 4;
+	private static final int RECT_H = 8;
+
+	private static final XMLInputFactory XML_FACTORY;
+
+	static {
+		XML_FACTORY = XMLInputFactory.newInstance();
+		XML_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		XML_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+	}
+
+	/**
+	 * @return {@link AtlasCore#TEXTURE_ATLAS_JSON_ARRAY},
+	 *         {@link AtlasCore#TEXTURE_ATLAS_JSON_HASH} or <code>null</code>.
+	 */
+	public static String detectJSONFormat(InputStream input) {
+		try {
+			JSONReader reader = new JSONReader(input);
+
+			if (reader.peek() != Token.BEGIN_OBJECT) {
+				return null;
+			}
+
+			reader.beginObject();
+
+			while (reader.hasNext()) {
+				String key = reader.nextName();
+
+				if (key.equals("frames")) {
+					return reader.peek() == Token.BEGIN_ARRAY ? AtlasCore.TEXTURE_ATLAS_JSON_ARRAY
+							: AtlasCore.TEXTURE_ATLAS_JSON_HASH;
+				}
+
+				reader.skipValue();
+			}
+		} catch (JSONException e) {
+			// not json
+		}
+
+		return null;
+	}
+
+	/**
+	 * @return If the root element of the content is <code>TextureAtlas</code>.
+	 *         Only the prolog is scanned, byte by byte and ignoring the zeros
+	 *         of UTF-16 content, so files with a wrong encoding declaration are
+	 *         recognized too.
+	 */
+	public static boolean isStarlingXML(InputStream input) {
+		try {
+			InputStream in = new BufferedInputStream(input);
+			int c;
+			while ((c = readNonZero(in)) != -1) {
+				if (c != '<') {
+					continue;
+				}
+
+				c = readNonZero(in);
+
+				if (c == '?') {
+					skipUntil(in, "?>");
+				} else if (c == '!') {
+					skipUntil(in, readNonZero(in) == '-' ? "-->" : ">");
+				} else {
+					StringBuilder name = new StringBuilder();
+					while (c != -1 && c != '>' && c != '/' && !Character.isWhitespace(c)) {
+						name.append((char) c);
+						c = readNonZero(in);
+					}
+					String tag = name.toString();
+					return tag.equals("TextureAtlas") || tag.endsWith(":TextureAtlas");
+				}
+			}
+		} catch (IOException e) {
+			// nothing
+		}
+
+		return false;
+	}
+
+	private static int readNonZero(InputStream in) throws IOException {
+		int c;
+		do {
+			c = in.read();
+		} while (c == 0);
+		return c;
+	}
+
+	private static void skipUntil(InputStream in, String end) throws IOException {
+		int matched = 0;
+		int c;
+		while (matched < end.length() && (c = readNonZero(in)) != -1) {
+			if (c == end.charAt(matched)) {
+				matched++;
+			} else {
+				matched = c == end.charAt(0) ? 1 : 0;
+			}
+		}
+	}
+
+	public static List<AtlasFrame> readFrames(InputStream input, String format) throws IOException {
+		switch (format) {
+		case AtlasCore.TEXTURE_ATLAS_JSON_ARRAY:
+		case AtlasCore.TEXTURE_ATLAS_JSON_HASH:
+			return readJSONFrames(input, format.equals(AtlasCore.TEXTURE_ATLAS_JSON_ARRAY));
+		case AtlasCore.TEXTURE_ATLAS_XML_STARLING:
+			return readXMLFrames(input);
+		default:
+			return new ArrayList<>();
+		}
+	}
+
+	private static List<AtlasFrame> readJSONFrames(InputStream input, boolean array) throws IOException {
+		List<AtlasFrame> list = new ArrayList<>();
+
+		try {
+			JSONReader reader = new JSONReader(input);
+
+			reader.beginObject();
+
+			while (reader.hasNext()) {
+				String key = reader.nextName();
+
+				if (!key.equals("frames")) {
+					reader.skipValue();
+					continue;
+				}
+
+				if (array) {
+					reader.beginArray();
+
+					while (reader.hasNext()) {
+						list.add(readJSONFrame(reader, null));
+					}
+				} else {
+					reader.beginObject();
+
+					while (reader.hasNext()) {
+						String name = reader.nextName();
+						list.add(readJSONFrame(reader, name));
+					}
+				}
+
+				return list;
+			}
+		} catch (JSONException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+
+		throw new IOException("Missing 'frames'");
+	}
+
+	/**
+	 * Reads a frame object.
+	 * 
+	 * @param name
+	 *            The name of the frame (in the hash format), or
+	 *            <code>null</code> to read it from the <code>filename</code>
+	 *            field (in the array format).
+	 */
+	private static AtlasFrame readJSONFrame(JSONReader reader, String name) throws IOException {
+		AtlasFrame fi = new AtlasFrame();
+		fi.setName(name);
+
+		int[] frame = null;
+		int[] sprite = null;
+		int[] source = null;
+
+		reader.beginObject();
+
+		while (reader.hasNext()) {
+			String key = reader.nextName();
+
+			switch (key) {
+			case "filename":
+				if (name == null) {
+					fi.setName(reader.nextString());
+				} else {
+					reader.skipValue();
+				}
+				break;
+			case "frame":
+				frame = readRect(reader);
+				break;
+			case "spriteSourceSize":
+				sprite = reader.peek() == Token.BEGIN_OBJECT ? readRect(reader) : skipNull(reader);
+				break;
+			case "sourceSize":
+				source = reader.peek() == Token.BEGIN_OBJECT ? readRect(reader) : skipNull(reader);
+				break;
+			default:
+				reader.skipValue();
+				break;
+			}
+		}
+
+		reader.endObject();
+
+		if (fi.getName() == null) {
+			throw new IOException("Missing 'filename'");
+		}
+
+		if (frame == null || !hasXYWH(frame)) {
+			throw new IOException("Invalid 'frame' in " + fi.getName());
+		}
+
+		fi.setFrameX(frame[0]);
+		fi.setFrameY(frame[1]);
+		fi.setFrameW(frame[2]);
+		fi.setFrameH(frame[3]);
+
+		if (sprite == null) {
+			fi.setSpriteX(fi.getFrameX());
+			fi.setSpriteY(fi.getFrameY());
+			fi.setSpriteW(fi.getFrameW());
+			fi.setSpriteH(fi.getFrameH());
+		} else {
+			if (!hasXYWH(sprite)) {
+				throw new IOException("Invalid 'spriteSourceSize' in " + fi.getName());
+			}
+			fi.setSpriteX(sprite[0]);
+			fi.setSpriteY(sprite[1]);
+			fi.setSpriteW(sprite[2]);
+			fi.setSpriteH(sprite[3]);
+		}
+
+		if (source == null) {
+			fi.setSourceW(fi.getFrameW());
+			fi.setSourceH(fi.getFrameH());
+		} else {
+			if ((source[4] & (RECT_W | RECT_H)) != (RECT_W | RECT_H)) {
+				throw new IOException("Invalid 'sourceSize' in " + fi.getName());
+			}
+			fi.setSourceW(source[2]);
+			fi.setSourceH(source[3]);
+		}
+
+		return fi;
+	}
+
+	private static boolean hasXYWH(int[] rect) {
+		return rect[4] == (RECT_X | RECT_Y | RECT_W | RECT_H);
+	}
+
+	private static int[] skipNull(JSONReader reader) {
+		reader.skipValue();
+		return null;
+	}
+
+	/**
+	 * @return The <code>x, y, w, h</code> values, and the flags of the present
+	 *         values.
+	 */
+	private static int[] readRect(JSONReader reader) {
+		int[] rect = new int[5];
+
+		reader.beginObject();
+
+		while (reader.hasNext()) {
+			String key = reader.nextName();
+
+			switch (key) {
+			case "x":
+				rect[0] = (int) reader.nextDouble();
+				rect[4] |= RECT_X;
+				break;
+			case "y":
+				rect[1] = (int) reader.nextDouble();
+				rect[4] |= RECT_Y;
+				break;
+			case "w":
+				rect[2] = (int) reader.nextDouble();
+				rect[4] |= RECT_W;
+				break;
+			case "h":
+				rect[3] = (int) reader.nextDouble();
+				rect[4] |= RECT_H;
+				break;
+			default:
+				reader.skipValue();
+				break;
+			}
+		}
+
+		reader.endObject();
+
+		return rect;
+	}
+
+	private static List<AtlasFrame> readXMLFrames(InputStream input) throws IOException {
+		List<AtlasFrame> list = new ArrayList<>();
+
+		try {
+			XMLStreamReader reader = XML_FACTORY.createXMLStreamReader(input);
+			try {
+				while (reader.hasNext()) {
+					if (reader.next() == XMLStreamConstants.START_ELEMENT
+							&& reader.getLocalName().equals("SubTexture")) {
+						list.add(readXMLFrame(reader));
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException | NumberFormatException e) {
+			throw new IOException(e);
+		}
+
+		return list;
+	}
+
+	private static AtlasFrame readXMLFrame(XMLStreamReader reader) {
+		AtlasFrame fi = new AtlasFrame();
+
+		fi.setName(getAttribute(reader, "name"));
+		fi.setFrameX(Integer.parseInt(getAttribute(reader, "x")));
+		fi.setFrameY(Integer.parseInt(getAttribute(reader, "y")));
+		fi.setFrameW(Integer.parseInt(getAttribute(reader, "width")));
+		fi.setFrameH(Integer.parseInt(getAttribute(reader, "height")));
+		fi.setSpriteX(0);
+		fi.setSpriteY(0);
+		fi.setSpriteW(fi.getFrameW());
+		fi.setSpriteH(fi.getFrameH());
+		fi.setSourceW(fi.getFrameW());
+		fi.setSourceH(fi.getFrameH());
+
+		if (reader.getAttributeValue(null, "frameX") != null) {
+			fi.setSpriteX(Math.abs(Integer.parseInt(getAttribute(reader, "frameX"))));
+			fi.setSpriteY(Math.abs(Integer.parseInt(getAttribute(reader, "frameY"))));
+			fi.setSourceW(Math.abs(Integer.parseInt(getAttribute(reader, "frameWidth"))));
+			fi.setSourceH(Math.abs(Integer.parseInt(getAttribute(reader, "frameHeight"))));
+		}
+
+		return fi;
+	}
+
+	/**
+	 * @return The attribute value, or an empty string if it is not present,
+	 *         like in the DOM.
+	 */
+	private static String getAttribute(XMLStreamReader reader, String name) {
+		String value = reader.getAttributeValue(null, name);
+		return value == null ? "" : value;
+	}
+}
@@ -0,0 +1,405 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2018 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.atlas.core;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.SoftReference;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.imageio.ImageIO;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.PaletteData;
+import org.eclipse.swt.widgets.Display;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.tools.texturepacker.ColorBleedEffect;
+import com.badlogic.gdx.tools.texturepacker.GridPacker;
+import com.badlogic.gdx.tools.texturepacker.ImageProcessor;
+import com.badlogic.gdx.tools.texturepacker.MaxRectsPacker;
+import com.badlogic.gdx.tools.texturepacker.TexturePacker.Alias;
+import com.badlogic.gdx.tools.texturepacker.TexturePacker.Packer;
+import com.badlogic.gdx.tools.texturepacker.TexturePacker.Page;
+import com.badlogic.gdx.tools.texturepacker.TexturePacker.Rect;
+import com.badlogic.gdx.utils.Array;
+
+import phasereditor.ui.PhaserEditorUI;
+
+/**
+ * Packs the images of an atlas in memory. It uses the LibGDX packing
+ * algorithms, like the {@link com.badlogic.gdx.tools.texturepacker.TexturePacker}
+ * does, but the pages are drawn in memory rasters and the frames are created
+ * from the packed rects, so nothing is written to (and read again from) the
+ * disk. The images are encoded only when the atlas is saved.
+ * <p>
+ * The decoded source images are cached by the modification stamp of the
+ * files, so a new build (like when the settings are changed) does not read
+ * them again.
+ * </p>
+ * 
+ * @author arian
+ *
+ */
+public class AtlasPacker {
+
+	private static class CachedImage {
+		long stamp;
+		SoftReference<BufferedImage> image;
+
+		public CachedImage(long stamp, BufferedImage image) {
+			this.stamp = stamp;
+			this.image = new SoftReference<>(image);
+		}
+	}
+
+	private static Map<IFile, CachedImage> _imageCache = new ConcurrentHashMap<>();
+
+	/**
+	 * Get the decoded image of the file, in the format used by the LibGDX
+	 * {@link ImageProcessor}.
+	 */
+	static BufferedImage getSourceImage(IFile file) throws IOException, CoreException {
+		long stamp = file.getModificationStamp();
+
+		CachedImage cached = _imageCache.get(file);
+
+		if (cached != null && cached.stamp == stamp) {
+			BufferedImage image = cached.image.get();
+			if (image != null) {
+				return image;
+			}
+		}
+
+		BufferedImage image;
+		try (InputStream input = file.getContents()) {
+			image = ImageIO.read(input);
+		}
+
+		if (image == null) {
+			throw new IOException("Unable to read image: " + file.getLocation());
+		}
+
+		// the ImageProcessor converts all the images to this format, do it
+		// only once.
+		if (image.getType() != BufferedImage.TYPE_4BYTE_ABGR) {
+			BufferedImage converted = new BufferedImage(image.getWidth(), image.getHeight(),
+					BufferedImage.TYPE_4BYTE_ABGR);
+			converted.getGraphics().drawImage(image, 0, 0, null);
+			image = converted;
+		}
+
+		_imageCache.put(file, new CachedImage(stamp, image));
+
+		return image;
+	}
+
+	public static void clearCache() {
+		_imageCache.clear();
+	}
+
+	public static Result pack(SettingsBean settings, List<IFile> files) throws IOException, CoreException {
+		if (settings.pot) {
+			if (settings.maxWidth != MathUtils.nextPowerOfTwo(settings.maxWidth)) {
+				throw new RuntimeException("If pot is true, maxWidth must be a power of two: " + settings.maxWidth);
+			}
+			if (settings.maxHeight != MathUtils.nextPowerOfTwo(settings.maxHeight)) {
+				throw new RuntimeException("If pot is true, maxHeight must be a power of two: " + settings.maxHeight);
+			}
+		}
+
+		ImageProcessor processor = new ImageProcessor(settings);
+		processor.setScale(settings.scale[0]);
+
+		for (IFile file : files) {
+			BufferedImage image = getSourceImage(file);
+
+			// the same name the TexturePacker gives to the image files
+			String name = file.getLocation().toFile().getAbsolutePath().replace('\\', '/');
+			int dotIndex = name.lastIndexOf('.');
+			if (dotIndex != -1) {
+				name = name.substring(0, dotIndex);
+			}
+
+			processor.addImage(image, name);
+		}
+
+		Packer packer = settings.grid ? new GridPacker(settings) : new MaxRectsPacker(settings);
+
+		Array<Page> pages = packer.pack(processor.getImages());
+
+		Result result = new Result();
+
+		for (Page page : pages) {
+			BufferedImage canvas = drawPage(settings, processor, page);
+
+			ResultPage resultPage = new ResultPage();
+			resultPage.setBufferedImage(canvas);
+			resultPage.setImage(new Image(Display.getDefault(), toImageData(canvas)));
+
+			for (Rect rect : page.outputRects) {
+				addFrame(settings, page, rect, rect.name, rect.index, rect.offsetX, rect.offsetY, rect.originalWidth,
+						rect.originalHeight, resultPage);
+
+				for (Alias alias : rect.aliases) {
+					addFrame(settings, page, rect, alias.name, alias.index, alias.offsetX, alias.offsetY,
+							alias.originalWidth, alias.originalHeight, resultPage);
+				}
+			}
+
+			// the TextureAtlasData sorts the regions by index too
+			resultPage.sortByIndexes();
+
+			result.getPages().add(resultPage);
+		}
+
+		return result;
+	}
+
+	private static void addFrame(SettingsBean settings, Page page, Rect rect, String name, int index, int offsetX,
+			int offsetY, int originalWidth, int originalHeight, ResultPage resultPage) {
+		String regionName = Rect.getAtlasName(name, settings.flattenPaths);
+		if (index != -1) {
+			regionName += "_" + index;
+		}
+
+		AtlasFrame frame = new AtlasFrame();
+		frame.setName(PhaserEditorUI.getNameFromFilename(regionName));
+
+		// the same position the TexturePacker writes in the atlas file
+		frame.setFrameX(page.x + rect.x);
+		frame.setFrameY(page.y + page.height - rect.height - rect.y);
+		frame.setFrameW(rect.regionWidth);
+		frame.setFrameH(rect.regionHeight);
+
+		// the offsets of the rect are from the top-left corner
+		frame.setSpriteX(offsetX);
+		frame.setSpriteY(offsetY);
+		frame.setSpriteW(rect.regionWidth);
+		frame.setSpriteH(rect.regionHeight);
+
+		frame.setSourceW(originalWidth);
+		frame.setSourceH(originalHeight);
+
+		resultPage.addFrame(frame, regionName, index);
+	}
+
+	/**
+	 * Draw the rects of the page, like the TexturePacker does before to write
+	 * the page image.
+	 */
+	private static BufferedImage drawPage(SettingsBean settings, ImageProcessor processor, Page page) {
+		int width = page.width;
+		int height = page.height;
+		int paddingX = settings.paddingX;
+		int paddingY = settings.paddingY;
+
+		if (settings.duplicatePadding) {
+			paddingX /= 2;
+			paddingY /= 2;
+		}
+
+		width -= settings.paddingX;
+		height -= settings.paddingY;
+
+		if (settings.edgePadding) {
+			page.x = paddingX;
+			page.y = paddingY;
+			width += paddingX * 2;
+			height += paddingY * 2;
+		}
+
+		if (settings.pot) {
+			width = MathUtils.nextPowerOfTwo(width);
+			height = MathUtils.nextPowerOfTwo(height);
+		}
+
+		width = Math.max(settings.minWidth, width);
+		height = Math.max(settings.minHeight, height);
+
+		page.imageWidth = width;
+		page.imageHeight = height;
+
+		BufferedImage canvas = new BufferedImage(width, height, getBufferedImageType(settings));
+
+		for (Rect rect : page.outputRects) {
+			BufferedImage image = rect.getImage(processor);
+			int iw = image.getWidth();
+			int ih = image.getHeight();
+			int rectX = page.x + rect.x;
+			int rectY = page.y + page.height - rect.y - rect.height;
+
+			if (settings.duplicatePadding) {
+				duplicatePadding(settings, canvas, image, rect.rotated, rectX, rectY);
+			}
+
+			copy(image, iw, ih, canvas, rectX, rectY, rect.rotated);
+		}
+
+		if (settings.bleed && !settings.premultiplyAlpha && !settings.outputFormat.equalsIgnoreCase("jpg")) {
+			canvas = new ColorBleedEffect().processImage(canvas, 2);
+		}
+
+		if (settings.premultiplyAlpha) {
+			canvas.getColorModel().coerceData(canvas.getRaster(), true);
+		}
+
+		return canvas;
+	}
+
+	private static void duplicatePadding(SettingsBean settings, BufferedImage canvas, BufferedImage image,
+			boolean rotated, int rectX, int rectY) {
+		int iw = image.getWidth();
+		int ih = image.getHeight();
+		int amountX = settings.paddingX / 2;
+		int amountY = settings.paddingY / 2;
+
+		if (rotated) {
+			// copy corner pixels to fill corners of the padding
+			for (int i = 1; i <= amountX; i++) {
+				for (int j = 1; j <= amountY; j++) {
+					plot(canvas, rectX - j, rectY + iw - 1 + i, image.getRGB(0, 0));
+					plot(canvas, rectX + ih - 1 + j, rectY + iw - 1 + i, image.getRGB(0, ih - 1));
+					plot(canvas, rectX - j, rectY - i, image.getRGB(iw - 1, 0));
+					plot(canvas, rectX + ih - 1 + j, rectY - i, image.getRGB(iw - 1, ih - 1));
+				}
+			}
+
+			// copy edge pixels into padding
+			for (int i = 1; i <= amountY; i++) {
+				for (int j = 0; j < iw; j++) {
+					plot(canvas, rectX - i, rectY + iw - 1 - j, image.getRGB(j, 0));
+					plot(canvas, rectX + ih - 1 + i, rectY + iw - 1 - j, image.getRGB(j, ih - 1));
+				}
+			}
+
+			for (int i = 1; i <= amountX; i++) {
+				for (int j = 0; j < ih; j++) {
+					plot(canvas, rectX + j, rectY - i, image.getRGB(iw - 1, j));
+					plot(canvas, rectX + j, rectY + iw - 1 + i, image.getRGB(0, j));
+				}
+			}
+		} else {
+			// copy corner pixels to fill corners of the padding
+			for (int i = 1; i <= amountX; i++) {
+				for (int j = 1; j <= amountY; j++) {
+					plot(canvas, rectX - i, rectY - j, image.getRGB(0, 0));
+					plot(canvas, rectX - i, rectY + ih - 1 + j, image.getRGB(0, ih - 1));
+					plot(canvas, rectX + iw - 1 + i, rectY - j, image.getRGB(iw - 1, 0));
+					plot(canvas, rectX + iw - 1 + i, rectY + ih - 1 + j, image.getRGB(iw - 1, ih - 1));
+				}
+			}
+
+			// copy edge pixels into padding
+			for (int i = 1; i <= amountY; i++) {
+				copy(image, 0, 0, iw, 1, canvas, rectX, rectY - i, false);
+				copy(image, 0, ih - 1, iw, 1, canvas, rectX, rectY + ih - 1 + i, false);
+			}
+
+			for (int i = 1; i <= amountX; i++) {
+				copy(image, 0, 0, 1, ih, canvas, rectX - i, rectY, false);
+				copy(image, iw - 1, 0, 1, ih, canvas, rectX + iw - 1 + i, rectY, false);
+			}
+		}
+	}
+
+	private static int getBufferedImageType(SettingsBean settings) {
+		switch (settings.format) {
+		case RGBA8888:
+		case RGBA4444:
+			return BufferedImage.TYPE_INT_ARGB;
+		case RGB565:
+		case RGB888:
+			return BufferedImage.TYPE_INT_RGB;
+		case Alpha:
+			return BufferedImage.TYPE_BYTE_GRAY;
+		default:
+			throw new RuntimeException("Unsupported format: " + settings.format);
+		}
+	}
+
+	private static void plot(BufferedImage dst, int x, int y, int argb) {
+		if (0 <= x && x < dst.getWidth() && 0 <= y && y < dst.getHeight()) {
+			dst.setRGB(x, y, argb);
+		}
+	}
+
+	private static void copy(BufferedImage src, int w, int h, BufferedImage dst, int dx, int dy, boolean rotated) {
+		copy(src, 0, 0, w, h, dst, dx, dy, rotated);
+	}
+
+	private static void copy(BufferedImage src, int x, int y, int w, int h, BufferedImage dst, int dx, int dy,
+			boolean rotated) {
+		if (rotated) {
+			for (int i = 0; i < w; i++) {
+				for (int j = 0; j < h; j++) {
+					plot(dst, dx + j, dy + w - i - 1, src.getRGB(x + i, y + j));
+				}
+			}
+		} else {
+			for (int i = 0; i < w; i++) {
+				for (int j = 0; j < h; j++) {
+					plot(dst, dx + i, dy + j, src.getRGB(x + i, y + j));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Convert the raster to an SWT image data, without to encode it.
+	 */
+	public static ImageData toImageData(BufferedImage image) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+
+		ImageData data = new ImageData(width, height, 24, new PaletteData(0xFF0000, 0xFF00, 0xFF));
+		data.alphaData = new byte[width * height];
+
+		int[] row = new int[width];
+
+		for (int y = 0; y < height; y++) {
+			image.getRGB(0, y, width, 1, row, 0, width);
+			data.setPixels(0, y, width, row, 0);
+			for (int x = 0; x < width; x++) {
+				data.alphaData[y * width + x] = (byte) (row[x] >>> 24);
+			}
+		}
+
+		return data;
+	}
+
+	/**
+	 * Encode the page image, in the PNG format.
+	 */
+	public static byte[] encodePNG(ResultPage page) throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		ImageIO.write(page.getBufferedImage(), "png", buffer);
+		return buffer.toByteArray();
+	}
+}
@@ -21,6 +21,7 @@
 // USE OR OTHER DEALINGS IN THE SOFTWARE.
 package phasereditor.atlas.core;
 
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -33,6 +34,7 @@ public class ResultPage {
 	private Map<AtlasFrame, String> _frameFileMap;
 	private Map<AtlasFrame, Integer> _frameIndexMap;
 	private Image _image;
+	private BufferedImage _bufferedImage;
 
 	public ResultPage() {
 		_frames = new ArrayList<>();
@@ -49,7 +51,7 @@ public class ResultPage {
 	public void sortByIndexes() {
 		_frames.sort((a, b) -> {
 			int i1 = _frameIndexMap.get(a).intValue();
-			int i2 = _frameIndexMap.get(a).intValue();
+			int i2 = _frameIndexMap.get(b).intValue();
 			return Integer.compare(i1 == -1 ? Integer.MAX_VALUE : i1, i2 == -1 ? Integer.MAX_VALUE : i2);
 		});
 	}
@@ -58,6 +60,10 @@ public class ResultPage {
 		return _frames;
 	}
 
+	public String getFrameFilePath(AtlasFrame frame) {
+		return _frameFileMap.get(frame);
+	}
+
 	public Image getImage() {
 		return _image;
 	}
@@ -65,4 +71,16 @@ public class ResultPage {
 	public void setImage(Image image) {
 		_image = image;
 	}
+
+	/**
+	 * @return The page raster, it is used to encode the page image when the
+	 *         atlas is saved.
+	 */
+	public BufferedImage getBufferedImage() {
+		return _bufferedImage;
+	}
+
+	public void setBufferedImage(BufferedImage bufferedImage) {
+		_bufferedImage = bufferedImage;
+	}
 }
\ No newline at end of file
@@ -26,10 +26,8 @@ import static phasereditor.ui.PhaserEditorUI.eclipseFileToJavaPath;
 import static phasereditor.ui.PhaserEditorUI.swtRun;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -91,8 +89,6 @@ import org.eclipse.swt.events.MouseAdapter;
 import org.eclipse.swt.events.MouseEvent;
 import org.eclipse.swt.events.MouseTrackListener;
 import org.eclipse.swt.graphics.Image;
-import org.eclipse.swt.graphics.ImageData;
-import org.eclipse.swt.graphics.ImageLoader;
 import org.eclipse.swt.graphics.Rectangle;
 import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
@@ -111,13 +107,8 @@ import org.eclipse.wb.swt.ResourceManager;
 import org.eclipse.wb.swt.SWTResourceManager;
 import org.json.JSONObject;
 
-import com.badlogic.gdx.files.FileHandle;
-import com.badlogic.gdx.graphics.g2d.TextureAtlas.TextureAtlasData;
-import com.badlogic.gdx.graphics.g2d.TextureAtlas.TextureAtlasData.Region;
-import com.badlogic.gdx.tools.texturepacker.TexturePacker;
-import com.badlogic.gdx.utils.Array;
-
 import phasereditor.atlas.core.AtlasFrame;
+import phasereditor.atlas.core.AtlasPacker;
 import phasereditor.atlas.core.Result;
 import phasereditor.atlas.core.ResultPage;
 import phasereditor.atlas.core.SettingsBean;
@@ -529,15 +520,11 @@ public class AtlasGeneratorEditor extends EditorPart implements IEditorSharedIma
 				// build new atlas
 				SettingsBean settings = _model.getSettings();
 
-				TexturePacker packer = new TexturePacker(settings);
-
 				List<IFile> missingFiles = new ArrayList<>();
 
 				for (IFile wsFile : _model.getImageFiles()) {
 					File file = eclipseFileToJavaPath(wsFile).toFile();
-					if (file.exists() && file.isFile()) {
-						packer.addImage(file);
-					} else {
+					if (!file.exists() || !file.isFile()) {
 						missingFiles.add(wsFile);
 					}
 				}
@@ -568,83 +555,19 @@ public class AtlasGeneratorEditor extends EditorPart implements IEditorSharedIma
 				}
 
 				monitor.worked(1);
-				File tempDir = null;
 				try {
-					// create atlas files in temporal folder
-					tempDir = Files.createTempDirectory("PhaserEditor_Atlas_").toFile();
-					String atlasName = _model.getAtlasName();
-					packer.pack(tempDir, atlasName);
-
-					// read generated atlas file
-
-					File libgdxAtlasFile = new File(tempDir, atlasName + ".atlas");
-
-					out.println("Temporal atlas file " + libgdxAtlasFile);
-
-					out.println(new String(Files.readAllBytes(libgdxAtlasFile.toPath())));
-
-					TextureAtlasData data = new TextureAtlasData(new FileHandle(libgdxAtlasFile),
-							new FileHandle(tempDir), false);
-
-					// create result model
+					// pack the atlas in memory
 
 					Result oldResult = _result;
 
-					_result = new Result();
-
-					ImageLoader loader = new ImageLoader();
-
-					Array<Region> regions = data.getRegions();
+					_result = AtlasPacker.pack(settings, _model.getImageFiles());
 
 					_frameRegionNameMap = new HashMap<>();
 
-					for (TextureAtlasData.Page page : data.getPages()) {
-						File textureFile = page.textureFile.file();
-
-						ImageData[] imgData = loader.load(textureFile.getAbsolutePath());
-						Image img = new Image(Display.getDefault(), imgData[0]);
-
-						ResultPage resultPage = new ResultPage();
-						resultPage.setImage(img);
-
-						for (Region region : regions) {
-							if (region.page == page) {
-								AtlasFrame frame = new AtlasFrame();
-
-								String regionName = region.name;
-								if (region.index != -1) {
-									regionName += "_" + region.index;
-								}
-								frame.setName(PhaserEditorUI.getNameFromFilename(regionName));
-								frame.setFrameX(region.left);
-								frame.setFrameY(region.top);
-								frame.setFrameW(region.width);
-								frame.setFrameH(region.height);
-
-								// todo: only if trimmed!
-								frame.setSpriteX((int) (region.offsetX));
-
-								// this happens when white spaces are stripped!
-								if (region.offsetY != 0) {
-									// LibGDX uses the OpenGL Y order (from
-									// bottom to top)
-									frame.setSpriteY((int) (region.originalHeight - region.offsetY - region.height));
-								}
-
-								frame.setSpriteW(region.width);
-								frame.setSpriteH(region.height);
-
-								frame.setSourceW(region.originalWidth);
-								frame.setSourceH(region.originalHeight);
-
-								resultPage.addFrame(frame, regionName, region.index);
-								_frameRegionNameMap.put(frame, regionName);
-							}
-						}
-						if (settings.useIndexes) {
-							resultPage.sortByIndexes();
+					for (ResultPage resultPage : _result.getPages()) {
+						for (AtlasFrame frame : resultPage.getFrames()) {
+							_frameRegionNameMap.put(frame, resultPage.getFrameFilePath(frame));
 						}
-						_result.getPages().add(resultPage);
 					}
 
 					// create editor model
@@ -696,18 +619,6 @@ public class AtlasGeneratorEditor extends EditorPart implements IEditorSharedIma
 							openSettingsDialog();
 						}
 					});
-				} finally {
-					try {
-						// delete temporal files
-						if (tempDir != null) {
-							for (File f : tempDir.listFiles()) {
-								f.delete();
-							}
-							tempDir.delete();
-						}
-					} catch (Exception e) {
-						e.printStackTrace();
-					}
 				}
 
 				return Status.OK_STATUS;
@@ -745,11 +656,7 @@ public class AtlasGeneratorEditor extends EditorPart implements IEditorSharedIma
 				for (ResultPage page : _result.getPages()) {
 					String atlasImageName = _model.getAtlasImageName(i);
 					IFile file = _model.getFile().getParent().getFile(new Path(atlasImageName));
-					ImageLoader loader = new ImageLoader();
-					loader.data = new ImageData[] { page.getImage().getImageData() };
-					ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-					loader.save(buffer, SWT.IMAGE_PNG);
-					ByteArrayInputStream source = new ByteArrayInputStream(buffer.toByteArray());
+					ByteArrayInputStream source = new ByteArrayInputStream(AtlasPacker.encodePNG(page));
 					if (file.exists()) {
 						file.setContents(source, true, false, monitor);
 					} else {
@@ -796,7 +703,7 @@ public class AtlasGeneratorEditor extends EditorPart implements IEditorSharedIma
 
 			_dirty = false;
 			firePropertyChange(PROP_DIRTY);
-		} catch (CoreException e) {
+		} catch (CoreException | IOException e) {
 			throw new RuntimeException(e);
 		}
 	}
@@ -38,6 +38,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 
 import org.eclipse.core.resources.IFile;
@@ -49,6 +52,7 @@ import org.eclipse.core.runtime.FileLocator;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.QualifiedName;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.ui.statushandlers.StatusManager;
 import org.json.JSONObject;
 import org.lwjgl.openal.AL;
@@ -75,9 +79,11 @@ public class AudioCore {
 
 	private static final QualifiedName WAVEFORM_FILENAME_KEY = new QualifiedName("phasereditor.audio.core",
 			"waveform-file");
-	private static final QualifiedName DURATION_KEY = new QualifiedName("phasereditor.audio.core", "duration");
+	static final QualifiedName DURATION_KEY = new QualifiedName("phasereditor.audio.core", "duration");
+	static final QualifiedName CHANNELS_KEY = new QualifiedName("phasereditor.audio.core", "channels");
+	static final QualifiedName SAMPLE_RATE_KEY = new QualifiedName("phasereditor.audio.core", "sample-rate");
 
-	private static final String[] SUPPORTED_VIDEO_EXTENSIONS = { "mp4", "ogv", "webm", "flv", "wmv", "avi", "mpg" };
+	public static final String[] SUPPORTED_VIDEO_EXTENSIONS = { "mp4", "ogv", "webm", "flv", "wmv", "avi", "mpg" };
 
 	private static final QualifiedName SNAPSHOT_FILENAME_KEY = new QualifiedName("phasereditor.audio.core",
 			"snapshot-file");
@@ -86,6 +92,8 @@ public class AudioCore {
 
 	private static Path _silencePath;
 
+	private static Object _filenamesLock = new Object();
+
 	private static Audio _audio;
 	static List<OpenALMusic> _musicsToUpdate;
 	static List<Runnable> _musicActionsToUpdate;
@@ -342,6 +350,17 @@ public class AudioCore {
 	}
 
 	public static double getSoundDuration(Path file) {
+		if (SoundDecoder.isSupported(file.getFileName().toString())) {
+			try {
+				double duration = SoundDecoder.getDuration(file);
+				if (duration >= 0) {
+					return duration;
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+
 		String path = file.toFile().getAbsolutePath();
 		ProcessBuilder pb = AudioCore.createFFProbeProcessBuilder("-v", "quiet", "-hide_banner", "-show_format",
 				"-print_format", "json", path);
@@ -395,35 +414,103 @@ public class AudioCore {
 		return InspectCore.createProcessBuilder("ffmpeg/ffprobe", args);
 	}
 
+	/**
+	 * Remove the cached metadata and waveform of the sound file, and cancel its
+	 * media job, if any. Call it when the content of the file changes.
+	 */
 	public static void removeSoundProperties(IFile file) {
+		MediaJobQueue.cancel(file);
+
 		try {
+			String filename = file.getPersistentProperty(WAVEFORM_FILENAME_KEY);
+			if (filename != null) {
+				Path waves = getSoundWavesFolder().resolve(filename);
+				Files.deleteIfExists(waves);
+				Files.deleteIfExists(getSoundPeaksFile(waves));
+			}
+
 			file.setPersistentProperty(WAVEFORM_FILENAME_KEY, null);
 			file.setPersistentProperty(DURATION_KEY, null);
-		} catch (CoreException e) {
+			file.setPersistentProperty(CHANNELS_KEY, null);
+			file.setPersistentProperty(SAMPLE_RATE_KEY, null);
+		} catch (CoreException | IOException e) {
 			throw new RuntimeException(e);
 		}
 	}
 
-	public synchronized static Path getSoundWavesFile(IFile file) {
+	private static Path getSoundWavesFolder() {
+		return ProjectCore.getUserCacheFolder().resolve("waves");
+	}
+
+	private static Path getSoundPeaksFile(Path wavesFile) {
+		String name = wavesFile.getFileName().toString();
+		return wavesFile.resolveSibling(name.substring(0, name.length() - ".png".length()) + ".peaks");
+	}
+
+	/**
+	 * Get the peaks of the sound file, computed by the {@link SoundDecoder}.
+	 * They are cached next to the waveform image.
+	 * 
+	 * @return The peaks, or <code>null</code> if the format of the file is not
+	 *         supported by the decoder.
+	 */
+	public static SoundPeaks getSoundPeaks(IFile file) {
+		if (!SoundDecoder.isSupported(file.getName())) {
+			return null;
+		}
+
+		try {
+			Path peaksFile = getSoundPeaksFile(getSoundWavesFile(file, false));
+
+			if (Files.exists(peaksFile)) {
+				SoundPeaks peaks = SoundPeaks.read(peaksFile);
+				if (peaks != null) {
+					return peaks;
+				}
+			}
+
+			SoundPeaks peaks = SoundDecoder.decode(eclipseFileToJavaPath(file), SoundPeaks.DEFAULT_BUCKETS);
+
+			if (peaks != null) {
+				peaks.write(peaksFile);
+			}
+
+			return peaks;
+		} catch (IOException e) {
+			logError(e);
+			return null;
+		}
+	}
+
+	public static Path getSoundWavesFile(IFile file) {
 		return getSoundWavesFile(file, true);
 	}
 
-	public synchronized static Path getSoundWavesFile(IFile file, boolean forceMake) {
+	/**
+	 * Get the path of the waveform image of the sound file.
+	 * 
+	 * @param forceMake
+	 *            If the image does not exist, request it to the
+	 *            {@link MediaJobQueue}. This method does not wait for it, so
+	 *            the image could not be ready when it returns.
+	 */
+	public static Path getSoundWavesFile(IFile file, boolean forceMake) {
 		try {
-			String filename = file.getPersistentProperty(WAVEFORM_FILENAME_KEY);
-			Path dir = ProjectCore.getUserCacheFolder().resolve("waves");
+			Path dir = getSoundWavesFolder();
 			Path path;
-			if (filename == null) {
-				filename = UUID.randomUUID().toString() + ".png";
-				path = dir.resolve(filename);
-				file.setPersistentProperty(WAVEFORM_FILENAME_KEY, filename);
-			} else {
+
+			synchronized (_filenamesLock) {
+				String filename = file.getPersistentProperty(WAVEFORM_FILENAME_KEY);
+				if (filename == null) {
+					filename = UUID.randomUUID().toString() + ".png";
+					file.setPersistentProperty(WAVEFORM_FILENAME_KEY, filename);
+				}
 				path = dir.resolve(filename);
 			}
 
 			if (forceMake) {
 				if (!Files.exists(path)) {
-					makeSoundWaves(file, path);
+					MediaJobQueue.requestSound(file);
 				}
 			}
 
@@ -433,17 +520,6 @@ public class AudioCore {
 		}
 	}
 
-	private static void makeSoundWaves(IFile file, Path path) throws IOException {
-		out.println("Make waves " + file);
-		Files.createDirectories(path.getParent());
-
-		String soundPath = eclipseFileToJavaPath(file).toString();
-
-		ProcessBuilder pb = createFFMpegProcessBuilder("-i", soundPath, "-lavfi",
-				"showwavespic=split_channels=1:s=800x600", path.toString());
-		pb.start();
-	}
-
 	public static void makeSoundWavesAndMetadata(IResourceDelta projectDelta) {
 		try {
 			projectDelta.accept(new IResourceDeltaVisitor() {
@@ -457,8 +533,7 @@ public class AudioCore {
 							if (delta.getKind() == IResourceDelta.CHANGED) {
 								removeSoundProperties(file);
 							}
-							getSoundWavesFile(file);
-							getSoundDuration(file);
+							MediaJobQueue.requestSound(file);
 						}
 					}
 					return true;
@@ -469,26 +544,80 @@ public class AudioCore {
 		}
 	}
 
-	public synchronized static double getSoundDuration(IFile file) {
+	public static double getSoundDuration(IFile file) {
+		String value = getSoundMetadata(file, DURATION_KEY);
+		return value == null ? 0 : Double.parseDouble(value);
+	}
+
+	public static int getSoundChannels(IFile file) {
+		String value = getSoundMetadata(file, CHANNELS_KEY);
+		return value == null ? 0 : Integer.parseInt(value);
+	}
+
+	public static int getSoundSampleRate(IFile file) {
+		String value = getSoundMetadata(file, SAMPLE_RATE_KEY);
+		return value == null ? 0 : Integer.parseInt(value);
+	}
+
+	/**
+	 * The maximum time to wait for a media job in the UI thread.
+	 */
+	public static final int MEDIA_UI_WAIT_SECONDS = 2;
+
+	/**
+	 * The maximum time to wait for a media job in other threads.
+	 */
+	public static final int MEDIA_WAIT_SECONDS = 30;
+
+	private static int getMediaWaitSeconds() {
+		return Display.getCurrent() == null ? MEDIA_WAIT_SECONDS : MEDIA_UI_WAIT_SECONDS;
+	}
+
+	/**
+	 * Get a metadata property of the sound file. If it is not computed yet, it
+	 * moves the media job of the file to the front of the queue and waits for
+	 * it, at most {@link #MEDIA_UI_WAIT_SECONDS} in the UI thread, or
+	 * {@link #MEDIA_WAIT_SECONDS} in other threads.
+	 * 
+	 * @return The value, or <code>null</code> if it is not ready in time.
+	 */
+	private static String getSoundMetadata(IFile file, QualifiedName key) {
 		try {
-			String value = file.getPersistentProperty(DURATION_KEY);
+			int timeout = getMediaWaitSeconds();
 
-			if (value == null) {
-				double duration = computeAudioDuration(file);
-				value = Double.toString(duration);
-				file.setPersistentProperty(DURATION_KEY, value);
-				return duration;
-			}
+			// a job could be cancelled by a change of the file, then it is
+			// requested again.
+			for (int i = 0; i < 3; i++) {
+				String value = file.getPersistentProperty(key);
 
-			return Double.parseDouble(value);
+				if (value != null) {
+					return value;
+				}
 
+				try {
+					MediaJobQueue.requestSoundNow(file).get(timeout, TimeUnit.SECONDS);
+				} catch (CancellationException e) {
+					// try again
+				} catch (TimeoutException e) {
+					out.println("Timeout waiting for the metadata of " + file);
+					break;
+				}
+			}
+
+			return file.getPersistentProperty(key);
 		} catch (Exception e) {
 			e.printStackTrace();
-			return 0;
+			return null;
 		}
 	}
 
+	/**
+	 * Remove the cached snapshot of the video file, and cancel its media job,
+	 * if any.
+	 */
 	protected static void removeVideoProperties(IFile file) {
+		MediaJobQueue.cancel(file);
+
 		try {
 			file.setPersistentProperty(SNAPSHOT_FILENAME_KEY, null);
 		} catch (CoreException e) {
@@ -496,54 +625,55 @@ public class AudioCore {
 		}
 	}
 
-	public synchronized static Path getVideoSnapshotFile(IFile file) {
+	public static Path getVideoSnapshotFile(IFile file) {
 		return getVideoSnapshotFile(file, true);
 	}
 
-	public synchronized static Path getVideoSnapshotFile(IFile file, boolean forceMake) {
+	/**
+	 * Get the path of the snapshot of the video file.
+	 * 
+	 * @param forceMake
+	 *            If the snapshot does not exist, request it to the
+	 *            {@link MediaJobQueue} and wait for it, at most
+	 *            {@link #MEDIA_UI_WAIT_SECONDS} in the UI thread, or
+	 *            {@link #MEDIA_WAIT_SECONDS} in other threads.
+	 */
+	public static Path getVideoSnapshotFile(IFile file, boolean forceMake) {
 		if (file == null) {
 			return null;
 		}
 
 		try {
-			String filename = file.getPersistentProperty(SNAPSHOT_FILENAME_KEY);
-			
 			Path dir = ProjectCore.getUserCacheFolder().resolve("snapshots");
 			Path path;
-			if (filename == null) {
-				filename = UUID.randomUUID().toString() + ".jpg";
+
+			synchronized (_filenamesLock) {
+				String filename = file.getPersistentProperty(SNAPSHOT_FILENAME_KEY);
+				if (filename == null) {
+					filename = UUID.randomUUID().toString() + ".jpg";
+					file.setPersistentProperty(SNAPSHOT_FILENAME_KEY, filename);
+				}
+				path = dir.resolve(filename);
 			}
-			path = dir.resolve(filename);
 
 			if (forceMake) {
 				if (!Files.exists(path)) {
-					makeVideoSnapshot(file, path);
+					try {
+						MediaJobQueue.requestVideoNow(file).get(getMediaWaitSeconds(), TimeUnit.SECONDS);
+					} catch (CancellationException e) {
+						// the file changed, the builder will request it again
+					} catch (TimeoutException e) {
+						out.println("Timeout waiting for the snapshot of " + file);
+					}
 				}
 			}
 
-			file.setPersistentProperty(SNAPSHOT_FILENAME_KEY, filename);
-
 			return path;
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
 	}
 
-	private static void makeVideoSnapshot(IFile file, Path path) throws IOException {
-		Files.createDirectories(path.getParent());
-
-		String videoPath = eclipseFileToJavaPath(file).toString();
-		out.println("Make video screenshot " + file);
-		ProcessBuilder pb = createFFMpegProcessBuilder("-hide_banner", "-loglevel", "0", "-ss", "00:00:01", "-i",
-				videoPath, "-vframes", "1", "-vf", "scale=128:-1", path.toAbsolutePath().toString());
-		Process proc = pb.start();
-		try {
-			proc.waitFor();
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-		}
-	}
-
 	public static void logError(Exception e) {
 		e.printStackTrace();
 		StatusManager.getManager().handle(new Status(IStatus.ERROR, PLUGIN_ID, e.getMessage(), e));
@@ -6,11 +6,12 @@ import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IResourceDelta;
-import org.eclipse.core.resources.IResourceDeltaVisitor;
 import org.eclipse.core.resources.IResourceVisitor;
 import org.eclipse.core.runtime.CoreException;
 
 import phasereditor.project.core.IProjectBuildParticipant;
+import phasereditor.project.core.ResourceDeltaIndex;
+import phasereditor.project.core.ResourceDeltaIndex.FileDelta;
 
 public class MediaBuildParticipant implements IProjectBuildParticipant {
 
@@ -21,41 +22,39 @@ public class MediaBuildParticipant implements IProjectBuildParticipant {
 	public void build(IProject project, IResourceDelta resDelta, Map<String, Object> env) {
 
 		try {
-			resDelta.accept(new IResourceDeltaVisitor() {
+			ResourceDeltaIndex index = ResourceDeltaIndex.getIndex(env, resDelta);
 
-				@Override
-				public boolean visit(IResourceDelta delta) throws CoreException {
-					IResource resource = delta.getResource();
-					if (resource instanceof IFile) {
-						IFile file = (IFile) resource;
-
-						if (resource.exists()) {
-
-							boolean changed = delta.getKind() == IResourceDelta.CHANGED;
-
-							if (AudioCore.isSupportedAudio(file)) {
+			for (String ext : AudioCore.SUPPORTED_SOUND_EXTENSIONS) {
+				for (FileDelta delta : index.getFilesByExtension(ext)) {
+					IFile file = delta.getFile();
 
-								if (changed) {
-									AudioCore.removeSoundProperties(file);
-								}
-
-								AudioCore.getSoundWavesFile(file);
-								AudioCore.getSoundDuration(file);
+					if (file.exists()) {
+						if (delta.getKind() == IResourceDelta.CHANGED) {
+							AudioCore.removeSoundProperties(file);
+						}
 
-							} else if (AudioCore.isSupportedVideo(file)) {
+						MediaJobQueue.requestSound(file);
+					} else {
+						MediaJobQueue.cancel(file);
+					}
+				}
+			}
 
-								if (changed) {
-									AudioCore.removeVideoProperties(file);
-								}
+			for (String ext : AudioCore.SUPPORTED_VIDEO_EXTENSIONS) {
+				for (FileDelta delta : index.getFilesByExtension(ext)) {
+					IFile file = delta.getFile();
 
-								AudioCore.getVideoSnapshotFile(file);
-							}
+					if (file.exists()) {
+						if (delta.getKind() == IResourceDelta.CHANGED) {
+							AudioCore.removeVideoProperties(file);
 						}
 
+						MediaJobQueue.requestVideo(file);
+					} else {
+						MediaJobQueue.cancel(file);
 					}
-					return true;
 				}
-			});
+			}
 
 		} catch (CoreException e) {
 			AudioCore.logError(e);
@@ -109,10 +108,9 @@ public class MediaBuildParticipant implements IProjectBuildParticipant {
 						IFile file = (IFile) resource;
 						if (resource.exists()) {
 							if (AudioCore.isSupportedVideo(file)) {
-								AudioCore.getVideoSnapshotFile(file);
+								MediaJobQueue.requestVideo(file);
 							} else if (AudioCore.isSupportedAudio(file)) {
-								AudioCore.getSoundWavesFile(file);
-								AudioCore.getSoundDuration(file);
+								MediaJobQueue.requestSound(file);
 							}
 						}
 					}
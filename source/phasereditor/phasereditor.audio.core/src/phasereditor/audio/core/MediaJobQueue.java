@@ -0,0 +1,495 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2018 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.audio.core;
+
+import static java.lang.System.currentTimeMillis;
+import static java.lang.System.out;
+import static phasereditor.ui.PhaserEditorUI.eclipseFileToJavaPath;
+
+import java.io.IOException;
+import java.lang.ProcessBuilder.Redirect;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.CoreException;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import phasereditor.ui.FileUtils;
+
+/**
+ * The queue of the media jobs. The metadata, waveforms and video snapshots are
+ * made in a bounded pool of worker threads, so the builder never waits for
+ * them. The WAV and OGG files are decoded in-process by the
+ * {@link SoundDecoder}, the other formats are handled by the ffmpeg tools.
+ * <p>
+ * There is only one job per file: a second request of a file with a job in
+ * flight gets the same job. When a file changes, its job is cancelled (and its
+ * process destroyed), so a result of the old content is never stored.
+ * </p>
+ * <p>
+ * The jobs run in request order, but a job that somebody is waiting for (see
+ * {@link #requestSoundNow(IFile)}) is moved to the front of the queue, so it
+ * does not wait for all the files queued by a build.
+ * </p>
+ * 
+ * @author arian
+ *
+ */
+public class MediaJobQueue {
+
+	private static abstract class MediaJob implements Runnable {
+		protected IFile _file;
+		private long _stamp;
+		private volatile boolean _cancelled;
+		private volatile Process _process;
+		protected CompletableFuture<Void> _done;
+		final long _sequence;
+		volatile boolean _urgent;
+
+		public MediaJob(IFile file) {
+			_file = file;
+			_stamp = file.getModificationStamp();
+			_done = new CompletableFuture<>();
+			_sequence = _sequenceCounter.incrementAndGet();
+		}
+
+		public void cancel() {
+			_cancelled = true;
+
+			Process proc = _process;
+			if (proc != null) {
+				proc.destroy();
+			}
+
+			_done.completeExceptionally(new CancellationException("The file " + _file + " changed."));
+		}
+
+		/**
+		 * @return If the job was cancelled or the file changed since the job
+		 *         was created.
+		 */
+		protected boolean isObsolete() {
+			return _cancelled || !_file.exists() || _file.getModificationStamp() != _stamp;
+		}
+
+		/**
+		 * Run the process and wait for it. The process is destroyed if the job
+		 * is cancelled.
+		 * 
+		 * @return The standard output, or <code>null</code> if the job was
+		 *         cancelled.
+		 */
+		protected String runProcess(ProcessBuilder pb) throws Exception {
+			if (_cancelled) {
+				return null;
+			}
+
+			// the tools run in quiet mode, so the error stream is not read
+			pb.redirectError(Redirect.INHERIT);
+
+			Process proc = pb.start();
+			_process = proc;
+
+			try {
+				String output = FileUtils.readStream(proc.getInputStream());
+
+				int exitValue = proc.waitFor();
+
+				if (_cancelled) {
+					return null;
+				}
+
+				if (exitValue != 0) {
+					out.println(Arrays.toString(pb.command().toArray()));
+					throw new IOException("FFMpeg termination exitValue " + exitValue);
+				}
+
+				return output.replace("/n", "\n");
+			} finally {
+				_process = null;
+			}
+		}
+
+		@Override
+		public final void run() {
+			try {
+				if (!isObsolete()) {
+					execute();
+				}
+				_done.complete(null);
+			} catch (Throwable e) {
+				if (!isObsolete()) {
+					AudioCore.logError(e instanceof Exception ? (Exception) e : new RuntimeException(e));
+				}
+				_done.completeExceptionally(e);
+			} finally {
+				synchronized (_jobs) {
+					if (_jobs.get(_file) == this) {
+						_jobs.remove(_file);
+					}
+				}
+			}
+		}
+
+		protected abstract void execute() throws Exception;
+	}
+
+	/**
+	 * Probe the metadata and make the waveform of a sound file. The metadata
+	 * (duration, channels and sample rate) is read with a single ffprobe call.
+	 */
+	private static class SoundJob extends MediaJob {
+		CompletableFuture<Void> _metadata;
+
+		public SoundJob(IFile file) {
+			super(file);
+			_metadata = new CompletableFuture<>();
+			_done.whenComplete((r, e) -> {
+				if (e == null) {
+					_metadata.complete(null);
+				} else {
+					_metadata.completeExceptionally(e);
+				}
+			});
+		}
+
+		@Override
+		protected void execute() throws Exception {
+			if (SoundDecoder.isSupported(_file.getName()) && executeWithDecoder()) {
+				return;
+			}
+
+			if (_file.getPersistentProperty(AudioCore.DURATION_KEY) == null) {
+				probe();
+			}
+
+			_metadata.complete(null);
+
+			Path path = AudioCore.getSoundWavesFile(_file, false);
+
+			if (!Files.exists(path)) {
+				makeWaves(path);
+			}
+		}
+
+		/**
+		 * Compute the metadata and the waveform with the in-process decoder.
+		 * 
+		 * @return <code>false</code> if the decoder does not support the
+		 *         format of the file.
+		 */
+		private boolean executeWithDecoder() throws Exception {
+			Path path = AudioCore.getSoundWavesFile(_file, false);
+
+			if (_file.getPersistentProperty(AudioCore.DURATION_KEY) != null && Files.exists(path)) {
+				return true;
+			}
+
+			SoundPeaks peaks = AudioCore.getSoundPeaks(_file);
+
+			if (peaks == null) {
+				return false;
+			}
+
+			if (isObsolete()) {
+				return true;
+			}
+
+			storeMetadata(peaks.getDuration(), peaks.getChannels(), peaks.getSampleRate());
+
+			_metadata.complete(null);
+
+			if (!Files.exists(path)) {
+				Files.createDirectories(path.getParent());
+
+				Path temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+
+				try {
+					ImageIO.write(peaks.render(WAVES_WIDTH, WAVES_HEIGHT), "png", temp.toFile());
+
+					if (!isObsolete()) {
+						Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+					}
+				} finally {
+					Files.deleteIfExists(temp);
+				}
+			}
+
+			return true;
+		}
+
+		private void storeMetadata(double duration, int channels, int sampleRate) throws CoreException {
+			_file.setPersistentProperty(AudioCore.DURATION_KEY, Double.toString(duration));
+			_file.setPersistentProperty(AudioCore.CHANNELS_KEY, Integer.toString(channels));
+			_file.setPersistentProperty(AudioCore.SAMPLE_RATE_KEY, Integer.toString(sampleRate));
+		}
+
+		private void probe() throws Exception {
+			long t = currentTimeMillis();
+
+			String soundPath = eclipseFileToJavaPath(_file).toString();
+
+			String output = runProcess(AudioCore.createFFProbeProcessBuilder("-v", "quiet", "-hide_banner",
+					"-show_format", "-show_streams", "-print_format", "json", soundPath));
+
+			if (output == null) {
+				return;
+			}
+
+			JSONObject obj = new JSONObject(output);
+
+			double duration = obj.getJSONObject("format").getDouble("duration");
+			int channels = 0;
+			int sampleRate = 0;
+
+			JSONArray streams = obj.optJSONArray("streams");
+			if (streams != null) {
+				for (int i = 0; i < streams.length(); i++) {
+					JSONObject stream = streams.getJSONObject(i);
+					if ("audio".equals(stream.optString("codec_type"))) {
+						channels = stream.optInt("channels", 0);
+						// ffprobe writes the sample rate as a string
+						sampleRate = Integer.parseInt(stream.optString("sample_rate", "0"));
+						break;
+					}
+				}
+			}
+
+			if (isObsolete()) {
+				return;
+			}
+
+			storeMetadata(duration, channels, sampleRate);
+
+			out.println("Probe " + _file + " " + (currentTimeMillis() - t) + "ms");
+		}
+
+		private void makeWaves(Path path) throws Exception {
+			out.println("Make waves " + _file);
+
+			Files.createDirectories(path.getParent());
+
+			String soundPath = eclipseFileToJavaPath(_file).toString();
+
+			// the temporal file keeps the extension, ffmpeg uses it to select
+			// the output format.
+			Path temp = path.resolveSibling("tmp-" + path.getFileName());
+
+			try {
+				String output = runProcess(AudioCore.createFFMpegProcessBuilder("-v", "quiet", "-hide_banner", "-y",
+						"-i", soundPath, "-lavfi", "showwavespic=split_channels=1:s=" + WAVES_WIDTH + "x" + WAVES_HEIGHT, temp.toString()));
+
+				if (output != null && !isObsolete()) {
+					Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				}
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+		}
+	}
+
+	private static class VideoJob extends MediaJob {
+
+		public VideoJob(IFile file) {
+			super(file);
+		}
+
+		@Override
+		protected void execute() throws Exception {
+			Path path = AudioCore.getVideoSnapshotFile(_file, false);
+
+			if (Files.exists(path)) {
+				return;
+			}
+
+			Files.createDirectories(path.getParent());
+
+			String videoPath = eclipseFileToJavaPath(_file).toString();
+			out.println("Make video screenshot " + _file);
+
+			Path temp = path.resolveSibling("tmp-" + path.getFileName());
+
+			try {
+				String output = runProcess(AudioCore.createFFMpegProcessBuilder("-hide_banner", "-loglevel", "0", "-y",
+						"-ss", "00:00:01", "-i", videoPath, "-vframes", "1", "-vf", "scale=128:-1",
+						temp.toAbsolutePath().toString()));
+
+				if (output != null && !isObsolete() && Files.exists(temp)) {
+					Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				}
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+		}
+	}
+
+	private static final int WAVES_WIDTH = 800;
+	private static final int WAVES_HEIGHT = 600;
+
+	static Map<IFile, MediaJob> _jobs = new HashMap<>();
+	static AtomicLong _sequenceCounter = new AtomicLong();
+	private static ThreadPoolExecutor _executor;
+
+	static {
+		int n = Integer.getInteger("phasereditor.media.threads",
+				Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2))).intValue();
+
+		AtomicInteger count = new AtomicInteger();
+
+		// the urgent jobs first, then in request order
+		Comparator<Runnable> order = (a, b) -> {
+			MediaJob job1 = (MediaJob) a;
+			MediaJob job2 = (MediaJob) b;
+			if (job1._urgent != job2._urgent) {
+				return job1._urgent ? -1 : 1;
+			}
+			return Long.compare(job1._sequence, job2._sequence);
+		};
+
+		_executor = new ThreadPoolExecutor(n, n, 60, TimeUnit.SECONDS, new PriorityBlockingQueue<>(64, order), r -> {
+			Thread thread = new Thread(r, "Media Worker " + count.incrementAndGet());
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		});
+		_executor.allowCoreThreadTimeOut(true);
+	}
+
+	private static MediaJob request(IFile file, boolean sound) {
+		synchronized (_jobs) {
+			MediaJob job = _jobs.get(file);
+
+			if (job == null) {
+				job = sound ? new SoundJob(file) : new VideoJob(file);
+				_jobs.put(file, job);
+				_executor.execute(job);
+			}
+
+			return job;
+		}
+	}
+
+	/**
+	 * Request the metadata and the waveform of the given sound file.
+	 * 
+	 * @return The future of the metadata. It completes before the waveform is
+	 *         ready.
+	 */
+	public static CompletableFuture<Void> requestSound(IFile file) {
+		MediaJob job = request(file, true);
+
+		if (job instanceof SoundJob) {
+			return ((SoundJob) job)._metadata;
+		}
+
+		return job._done;
+	}
+
+	/**
+	 * Like {@link #requestSound(IFile)}, but if the job is still queued, it is
+	 * moved to the front of the queue. Use it when the caller is going to wait
+	 * for the metadata.
+	 * 
+	 * @return The future of the metadata.
+	 */
+	public static CompletableFuture<Void> requestSoundNow(IFile file) {
+		MediaJob job = requestUrgent(file, true);
+
+		if (job instanceof SoundJob) {
+			return ((SoundJob) job)._metadata;
+		}
+
+		return job._done;
+	}
+
+	/**
+	 * Like {@link #requestVideo(IFile)}, but if the job is still queued, it is
+	 * moved to the front of the queue.
+	 * 
+	 * @return The future of the snapshot.
+	 */
+	public static CompletableFuture<Void> requestVideoNow(IFile file) {
+		return requestUrgent(file, false)._done;
+	}
+
+	private static MediaJob requestUrgent(IFile file, boolean sound) {
+		synchronized (_jobs) {
+			MediaJob job = request(file, sound);
+
+			if (!job._urgent) {
+				// the queue does not sort again a queued job, so it is removed
+				// and queued again. If a worker already took it, it is not.
+				boolean queued = _executor.remove(job);
+
+				job._urgent = true;
+
+				if (queued) {
+					_executor.execute(job);
+				}
+			}
+
+			return job;
+		}
+	}
+
+	/**
+	 * Request the snapshot of the given video file.
+	 * 
+	 * @return The future of the snapshot.
+	 */
+	public static CompletableFuture<Void> requestVideo(IFile file) {
+		return request(file, false)._done;
+	}
+
+	/**
+	 * Cancel the job of the given file, if any. It is called when the file
+	 * changes, so the next request starts a new job.
+	 */
+	public static void cancel(IFile file) {
+		MediaJob job;
+
+		synchronized (_jobs) {
+			job = _jobs.remove(file);
+		}
+
+		if (job != null) {
+			_executor.remove(job);
+			job.cancel();
+		}
+	}
+}
@@ -0,0 +1,366 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2018 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.audio.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.badlogic.gdx.backends.lwjgl.audio.OggInputStream;
+
+/**
+ * An in-process decoder of WAV (PCM) and OGG Vorbis files. It computes the
+ * {@link SoundPeaks} in a single streaming pass over a memory-mapped file, so
+ * the ffmpeg tools are not needed for these formats.
+ * 
+ * @author arian
+ *
+ */
+public class SoundDecoder {
+
+	private static final int WAVE_FORMAT_PCM = 1;
+	private static final int WAVE_FORMAT_IEEE_FLOAT = 3;
+	private static final int WAVE_FORMAT_EXTENSIBLE = 0xFFFE;
+
+	public static boolean isSupported(String filename) {
+		String name = filename.toLowerCase();
+		return name.endsWith(".wav") || name.endsWith(".ogg");
+	}
+
+	/**
+	 * Decode the sound file.
+	 * 
+	 * @return The peaks of the sound, or <code>null</code> if the format is
+	 *         not supported by this decoder.
+	 */
+	public static SoundPeaks decode(Path file, int buckets) throws IOException {
+		String name = file.getFileName().toString().toLowerCase();
+
+		ByteBuffer buf = map(file);
+
+		if (buf == null) {
+			return null;
+		}
+
+		if (name.endsWith(".wav")) {
+			return decodeWav(buf, buckets);
+		}
+
+		if (name.endsWith(".ogg")) {
+			return decodeOgg(buf, buckets);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Read the duration from the headers of the sound file, without decoding
+	 * it.
+	 * 
+	 * @return The duration in seconds, or <code>-1</code> if the format is not
+	 *         supported by this decoder.
+	 */
+	public static double getDuration(Path file) throws IOException {
+		String name = file.getFileName().toString().toLowerCase();
+
+		ByteBuffer buf = map(file);
+
+		if (buf == null) {
+			return -1;
+		}
+
+		if (name.endsWith(".wav")) {
+			WavHeader header = readWavHeader(buf);
+			return header == null ? -1 : header.getFrames() / (double) header.sampleRate;
+		}
+
+		if (name.endsWith(".ogg")) {
+			int sampleRate = readVorbisSampleRate(buf);
+			long frames = readLastGranule(buf);
+			return sampleRate <= 0 || frames <= 0 ? -1 : frames / (double) sampleRate;
+		}
+
+		return -1;
+	}
+
+	private static ByteBuffer map(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+
+			if (size < 28 || size > Integer.MAX_VALUE) {
+				return null;
+			}
+
+			MappedByteBuffer buf = channel.map(MapMode.READ_ONLY, 0, size);
+			buf.order(ByteOrder.LITTLE_ENDIAN);
+			return buf;
+		}
+	}
+
+	private static String readTag(ByteBuffer buf, int pos) {
+		byte[] bytes = new byte[4];
+		for (int i = 0; i < 4; i++) {
+			bytes[i] = buf.get(pos + i);
+		}
+		return new String(bytes, StandardCharsets.US_ASCII);
+	}
+
+	// WAV
+
+	static class WavHeader {
+		int format;
+		int channels;
+		int sampleRate;
+		int bitsPerSample;
+		int dataPosition;
+		int dataSize;
+
+		int getFrameSize() {
+			return channels * bitsPerSample / 8;
+		}
+
+		long getFrames() {
+			return dataSize / getFrameSize();
+		}
+	}
+
+	private static WavHeader readWavHeader(ByteBuffer buf) {
+		if (!readTag(buf, 0).equals("RIFF") || !readTag(buf, 8).equals("WAVE")) {
+			return null;
+		}
+
+		WavHeader header = null;
+		int limit = buf.limit();
+		int pos = 12;
+
+		while (pos + 8 <= limit) {
+			String id = readTag(buf, pos);
+			long size = buf.getInt(pos + 4) & 0xFFFFFFFFL;
+			int body = pos + 8;
+
+			if (id.equals("fmt ") && size >= 16) {
+				header = new WavHeader();
+				header.format = buf.getShort(body) & 0xFFFF;
+				header.channels = buf.getShort(body + 2) & 0xFFFF;
+				header.sampleRate = buf.getInt(body + 4);
+				header.bitsPerSample = buf.getShort(body + 14) & 0xFFFF;
+
+				if (header.format == WAVE_FORMAT_EXTENSIBLE && size >= 26) {
+					// the first two bytes of the sub-format GUID
+					header.format = buf.getShort(body + 24) & 0xFFFF;
+				}
+			} else if (id.equals("data") && header != null) {
+				header.dataPosition = body;
+				// the size could be wrong in files written by a stream
+				header.dataSize = (int) Math.min(size, limit - body);
+				break;
+			}
+
+			pos = (int) Math.min(limit, body + size + (size & 1));
+		}
+
+		if (header == null || header.dataPosition == 0 || header.channels == 0 || header.sampleRate <= 0) {
+			return null;
+		}
+
+		boolean supported;
+		switch (header.format) {
+		case WAVE_FORMAT_PCM:
+			supported = header.bitsPerSample == 8 || header.bitsPerSample == 16 || header.bitsPerSample == 24
+					|| header.bitsPerSample == 32;
+			break;
+		case WAVE_FORMAT_IEEE_FLOAT:
+			supported = header.bitsPerSample == 32;
+			break;
+		default:
+			supported = false;
+			break;
+		}
+
+		return supported ? header : null;
+	}
+
+	private static SoundPeaks decodeWav(ByteBuffer buf, int buckets) {
+		WavHeader header = readWavHeader(buf);
+
+		if (header == null) {
+			return null;
+		}
+
+		long frames = header.getFrames();
+
+		if (frames <= 0) {
+			return null;
+		}
+
+		SoundPeaks peaks = new SoundPeaks(header.channels, header.sampleRate, frames, buckets);
+
+		int bytesPerSample = header.bitsPerSample / 8;
+		boolean isFloat = header.format == WAVE_FORMAT_IEEE_FLOAT;
+		int pos = header.dataPosition;
+
+		for (long frame = 0; frame < frames; frame++) {
+			int bucket = peaks.getBucket(frame);
+
+			for (int channel = 0; channel < header.channels; channel++) {
+				float sample;
+
+				switch (bytesPerSample) {
+				case 1:
+					sample = ((buf.get(pos) & 0xFF) - 128) / 128f;
+					break;
+				case 2:
+					sample = buf.getShort(pos) / 32768f;
+					break;
+				case 3:
+					sample = ((buf.get(pos) & 0xFF) | (buf.get(pos + 1) & 0xFF) << 8 | buf.get(pos + 2) << 16)
+							/ 8388608f;
+					break;
+				default:
+					sample = isFloat ? buf.getFloat(pos) : buf.getInt(pos) / 2147483648f;
+					break;
+				}
+
+				peaks.add(channel, bucket, sample);
+
+				pos += bytesPerSample;
+			}
+		}
+
+		return peaks;
+	}
+
+	// OGG
+
+	private static int readVorbisSampleRate(ByteBuffer buf) {
+		if (!readTag(buf, 0).equals("OggS")) {
+			return -1;
+		}
+
+		int segments = buf.get(26) & 0xFF;
+		int packet = 27 + segments;
+
+		// the identification header: type, "vorbis", version, channels, rate
+		if (packet + 16 > buf.limit() || buf.get(packet) != 1 || buf.get(packet + 1) != 'v') {
+			return -1;
+		}
+
+		return buf.getInt(packet + 12);
+	}
+
+	/**
+	 * @return The granule position of the last page, that is the number of
+	 *         frames of a Vorbis stream.
+	 */
+	private static long readLastGranule(ByteBuffer buf) {
+		for (int pos = buf.limit() - 27; pos >= 0; pos--) {
+			if (buf.get(pos) == 'O' && buf.get(pos + 1) == 'g' && buf.get(pos + 2) == 'g' && buf.get(pos + 3) == 'S'
+					&& buf.get(pos + 4) == 0) {
+				long granule = buf.getLong(pos + 6);
+				if (granule != -1) {
+					return granule;
+				}
+			}
+		}
+		return -1;
+	}
+
+	private static SoundPeaks decodeOgg(ByteBuffer buf, int buckets) throws IOException {
+		long frames = readLastGranule(buf);
+
+		if (frames <= 0 || readVorbisSampleRate(buf) <= 0) {
+			return null;
+		}
+
+		try (OggInputStream input = new OggInputStream(new ByteBufferInputStream(buf.duplicate()))) {
+			int channels = input.getChannels();
+
+			if (channels <= 0) {
+				return null;
+			}
+
+			SoundPeaks peaks = new SoundPeaks(channels, input.getSampleRate(), frames, buckets);
+
+			// the OggInputStream writes 16 bits samples in the native order
+			// and fills the whole array until the end of the stream, so a
+			// chunk always starts at a frame.
+			int frameSize = channels * 2;
+			ByteBuffer pcm = ByteBuffer.allocate(4096 * frameSize).order(ByteOrder.nativeOrder());
+			byte[] bytes = pcm.array();
+			long frame = 0;
+			int n;
+
+			while ((n = input.read(bytes)) > 0) {
+				int usable = n - n % frameSize;
+
+				for (int pos = 0; pos < usable; pos += frameSize) {
+					int bucket = peaks.getBucket(frame++);
+
+					for (int channel = 0; channel < channels; channel++) {
+						peaks.add(channel, bucket, pcm.getShort(pos + channel * 2) / 32768f);
+					}
+				}
+			}
+
+			return peaks;
+		} catch (RuntimeException e) {
+			// not a Vorbis stream
+			return null;
+		}
+	}
+
+	private static class ByteBufferInputStream extends InputStream {
+		private ByteBuffer _buf;
+
+		public ByteBufferInputStream(ByteBuffer buf) {
+			_buf = buf;
+		}
+
+		@Override
+		public int read() {
+			return _buf.hasRemaining() ? _buf.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (!_buf.hasRemaining()) {
+				return -1;
+			}
+
+			int n = Math.min(len, _buf.remaining());
+			_buf.get(b, off, n);
+			return n;
+		}
+
+		@Override
+		public int available() {
+			return _buf.remaining();
+		}
+	}
+}
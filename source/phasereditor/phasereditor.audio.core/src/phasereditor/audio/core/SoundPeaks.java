@@ -0,0 +1,231 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2018 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.audio.core;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A compact summary of a sound: the minimum and maximum sample values of every
+ * bucket of frames, per channel. It is enough to draw the waveform at any size,
+ * without decoding the sound again.
+ * 
+ * @author arian
+ *
+ */
+public class SoundPeaks {
+	public static final int DEFAULT_BUCKETS = 1024;
+
+	private static final int MAGIC = 0x5045414b; // PEAK
+	private static final int VERSION = 1;
+
+	private static final Color[] CHANNEL_COLORS = { Color.red, Color.green, Color.blue, Color.yellow, Color.orange,
+			Color.pink, Color.magenta };
+
+	private int _channels;
+	private int _sampleRate;
+	private long _frames;
+	private int _buckets;
+	private float[][] _min;
+	private float[][] _max;
+
+	SoundPeaks(int channels, int sampleRate, long frames, int buckets) {
+		_channels = channels;
+		_sampleRate = sampleRate;
+		_frames = frames;
+		_buckets = (int) Math.max(1, Math.min(buckets, frames));
+		_min = new float[channels][_buckets];
+		_max = new float[channels][_buckets];
+	}
+
+	int getBucket(long frame) {
+		return (int) Math.min(_buckets - 1, frame * _buckets / _frames);
+	}
+
+	void add(int channel, int bucket, float sample) {
+		if (sample < _min[channel][bucket]) {
+			_min[channel][bucket] = sample;
+		}
+
+		if (sample > _max[channel][bucket]) {
+			_max[channel][bucket] = sample;
+		}
+	}
+
+	public int getChannels() {
+		return _channels;
+	}
+
+	public int getSampleRate() {
+		return _sampleRate;
+	}
+
+	public long getFrames() {
+		return _frames;
+	}
+
+	public double getDuration() {
+		return _frames / (double) _sampleRate;
+	}
+
+	public int getBuckets() {
+		return _buckets;
+	}
+
+	public float getMin(int channel, int bucket) {
+		return _min[channel][bucket];
+	}
+
+	public float getMax(int channel, int bucket) {
+		return _max[channel][bucket];
+	}
+
+	public BufferedImage render(int width, int height) {
+		return render(width, height, 0, getDuration());
+	}
+
+	/**
+	 * Draw the waveform of a range of the sound, one channel below the other.
+	 * The background is transparent.
+	 * 
+	 * @param start
+	 *            The start of the range, in seconds.
+	 * @param end
+	 *            The end of the range, in seconds.
+	 */
+	public BufferedImage render(int width, int height, double start, double end) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+
+		double duration = getDuration();
+
+		if (duration <= 0 || end <= start) {
+			return image;
+		}
+
+		Graphics2D g2 = image.createGraphics();
+
+		try {
+			int laneHeight = height / _channels;
+
+			for (int channel = 0; channel < _channels; channel++) {
+				g2.setColor(CHANNEL_COLORS[channel % CHANNEL_COLORS.length]);
+
+				int center = laneHeight * channel + laneHeight / 2;
+
+				for (int x = 0; x < width; x++) {
+					int b1 = (int) ((start + (end - start) * x / width) / duration * _buckets);
+					int b2 = (int) ((start + (end - start) * (x + 1) / width) / duration * _buckets);
+
+					b1 = Math.max(0, b1);
+					b2 = Math.min(_buckets, Math.max(b1 + 1, b2));
+
+					if (b1 >= _buckets) {
+						break;
+					}
+
+					float min = 0;
+					float max = 0;
+
+					for (int b = b1; b < b2; b++) {
+						min = Math.min(min, _min[channel][b]);
+						max = Math.max(max, _max[channel][b]);
+					}
+
+					int y1 = center - Math.round(max * laneHeight / 2);
+					int y2 = center - Math.round(min * laneHeight / 2);
+
+					g2.drawLine(x, y1, x, y2);
+				}
+			}
+		} finally {
+			g2.dispose();
+		}
+
+		return image;
+	}
+
+	public void write(Path file) throws IOException {
+		Files.createDirectories(file.getParent());
+
+		Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+
+		try {
+			try (DataOutputStream output = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(temp)))) {
+				output.writeInt(MAGIC);
+				output.writeInt(VERSION);
+				output.writeInt(_channels);
+				output.writeInt(_sampleRate);
+				output.writeLong(_frames);
+				output.writeInt(_buckets);
+
+				for (int channel = 0; channel < _channels; channel++) {
+					for (int b = 0; b < _buckets; b++) {
+						output.writeFloat(_min[channel][b]);
+						output.writeFloat(_max[channel][b]);
+					}
+				}
+			}
+
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * @return The peaks, or <code>null</code> if the file was written by other
+	 *         version.
+	 */
+	public static SoundPeaks read(Path file) throws IOException {
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+				return null;
+			}
+
+			int channels = input.readInt();
+			int sampleRate = input.readInt();
+			long frames = input.readLong();
+			int buckets = input.readInt();
+
+			SoundPeaks peaks = new SoundPeaks(channels, sampleRate, frames, buckets);
+
+			for (int channel = 0; channel < channels; channel++) {
+				for (int b = 0; b < peaks._buckets; b++) {
+					peaks._min[channel][b] = input.readFloat();
+					peaks._max[channel][b] = input.readFloat();
+				}
+			}
+
+			return peaks;
+		}
+	}
+}
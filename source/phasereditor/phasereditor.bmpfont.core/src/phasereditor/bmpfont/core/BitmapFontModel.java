@@ -22,9 +22,8 @@
 package phasereditor.bmpfont.core;
 
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import javax.xml.parsers.DocumentBuilder;
@@ -43,8 +42,8 @@ import org.w3c.dom.NodeList;
  * @author arian
  *
  */
-@SuppressWarnings("boxing")
 public class BitmapFontModel {
+	private static final int LAYOUT_CACHE_SIZE = 256;
 
 	public static class InfoTag {
 		private String _face;
@@ -223,10 +222,25 @@ public class BitmapFontModel {
 
 	}
 
-	private Map<Integer, CharTag> _chars;
+	private GlyphTable _chars;
 	private CommonTag _commonTag;
 	private InfoTag _infoTag;
-	private Map<String, KerningTag> _kernings;
+	private KerningTable _kernings;
+	private Map<RenderArgs, Layout> _layoutCache;
+
+	private BitmapFontModel() {
+		_chars = new GlyphTable();
+		_kernings = new KerningTable();
+		_layoutCache = new LinkedHashMap<RenderArgs, Layout>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<RenderArgs, Layout> eldest) {
+				return size() > LAYOUT_CACHE_SIZE;
+			}
+		};
+	}
 
 	public static BitmapFontModel createFromXml(InputStream input) throws Exception {
 		BitmapFontModel model = new BitmapFontModel();
@@ -236,9 +250,6 @@ public class BitmapFontModel {
 
 	private void initXml(InputStream input) throws Exception {
 
-		_chars = new HashMap<>();
-		_kernings = new HashMap<>();
-
 		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
 		DocumentBuilder builder = factory.newDocumentBuilder();
 		Document doc = builder.parse(input);
@@ -274,7 +285,7 @@ public class BitmapFontModel {
 					charTag.setYoffset(Integer.parseInt(attrs.getNamedItem("yoffset").getNodeValue()));
 					charTag.setXadvance(Integer.parseInt(attrs.getNamedItem("xadvance").getNodeValue()));
 
-					_chars.put(charTag.getId(), charTag);
+					_chars.put(charTag);
 				}
 			}
 		}
@@ -306,7 +317,7 @@ public class BitmapFontModel {
 					kerning.setSecond(Integer.parseInt(attrs.getNamedItem("second").getNodeValue()));
 					kerning.setAmount(Integer.parseInt(attrs.getNamedItem("amount").getNodeValue()));
 
-					_kernings.put(kerning.getFirst() + "-" + kerning.getSecond(), kerning);
+					_kernings.put(kerning.getFirst(), kerning.getSecond(), kerning.getAmount());
 				}
 			}
 		}
@@ -321,9 +332,6 @@ public class BitmapFontModel {
 
 	private void initJson(InputStream input) throws Exception {
 
-		_chars = new HashMap<>();
-		_kernings = new HashMap<>();
-
 		JSONObject doc = new JSONObject(new JSONTokener(input));
 		doc = doc.getJSONObject("font");
 
@@ -352,7 +360,7 @@ public class BitmapFontModel {
 				charTag.setYoffset(elem.getInt("_yoffset"));
 				charTag.setXadvance(elem.getInt("_xadvance"));
 
-				_chars.put(charTag.getId(), charTag);
+				_chars.put(charTag);
 			}
 		}
 
@@ -379,7 +387,7 @@ public class BitmapFontModel {
 						kerningTag.setSecond(elem.getInt("_second"));
 						kerningTag.setAmount(elem.getInt("_amount"));
 
-						_kernings.put(kerningTag.getFirst() + "-" + kerningTag.getSecond(), kerningTag);
+						_kernings.put(kerningTag.getFirst(), kerningTag.getSecond(), kerningTag.getAmount());
 					}
 				}
 			}
@@ -441,56 +449,142 @@ public class BitmapFontModel {
 			return _align;
 		}
 
+		@Override
+		public int hashCode() {
+			int result = _text == null ? 0 : _text.hashCode();
+			result = 31 * result + _fontSize;
+			result = 31 * result + _maxWidth;
+			result = 31 * result + (_align == null ? 0 : _align.hashCode());
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+
+			if (!(obj instanceof RenderArgs)) {
+				return false;
+			}
+
+			RenderArgs other = (RenderArgs) obj;
+
+			return _fontSize == other._fontSize && _maxWidth == other._maxWidth && _align == other._align
+					&& (_text == null ? other._text == null : _text.equals(other._text));
+		}
+
 	}
 
-	public void render(RenderArgs args, BitmapFontRenderer renderer) {
+	/**
+	 * The glyph quads of a text. The quads are stored in a single array, with
+	 * {@link #STRIDE} values per glyph.
+	 */
+	private static class Layout {
+		static final int C = 0;
+		static final int X = 1;
+		static final int Y = 2;
+		static final int SRC_X = 3;
+		static final int SRC_Y = 4;
+		static final int SRC_W = 5;
+		static final int SRC_H = 6;
+		static final int X2 = 7;
+		static final int STRIDE = 8;
+
+		int[] quads = new int[STRIDE * 16];
+		int count;
+
+		/**
+		 * The end (exclusive glyph index) of every line.
+		 */
+		int[] lineEnds = new int[4];
+		int lineCount;
+
+		void add(int c, int x, int y, int srcX, int srcY, int srcW, int srcH) {
+			if ((count + 1) * STRIDE > quads.length) {
+				quads = Arrays.copyOf(quads, quads.length * 2);
+			}
+
+			int i = count * STRIDE;
+			quads[i + C] = c;
+			quads[i + X] = x;
+			quads[i + Y] = y;
+			quads[i + SRC_X] = srcX;
+			quads[i + SRC_Y] = srcY;
+			quads[i + SRC_W] = srcW;
+			quads[i + SRC_H] = srcH;
+			count++;
+		}
 
-		class CharRenderInfo {
-			public char c;
-			public int x;
-			public int y;
-			public int srcX;
-			public int srcY;
-			public int srcW;
-			public int srcH;
-			public int x2;
-
-			public CharRenderInfo(char c, int x, int y, int srcX, int srcY, int srcW, int srcH) {
-				super();
-				this.c = c;
-				this.x = x;
-				this.y = y;
-				this.srcX = srcX;
-				this.srcY = srcY;
-				this.srcW = srcW;
-				this.srcH = srcH;
+		void endLine() {
+			if (lineCount == lineEnds.length) {
+				lineEnds = Arrays.copyOf(lineEnds, lineEnds.length * 2);
 			}
 
+			lineEnds[lineCount++] = count;
 		}
 
-		class LineRenderInfo extends ArrayList<CharRenderInfo> {
+		int lineStart(int line) {
+			return line == 0 ? 0 : lineEnds[line - 1];
+		}
 
-			private static final long serialVersionUID = 1L;
+		int getPixelLength(int line) {
+			int end = lineEnds[line];
+			return end == lineStart(line) ? 0 : quads[(end - 1) * STRIDE + X2];
+		}
+
+		void trim() {
+			quads = Arrays.copyOf(quads, count * STRIDE);
+			lineEnds = Arrays.copyOf(lineEnds, lineCount);
+		}
+	}
+
+	/**
+	 * Renders the text. The layout of the glyphs is cached, so rendering the
+	 * same arguments again does not allocate.
+	 */
+	public void render(RenderArgs args, BitmapFontRenderer renderer) {
+		Layout layout;
 
-			public int getPixelLength() {
-				return isEmpty() ? 0 : get(size() - 1).x2;
+		synchronized (_layoutCache) {
+			layout = _layoutCache.get(args);
+		}
+
+		if (layout == null) {
+			layout = layout(args);
+
+			synchronized (_layoutCache) {
+				_layoutCache.put(args, layout);
 			}
 		}
 
+		int[] quads = layout.quads;
+
+		for (int i = 0; i < layout.count * Layout.STRIDE; i += Layout.STRIDE) {
+			renderer.render((char) quads[i + Layout.C], quads[i + Layout.X], quads[i + Layout.Y],
+					quads[i + Layout.SRC_X], quads[i + Layout.SRC_Y], quads[i + Layout.SRC_W],
+					quads[i + Layout.SRC_H]);
+		}
+	}
+
+	private Layout layout(RenderArgs args) {
 		String text = args.getText();
 		text = text.replace("\r\n", "\n").replace("\r", "\n");
 
 		String normalText = "";
 
 		{
-			StringBuilder sb = new StringBuilder();
-			for (int c : text.toCharArray()) {
-				sb.append(_chars.containsKey(c) || c == '\n' ? (char) c : ' ');
+			char[] chars = text.toCharArray();
+			for (int i = 0; i < chars.length; i++) {
+				char c = chars[i];
+				if (c != '\n' && !_chars.contains(c)) {
+					chars[i] = ' ';
+				}
 			}
-			normalText = sb.toString();
+			normalText = new String(chars);
 		}
 
-		List<LineRenderInfo> lines;
+		Layout layout = new Layout();
 
 		{
 			int maxWidth = (int) (args.getMaxWidth() * (double) _infoTag.getSize() / args.getFontSize());
@@ -500,8 +594,8 @@ public class BitmapFontModel {
 			int x = 0;
 			int y = 0;
 
-			lines = new ArrayList<>();
-			LineRenderInfo line = new LineRenderInfo();
+			// the first glyph of the current line
+			int lineBegin = 0;
 
 			int lastSpaceIndex = -1;
 			int lineStart = 0;
@@ -517,64 +611,50 @@ public class BitmapFontModel {
 					x = 0;
 					lastSpaceIndex = -1;
 					lineStart = i;
-					lines.add(line);
-					line = new LineRenderInfo();
+					layout.endLine();
+					lineBegin = layout.count;
 					y += _commonTag.getLineHeight();
 					continue;
 				}
 
-				CharTag charTag = _chars.get(c);
-				
-				if (charTag == null) {
-					charTag = _chars.get((int)' ');
+				int glyph = _chars.indexOf(c);
+
+				if (glyph == -1) {
+					glyph = _chars.indexOf(' ');
 				}
-				
-				if (charTag == null) {
-					c = _chars.keySet().iterator().next();
-					charTag = _chars.get(c);
+
+				if (glyph == -1) {
+					c = _chars.getFirstId();
+					glyph = _chars.indexOf(c);
 				}
 
 				if (c == ' ') {
 					lastSpaceIndex = i;
 				}
 
-				CharRenderInfo charRenderInfo = new CharRenderInfo((char) c, x + charTag.getXoffset(),
-						y + charTag.getYoffset(), charTag.getX(), charTag.getY(), charTag.getWidth(),
-						charTag.getHeight());
-
-				line.add(charRenderInfo);
+				layout.add(c, x + _chars.get(glyph, GlyphTable.XOFFSET), y + _chars.get(glyph, GlyphTable.YOFFSET),
+						_chars.get(glyph, GlyphTable.X), _chars.get(glyph, GlyphTable.Y),
+						_chars.get(glyph, GlyphTable.WIDTH), _chars.get(glyph, GlyphTable.HEIGHT));
 
 				int k = 0;
 
 				if (second != -1) {
-					KerningTag kerning = _kernings.get(first + "-" + second);
-					if (kerning != null) {
-						k = kerning.getAmount();
-					}
+					k = _kernings.get(first, second);
 				}
 
-				x += charTag.getXadvance() + k;
+				x += _chars.get(glyph, GlyphTable.XADVANCE) + k;
 
 				// this is the right code, but we have to deal with the Phaser 2.6.2 bug
-				charRenderInfo.x2 = x;
+				layout.quads[(layout.count - 1) * Layout.STRIDE + Layout.X2] = x;
 
 				if (wrap && x > maxWidth && lastSpaceIndex != -1) {
-					// get the new line to add, from the line start to the current position
-					// String newLine = normalText.substring(i + 1 - line.size(), lastSpaceIndex);
-
 					// remove the line chars from the last space
-					line.removeAll(line.subList(lastSpaceIndex - lineStart, line.size()));
+					layout.count = Math.min(layout.count, lineBegin + lastSpaceIndex - lineStart);
 
 					// remove trailing spaces
-					while (true) {
-						if (!line.isEmpty()) {
-							int last = line.size() - 1;
-							if (line.get(last).c == ' ') {
-								line.remove(last);
-							} else {
-								break;
-							}
-						}
+					while (layout.count > lineBegin
+							&& layout.quads[(layout.count - 1) * Layout.STRIDE + Layout.C] == ' ') {
+						layout.count--;
 					}
 
 					// move the cursor to the last space position
@@ -585,8 +665,8 @@ public class BitmapFontModel {
 					lastSpaceIndex = -1;
 
 					// add the new line
-					lines.add(line);
-					line = new LineRenderInfo();
+					layout.endLine();
+					lineBegin = layout.count;
 
 					// reset x, y
 					x = 0;
@@ -594,8 +674,8 @@ public class BitmapFontModel {
 				}
 			}
 
-			if (line.size() > 0) {
-				lines.add(line);
+			if (layout.count > lineBegin) {
+				layout.endLine();
 			}
 		}
 
@@ -604,29 +684,28 @@ public class BitmapFontModel {
 		if (args.getAlign() != Align.left) {
 			int maxLen = 0;
 
-			for (LineRenderInfo line : lines) {
-				int lineLen = line.getPixelLength();
-				maxLen = Math.max(maxLen, lineLen);
+			for (int line = 0; line < layout.lineCount; line++) {
+				maxLen = Math.max(maxLen, layout.getPixelLength(line));
 			}
 
-			for (LineRenderInfo line : lines) {
-				int offset = maxLen - line.getPixelLength();
+			for (int line = 0; line < layout.lineCount; line++) {
+				int offset = maxLen - layout.getPixelLength(line);
 
 				if (args.getAlign() == Align.center) {
 					offset = offset / 2;
 				}
 
-				for (CharRenderInfo c : line) {
-					c.x += offset;
-					c.x2 += offset;
+				for (int i = layout.lineStart(line); i < layout.lineEnds[line]; i++) {
+					layout.quads[i * Layout.STRIDE + Layout.X] += offset;
+					layout.quads[i * Layout.STRIDE + Layout.X2] += offset;
 				}
 			}
 
 		}
 
-		// render lines
+		layout.trim();
 
-		lines.forEach(line -> line.forEach(c -> renderer.render(c.c, c.x, c.y, c.srcX, c.srcY, c.srcW, c.srcH)));
+		return layout;
 	}
 
 	public static class MetricsRenderer implements BitmapFontRenderer {
@@ -0,0 +1,186 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2018 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.bmpfont.core;
+
+import java.util.Arrays;
+
+import phasereditor.bmpfont.core.BitmapFontModel.CharTag;
+
+/**
+ * The glyphs of a font, in primitive arrays. The glyphs of the BMP code points
+ * are direct-indexed, the others are in an open-addressing table.
+ * 
+ * @author arian
+ *
+ */
+class GlyphTable {
+	static final int X = 0;
+	static final int Y = 1;
+	static final int WIDTH = 2;
+	static final int HEIGHT = 3;
+	static final int XOFFSET = 4;
+	static final int YOFFSET = 5;
+	static final int XADVANCE = 6;
+	private static final int STRIDE = 7;
+
+	private static final int MAX_BMP = 0xFFFF;
+
+	private int[] _data = new int[STRIDE * 128];
+	private int _size;
+
+	/**
+	 * The glyph index + 1 of a BMP code point, <code>0</code> means no glyph.
+	 */
+	private int[] _bmpIndex = new int[128];
+
+	private int[] _keys = new int[0];
+	private int[] _values = new int[0];
+	private int _otherSize;
+
+	private int _firstId = -1;
+
+	public void put(CharTag tag) {
+		int id = tag.getId();
+		int glyph = indexOf(id);
+
+		if (glyph == -1) {
+			glyph = _size++;
+
+			if (_size * STRIDE > _data.length) {
+				_data = Arrays.copyOf(_data, _data.length * 2);
+			}
+
+			putIndex(id, glyph);
+		}
+
+		int i = glyph * STRIDE;
+		_data[i + X] = tag.getX();
+		_data[i + Y] = tag.getY();
+		_data[i + WIDTH] = tag.getWidth();
+		_data[i + HEIGHT] = tag.getHeight();
+		_data[i + XOFFSET] = tag.getXoffset();
+		_data[i + YOFFSET] = tag.getYoffset();
+		_data[i + XADVANCE] = tag.getXadvance();
+
+		if (_firstId == -1 || id < _firstId) {
+			_firstId = id;
+		}
+	}
+
+	/**
+	 * @return The index of the glyph, or <code>-1</code> if there is not a glyph
+	 *         for that code point.
+	 */
+	public int indexOf(int id) {
+		if (id >= 0 && id <= MAX_BMP) {
+			return id < _bmpIndex.length ? _bmpIndex[id] - 1 : -1;
+		}
+
+		if (_keys.length == 0) {
+			return -1;
+		}
+
+		int mask = _keys.length - 1;
+
+		for (int i = hash(id) & mask;; i = (i + 1) & mask) {
+			int key = _keys[i];
+
+			if (key == id) {
+				return _values[i];
+			}
+
+			if (key == 0) {
+				// 0 is a BMP code point, so it is used to mark empty slots
+				return -1;
+			}
+		}
+	}
+
+	public boolean contains(int id) {
+		return indexOf(id) != -1;
+	}
+
+	public int get(int glyph, int field) {
+		return _data[glyph * STRIDE + field];
+	}
+
+	/**
+	 * @return The lowest code point with a glyph, or <code>-1</code> if the table
+	 *         is empty.
+	 */
+	public int getFirstId() {
+		return _firstId;
+	}
+
+	public int size() {
+		return _size;
+	}
+
+	private void putIndex(int id, int glyph) {
+		if (id >= 0 && id <= MAX_BMP) {
+			if (id >= _bmpIndex.length) {
+				_bmpIndex = Arrays.copyOf(_bmpIndex, Math.min(MAX_BMP + 1, Math.max(id + 1, _bmpIndex.length * 2)));
+			}
+
+			_bmpIndex[id] = glyph + 1;
+			return;
+		}
+
+		if ((_otherSize + 1) * 2 > _keys.length) {
+			rehash(Math.max(16, _keys.length * 2));
+		}
+
+		insert(_keys, _values, id, glyph);
+		_otherSize++;
+	}
+
+	private void rehash(int capacity) {
+		int[] keys = new int[capacity];
+		int[] values = new int[capacity];
+
+		for (int i = 0; i < _keys.length; i++) {
+			if (_keys[i] != 0) {
+				insert(keys, values, _keys[i], _values[i]);
+			}
+		}
+
+		_keys = keys;
+		_values = values;
+	}
+
+	private static void insert(int[] keys, int[] values, int key, int value) {
+		int mask = keys.length - 1;
+		int i = hash(key) & mask;
+
+		while (keys[i] != 0) {
+			i = (i + 1) & mask;
+		}
+
+		keys[i] = key;
+		values[i] = value;
+	}
+
+	private static int hash(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
@@ -0,0 +1,124 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2018 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.bmpfont.core;
+
+import java.util.Arrays;
+
+/**
+ * The kerning amounts of a font, in an open-addressing table keyed by the
+ * <code>(first, second)</code> pair packed in a long.
+ * 
+ * @author arian
+ *
+ */
+class KerningTable {
+	private static final long EMPTY = Long.MIN_VALUE;
+
+	private long[] _keys = new long[0];
+	private int[] _amounts = new int[0];
+	private int _size;
+
+	public void put(int first, int second, int amount) {
+		if ((_size + 1) * 2 > _keys.length) {
+			rehash(Math.max(16, _keys.length * 2));
+		}
+
+		if (insert(_keys, _amounts, key(first, second), amount)) {
+			_size++;
+		}
+	}
+
+	/**
+	 * @return The kerning amount, or <code>0</code> if there is no kerning for
+	 *         the pair.
+	 */
+	public int get(int first, int second) {
+		if (_size == 0) {
+			return 0;
+		}
+
+		long key = key(first, second);
+		int mask = _keys.length - 1;
+
+		for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+			long k = _keys[i];
+
+			if (k == key) {
+				return _amounts[i];
+			}
+
+			if (k == EMPTY) {
+				return 0;
+			}
+		}
+	}
+
+	public int size() {
+		return _size;
+	}
+
+	private void rehash(int capacity) {
+		long[] keys = new long[capacity];
+		int[] amounts = new int[capacity];
+
+		Arrays.fill(keys, EMPTY);
+
+		for (int i = 0; i < _keys.length; i++) {
+			if (_keys[i] != EMPTY) {
+				insert(keys, amounts, _keys[i], _amounts[i]);
+			}
+		}
+
+		_keys = keys;
+		_amounts = amounts;
+	}
+
+	/**
+	 * @return If the key is new.
+	 */
+	private static boolean insert(long[] keys, int[] amounts, long key, int amount) {
+		int mask = keys.length - 1;
+		int i = hash(key) & mask;
+
+		while (keys[i] != EMPTY) {
+			if (keys[i] == key) {
+				amounts[i] = amount;
+				return false;
+			}
+			i = (i + 1) & mask;
+		}
+
+		keys[i] = key;
+		amounts[i] = amount;
+
+		return true;
+	}
+
+	private static long key(int first, int second) {
+		return ((long) first << 32) | (second & 0xFFFFFFFFL);
+	}
+
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
@@ -50,6 +50,7 @@ public class BitmapTextModel extends AssetSpriteModel<BitmapFontAssetModel> impl
 	private Align _align;
 	private BitmapFontModel _fontModel;
 	private MetricsRenderer _metrics;
+	private RenderArgs _renderArgs;
 
 	public BitmapTextModel(GroupModel parent, BitmapFontAssetModel assetKey) {
 		super(parent, assetKey, TYPE_NAME);
@@ -150,7 +151,15 @@ public class BitmapTextModel extends AssetSpriteModel<BitmapFontAssetModel> impl
 	}
 
 	public RenderArgs createRenderArgs() {
-		return new RenderArgs(_text, _fontSize, _maxWidth, _align);
+		RenderArgs args = _renderArgs;
+
+		if (args == null || args.getFontSize() != _fontSize || args.getMaxWidth() != _maxWidth
+				|| args.getAlign() != _align || !args.getText().equals(_text)) {
+			args = new RenderArgs(_text, _fontSize, _maxWidth, _align);
+			_renderArgs = args;
+		}
+
+		return args;
 	}
 
 	@Override
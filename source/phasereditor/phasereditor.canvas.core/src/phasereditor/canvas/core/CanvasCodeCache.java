@@ -0,0 +1,133 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2018 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.canvas.core;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.json.JSONObject;
+
+import phasereditor.assetpack.core.AssetPackCore;
+import phasereditor.assetpack.core.AssetPackModel;
+import phasereditor.project.core.ProjectCore;
+
+/**
+ * The code generated for the canvas files. The code generation is a function
+ * of the canvas model, the user code sections of the current output file, the
+ * output file, the generator version, and the project inputs resolved by the
+ * generator (the web content folder and the asset packs), so a result is
+ * cached by the digest of these inputs.
+ * 
+ * @author arian
+ *
+ */
+public class CanvasCodeCache {
+	private static final int CACHE_SIZE = 32;
+
+	private final Map<String, String> _map;
+
+	public CanvasCodeCache() {
+		_map = new LinkedHashMap<String, String>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+				return size() > CACHE_SIZE;
+			}
+		};
+	}
+
+	public synchronized String get(String key) {
+		return _map.get(key);
+	}
+
+	public synchronized void put(String key, String content) {
+		_map.put(key, content);
+	}
+
+	/**
+	 * Computes the key of the code generation inputs.
+	 * 
+	 * @param model
+	 *            The canvas model.
+	 * @param outputFile
+	 *            The file with the generated code.
+	 * @param replace
+	 *            The current content of the output file, or <code>null</code>
+	 *            if it does not exist.
+	 */
+	public static String computeKey(CanvasModel model, IFile outputFile, String replace) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+
+		JSONObject data = new JSONObject();
+		model.write(data, false);
+
+		update(digest, Activator.getDefault().getBundle().getVersion().toString());
+		update(digest, outputFile.getFullPath().toPortableString());
+		update(digest, data.toString());
+		update(digest, replace == null ? "" : replace);
+
+		// the generator resolves the URL of the files and the packs of the
+		// assets (like in the auto-load of the states), so any change in the
+		// web content folder or in the packs of the project produces a new key
+
+		IProject project = outputFile.getProject();
+
+		update(digest, ProjectCore.getWebContentFolder(project).getFullPath().toPortableString());
+
+		List<String> packs = new ArrayList<>();
+		for (AssetPackModel pack : AssetPackCore.getAssetPackModels(project)) {
+			IFile packFile = pack.getFile();
+			packs.add(packFile.getFullPath().toPortableString() + "@" + packFile.getModificationStamp());
+		}
+		Collections.sort(packs);
+
+		update(digest, packs.toString());
+
+		StringBuilder sb = new StringBuilder();
+		for (byte b : digest.digest()) {
+			sb.append(String.format("%02x", Byte.valueOf(b)));
+		}
+
+		return sb.toString();
+	}
+
+	private static void update(MessageDigest digest, String str) {
+		digest.update(str.getBytes(StandardCharsets.UTF_8));
+		// a separator, so the inputs cannot be shifted
+		digest.update((byte) 0);
+	}
+}
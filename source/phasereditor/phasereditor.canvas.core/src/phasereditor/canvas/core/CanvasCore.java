@@ -28,15 +28,12 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
+import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
-import javax.script.ScriptException;
-
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IProject;
@@ -63,6 +60,7 @@ import phasereditor.assetpack.core.IAssetReference;
 import phasereditor.assetpack.core.ImageAssetModel;
 import phasereditor.canvas.core.codegen.CanvasCodeGeneratorProvider;
 import phasereditor.lic.LicCore;
+import phasereditor.project.core.ResourceDeltaIndex;
 import phasereditor.project.core.codegen.ICodeGenerator;
 import phasereditor.project.core.codegen.SourceLang;
 
@@ -77,41 +75,35 @@ public class CanvasCore {
 	public static final String GROUP_CONTENT_TYPE_ID = "phasereditor.canvas.core.groupContentType";
 	public static final String STATE_CONTENT_TYPE_ID = "phasereditor.canvas.core.stateContentType";
 	private static CanvasFileDataCache _fileDataCache;
+	private static final CanvasCodeCache _codeCache = new CanvasCodeCache();
 	public static final String GOTO_MARKER_OBJECT_ID_ATTR = "phasereditor.canvas.core.marker.objectId";
 	public static final String CANVAS_OBJECT_REF_MARKER_ID = "phasereditor.canvas.core.objectref";
-	private static final ScriptEngine scriptEngine;
 
-	static {
-		ScriptEngineManager m = new ScriptEngineManager();
-		scriptEngine = m.getEngineByName("nashorn");
-	}
-	
+	/**
+	 * Evaluates a number or a numeric expression (see {@link NumberExpression}).
+	 */
 	public static Double scriptEngineEval(String value) {
 		try {
 			return Double.valueOf(value);
 		} catch (NumberFormatException e) {
 			try {
-				Object result = scriptEngine.eval(value);
-				return Double.valueOf(((Number) result).doubleValue());
-			} catch (ScriptException e1) {
+				return Double.valueOf(NumberExpression.compile(value).evaluate());
+			} catch (ParseException e1) {
 				throw new RuntimeException(e1);
 			}
 		}
 	}
-	
+
 	public static String scriptEngineValidate(Object value) {
 		if (value instanceof String) {
 			String script = (String) value;
 			try {
 				Double.parseDouble(script);
 			} catch (NumberFormatException e) {
-				// try a javascript expression
+				// try a numeric expression
 				try {
-					Object result = CanvasCore.scriptEngine.eval(script);
-					if (!(result instanceof Number)) {
-						return "Invalid expression result.";
-					}
-				} catch (ScriptException e1) {
+					NumberExpression.compile(script);
+				} catch (ParseException e1) {
 					return "Invalid number or script format.";
 				}
 			}
@@ -177,24 +169,39 @@ public class CanvasCore {
 				return null;
 			}
 
-			String id = contentType.getId();
-
-			switch (id) {
-			case SPRITE_CONTENT_TYPE_ID:
-				return CanvasType.SPRITE;
-			case GROUP_CONTENT_TYPE_ID:
-				return CanvasType.GROUP;
-			case STATE_CONTENT_TYPE_ID:
-				return CanvasType.STATE;
-			default:
-				return null;
-			}
+			return getCanvasType(contentType.getId());
 		} catch (CoreException e) {
 			// e.printStackTrace();
 		}
 		return null;
 	}
 
+	/**
+	 * Get the canvas type of an already computed content type, like the one
+	 * provided by the {@link ResourceDeltaIndex}.
+	 * 
+	 * @param contentTypeId
+	 *            The content type id. It can be <code>null</code>.
+	 * @return The canvas type or <code>null</code> if it is not a canvas content
+	 *         type.
+	 */
+	public static CanvasType getCanvasType(String contentTypeId) {
+		if (contentTypeId == null) {
+			return null;
+		}
+
+		switch (contentTypeId) {
+		case SPRITE_CONTENT_TYPE_ID:
+			return CanvasType.SPRITE;
+		case GROUP_CONTENT_TYPE_ID:
+			return CanvasType.GROUP;
+		case STATE_CONTENT_TYPE_ID:
+			return CanvasType.STATE;
+		default:
+			return null;
+		}
+	}
+
 	public static CanvasType getCanvasType(InputStream contents) {
 		JSONObject data = new JSONObject(new JSONTokener(contents));
 		if (data.has("settings") && data.has("world")) {
@@ -539,9 +546,21 @@ public class CanvasCore {
 				replace = new String(bytes, charset);
 			}
 
-			ICodeGenerator generator = new CanvasCodeGeneratorProvider().getCodeGenerator(canvasModel);
+			String key = CanvasCodeCache.computeKey(canvasModel, file, replace);
+
+			String content = _codeCache.get(key);
+
+			if (content == null) {
+				ICodeGenerator generator = new CanvasCodeGeneratorProvider().getCodeGenerator(canvasModel);
+				content = generator.generate(replace);
+				_codeCache.put(key, content);
+			}
 
-			String content = generator.generate(replace);
+			if (content.equals(replace)) {
+				// do not touch the file, it would trigger a new build and
+				// re-index of the same code.
+				return;
+			}
 
 			ByteArrayInputStream stream = new ByteArrayInputStream(content.getBytes(charset));
 			if (file.exists()) {
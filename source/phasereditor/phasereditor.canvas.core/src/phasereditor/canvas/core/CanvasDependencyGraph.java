@@ -0,0 +1,180 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2018 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.canvas.core;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IPath;
+
+/**
+ * The dependencies of the canvas files of a project: the prefab files they
+ * instantiate, the asset pack files they reference and the keys of the
+ * referenced assets. It is filled by the canvas validation and it is used to
+ * know which canvas files should be validated again when a prefab or an asset
+ * changes.
+ * 
+ * @author arian
+ *
+ */
+public class CanvasDependencyGraph {
+	private Map<IPath, Set<IPath>> _fileDependencies;
+	private Map<IPath, Set<String>> _assetDependencies;
+	private Map<IPath, Set<IPath>> _fileDependents;
+	private Map<String, Set<IPath>> _assetDependents;
+	private Map<IPath, Boolean> _packProblems;
+
+	public CanvasDependencyGraph() {
+		_fileDependencies = new HashMap<>();
+		_assetDependencies = new HashMap<>();
+		_fileDependents = new HashMap<>();
+		_assetDependents = new HashMap<>();
+		_packProblems = new HashMap<>();
+	}
+
+	/**
+	 * Build the key used to reference an asset in the graph.
+	 * 
+	 * @param packPath
+	 *            The full path of the asset pack file.
+	 * @param section
+	 *            The section key.
+	 * @param asset
+	 *            The asset key.
+	 * @return The asset key.
+	 */
+	public static String assetKey(IPath packPath, String section, String asset) {
+		return packPath.toPortableString() + "#" + section + "/" + asset;
+	}
+
+	/**
+	 * Set the dependencies of the given canvas file. Previous dependencies are
+	 * replaced.
+	 * 
+	 * @param canvasPath
+	 *            The full path of the canvas file.
+	 * @param files
+	 *            The full path of the prefab and asset pack files.
+	 * @param assets
+	 *            The asset keys. See {@link #assetKey(IPath, String, String)}.
+	 */
+	public synchronized void setDependencies(IPath canvasPath, Set<IPath> files, Set<String> assets) {
+		remove(canvasPath);
+
+		_fileDependencies.put(canvasPath, files);
+		_assetDependencies.put(canvasPath, assets);
+
+		for (IPath file : files) {
+			_fileDependents.computeIfAbsent(file, k -> new HashSet<>()).add(canvasPath);
+		}
+
+		for (String asset : assets) {
+			_assetDependents.computeIfAbsent(asset, k -> new HashSet<>()).add(canvasPath);
+		}
+	}
+
+	public synchronized void remove(IPath canvasPath) {
+		Set<IPath> files = _fileDependencies.remove(canvasPath);
+
+		if (files != null) {
+			for (IPath file : files) {
+				removeDependent(_fileDependents, file, canvasPath);
+			}
+		}
+
+		Set<String> assets = _assetDependencies.remove(canvasPath);
+
+		if (assets != null) {
+			for (String asset : assets) {
+				removeDependent(_assetDependents, asset, canvasPath);
+			}
+		}
+	}
+
+	private static <K> void removeDependent(Map<K, Set<IPath>> map, K key, IPath canvasPath) {
+		Set<IPath> set = map.get(key);
+
+		if (set != null) {
+			set.remove(canvasPath);
+
+			if (set.isEmpty()) {
+				map.remove(key);
+			}
+		}
+	}
+
+	/**
+	 * Update the problems state of an asset pack, as it was seen by the last
+	 * validation.
+	 * 
+	 * @param packPath
+	 *            The full path of the pack file.
+	 * @param hasProblems
+	 *            If the pack has problems.
+	 * @return If the state changed since the last update.
+	 */
+	public synchronized boolean updatePackProblems(IPath packPath, boolean hasProblems) {
+		Boolean old = _packProblems.put(packPath, Boolean.valueOf(hasProblems));
+		return old == null || old.booleanValue() != hasProblems;
+	}
+
+	/**
+	 * Get the canvas files affected by the changes of the given files and
+	 * assets. A canvas file that instantiates an affected prefab is affected
+	 * too.
+	 * 
+	 * @param files
+	 *            The full path of the changed files.
+	 * @param assets
+	 *            The keys of the changed assets.
+	 * @return The full path of the affected canvas files.
+	 */
+	public synchronized Set<IPath> getDependents(Collection<IPath> files, Collection<String> assets) {
+		Set<IPath> result = new HashSet<>();
+		Deque<IPath> queue = new ArrayDeque<>();
+
+		for (String asset : assets) {
+			queue.addAll(_assetDependents.getOrDefault(asset, Collections.emptySet()));
+		}
+
+		for (IPath file : files) {
+			queue.addAll(_fileDependents.getOrDefault(file, Collections.emptySet()));
+		}
+
+		while (!queue.isEmpty()) {
+			IPath canvasPath = queue.removeFirst();
+
+			if (result.add(canvasPath)) {
+				// the canvas could be a prefab used by other canvas files
+				queue.addAll(_fileDependents.getOrDefault(canvasPath, Collections.emptySet()));
+			}
+		}
+
+		return result;
+	}
+}
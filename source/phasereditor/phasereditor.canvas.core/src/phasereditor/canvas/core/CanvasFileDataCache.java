@@ -22,15 +22,53 @@
 package phasereditor.canvas.core;
 
 import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 
 import phasereditor.project.core.FileDataCache;
+import phasereditor.project.core.ResourceDeltaIndex;
+import phasereditor.project.core.ResourceDeltaIndex.FileDelta;
 
 /**
  * @author arian
  */
 public class CanvasFileDataCache extends FileDataCache<CanvasFile> {
 
+	private PrefabTemplateCache _prefabTemplates = new PrefabTemplateCache();
+
+	public PrefabTemplateCache getPrefabTemplates() {
+		return _prefabTemplates;
+	}
+
+	@Override
+	public synchronized void buildProject(IProject project) throws CoreException {
+		super.buildProject(project);
+
+		_prefabTemplates.invalidate(project);
+	}
+
+	@Override
+	public synchronized void buildDelta(IProject project, ResourceDeltaIndex index) {
+		super.buildDelta(project, index);
+
+		for (FileDelta delta : index.getFileDeltas()) {
+			if ("canvas".equals(delta.getExtension())) {
+				// a prefab can contain other prefabs, so any change
+				// invalidates all the project templates
+				_prefabTemplates.invalidate(project);
+				break;
+			}
+		}
+	}
+
+	@Override
+	public synchronized void clean(IProject project) {
+		super.clean(project);
+
+		_prefabTemplates.invalidate(project);
+	}
+
 	@Override
 	public CanvasFile createData(IFile file) {
 		CanvasType type = CanvasCore.getCanvasType(file);
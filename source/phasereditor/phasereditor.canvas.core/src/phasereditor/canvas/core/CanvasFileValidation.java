@@ -33,6 +33,7 @@ import java.util.Set;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.json.JSONArray;
@@ -60,12 +61,18 @@ public class CanvasFileValidation {
 	private JSONObject _data;
 	private Set<String> _usedRefError;
 	private Set<String> _usedNames;
+	private Set<IPath> _fileDependencies;
+	private Set<String> _assetDependencies;
+	private Map<IPath, Boolean> _packProblems;
 
 	public CanvasFileValidation(IFile file) throws Exception {
 		super();
 		_file = file;
 		_problems = new ArrayList<>();
 		_usedNames = new HashSet<>();
+		_fileDependencies = new HashSet<>();
+		_assetDependencies = new HashSet<>();
+		_packProblems = new HashMap<>();
 		try (InputStream contents = file.getContents()) {
 			_data = new JSONObject(new JSONTokener(contents));
 		}
@@ -84,6 +91,46 @@ public class CanvasFileValidation {
 		return _problems;
 	}
 
+	/**
+	 * The full path of the prefab and asset pack files referenced by the
+	 * canvas file. It is computed by the {@link #validate()} method.
+	 */
+	public Set<IPath> getFileDependencies() {
+		return _fileDependencies;
+	}
+
+	/**
+	 * The keys of the assets referenced by the canvas file. It is computed by
+	 * the {@link #validate()} method.
+	 * 
+	 * @see CanvasDependencyGraph#assetKey(IPath, String, String)
+	 */
+	public Set<String> getAssetDependencies() {
+		return _assetDependencies;
+	}
+
+	/**
+	 * The problems state of the asset packs referenced by the canvas file, as
+	 * it was used by the {@link #validate()} method.
+	 */
+	public Map<IPath, Boolean> getPackProblems() {
+		return _packProblems;
+	}
+
+	private void addAssetDependency(JSONObject ref) {
+		String packFile = ref.optString("file", null);
+
+		if (packFile == null) {
+			return;
+		}
+
+		IPath packPath = _file.getProject().getFile(packFile).getFullPath();
+
+		_fileDependencies.add(packPath);
+		_assetDependencies.add(
+				CanvasDependencyGraph.assetKey(packPath, ref.optString("section", null), ref.optString("asset", null)));
+	}
+
 	private void validateVersion() {
 		if (_data.optInt("canvas-version", 1) != CanvasModel.CURRENT_VERSION) {
 			_problems.add(
@@ -145,6 +192,9 @@ public class CanvasFileValidation {
 		} else {
 			file = _prefabTable.get(obj.getString("prefab"));
 		}
+		if (file != null) {
+			_fileDependencies.add(file.getFullPath());
+		}
 		if (file == null || !file.exists()) {
 			JSONObject info = obj.getJSONObject("info");
 			String name = info.optString("editorName", "?");
@@ -153,6 +203,8 @@ public class CanvasFileValidation {
 	}
 
 	private void validateRef(String spriteId, JSONObject ref) {
+		addAssetDependency(ref);
+
 		Object asset = AssetPackCore.findAssetElement(_file.getProject(), ref);
 
 		boolean problem = false;
@@ -163,6 +215,7 @@ public class CanvasFileValidation {
 			if (asset instanceof IAssetKey) {
 				IFile file = ((IAssetKey) asset).getAsset().getPack().getFile();
 				problem = ProjectCore.hasProblems(file);
+				_packProblems.put(file.getFullPath(), Boolean.valueOf(problem));
 			} else {
 				problem = true;
 			}
@@ -210,6 +263,7 @@ public class CanvasFileValidation {
 
 		for (String id : tableData.keySet()) {
 			JSONObject refObj = tableData.getJSONObject(id);
+			addAssetDependency(refObj);
 			Object asset = AssetPackCore.findAssetElement(project, refObj);
 			if (asset != null && asset instanceof IAssetKey) {
 				IAssetKey assetKey = (IAssetKey) asset;
@@ -234,6 +288,8 @@ public class CanvasFileValidation {
 			String filepath = tableData.getString(id);
 			IFile file = project.getFile(filepath);
 
+			_fileDependencies.add(file.getFullPath());
+
 			if (!file.exists()) {
 				_assetTable.put(id, null);
 				_problems.add(
@@ -2,25 +2,35 @@ package phasereditor.canvas.core;
 
 import static java.lang.System.out;
 
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
-import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IResourceDelta;
-import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.IWorkspaceRoot;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IStatus;
 
+import phasereditor.assetpack.core.AssetModel;
 import phasereditor.assetpack.core.AssetPackBuildParticipant;
 import phasereditor.assetpack.core.AssetPackCore.PackDelta;
+import phasereditor.assetpack.core.AssetPackModel;
 import phasereditor.project.core.IProjectBuildParticipant;
-import phasereditor.project.core.IResourceDeltaVisitor2;
 import phasereditor.project.core.ProjectCore;
+import phasereditor.project.core.ResourceDeltaIndex;
+import phasereditor.project.core.ResourceDeltaIndex.FileDelta;
 
 public class CanvasFilesValidationBuildParticipant implements IProjectBuildParticipant {
 
+	private static Map<IProject, CanvasDependencyGraph> _graphs = new ConcurrentHashMap<>();
+
 	public CanvasFilesValidationBuildParticipant() {
 	}
 
@@ -32,101 +42,117 @@ public class CanvasFilesValidationBuildParticipant implements IProjectBuildParti
 	@Override
 	public void clean(IProject project, Map<String, Object> env) {
 		ProjectCore.deleteResourceMarkers(project, CanvasCore.CANVAS_PROBLEM_MARKER_ID);
+		_graphs.remove(project);
 	}
 
 	@Override
 	public void projectDeleted(IProject project, Map<String, Object> env) {
-		// nothing
+		_graphs.remove(project);
 	}
 
 	@Override
 	public void fullBuild(IProject project, Map<String, Object> env) {
 		ProjectCore.deleteResourceMarkers(project, CanvasCore.CANVAS_PROBLEM_MARKER_ID);
 
+		CanvasDependencyGraph graph = new CanvasDependencyGraph();
+
 		List<CanvasFile> cfiles = CanvasCore.getCanvasFileCache().getProjectData(project);
 		cfiles.forEach(cfile -> {
-			validateCanvasFile(cfile.getFile());
+			validateCanvasFile(cfile.getFile(), graph);
 		});
+
+		_graphs.put(project, graph);
 	}
 
 	@Override
 	public void build(IProject project, IResourceDelta delta, Map<String, Object> env) {
-		if (isModifiedAPrefab(delta)) {
+		ResourceDeltaIndex index;
+		try {
+			index = ResourceDeltaIndex.getIndex(env, delta);
+		} catch (CoreException e) {
+			CanvasCore.logError(e);
+			return;
+		}
+
+		CanvasDependencyGraph graph = _graphs.get(project);
+
+		if (graph == null) {
+			// the graph is not built yet (first build of the session)
 			fullBuild(project, env);
 			return;
 		}
 
-		PackDelta packDelta = AssetPackBuildParticipant.getData(env);
-		if (packDelta.isEmpty()) {
-			// if no assets was modified, then validate only the modified canvas
-			// files.
-			try {
-				validateModifiedCanvasFiles(delta);
-			} catch (CoreException e) {
-				CanvasCore.logError(e);
+		// the changed files (prefabs and packs) and assets
+
+		Set<IPath> changedFiles = new HashSet<>();
+		Set<String> changedAssets = new HashSet<>();
+
+		for (FileDelta fileDelta : index.getFileDeltas()) {
+			IPath path = fileDelta.getFile().getFullPath();
+
+			changedFiles.add(path);
+
+			if (fileDelta.getKind() == IResourceDelta.REMOVED) {
+				graph.remove(path);
 			}
-		} else {
-			// if any asset was modified then we prefer to do a full validation
-			fullBuild(project, env);
 		}
 
-	}
+		PackDelta packDelta = AssetPackBuildParticipant.getData(env);
 
-	private static boolean isModifiedAPrefab(IResourceDelta delta) {
-		try {
-			boolean[] found = { false };
-			delta.accept(new IResourceDeltaVisitor2() {
-				@Override
-				public boolean fileVisited(IFile file) {
-					CanvasFile data = CanvasCore.getCanvasFileCache().getFileData(file);
-
-					if (data != null && data.getType().isPrefab()) {
-						found[0] = true;
-					}
-
-					return !found[0];
-				}
-			});
-			return found[0];
-		} catch (CoreException e) {
-			e.printStackTrace();
+		for (AssetPackModel pack : packDelta.getPacks()) {
+			changedFiles.add(pack.getFile().getFullPath());
 		}
-		return false;
-	}
 
-	private static void validateModifiedCanvasFiles(IResourceDelta delta) throws CoreException {
+		for (AssetModel asset : packDelta.getAssets()) {
+			AssetPackModel pack = asset.getPack();
+			IFile packFile = pack.getFile();
+			IPath packPath = packFile.getFullPath();
+
+			// the references to a pack with problems are invalid, so if the
+			// problems state of the pack changed, all its references are
+			// affected.
+			if (graph.updatePackProblems(packPath, ProjectCore.hasProblems(packFile))) {
+				changedFiles.add(packPath);
+			} else {
+				changedAssets.add(
+						CanvasDependencyGraph.assetKey(packPath, asset.getSection().getKey(), asset.getKey()));
+			}
+		}
 
-		delta.accept(new IResourceDeltaVisitor() {
+		Set<IFile> files = new LinkedHashSet<>();
 
-			@SuppressWarnings("synthetic-access")
-			@Override
-			public boolean visit(IResourceDelta delta2) throws CoreException {
-				IResource resource = delta2.getResource();
+		// the modified canvas files
 
-				if (resource == null) {
-					return true;
-				}
+		for (FileDelta fileDelta : index.getFileDeltas()) {
+			if (fileDelta.getKind() == IResourceDelta.REMOVED) {
+				continue;
+			}
 
-				if (delta2.getKind() == IResourceDelta.REMOVED) {
-					return true;
-				}
+			IFile file = fileDelta.getFile();
 
-				if (!(resource instanceof IFile)) {
-					return true;
-				}
+			if (CanvasCore.getCanvasType(fileDelta.getContentTypeId()) != null && ProjectCore.isWebContentFile(file)) {
+				files.add(file);
+			}
+		}
 
-				IFile file = (IFile) resource;
-				if (ProjectCore.isWebContentFile(file) && CanvasCore.isCanvasFile(file)) {
-					validateCanvasFile(file);
-				}
+		// the canvas files that depend on the modified prefabs and assets
 
-				return true;
+		IWorkspaceRoot root = project.getWorkspace().getRoot();
+
+		for (IPath path : graph.getDependents(changedFiles, changedAssets)) {
+			IFile file = root.getFile(path);
+
+			if (file.exists() && CanvasCore.isCanvasFile(file) && ProjectCore.isWebContentFile(file)) {
+				files.add(file);
 			}
-		});
+		}
 
+		for (IFile file : files) {
+			validateCanvasFile(file, graph);
+		}
 	}
 
-	private static void validateCanvasFile(IFile file) {
+	private static void validateCanvasFile(IFile file, CanvasDependencyGraph graph) {
 		out.println("Validate canvas file " + file);
 
 		try {
@@ -136,7 +162,15 @@ public class CanvasFilesValidationBuildParticipant implements IProjectBuildParti
 			for (IStatus problem : problems) {
 				ProjectCore.createErrorMarker(CanvasCore.CANVAS_PROBLEM_MARKER_ID, problem, file);
 			}
+
+			graph.setDependencies(file.getFullPath(), validation.getFileDependencies(),
+					validation.getAssetDependencies());
+
+			for (Entry<IPath, Boolean> entry : validation.getPackProblems().entrySet()) {
+				graph.updatePackProblems(entry.getKey(), entry.getValue().booleanValue());
+			}
 		} catch (Exception e) {
+			graph.remove(file.getFullPath());
 			CanvasCore.logError(e);
 		}
 	}
@@ -0,0 +1,505 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2018 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.canvas.core;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+
+/**
+ * A numeric expression, like the ones the user can write in the number fields
+ * of the property grid: <code>(32 + 8) * 2</code>,
+ * <code>Math.PI / 4</code>, <code>Math.max(10, 20) % 7</code>. It supports
+ * the JavaScript arithmetic operators, parentheses, and the constants and
+ * functions of the JavaScript <code>Math</code> object.
+ * 
+ * <p>
+ * The source is parsed once into an immutable tree of evaluators (constant
+ * sub-expressions are folded), so an expression can be evaluated many times,
+ * by different threads. The compiled expressions are cached by source text.
+ * </p>
+ * 
+ * @author arian
+ *
+ */
+public final class NumberExpression {
+	private static final int CACHE_SIZE = 256;
+
+	private static final Map<String, NumberExpression> _cache = new LinkedHashMap<String, NumberExpression>(16,
+			0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, NumberExpression> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	private final String _source;
+	private final DoubleSupplier _evaluator;
+
+	private NumberExpression(String source, DoubleSupplier evaluator) {
+		_source = source;
+		_evaluator = evaluator;
+	}
+
+	/**
+	 * Compiles the expression, or get it from the cache.
+	 * 
+	 * @throws ParseException
+	 *             If the source is not a valid expression. The error offset is
+	 *             the position of the wrong token.
+	 */
+	public static NumberExpression compile(String source) throws ParseException {
+		synchronized (_cache) {
+			NumberExpression expr = _cache.get(source);
+			if (expr != null) {
+				return expr;
+			}
+		}
+
+		NumberExpression expr = new NumberExpression(source, new Parser(source).parse());
+
+		synchronized (_cache) {
+			_cache.put(source, expr);
+		}
+
+		return expr;
+	}
+
+	public String getSource() {
+		return _source;
+	}
+
+	public double evaluate() {
+		return _evaluator.getAsDouble();
+	}
+
+	@Override
+	public String toString() {
+		return _source;
+	}
+
+	private static class Constant implements DoubleSupplier {
+		final double value;
+
+		public Constant(double value) {
+			this.value = value;
+		}
+
+		@Override
+		public double getAsDouble() {
+			return value;
+		}
+	}
+
+	@FunctionalInterface
+	private interface Function {
+		double apply(double[] args);
+	}
+
+	private static class Parser {
+		private final String _src;
+		private int _pos;
+
+		public Parser(String src) {
+			_src = src;
+			_pos = 0;
+		}
+
+		public DoubleSupplier parse() throws ParseException {
+			DoubleSupplier result = parseAdditive();
+			skipSpaces();
+			if (_pos < _src.length()) {
+				throw error("Unexpected '" + _src.charAt(_pos) + "'");
+			}
+			return result;
+		}
+
+		private DoubleSupplier parseAdditive() throws ParseException {
+			DoubleSupplier left = parseMultiplicative();
+			while (true) {
+				if (accept('+')) {
+					DoubleSupplier a = left;
+					DoubleSupplier b = parseMultiplicative();
+					left = fold(() -> a.getAsDouble() + b.getAsDouble(), a, b);
+				} else if (accept('-')) {
+					DoubleSupplier a = left;
+					DoubleSupplier b = parseMultiplicative();
+					left = fold(() -> a.getAsDouble() - b.getAsDouble(), a, b);
+				} else {
+					return left;
+				}
+			}
+		}
+
+		private DoubleSupplier parseMultiplicative() throws ParseException {
+			DoubleSupplier left = parseUnary();
+			while (true) {
+				if (accept('*')) {
+					DoubleSupplier a = left;
+					DoubleSupplier b = parseUnary();
+					left = fold(() -> a.getAsDouble() * b.getAsDouble(), a, b);
+				} else if (accept('/')) {
+					DoubleSupplier a = left;
+					DoubleSupplier b = parseUnary();
+					left = fold(() -> a.getAsDouble() / b.getAsDouble(), a, b);
+				} else if (accept('%')) {
+					DoubleSupplier a = left;
+					DoubleSupplier b = parseUnary();
+					left = fold(() -> a.getAsDouble() % b.getAsDouble(), a, b);
+				} else {
+					return left;
+				}
+			}
+		}
+
+		private DoubleSupplier parseUnary() throws ParseException {
+			if (accept('-')) {
+				DoubleSupplier a = parseUnary();
+				return fold(() -> -a.getAsDouble(), a);
+			}
+
+			if (accept('+')) {
+				return parseUnary();
+			}
+
+			return parsePrimary();
+		}
+
+		private DoubleSupplier parsePrimary() throws ParseException {
+			skipSpaces();
+
+			if (_pos >= _src.length()) {
+				throw error("Unexpected end of expression");
+			}
+
+			char c = _src.charAt(_pos);
+
+			if (c == '(') {
+				_pos++;
+				DoubleSupplier result = parseAdditive();
+				expect(')');
+				return result;
+			}
+
+			if (Character.isDigit(c) || c == '.') {
+				return parseNumber();
+			}
+
+			if (Character.isJavaIdentifierStart(c)) {
+				return parseMath();
+			}
+
+			throw error("Unexpected '" + c + "'");
+		}
+
+		private DoubleSupplier parseNumber() throws ParseException {
+			int start = _pos;
+			int len = _src.length();
+
+			if (_src.startsWith("0x", _pos) || _src.startsWith("0X", _pos)) {
+				_pos += 2;
+				while (_pos < len && Character.digit(_src.charAt(_pos), 16) != -1) {
+					_pos++;
+				}
+				try {
+					return new Constant(Long.parseLong(_src.substring(start + 2, _pos), 16));
+				} catch (NumberFormatException e) {
+					throw error("Invalid hexadecimal number");
+				}
+			}
+
+			while (_pos < len && Character.isDigit(_src.charAt(_pos))) {
+				_pos++;
+			}
+
+			if (_pos < len && _src.charAt(_pos) == '.') {
+				_pos++;
+				while (_pos < len && Character.isDigit(_src.charAt(_pos))) {
+					_pos++;
+				}
+			}
+
+			if (_pos < len && (_src.charAt(_pos) == 'e' || _src.charAt(_pos) == 'E')) {
+				_pos++;
+				if (_pos < len && (_src.charAt(_pos) == '+' || _src.charAt(_pos) == '-')) {
+					_pos++;
+				}
+				while (_pos < len && Character.isDigit(_src.charAt(_pos))) {
+					_pos++;
+				}
+			}
+
+			try {
+				return new Constant(Double.parseDouble(_src.substring(start, _pos)));
+			} catch (NumberFormatException e) {
+				_pos = start;
+				throw error("Invalid number");
+			}
+		}
+
+		private DoubleSupplier parseMath() throws ParseException {
+			int start = _pos;
+			String obj = parseIdentifier();
+
+			if (!obj.equals("Math")) {
+				_pos = start;
+				throw error("Unknown name '" + obj + "'");
+			}
+
+			expect('.');
+			skipSpaces();
+
+			start = _pos;
+			String name = parseIdentifier();
+
+			if (!accept('(')) {
+				double value = getConstant(name);
+				if (Double.isNaN(value)) {
+					_pos = start;
+					throw error("Unknown constant 'Math." + name + "'");
+				}
+				return new Constant(value);
+			}
+
+			List<DoubleSupplier> args = new ArrayList<>();
+			if (!accept(')')) {
+				do {
+					args.add(parseAdditive());
+				} while (accept(','));
+				expect(')');
+			}
+
+			int arity = getArity(name);
+
+			if (arity == -2) {
+				_pos = start;
+				throw error("Unknown function 'Math." + name + "'");
+			}
+
+			if (arity != -1 && arity != args.size()) {
+				_pos = start;
+				throw error("Function 'Math." + name + "' expects " + arity + " arguments");
+			}
+
+			Function func = getFunction(name);
+			DoubleSupplier[] argArray = args.toArray(new DoubleSupplier[args.size()]);
+
+			DoubleSupplier call = () -> {
+				double[] values = new double[argArray.length];
+				for (int i = 0; i < values.length; i++) {
+					values[i] = argArray[i].getAsDouble();
+				}
+				return func.apply(values);
+			};
+
+			if (name.equals("random")) {
+				return call;
+			}
+
+			return fold(call, argArray);
+		}
+
+		private String parseIdentifier() throws ParseException {
+			int start = _pos;
+			int len = _src.length();
+
+			if (_pos < len && Character.isJavaIdentifierStart(_src.charAt(_pos))) {
+				_pos++;
+				while (_pos < len && Character.isJavaIdentifierPart(_src.charAt(_pos))) {
+					_pos++;
+				}
+			}
+
+			if (start == _pos) {
+				throw error("Identifier expected");
+			}
+
+			return _src.substring(start, _pos);
+		}
+
+		/**
+		 * If all the operands are constants, evaluates the operation now.
+		 */
+		private static DoubleSupplier fold(DoubleSupplier op, DoubleSupplier... operands) {
+			for (DoubleSupplier operand : operands) {
+				if (!(operand instanceof Constant)) {
+					return op;
+				}
+			}
+			return new Constant(op.getAsDouble());
+		}
+
+		private void skipSpaces() {
+			while (_pos < _src.length() && Character.isWhitespace(_src.charAt(_pos))) {
+				_pos++;
+			}
+		}
+
+		private boolean accept(char c) {
+			skipSpaces();
+			if (_pos < _src.length() && _src.charAt(_pos) == c) {
+				_pos++;
+				return true;
+			}
+			return false;
+		}
+
+		private void expect(char c) throws ParseException {
+			if (!accept(c)) {
+				throw error("'" + c + "' expected");
+			}
+		}
+
+		private ParseException error(String msg) {
+			return new ParseException(msg + " at " + _pos + ".", _pos);
+		}
+	}
+
+	private static double getConstant(String name) {
+		switch (name) {
+		case "E":
+			return Math.E;
+		case "LN2":
+			return Math.log(2);
+		case "LN10":
+			return Math.log(10);
+		case "LOG2E":
+			return 1 / Math.log(2);
+		case "LOG10E":
+			return Math.log10(Math.E);
+		case "PI":
+			return Math.PI;
+		case "SQRT1_2":
+			return Math.sqrt(0.5);
+		case "SQRT2":
+			return Math.sqrt(2);
+		default:
+			return Double.NaN;
+		}
+	}
+
+	/**
+	 * @return The number of arguments of the function, <code>-1</code> if it is
+	 *         variadic, or <code>-2</code> if the function is unknown.
+	 */
+	private static int getArity(String name) {
+		switch (name) {
+		case "random":
+			return 0;
+		case "abs":
+		case "acos":
+		case "asin":
+		case "atan":
+		case "ceil":
+		case "cos":
+		case "exp":
+		case "floor":
+		case "log":
+		case "round":
+		case "sin":
+		case "sqrt":
+		case "tan":
+			return 1;
+		case "atan2":
+		case "pow":
+			return 2;
+		case "max":
+		case "min":
+			return -1;
+		default:
+			return -2;
+		}
+	}
+
+	private static Function getFunction(String name) {
+		switch (name) {
+		case "random":
+			return args -> Math.random();
+		case "abs":
+			return args -> Math.abs(args[0]);
+		case "acos":
+			return args -> Math.acos(args[0]);
+		case "asin":
+			return args -> Math.asin(args[0]);
+		case "atan":
+			return args -> Math.atan(args[0]);
+		case "ceil":
+			return args -> Math.ceil(args[0]);
+		case "cos":
+			return args -> Math.cos(args[0]);
+		case "exp":
+			return args -> Math.exp(args[0]);
+		case "floor":
+			return args -> Math.floor(args[0]);
+		case "log":
+			return args -> Math.log(args[0]);
+		case "round":
+			return args -> round(args[0]);
+		case "sin":
+			return args -> Math.sin(args[0]);
+		case "sqrt":
+			return args -> Math.sqrt(args[0]);
+		case "tan":
+			return args -> Math.tan(args[0]);
+		case "atan2":
+			return args -> Math.atan2(args[0], args[1]);
+		case "pow":
+			return args -> Math.pow(args[0], args[1]);
+		case "max":
+			return args -> {
+				double max = Double.NEGATIVE_INFINITY;
+				for (double arg : args) {
+					max = Math.max(max, arg);
+				}
+				return max;
+			};
+		case "min":
+			return args -> {
+				double min = Double.POSITIVE_INFINITY;
+				for (double arg : args) {
+					min = Math.min(min, arg);
+				}
+				return min;
+			};
+		default:
+			throw new IllegalArgumentException(name);
+		}
+	}
+
+	/**
+	 * Like the JavaScript <code>Math.round()</code>, the halves are rounded
+	 * up (<code>-2.5</code> is rounded to <code>-2</code>).
+	 */
+	private static double round(double x) {
+		if (Double.isNaN(x) || Double.isInfinite(x)) {
+			return x;
+		}
+		double floor = Math.floor(x);
+		return x - floor >= 0.5 ? floor + 1 : floor;
+	}
+}
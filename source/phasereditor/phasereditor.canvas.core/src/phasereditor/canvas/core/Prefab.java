@@ -21,13 +21,10 @@
 // USE OR OTHER DEALINGS IN THE SOFTWARE.
 package phasereditor.canvas.core;
 
-import java.io.InputStream;
-import java.security.InvalidParameterException;
 import java.util.UUID;
 
 import org.eclipse.core.resources.IFile;
 import org.json.JSONObject;
-import org.json.JSONTokener;
 
 /**
  * @author arian
@@ -57,59 +54,33 @@ public class Prefab extends CanvasFile{
 	}
 
 	/**
-	 * Make an instance of this prefab.
+	 * Make an instance of this prefab. The prefab file is not read each time,
+	 * the instance is a copy of the prefab template, and the given info is
+	 * normalized by the template root model (see {@link PrefabTemplateCache}).
 	 *
 	 * @param initInfo
 	 *            Some info we want to overwrite.
 	 * @return
 	 */
 	public JSONObject newInstance(JSONObject initInfo) {
-		IFile file = getFile();
-		CanvasModel model = new CanvasModel(file);
-		try (InputStream contents = file.getContents()) {
-			JSONObject data = new JSONObject(new JSONTokener(contents));
+		PrefabTemplateCache templates = CanvasCore.getCanvasFileCache().getPrefabTemplates();
 
-			model.read(data);
-			BaseObjectModel objModel;
-			if (model.getType() == CanvasType.SPRITE) {
-				objModel = model.getWorld().findFirstSprite();
-				if (objModel == null) {
-					throw new InvalidParameterException("The prefab has an invalid state.");
-				}
-			} else {
-				// get the prefab root
-				objModel = model.getWorld().findGroupPrefabRoot();
-			}
+		JSONObject newData = PrefabTemplateCache.copy(templates.getTemplate(getFile()));
 
-			if (initInfo != null) {
-				applyInfo(objModel, initInfo);
-			}
+		if (initInfo != null) {
+			JSONObject newInfo = templates.normalizeInfo(getFile(), initInfo);
 
-			JSONObject newData = new JSONObject();
-			objModel.setId(UUID.randomUUID().toString());
-			//objModel.setEditorName(model.getSettings().getClassName());
-			objModel.write(newData, false);
+			// the children are not in the normalized info, keep the copied ones
+			Object children = newData.getJSONObject("info").opt("children");
+			if (children != null) {
+				newInfo.put("children", children);
+			}
 
-			return newData;
-		} catch (Exception e) {
-			e.printStackTrace();
-			throw new RuntimeException(e);
+			newData.put("info", newInfo);
 		}
-	}
 
-	private static void applyInfo(BaseObjectModel objModel, JSONObject info) {
-		JSONObject prefabData = new JSONObject();
-		objModel.write(prefabData, false);
-		JSONObject prefabInfo = prefabData.getJSONObject("info");
-		for (String k : info.keySet()) {
-			
-			// never override children
-			if (k.equals("children")) {
-				continue;
-			}
-			
-			prefabInfo.put(k, info.get(k));
-		}
-		objModel.readInfo(prefabInfo);
+		newData.put("id", UUID.randomUUID().toString());
+
+		return newData;
 	}
 }
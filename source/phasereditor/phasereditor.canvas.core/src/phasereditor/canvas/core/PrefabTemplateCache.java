@@ -0,0 +1,215 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2018 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.canvas.core;
+
+import java.io.InputStream;
+import java.security.InvalidParameterException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/**
+ * Cache of the root object data of the prefabs. The data is computed reading
+ * the prefab file only once per modification stamp, and it is used as
+ * template to create the prefab instances. The root object model is kept too,
+ * to normalize the info of the instances (see
+ * {@link #normalizeInfo(IFile, JSONObject)}).
+ * 
+ * @author arian
+ *
+ */
+public class PrefabTemplateCache {
+
+	private static class Template {
+		public long stamp;
+		public JSONObject data;
+		public BaseObjectModel model;
+
+		public Template(long stamp, BaseObjectModel model) {
+			this.stamp = stamp;
+			this.model = model;
+			this.data = new JSONObject();
+			model.write(this.data, false);
+		}
+	}
+
+	private Map<IFile, Template> _map;
+
+	public PrefabTemplateCache() {
+		_map = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Get the data of the prefab root object. The returned object is shared,
+	 * do not modify it, use {@link #copy(JSONObject)} instead.
+	 * 
+	 * @param file
+	 *            The prefab file.
+	 * @return The root object data.
+	 */
+	public JSONObject getTemplate(IFile file) {
+		return getTemplateEntry(file).data;
+	}
+
+	private Template getTemplateEntry(IFile file) {
+		long stamp = file.getModificationStamp();
+
+		Template template = _map.get(file);
+
+		if (template == null || template.stamp != stamp) {
+			template = new Template(stamp, readTemplate(file));
+			_map.put(file, template);
+		}
+
+		return template;
+	}
+
+	/**
+	 * Apply the given info to the info of the prefab root, and get it in the
+	 * format the model writes it (defaults, legacy keys, etc...). Only the info
+	 * is read and written, the children are not included in the result.
+	 * 
+	 * @param file
+	 *            The prefab file.
+	 * @param info
+	 *            The info to apply. Its children are ignored.
+	 * @return A new info object, without children.
+	 */
+	public JSONObject normalizeInfo(IFile file, JSONObject info) {
+		Template template = getTemplateEntry(file);
+
+		JSONObject prefabInfo = new JSONObject();
+
+		JSONObject templateInfo = template.data.getJSONObject("info");
+		for (String k : templateInfo.keySet()) {
+			if (!k.equals("children")) {
+				prefabInfo.put(k, templateInfo.get(k));
+			}
+		}
+
+		for (String k : info.keySet()) {
+			// never override children
+			if (!k.equals("children")) {
+				prefabInfo.put(k, info.get(k));
+			}
+		}
+
+		JSONObject newInfo = new JSONObject();
+
+		// the model is shared by all the instances, and the whole template
+		// info is read each time, so nothing of a previous instance remains
+		synchronized (template.model) {
+			template.model.readInfo(prefabInfo);
+			template.model.writeInfo(newInfo, false);
+		}
+
+		newInfo.remove("children");
+
+		return newInfo;
+	}
+
+	public void invalidate(IFile file) {
+		_map.remove(file);
+	}
+
+	/**
+	 * Remove the templates of the given project. Since a prefab can contain
+	 * instances of other prefabs, all of them are removed.
+	 * 
+	 * @param project
+	 *            The project.
+	 */
+	public void invalidate(IProject project) {
+		_map.keySet().removeIf(file -> project.equals(file.getProject()));
+	}
+
+	private static BaseObjectModel readTemplate(IFile file) {
+		CanvasModel model = new CanvasModel(file);
+		try (InputStream contents = file.getContents()) {
+			JSONObject data = new JSONObject(new JSONTokener(contents));
+
+			model.read(data);
+			BaseObjectModel objModel;
+			if (model.getType() == CanvasType.SPRITE) {
+				objModel = model.getWorld().findFirstSprite();
+				if (objModel == null) {
+					throw new InvalidParameterException("The prefab has an invalid state.");
+				}
+			} else {
+				// get the prefab root
+				objModel = model.getWorld().findGroupPrefabRoot();
+			}
+
+			return objModel;
+		} catch (Exception e) {
+			e.printStackTrace();
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Deep copy of the given JSON object.
+	 * 
+	 * @param obj
+	 *            The object to copy.
+	 * @return A new object.
+	 */
+	public static JSONObject copy(JSONObject obj) {
+		JSONObject copy = new JSONObject();
+		for (String k : obj.keySet()) {
+			copy.put(k, copyValue(obj.get(k)));
+		}
+		return copy;
+	}
+
+	private static JSONArray copy(JSONArray array) {
+		JSONArray copy = new JSONArray();
+		for (int i = 0; i < array.length(); i++) {
+			copy.put(copyValue(array.get(i)));
+		}
+		return copy;
+	}
+
+	/**
+	 * Deep copy of the given JSON value.
+	 * 
+	 * @param value
+	 *            A JSON object, array or primitive value.
+	 * @return The copy, or the same value if it is a primitive.
+	 */
+	public static Object copyValue(Object value) {
+		if (value instanceof JSONObject) {
+			return copy((JSONObject) value);
+		}
+
+		if (value instanceof JSONArray) {
+			return copy((JSONArray) value);
+		}
+
+		return value;
+	}
+}
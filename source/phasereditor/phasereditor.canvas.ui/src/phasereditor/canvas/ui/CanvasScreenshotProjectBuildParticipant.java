@@ -18,6 +18,7 @@ import phasereditor.canvas.core.CanvasFileDataCache;
 import phasereditor.project.core.IProjectBuildParticipant;
 import phasereditor.project.core.IResourceDeltaVisitor2;
 import phasereditor.project.core.ProjectCore;
+import phasereditor.project.core.ResourceDeltaIndex;
 
 public class CanvasScreenshotProjectBuildParticipant implements IProjectBuildParticipant {
 
@@ -30,7 +31,8 @@ public class CanvasScreenshotProjectBuildParticipant implements IProjectBuildPar
 		List<CanvasFile> data = cache.getProjectData(project);
 		List<CanvasFile> cfiles = data;
 		for (CanvasFile cfile : cfiles) {
-			CanvasUI.getCanvasScreenshotFile(cfile.getFile(), true);
+			// it is rendered only if it is not up to date
+			CanvasUI.requestCanvasScreenshot(cfile.getFile());
 		}
 	}
 
@@ -67,34 +69,39 @@ public class CanvasScreenshotProjectBuildParticipant implements IProjectBuildPar
 	@Override
 	public void build(IProject project, IResourceDelta delta, Map<String, Object> env) {
 		try {
-			delta.accept(new IResourceDeltaVisitor2() {
+			ResourceDeltaIndex index = ResourceDeltaIndex.getIndex(env, delta);
+
+			index.accept(new IResourceDeltaVisitor2() {
+
+				private boolean isCanvasFile(IFile file) {
+					return CanvasCore.getCanvasType(index.getContentTypeId(file)) != null;
+				}
+
 				@Override
 				public void fileAdded(IFile file) {
-					if (CanvasCore.isCanvasFile(file)) {
-						CanvasUI.getCanvasScreenshotFile(file, true);
+					if (isCanvasFile(file)) {
+						CanvasUI.requestCanvasScreenshot(file);
 					}
 				}
 
 				@Override
 				public void fileRemoved(IFile file) {
-					if (CanvasCore.isCanvasFile(file)) {
+					if (isCanvasFile(file)) {
 						CanvasUI.clearCanvasScreenshot(file);
 					}
 				}
 
 				@Override
 				public void fileMovedTo(IFile file, IPath movedFromPath, IPath movedToPath) {
-					if (CanvasCore.isCanvasFile(file)) {
-						CanvasUI.clearCanvasScreenshot(file);
-						CanvasUI.getCanvasScreenshotFile(file, true);
+					if (isCanvasFile(file)) {
+						CanvasUI.requestCanvasScreenshot(file);
 					}
 				}
 
 				@Override
 				public void fileChanged(IFile file) {
-					if (CanvasCore.isCanvasFile(file)) {
-						CanvasUI.clearCanvasScreenshot(file);
-						CanvasUI.getCanvasScreenshotFile(file, true);
+					if (isCanvasFile(file)) {
+						CanvasUI.requestCanvasScreenshot(file);
 					}
 				}
 			});
@@ -107,8 +114,9 @@ public class CanvasScreenshotProjectBuildParticipant implements IProjectBuildPar
 	public void fullBuild(IProject project, Map<String, Object> env) {
 		List<CanvasFile> cfiles = CanvasCore.getCanvasFileCache().getProjectData(project);
 		for (CanvasFile cfile : cfiles) {
-			CanvasUI.clearCanvasScreenshot(cfile.getFile());
-			CanvasUI.getCanvasScreenshotFile(cfile.getFile(), true);
+			// the screenshot is keyed by the content, so the up to date
+			// screenshots are not rendered again
+			CanvasUI.requestCanvasScreenshot(cfile.getFile());
 		}
 	}
 }
@@ -0,0 +1,245 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2018 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.canvas.ui;
+
+import static java.lang.System.currentTimeMillis;
+import static java.lang.System.out;
+
+import java.awt.image.BufferedImage;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+
+import org.eclipse.core.resources.IFile;
+import org.json.JSONObject;
+
+import phasereditor.canvas.core.CanvasModel;
+import phasereditor.project.core.ProjectCore;
+
+/**
+ * The queue of the canvas screenshots. The screenshots are rendered by the
+ * {@link CanvasScreenshotRenderer} in a pool of worker threads, so the display
+ * is never used. The requests of visible thumbnails are served first.
+ * <p>
+ * The screenshots are stored in the user cache folder, with a name computed
+ * with the hash of the canvas content and the modification stamps of the used
+ * assets and prefabs, so an up to date screenshot is never rendered again.
+ * </p>
+ * 
+ * @author arian
+ *
+ */
+public class CanvasScreenshotQueue {
+
+	/**
+	 * Priority of the screenshots the user is waiting for, like the visible
+	 * icons and tooltips.
+	 */
+	public static final int PRIORITY_VISIBLE = 0;
+
+	/**
+	 * Priority of the screenshots requested by the builder.
+	 */
+	public static final int PRIORITY_BUILD = 1;
+
+	private static final int SCREENSHOT_SIZE = 256;
+
+	/**
+	 * Change it when the renderer changes, to discard the old screenshots.
+	 */
+	private static final String RENDERER_VERSION = "1";
+
+	private static class RenderTask implements Runnable, Comparable<RenderTask> {
+		private static AtomicLong _counter = new AtomicLong();
+
+		private IFile _file;
+		private int _priority;
+		private long _order;
+		private CompletableFuture<Path> _future;
+
+		public RenderTask(IFile file, int priority) {
+			_file = file;
+			_priority = priority;
+			_order = _counter.incrementAndGet();
+			_future = new CompletableFuture<>();
+		}
+
+		@Override
+		public int compareTo(RenderTask o) {
+			if (_priority != o._priority) {
+				return Integer.compare(_priority, o._priority);
+			}
+			return Long.compare(_order, o._order);
+		}
+
+		@Override
+		public void run() {
+			synchronized (_pending) {
+				_pending.remove(_file);
+			}
+
+			try {
+				_future.complete(makeScreenshot(_file));
+			} catch (Throwable e) {
+				CanvasUI.logError(e instanceof Exception ? (Exception) e : new RuntimeException(e));
+				_future.completeExceptionally(e);
+			}
+		}
+	}
+
+	private static Map<IFile, RenderTask> _pending = new HashMap<>();
+	private static PriorityBlockingQueue<Runnable> _queue = new PriorityBlockingQueue<>();
+	private static ThreadPoolExecutor _executor;
+
+	static {
+		int n = Integer.getInteger("phasereditor.screenshot.threads",
+				Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() / 2))).intValue();
+
+		AtomicInteger count = new AtomicInteger();
+
+		_executor = new ThreadPoolExecutor(n, n, 60, TimeUnit.SECONDS, _queue, r -> {
+			Thread thread = new Thread(r, "Canvas Screenshot Worker " + count.incrementAndGet());
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		});
+		_executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Request the screenshot of the given canvas file. If there is a pending
+	 * request of the same file, it is reused, and moved up if the new priority
+	 * is higher.
+	 * 
+	 * @param file
+	 *            The canvas file.
+	 * @param priority
+	 *            {@link #PRIORITY_VISIBLE} or {@link #PRIORITY_BUILD}.
+	 * @return The future path of the screenshot.
+	 */
+	public static CompletableFuture<Path> request(IFile file, int priority) {
+		synchronized (_pending) {
+			RenderTask task = _pending.get(file);
+
+			if (task != null) {
+				if (priority < task._priority && _queue.remove(task)) {
+					task._priority = priority;
+					_executor.execute(task);
+				}
+				return task._future;
+			}
+
+			task = new RenderTask(file, priority);
+			_pending.put(file, task);
+			_executor.execute(task);
+
+			return task._future;
+		}
+	}
+
+	static Path getScreenshotsFolder() {
+		return ProjectCore.getUserCacheFolder().resolve("snapshots");
+	}
+
+	static Path makeScreenshot(IFile file) throws Exception {
+		if (!file.exists()) {
+			return null;
+		}
+
+		long t = currentTimeMillis();
+
+		byte[] content = Files.readAllBytes(file.getLocation().toFile().toPath());
+
+		CanvasModel model = new CanvasModel(file);
+		model.read(new JSONObject(new String(content, StandardCharsets.UTF_8)));
+
+		String hash = computeHash(file, content, model);
+
+		Path dir = getScreenshotsFolder();
+		Path writeTo = dir.resolve(file.getName() + "_" + hash + ".png");
+
+		String oldName = file.getPersistentProperty(CanvasUI.SNAPSHOT_FILENAME_KEY);
+
+		if (!Files.exists(writeTo)) {
+			BufferedImage image = new CanvasScreenshotRenderer().render(model.getWorld(), SCREENSHOT_SIZE);
+
+			Files.createDirectories(dir);
+
+			Path temp = Files.createTempFile(dir, file.getName(), ".tmp");
+			ImageIO.write(image, "png", temp.toFile());
+			Files.move(temp, writeTo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+			out.println("Ready canvas snapshot src:" + file + " --> dst:" + writeTo + " "
+					+ (currentTimeMillis() - t) + "ms");
+		}
+
+		if (file.exists()) {
+			file.setPersistentProperty(CanvasUI.SNAPSHOT_FILENAME_KEY, writeTo.getFileName().toString());
+		}
+
+		if (oldName != null && !oldName.equals(writeTo.getFileName().toString())) {
+			Files.deleteIfExists(dir.resolve(oldName));
+		}
+
+		return writeTo;
+	}
+
+	private static String computeHash(IFile file, byte[] content, CanvasModel model) throws Exception {
+		MessageDigest digest = MessageDigest.getInstance("SHA-1");
+
+		digest.update(RENDERER_VERSION.getBytes(StandardCharsets.UTF_8));
+		digest.update(file.getFullPath().toPortableString().getBytes(StandardCharsets.UTF_8));
+		digest.update(content);
+
+		Set<IFile> used = new HashSet<>();
+		CanvasScreenshotRenderer.collectUsedFiles(model.getWorld(), used);
+
+		Map<String, Long> stamps = new TreeMap<>();
+		for (IFile usedFile : used) {
+			stamps.put(usedFile.getFullPath().toPortableString(), Long.valueOf(usedFile.getModificationStamp()));
+		}
+
+		digest.update(stamps.toString().getBytes(StandardCharsets.UTF_8));
+
+		StringBuilder sb = new StringBuilder();
+		for (byte b : digest.digest()) {
+			sb.append(String.format("%02x", Byte.valueOf(b)));
+		}
+
+		return sb.toString();
+	}
+}
@@ -0,0 +1,574 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2018 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.canvas.ui;
+
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.font.FontRenderContext;
+import java.awt.font.TextLayout;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.imageio.ImageIO;
+
+import org.eclipse.core.resources.IFile;
+
+import javafx.scene.text.FontPosture;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.TextAlignment;
+import phasereditor.assetpack.core.FrameData;
+import phasereditor.assetpack.core.IAssetFrameModel;
+import phasereditor.assetpack.core.IAssetKey;
+import phasereditor.assetpack.core.ImageAssetModel;
+import phasereditor.assetpack.core.TilemapAssetModel;
+import phasereditor.assetpack.core.TilemapCSVData;
+import phasereditor.bmpfont.core.BitmapFontModel;
+import phasereditor.bmpfont.core.BitmapFontModel.MetricsRenderer;
+import phasereditor.canvas.core.AssetSpriteModel;
+import phasereditor.canvas.core.BaseObjectModel;
+import phasereditor.canvas.core.BaseSpriteModel;
+import phasereditor.canvas.core.BitmapTextModel;
+import phasereditor.canvas.core.GroupModel;
+import phasereditor.canvas.core.TextModel;
+import phasereditor.canvas.core.TileSpriteModel;
+import phasereditor.canvas.core.TilemapSpriteModel;
+import phasereditor.canvas.core.WorldModel;
+
+/**
+ * Java2D renderer of the canvas models. It does not use JavaFX or SWT, so it
+ * can be used in any thread. It follows the same transformations of the canvas
+ * controls (see the <code>updateTransforms()</code> methods), and it is used to
+ * make the canvas screenshots.
+ * 
+ * @author arian
+ *
+ */
+public class CanvasScreenshotRenderer {
+
+	private static class CachedImage {
+		public long stamp;
+		public SoftReference<BufferedImage> image;
+	}
+
+	private static Map<IFile, CachedImage> _imageCache = new ConcurrentHashMap<>();
+
+	private static final FontRenderContext FONT_CONTEXT = new FontRenderContext(null, true, true);
+
+	private Rectangle2D _bounds;
+	private Graphics2D _g2;
+
+	/**
+	 * Render the world, scaled to fit in the given size.
+	 * 
+	 * @param world
+	 *            The world to render.
+	 * @param maxSize
+	 *            The max width or height of the image.
+	 * @return The image.
+	 */
+	public BufferedImage render(WorldModel world, int maxSize) {
+		// first pass: compute the bounds
+
+		_bounds = null;
+		_g2 = null;
+
+		renderChildren(world, new AffineTransform(), 1);
+
+		if (_bounds == null || _bounds.isEmpty()) {
+			return new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+		}
+
+		double f = 1;
+		double max = Math.max(_bounds.getWidth(), _bounds.getHeight());
+		if (max > maxSize) {
+			f = maxSize / max;
+		}
+
+		int width = Math.max(1, (int) Math.ceil(_bounds.getWidth() * f));
+		int height = Math.max(1, (int) Math.ceil(_bounds.getHeight() * f));
+
+		// second pass: paint
+
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g2 = image.createGraphics();
+		try {
+			g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+			g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+			g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+
+			AffineTransform tx = new AffineTransform();
+			tx.scale(f, f);
+			tx.translate(-_bounds.getX(), -_bounds.getY());
+
+			_g2 = g2;
+
+			renderChildren(world, tx, 1);
+		} finally {
+			g2.dispose();
+			_g2 = null;
+		}
+
+		return image;
+	}
+
+	private void renderChildren(GroupModel group, AffineTransform tx, float alpha) {
+		for (BaseObjectModel child : group.getChildren()) {
+			if (child.isEditorShow()) {
+				renderObject(child, tx, alpha * (float) child.getAlpha());
+			}
+		}
+	}
+
+	private void renderObject(BaseObjectModel model, AffineTransform parentTx, float alpha) {
+		AffineTransform tx = new AffineTransform(parentTx);
+
+		tx.translate(model.getX(), model.getY());
+
+		// rotation
+		tx.rotate(Math.toRadians(model.getAngle()));
+
+		// pivot
+		tx.translate(-model.getPivotX() * model.getScaleX(), -model.getPivotY() * model.getScaleY());
+
+		// scale
+		tx.scale(model.getScaleX(), model.getScaleY());
+
+		if (model instanceof GroupModel) {
+			renderChildren((GroupModel) model, tx, alpha);
+			return;
+		}
+
+		if (!(model instanceof BaseSpriteModel)) {
+			// missing assets and prefabs
+			return;
+		}
+
+		BaseSpriteModel sprite = (BaseSpriteModel) model;
+
+		if (model instanceof TextModel) {
+			renderText((TextModel) model, tx, alpha);
+		} else if (model instanceof BitmapTextModel) {
+			renderBitmapText((BitmapTextModel) model, tx, alpha);
+		} else if (model instanceof TileSpriteModel) {
+			renderTileSprite((TileSpriteModel) model, tx, alpha);
+		} else if (model instanceof TilemapSpriteModel) {
+			renderTilemap((TilemapSpriteModel) model, tx, alpha);
+		} else if (model instanceof AssetSpriteModel) {
+			IAssetKey key = ((AssetSpriteModel<?>) model).getAssetKey();
+
+			FrameData frame = getFrameData(key);
+			IFile file = getImageFile(key);
+
+			if (frame != null) {
+				anchor(sprite, tx, frame.srcSize.x, frame.srcSize.y);
+				drawImage(file, tx, alpha, frame.dst.x, frame.dst.y, frame.src.x, frame.src.y, frame.src.width,
+						frame.src.height, frame.src.width, frame.src.height);
+			}
+		}
+	}
+
+	private static void anchor(BaseSpriteModel sprite, AffineTransform tx, double width, double height) {
+		tx.translate(-width * sprite.getAnchorX(), -height * sprite.getAnchorY());
+	}
+
+	private static FrameData getFrameData(IAssetKey key) {
+		if (key instanceof IAssetFrameModel) {
+			return ((IAssetFrameModel) key).getFrameData();
+		}
+
+		if (key instanceof ImageAssetModel) {
+			return ((ImageAssetModel) key).getFrame().getFrameData();
+		}
+
+		return null;
+	}
+
+	private static IFile getImageFile(IAssetKey key) {
+		if (key instanceof IAssetFrameModel) {
+			return ((IAssetFrameModel) key).getImageFile();
+		}
+
+		if (key instanceof ImageAssetModel) {
+			return ((ImageAssetModel) key).getUrlFile();
+		}
+
+		return null;
+	}
+
+	private void renderTileSprite(TileSpriteModel model, AffineTransform tx, float alpha) {
+		IAssetKey key = model.getAssetKey();
+
+		FrameData frame = getFrameData(key);
+		IFile file = getImageFile(key);
+
+		double width = model.getWidth();
+		double height = model.getHeight();
+
+		anchor(model, tx, width, height);
+
+		addBounds(tx, 0, 0, width, height);
+
+		if (_g2 == null || frame == null) {
+			return;
+		}
+
+		Shape clip = _g2.getClip();
+		_g2.setTransform(tx);
+		_g2.clip(new Rectangle2D.Double(0, 0, width, height));
+
+		// the same of the TileSpriteNode
+
+		double sx = model.getTileScaleX();
+		double sy = model.getTileScaleY();
+
+		double xoffs = model.getTilePositionX() % frame.srcSize.x;
+		double yoffs = model.getTilePositionY() % frame.srcSize.y;
+
+		double x1;
+		double y1;
+
+		if (xoffs == 0) {
+			x1 = frame.dst.x * sx;
+		} else if (xoffs < 0) {
+			x1 = xoffs + frame.dst.x * sx;
+		} else {
+			x1 = xoffs - (frame.srcSize.x + frame.dst.x) * sx;
+		}
+
+		if (yoffs == 0) {
+			y1 = frame.dst.y * sy;
+		} else if (yoffs < 0) {
+			y1 = yoffs + frame.dst.y * sy;
+		} else {
+			y1 = yoffs - (frame.srcSize.y + frame.dst.y) * sy;
+		}
+
+		double w1 = frame.srcSize.x * sx;
+		double h1 = frame.srcSize.y * sy;
+
+		double w2 = frame.src.width * sx;
+		double h2 = frame.src.height * sy;
+
+		if (w1 > 0 && h1 > 0) {
+			for (double x = x1; x < width; x += w1) {
+				for (double y = y1; y < height; y += h1) {
+					drawImage(file, tx, alpha, x, y, frame.src.x, frame.src.y, frame.src.width, frame.src.height, w2,
+							h2);
+				}
+			}
+		}
+
+		_g2.setTransform(new AffineTransform());
+		_g2.setClip(clip);
+	}
+
+	private void renderTilemap(TilemapSpriteModel model, AffineTransform tx, float alpha) {
+		TilemapAssetModel asset = model.getAssetKey();
+
+		if (!asset.isCSVFormat()) {
+			anchor(model, tx, 100, 100);
+			addBounds(tx, 0, 0, 100, 100);
+			return;
+		}
+
+		TilemapCSVData map = asset.getCsvData();
+
+		if (map.isEmpty()) {
+			return;
+		}
+
+		int tileW = model.getTileWidth();
+		int tileH = model.getTileHeight();
+
+		anchor(model, tx, map.getColumns() * tileW, map.getRows() * tileH);
+		addBounds(tx, 0, 0, map.getColumns() * tileW, map.getRows() * tileH);
+
+		if (_g2 == null) {
+			return;
+		}
+
+		ImageAssetModel tilesetAsset = model.getTilesetImage();
+		IFile file = tilesetAsset == null ? null : tilesetAsset.getUrlFile();
+		BufferedImage tileset = loadImage(file);
+
+		if (tileset == null) {
+			return;
+		}
+
+		int tilesetW = tileset.getWidth();
+
+		int[] cells = map.getCells();
+		int cols = map.getColumns();
+
+		for (int i = 0; i < map.getRows(); i++) {
+			for (int j = 0; j < cols; j++) {
+				int frame = cells[i * cols + j];
+
+				if (frame >= 0) {
+					int srcX = frame * tileW % tilesetW;
+					int srcY = frame * tileW / tilesetW * tileH;
+					drawImage(file, tx, alpha, j * tileW, i * tileH, srcX, srcY, tileW, tileH, tileW, tileH);
+				}
+			}
+		}
+	}
+
+	private void renderBitmapText(BitmapTextModel model, AffineTransform tx, float alpha) {
+		IFile file = model.getAssetKey().getTextureFile();
+		BitmapFontModel fontModel = model.createFontModel();
+
+		if (fontModel == null) {
+			return;
+		}
+
+		double scale = (double) model.getFontSize() / (double) fontModel.getInfoSize();
+
+		MetricsRenderer metrics = new MetricsRenderer();
+		fontModel.render(model.createRenderArgs(), metrics);
+
+		anchor(model, tx, metrics.getWidth() * scale, metrics.getHeight() * scale);
+
+		tx.scale(scale, scale);
+
+		fontModel.render(model.createRenderArgs(), (c, x, y, srcX, srcY, srcW, srcH) -> {
+			if (srcW * srcH == 0) {
+				// space characters
+				return;
+			}
+			drawImage(file, tx, alpha, x, y, srcX, srcY, srcW, srcH, srcW, srcH);
+		});
+	}
+
+	private void renderText(TextModel model, AffineTransform tx, float alpha) {
+		String text = model.getText();
+
+		if (text == null || text.length() == 0) {
+			return;
+		}
+
+		int style = Font.PLAIN;
+
+		FontWeight weight = model.getStyleFontWeight();
+		if (weight != null && weight.getWeight() >= FontWeight.SEMI_BOLD.getWeight()) {
+			style |= Font.BOLD;
+		}
+
+		if (model.getStyleFontStyle() == FontPosture.ITALIC) {
+			style |= Font.ITALIC;
+		}
+
+		Font font = new Font(model.getStyleFont(), style, model.getStyleFontSize());
+
+		List<TextLayout> lines = new ArrayList<>();
+		double width = 0;
+		double height = 0;
+
+		for (String line : text.split("\n", -1)) {
+			TextLayout layout = new TextLayout(line.length() == 0 ? " " : line, font, FONT_CONTEXT);
+			lines.add(layout);
+			width = Math.max(width, line.length() == 0 ? 0 : layout.getAdvance());
+			height += layout.getAscent() + layout.getDescent() + layout.getLeading();
+		}
+
+		anchor(model, tx, width, height);
+
+		addBounds(tx, 0, 0, width, height);
+
+		if (_g2 == null) {
+			return;
+		}
+
+		Composite composite = _g2.getComposite();
+		_g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, Math.min(1, alpha)));
+		_g2.setTransform(tx);
+
+		String bg = model.getStyleBackgroundColor();
+		if (bg != null) {
+			_g2.setColor(toAWTColor(bg));
+			_g2.fill(new Rectangle2D.Double(0, 0, width, height));
+		}
+
+		Color fill = toAWTColor(model.getStyleFill());
+		String strokeColor = model.getStyleStroke();
+		Color stroke = strokeColor == null ? null : toAWTColor(strokeColor);
+
+		TextAlignment align = model.getStyleAlign();
+
+		double y = 0;
+		for (TextLayout layout : lines) {
+			double x = 0;
+
+			if (align == TextAlignment.CENTER) {
+				x = (width - layout.getAdvance()) / 2;
+			} else if (align == TextAlignment.RIGHT) {
+				x = width - layout.getAdvance();
+			}
+
+			y += layout.getAscent();
+
+			Shape outline = layout.getOutline(AffineTransform.getTranslateInstance(x, y));
+
+			_g2.setColor(fill);
+			_g2.fill(outline);
+
+			if (stroke != null && model.getStyleStrokeThickness() > 0) {
+				_g2.setColor(stroke);
+				_g2.setStroke(new BasicStroke(model.getStyleStrokeThickness()));
+				_g2.draw(outline);
+			}
+
+			y += layout.getDescent() + layout.getLeading();
+		}
+
+		_g2.setTransform(new AffineTransform());
+		_g2.setComposite(composite);
+	}
+
+	private static Color toAWTColor(String color) {
+		javafx.scene.paint.Color c = javafx.scene.paint.Color.valueOf(color);
+		return new Color((float) c.getRed(), (float) c.getGreen(), (float) c.getBlue(), (float) c.getOpacity());
+	}
+
+	private void addBounds(AffineTransform tx, double x, double y, double w, double h) {
+		Rectangle2D r = tx.createTransformedShape(new Rectangle2D.Double(x, y, w, h)).getBounds2D();
+
+		if (_bounds == null) {
+			_bounds = r;
+		} else {
+			_bounds.add(r);
+		}
+	}
+
+	private void drawImage(IFile file, AffineTransform tx, float alpha, double x, double y, int srcX, int srcY,
+			int srcW, int srcH, double dstW, double dstH) {
+
+		addBounds(tx, x, y, dstW, dstH);
+
+		if (_g2 == null) {
+			return;
+		}
+
+		BufferedImage image = loadImage(file);
+
+		if (image == null) {
+			return;
+		}
+
+		AffineTransform imgTx = new AffineTransform(tx);
+		imgTx.translate(x, y);
+		imgTx.scale(dstW / srcW, dstH / srcH);
+
+		Composite composite = _g2.getComposite();
+		_g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, Math.min(1, alpha)));
+		_g2.setTransform(imgTx);
+		_g2.drawImage(image, 0, 0, srcW, srcH, srcX, srcY, srcX + srcW, srcY + srcH, null);
+		_g2.setTransform(new AffineTransform());
+		_g2.setComposite(composite);
+	}
+
+	/**
+	 * Collect the files used to render the given group: the files of the
+	 * assets and the prefab files.
+	 * 
+	 * @param group
+	 *            The group, usually the world.
+	 * @param files
+	 *            The set where to add the files.
+	 */
+	public static void collectUsedFiles(GroupModel group, Set<IFile> files) {
+		for (BaseObjectModel child : group.getChildren()) {
+			if (child.isPrefabInstance()) {
+				files.add(child.getPrefab().getFile());
+			}
+
+			if (child instanceof GroupModel) {
+				collectUsedFiles((GroupModel) child, files);
+			} else if (child instanceof AssetSpriteModel) {
+				IAssetKey key = ((AssetSpriteModel<?>) child).getAssetKey();
+
+				if (key != null) {
+					for (IFile file : key.getAsset().computeUsedFiles()) {
+						if (file != null) {
+							files.add(file);
+						}
+					}
+				}
+
+				if (child instanceof TilemapSpriteModel) {
+					ImageAssetModel tileset = ((TilemapSpriteModel) child).getTilesetImage();
+					if (tileset != null && tileset.getUrlFile() != null) {
+						files.add(tileset.getUrlFile());
+					}
+				}
+			}
+		}
+	}
+
+	private static BufferedImage loadImage(IFile file) {
+		if (file == null || !file.exists()) {
+			return null;
+		}
+
+		long stamp = file.getModificationStamp();
+
+		CachedImage cached = _imageCache.get(file);
+
+		if (cached != null && cached.stamp == stamp) {
+			BufferedImage image = cached.image.get();
+			if (image != null) {
+				return image;
+			}
+		}
+
+		try {
+			File javaFile = file.getLocation().toFile();
+			BufferedImage image = ImageIO.read(javaFile);
+
+			if (image != null) {
+				cached = new CachedImage();
+				cached.stamp = stamp;
+				cached.image = new SoftReference<>(image);
+				_imageCache.put(file, cached);
+			}
+
+			return image;
+		} catch (Exception e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+}
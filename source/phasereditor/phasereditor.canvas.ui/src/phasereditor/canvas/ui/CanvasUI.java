@@ -21,13 +21,9 @@
 // USE OR OTHER DEALINGS IN THE SOFTWARE.
 package phasereditor.canvas.ui;
 
-import static java.lang.System.currentTimeMillis;
 import static java.lang.System.out;
 
-import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -37,10 +33,11 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.UUID;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.BiFunction;
-
-import javax.imageio.ImageIO;
+import java.util.function.Consumer;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
@@ -63,26 +60,12 @@ import org.eclipse.ui.IWorkbenchWindow;
 import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.statushandlers.StatusManager;
 import org.json.JSONObject;
-import org.json.JSONTokener;
 
 import com.subshell.snippets.jface.tooltip.tooltipsupport.ICustomInformationControlCreator;
 import com.subshell.snippets.jface.tooltip.tooltipsupport.TableViewerInformationProvider;
 import com.subshell.snippets.jface.tooltip.tooltipsupport.Tooltips;
 import com.subshell.snippets.jface.tooltip.tooltipsupport.TreeViewerInformationProvider;
 
-import javafx.embed.swing.SwingFXUtils;
-import javafx.embed.swt.FXCanvas;
-import javafx.geometry.Bounds;
-import javafx.geometry.Insets;
-import javafx.geometry.Rectangle2D;
-import javafx.scene.Scene;
-import javafx.scene.SnapshotParameters;
-import javafx.scene.image.WritableImage;
-import javafx.scene.layout.Background;
-import javafx.scene.layout.BackgroundFill;
-import javafx.scene.layout.CornerRadii;
-import javafx.scene.paint.Color;
-import javafx.scene.transform.Scale;
 import phasereditor.assetpack.core.AssetModel;
 import phasereditor.assetpack.core.FindAssetReferencesResult;
 import phasereditor.assetpack.core.IAssetFrameModel;
@@ -98,7 +81,6 @@ import phasereditor.canvas.core.BaseSpriteModel;
 import phasereditor.canvas.core.CanvasCore;
 import phasereditor.canvas.core.CanvasCore.PrefabReference;
 import phasereditor.canvas.core.CanvasFile;
-import phasereditor.canvas.core.CanvasModel;
 import phasereditor.canvas.core.CanvasModelFactory;
 import phasereditor.canvas.core.GroupModel;
 import phasereditor.canvas.core.Prefab;
@@ -107,11 +89,8 @@ import phasereditor.canvas.ui.editors.CanvasEditor;
 import phasereditor.canvas.ui.editors.operations.AddNodeOperation;
 import phasereditor.canvas.ui.editors.operations.CompositeOperation;
 import phasereditor.canvas.ui.editors.operations.DeleteNodeOperation;
-import phasereditor.canvas.ui.shapes.GroupControl;
-import phasereditor.canvas.ui.shapes.GroupNode;
 import phasereditor.canvas.ui.shapes.IObjectNode;
 import phasereditor.canvas.ui.shapes.ITextureChangeableControl;
-import phasereditor.project.core.ProjectCore;
 
 /**
  * @author arian
@@ -119,8 +98,8 @@ import phasereditor.project.core.ProjectCore;
  */
 public class CanvasUI {
 	private static final int CANVAS_SCREENSHOT_SIZE = 256;
+	public static final int SCREENSHOT_WAIT_SECONDS = 30;
 	public static final String PLUGIN_ID = "phasereditor.canvas.ui";
-	private static boolean _fxStarted = false;
 
 	public static final String PREF_PROP_CANVAS_SHORTCUT_PANE_POSITION = "phasereditor.canvas.ui.shortcuts.position";
 	public static final String PREF_VALUE_CANVAS_SHORTCUT_PANE_POSITION_TOP_LEFT = "Top-Left";
@@ -145,7 +124,7 @@ public class CanvasUI {
 		StatusManager.getManager().handle(new Status(IStatus.ERROR, PLUGIN_ID, e.getMessage(), e));
 	}
 
-	private static final QualifiedName SNAPSHOT_FILENAME_KEY = new QualifiedName("phasereditor.canvas.core",
+	static final QualifiedName SNAPSHOT_FILENAME_KEY = new QualifiedName("phasereditor.canvas.core",
 			"snapshot-file");
 
 	public static class FindPrefabReferencesResult {
@@ -413,7 +392,7 @@ public class CanvasUI {
 				return;
 			}
 
-			Path dir = ProjectCore.getUserCacheFolder().resolve("snapshots");
+			Path dir = CanvasScreenshotQueue.getScreenshotsFolder();
 			Path snapshot = dir.resolve(fname);
 			if (Files.exists(snapshot)) {
 				out.println("Removing snapshot from " + file);
@@ -425,6 +404,21 @@ public class CanvasUI {
 		}
 	}
 
+	/**
+	 * Get the screenshot of the canvas file.
+	 * 
+	 * @param file
+	 *            The canvas file.
+	 * @param makeIfNotExist
+	 *            If <code>true</code> and the screenshot does not exist, then
+	 *            wait until it is rendered (at most
+	 *            {@link #SCREENSHOT_WAIT_SECONDS}). It never waits in the UI
+	 *            thread, use {@link #requestCanvasScreenshot(IFile, Consumer)}
+	 *            there. If <code>false</code>, the screenshot is requested in
+	 *            background with a high priority, and the returned path may not
+	 *            exist yet.
+	 * @return The path of the screenshot.
+	 */
 	public static Path getCanvasScreenshotFile(IFile file, boolean makeIfNotExist) {
 		if (file == null) {
 			return null;
@@ -432,116 +426,62 @@ public class CanvasUI {
 
 		try {
 			String filename = file.getPersistentProperty(SNAPSHOT_FILENAME_KEY);
-			Path dir = ProjectCore.getUserCacheFolder().resolve("snapshots");
-			Path writeTo;
-			if (filename == null) {
-				filename = file.getName() + "_" + UUID.randomUUID().toString() + ".png";
-			}
-			writeTo = dir.resolve(filename);
+			Path dir = CanvasScreenshotQueue.getScreenshotsFolder();
 
-			if (makeIfNotExist) {
-				if (!Files.exists(writeTo)) {
-					makeCanvasScreenshot(file, writeTo);
+			if (filename != null) {
+				Path path = dir.resolve(filename);
+				if (Files.exists(path)) {
+					return path;
 				}
 			}
 
-			file.setPersistentProperty(SNAPSHOT_FILENAME_KEY, filename);
-
-			return writeTo;
-		} catch (Exception e) {
-			e.printStackTrace();
-			throw new RuntimeException(e);
-		}
-	}
-
-	public static javafx.scene.image.Image makeCanvasScreenshot_FXImage(IFile file, int maxSize) {
-
-		if (!_fxStarted) {
-			Display.getDefault().syncExec(new Runnable() {
-
-				@SuppressWarnings("unused")
-				@Override
-				public void run() {
-					new FXCanvas(new Shell(Display.getDefault()), 0);
-				}
-			});
-			_fxStarted = true;
-		}
-
-		javafx.scene.image.Image[] result = new javafx.scene.image.Image[1];
-
-		try (InputStream contents = file.getContents()) {
-			CanvasModel model = new CanvasModel(file);
-			model.read(new JSONObject(new JSONTokener(contents)));
-			GroupControl worldControl = new GroupControl(null, model.getWorld());
-			GroupNode node = worldControl.getNode();
-			node.setBackground(
-					new Background(new BackgroundFill(Color.TRANSPARENT, new CornerRadii(0), new Insets(0))));
-
-			Scene scene = new Scene(node);
-			scene.getRoot().applyCss();
-			scene.getRoot().layout();
-
-			Display.getDefault().syncExec(new Runnable() {
-
-				@Override
-				public void run() {
-					try {
-						SnapshotParameters params = new SnapshotParameters();
-						params.setFill(Color.TRANSPARENT);
-
-						Bounds b = node.getBoundsInLocal();
-
-						if (b != null) {
-							// out.println("Bounds: " + b);
-							double f = 1;
-							double x = b.getMinX();
-							double y = b.getMinY();
-							double w = b.getWidth();
-							double h = b.getHeight();
-
-							double max = Math.max(w, h);
-							if (max > maxSize) {
-								f = maxSize / max;
-							}
-
-							params.setTransform(new Scale(f, f, x, y));
-							params.setViewport(new Rectangle2D(x, y, w * f, h * f));
-						}
+			Future<Path> future = CanvasScreenshotQueue.request(file, CanvasScreenshotQueue.PRIORITY_VISIBLE);
 
-						WritableImage image = node.snapshot(params, null);
-						result[0] = image;
-					} catch (Exception e) {
-						e.printStackTrace();
+			// the UI thread is never blocked, the rendering may need it
+			if (makeIfNotExist && Display.getCurrent() == null) {
+				try {
+					Path path = future.get(SCREENSHOT_WAIT_SECONDS, TimeUnit.SECONDS);
+					if (path != null) {
+						return path;
 					}
-
+				} catch (TimeoutException e) {
+					out.println("Timeout waiting for the screenshot of " + file);
 				}
-			});
+			}
 
+			return dir.resolve(filename == null ? file.getName() + ".png" : filename);
 		} catch (Exception e) {
 			e.printStackTrace();
+			throw new RuntimeException(e);
 		}
-
-		return result[0];
 	}
 
-	public static void makeCanvasScreenshot(IFile file, Path writeTo) {
-		long t = currentTimeMillis();
-
-		javafx.scene.image.Image fxImage = makeCanvasScreenshot_FXImage(file, CANVAS_SCREENSHOT_SIZE);
-
-		BufferedImage buff = SwingFXUtils.fromFXImage(fxImage, null);
-
-		try {
-			Files.createDirectories(writeTo.getParent());
-
-			ImageIO.write(buff, "png", writeTo.toFile());
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+	/**
+	 * Request the screenshot of the canvas file in background. It is rendered
+	 * only if the canvas or the assets it uses changed.
+	 * 
+	 * @param file
+	 *            The canvas file.
+	 */
+	public static void requestCanvasScreenshot(IFile file) {
+		CanvasScreenshotQueue.request(file, CanvasScreenshotQueue.PRIORITY_BUILD);
+	}
 
-		out.println(
-				"Ready canvas snapshot src:" + file + " --> dst:" + writeTo + " " + (currentTimeMillis() - t) + "ms");
+	/**
+	 * Request the screenshot of the canvas file with a high priority, and
+	 * notify when it is ready.
+	 * 
+	 * @param file
+	 *            The canvas file.
+	 * @param onReady
+	 *            Called in the UI thread with the path of the screenshot.
+	 */
+	public static void requestCanvasScreenshot(IFile file, Consumer<Path> onReady) {
+		CanvasScreenshotQueue.request(file, CanvasScreenshotQueue.PRIORITY_VISIBLE).thenAccept(path -> {
+			if (path != null) {
+				Display.getDefault().asyncExec(() -> onReady.accept(path));
+			}
+		});
 	}
 
 	public static void installCanvasTooltips(TreeViewer viewer) {
@@ -84,6 +84,7 @@ public class ObjectCanvas extends FXCanvas {
 	private Pane _handlerPane;
 	private HandlerBehavior _handlerBehavior;
 	private KeyboardBehavior _keyboardBehavior;
+	private SceneIndex _sceneIndex;
 
 	public ObjectCanvas(Composite parent, int style) {
 		super(parent, style);
@@ -97,6 +98,8 @@ public class ObjectCanvas extends FXCanvas {
 		_outline = outline;
 		_palette = palette;
 
+		_sceneIndex = new SceneIndex(this);
+
 		createScene();
 
 		initDrop();
@@ -186,6 +189,10 @@ public class ObjectCanvas extends FXCanvas {
 		return _handlerBehavior;
 	}
 
+	public SceneIndex getSceneIndex() {
+		return _sceneIndex;
+	}
+
 	private void initDrop() {
 		getScene().setOnDragOver(event -> {
 			try {
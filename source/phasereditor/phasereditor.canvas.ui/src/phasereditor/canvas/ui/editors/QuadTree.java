@@ -0,0 +1,267 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2018 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.canvas.ui.editors;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * A quadtree of axis-aligned rectangles. Every item is stored in the smallest
+ * quad that fully contains it, so an item is never duplicated and updating it
+ * is a remove and an insert. The root grows as needed to contain the items.
+ * 
+ * @author arian
+ *
+ */
+class QuadTree<T> {
+	private static final int MAX_ITEMS = 8;
+	private static final double MIN_SIZE = 16;
+	private static final double INITIAL_SIZE = 1024;
+
+	static class Entry<T> {
+		T item;
+		double minX;
+		double minY;
+		double maxX;
+		double maxY;
+		Quad<T> quad;
+
+		boolean intersects(double x1, double y1, double x2, double y2) {
+			return minX <= x2 && maxX >= x1 && minY <= y2 && maxY >= y1;
+		}
+
+		boolean isInside(double x1, double y1, double x2, double y2) {
+			return minX >= x1 && maxX <= x2 && minY >= y1 && maxY <= y2;
+		}
+	}
+
+	static class Quad<T> {
+		final double x;
+		final double y;
+		final double size;
+		final List<Entry<T>> items;
+		Quad<T>[] children;
+
+		Quad(double x, double y, double size) {
+			this.x = x;
+			this.y = y;
+			this.size = size;
+			items = new ArrayList<>(2);
+		}
+
+		boolean contains(Entry<T> e) {
+			return e.isInside(x, y, x + size, y + size);
+		}
+
+		boolean intersects(double x1, double y1, double x2, double y2) {
+			return x <= x2 && x + size >= x1 && y <= y2 && y + size >= y1;
+		}
+
+		/**
+		 * @return The child that fully contains the entry, or -1.
+		 */
+		int childIndex(Entry<T> e) {
+			double half = size / 2;
+			double midX = x + half;
+			double midY = y + half;
+
+			int col;
+			if (e.maxX < midX) {
+				col = 0;
+			} else if (e.minX >= midX) {
+				col = 1;
+			} else {
+				return -1;
+			}
+
+			int row;
+			if (e.maxY < midY) {
+				row = 0;
+			} else if (e.minY >= midY) {
+				row = 1;
+			} else {
+				return -1;
+			}
+
+			return row * 2 + col;
+		}
+
+		@SuppressWarnings("unchecked")
+		void createChildren() {
+			double half = size / 2;
+			children = new Quad[4];
+			for (int i = 0; i < 4; i++) {
+				children[i] = new Quad<>(x + (i & 1) * half, y + (i >> 1) * half, half);
+			}
+		}
+	}
+
+	private Quad<T> _root;
+	private final Map<T, Entry<T>> _entries;
+
+	public QuadTree() {
+		_entries = new HashMap<>();
+	}
+
+	public int size() {
+		return _entries.size();
+	}
+
+	public boolean contains(T item) {
+		return _entries.containsKey(item);
+	}
+
+	/**
+	 * Add the item, or update its bounds.
+	 */
+	public void put(T item, double minX, double minY, double maxX, double maxY) {
+		Entry<T> e = _entries.get(item);
+
+		if (e == null) {
+			e = new Entry<>();
+			e.item = item;
+			_entries.put(item, e);
+		} else {
+			if (e.minX == minX && e.minY == minY && e.maxX == maxX && e.maxY == maxY) {
+				return;
+			}
+			e.quad.items.remove(e);
+		}
+
+		e.minX = minX;
+		e.minY = minY;
+		e.maxX = maxX;
+		e.maxY = maxY;
+
+		insert(e);
+	}
+
+	public void remove(T item) {
+		Entry<T> e = _entries.remove(item);
+
+		if (e != null) {
+			e.quad.items.remove(e);
+		}
+	}
+
+	public void clear() {
+		_entries.clear();
+		_root = null;
+	}
+
+	/**
+	 * Visit the items that intersect the given rectangle.
+	 */
+	public void query(double minX, double minY, double maxX, double maxY, Consumer<T> visitor) {
+		if (_root != null) {
+			query(_root, minX, minY, maxX, maxY, visitor);
+		}
+	}
+
+	private static <T> void query(Quad<T> quad, double minX, double minY, double maxX, double maxY,
+			Consumer<T> visitor) {
+		for (Entry<T> e : quad.items) {
+			if (e.intersects(minX, minY, maxX, maxY)) {
+				visitor.accept(e.item);
+			}
+		}
+
+		if (quad.children != null) {
+			for (Quad<T> child : quad.children) {
+				if (child.intersects(minX, minY, maxX, maxY)) {
+					query(child, minX, minY, maxX, maxY, visitor);
+				}
+			}
+		}
+	}
+
+	private void insert(Entry<T> e) {
+		if (_root == null) {
+			double size = INITIAL_SIZE;
+			while (size < e.maxX - e.minX || size < e.maxY - e.minY) {
+				size *= 2;
+			}
+			_root = new Quad<>(Math.floor(e.minX / size) * size, Math.floor(e.minY / size) * size, size);
+		}
+
+		while (!_root.contains(e)) {
+			grow(e);
+		}
+
+		Quad<T> quad = _root;
+
+		while (quad.children != null) {
+			int i = quad.childIndex(e);
+
+			if (i < 0) {
+				break;
+			}
+
+			quad = quad.children[i];
+		}
+
+		add(quad, e);
+	}
+
+	private static <T> void add(Quad<T> quad, Entry<T> e) {
+		quad.items.add(e);
+		e.quad = quad;
+
+		if (quad.children == null && quad.items.size() > MAX_ITEMS && quad.size > MIN_SIZE) {
+			quad.createChildren();
+
+			List<Entry<T>> items = new ArrayList<>(quad.items);
+			quad.items.clear();
+
+			for (Entry<T> item : items) {
+				int i = quad.childIndex(item);
+				if (i < 0) {
+					quad.items.add(item);
+				} else {
+					add(quad.children[i], item);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Double the root, towards the given entry.
+	 */
+	private void grow(Entry<T> e) {
+		Quad<T> old = _root;
+
+		boolean left = e.minX < old.x;
+		boolean up = e.minY < old.y;
+
+		double x = left ? old.x - old.size : old.x;
+		double y = up ? old.y - old.size : old.y;
+
+		Quad<T> root = new Quad<>(x, y, old.size * 2);
+		root.createChildren();
+		root.children[(up ? 2 : 0) + (left ? 1 : 0)] = old;
+
+		_root = root;
+	}
+}
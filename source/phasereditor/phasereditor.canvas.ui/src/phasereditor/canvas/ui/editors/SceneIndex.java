@@ -0,0 +1,246 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2018 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.canvas.ui.editors;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javafx.collections.ListChangeListener.Change;
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import phasereditor.canvas.ui.shapes.GroupNode;
+import phasereditor.canvas.ui.shapes.IObjectNode;
+
+/**
+ * A spatial index of the objects of the scene, by their bounds in the world
+ * coordinates, so they are not affected by the zoom and pan.
+ * <p>
+ * The controls report the objects that changed ({@link #invalidate(IObjectNode)})
+ * and the groups report the children that were added or removed, and the
+ * bounds of those objects are computed again before the next query.
+ * 
+ * @author arian
+ *
+ */
+public class SceneIndex {
+	private ObjectCanvas _canvas;
+	private QuadTree<IObjectNode> _tree;
+	private Map<IObjectNode, Bounds> _bounds;
+	private Set<IObjectNode> _dirty;
+	private Map<IObjectNode, Integer> _order;
+	private boolean _orderDirty;
+
+	public SceneIndex(ObjectCanvas canvas) {
+		_canvas = canvas;
+		_tree = new QuadTree<>();
+		_bounds = new HashMap<>();
+		_dirty = new LinkedHashSet<>();
+		_order = new HashMap<>();
+		_orderDirty = true;
+	}
+
+	/**
+	 * The object (and its children, if it is a group) changed, so its bounds
+	 * should be computed again.
+	 */
+	public void invalidate(IObjectNode inode) {
+		_dirty.add(inode);
+	}
+
+	/**
+	 * Called when the children of a group change. The added and removed
+	 * objects are updated in the next query.
+	 */
+	public void childrenChanged(Change<? extends Node> change) {
+		while (change.next()) {
+			for (Node node : change.getRemoved()) {
+				if (node instanceof IObjectNode) {
+					_dirty.add((IObjectNode) node);
+				}
+			}
+
+			for (Node node : change.getAddedSubList()) {
+				if (node instanceof IObjectNode) {
+					_dirty.add((IObjectNode) node);
+				}
+			}
+		}
+
+		_orderDirty = true;
+	}
+
+	/**
+	 * @return The world bounds of the object, or <code>null</code> if it is not
+	 *         in the scene.
+	 */
+	public Bounds getBounds(IObjectNode inode) {
+		refresh();
+		return _bounds.get(inode);
+	}
+
+	/**
+	 * @return The objects with bounds that intersect the given world bounds, in
+	 *         the display order (the back objects first).
+	 */
+	public List<IObjectNode> query(Bounds bounds) {
+		return query(bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY());
+	}
+
+	/**
+	 * @return The objects with bounds that contain the given world point, in the
+	 *         display order (the back objects first).
+	 */
+	public List<IObjectNode> query(double x, double y) {
+		return query(x, y, x, y);
+	}
+
+	private List<IObjectNode> query(double minX, double minY, double maxX, double maxY) {
+		refresh();
+
+		List<IObjectNode> list = new ArrayList<>();
+
+		_tree.query(minX, minY, maxX, maxY, list::add);
+
+		if (list.size() > 1) {
+			updateOrder();
+			list.sort((a, b) -> Integer.compare(_order.getOrDefault(a, -1), _order.getOrDefault(b, -1)));
+		}
+
+		return list;
+	}
+
+	private void updateOrder() {
+		if (!_orderDirty) {
+			return;
+		}
+
+		_order.clear();
+
+		int[] i = { 0 };
+
+		_canvas.getWorldNode().walkTree(inode -> {
+			_order.put(inode, Integer.valueOf(i[0]++));
+		}, true);
+
+		_orderDirty = false;
+	}
+
+	private void refresh() {
+		if (_dirty.isEmpty()) {
+			return;
+		}
+
+		GroupNode world = _canvas.getWorldNode();
+		Set<GroupNode> ancestors = new LinkedHashSet<>();
+
+		for (IObjectNode inode : _dirty) {
+			if (inode == world) {
+				// the bounds are in world coordinates, so they do not depend on
+				// the world transform
+				continue;
+			}
+
+			if (!isInWorld(inode.getNode(), world)) {
+				removeTree(inode);
+				continue;
+			}
+
+			updateTree(inode, world);
+
+			// the bounds of the parent groups depend on the bounds of the
+			// children
+
+			Parent parent = inode.getNode().getParent();
+			while (parent != world && parent instanceof GroupNode) {
+				ancestors.add((GroupNode) parent);
+				parent = parent.getParent();
+			}
+		}
+
+		for (GroupNode group : ancestors) {
+			update(group, world);
+		}
+
+		_dirty.clear();
+	}
+
+	private static boolean isInWorld(Node node, GroupNode world) {
+		Parent parent = node.getParent();
+
+		while (parent != null) {
+			if (parent == world) {
+				return true;
+			}
+			parent = parent.getParent();
+		}
+
+		return false;
+	}
+
+	private void updateTree(IObjectNode inode, GroupNode world) {
+		update(inode, world);
+
+		if (inode instanceof GroupNode) {
+			for (Node child : ((GroupNode) inode).getChildren()) {
+				updateTree((IObjectNode) child, world);
+			}
+		}
+	}
+
+	private void update(IObjectNode inode, GroupNode world) {
+		Node node = inode.getNode();
+		Bounds b = world.sceneToLocal(node.localToScene(node.getBoundsInLocal()));
+
+		if (b == null || b.isEmpty() || !isFinite(b)) {
+			_tree.remove(inode);
+			_bounds.remove(inode);
+			return;
+		}
+
+		b = new BoundingBox(b.getMinX(), b.getMinY(), b.getWidth(), b.getHeight());
+
+		_bounds.put(inode, b);
+		_tree.put(inode, b.getMinX(), b.getMinY(), b.getMaxX(), b.getMaxY());
+	}
+
+	private static boolean isFinite(Bounds b) {
+		return Double.isFinite(b.getMinX()) && Double.isFinite(b.getMinY()) && Double.isFinite(b.getMaxX())
+				&& Double.isFinite(b.getMaxY());
+	}
+
+	private void removeTree(IObjectNode inode) {
+		_tree.remove(inode);
+		_bounds.remove(inode);
+
+		if (inode instanceof GroupNode) {
+			for (Node child : ((GroupNode) inode).getChildren()) {
+				removeTree((IObjectNode) child);
+			}
+		}
+	}
+}
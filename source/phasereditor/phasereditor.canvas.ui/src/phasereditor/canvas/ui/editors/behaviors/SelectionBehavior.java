@@ -39,7 +39,6 @@ import org.eclipse.jface.viewers.SelectionChangedEvent;
 import org.eclipse.jface.viewers.StructuredSelection;
 import org.eclipse.jface.viewers.TreeViewer;
 
-import javafx.collections.ObservableList;
 import javafx.geometry.BoundingBox;
 import javafx.geometry.Bounds;
 import javafx.geometry.Point2D;
@@ -49,6 +48,7 @@ import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.Pane;
 import phasereditor.canvas.core.BaseObjectModel;
 import phasereditor.canvas.ui.editors.ObjectCanvas;
+import phasereditor.canvas.ui.editors.SceneIndex;
 import phasereditor.canvas.ui.editors.SelectionDragNode;
 import phasereditor.canvas.ui.editors.SelectionNode;
 import phasereditor.canvas.ui.shapes.BaseObjectControl;
@@ -95,34 +95,55 @@ public class SelectionBehavior implements ISelectionProvider {
 		status.setMessage(msg);
 	}
 
-	private Node pickNode(Node test, double sceneX, double sceneY) {
-		if (test instanceof IObjectNode) {
-			BaseObjectModel model = ((IObjectNode) test).getModel();
-			if (!model.isEditorPick()) {
-				return null;
-			}
+	/**
+	 * @return The top object at the given scene point, or <code>null</code>.
+	 */
+	private Node pickNode(double sceneX, double sceneY) {
+		GroupNode world = _canvas.getWorldNode();
+
+		if (!world.getModel().isEditorPick()) {
+			return null;
 		}
 
-		if (test instanceof GroupNode) {
-			ObservableList<Node> list = ((GroupNode) test).getChildren();
-			for (int i = list.size() - 1; i >= 0; i--) {
-				Node child = list.get(i);
-				Node result = pickNode(child, sceneX, sceneY);
-				if (result != null) {
-					return result;
-				}
+		Point2D p = world.sceneToLocal(sceneX, sceneY);
+		List<IObjectNode> list = _canvas.getSceneIndex().query(p.getX(), p.getY());
+
+		// the list is in display order, so look from the top objects
+
+		for (int i = list.size() - 1; i >= 0; i--) {
+			IObjectNode inode = list.get(i);
+
+			if (inode instanceof GroupNode || !isPickable(inode)) {
+				continue;
 			}
-		}
 
-		Point2D p = test.sceneToLocal(sceneX, sceneY);
+			Node node = inode.getNode();
 
-		if (test.contains(p)) {
-			return test;
+			if (node.contains(node.sceneToLocal(sceneX, sceneY))) {
+				return node;
+			}
 		}
 
 		return null;
 	}
 
+	/**
+	 * @return If the object and its parents can be picked.
+	 */
+	private boolean isPickable(IObjectNode inode) {
+		Node node = inode.getNode();
+		GroupNode world = _canvas.getWorldNode();
+
+		while (node != world && node instanceof IObjectNode) {
+			if (!((IObjectNode) node).getModel().isEditorPick()) {
+				return false;
+			}
+			node = node.getParent();
+		}
+
+		return true;
+	}
+
 	void handleMouseReleased(MouseEvent e) {
 		if (isSelectingBox()) {
 			_canvas.getSelectionFrontPane().getChildren().remove(_selectionBox);
@@ -131,7 +152,7 @@ public class SelectionBehavior implements ISelectionProvider {
 			return;
 		}
 
-		Node userPicked = pickNode(_canvas.getWorldNode(), e.getSceneX(), e.getSceneY());
+		Node userPicked = pickNode(e.getSceneX(), e.getSceneY());
 
 		Node picked = findBestToPick(userPicked);
 
@@ -207,28 +228,47 @@ public class SelectionBehavior implements ISelectionProvider {
 
 	private void selectBox(SelectionDragNode selectionBox) {
 		List<Object> list = new ArrayList<>();
-		Bounds selBounds = selectionBox.localToScene(selectionBox.getBoundsInLocal());
+		GroupNode world = _canvas.getWorldNode();
+		SceneIndex index = _canvas.getSceneIndex();
+		Bounds selBounds = world.sceneToLocal(selectionBox.localToScene(selectionBox.getBoundsInLocal()));
 
-		_canvas.getWorldNode().walkTree(inode -> {
+		for (IObjectNode inode : index.query(selBounds)) {
 			if (!inode.getModel().isEditorPick()) {
-				return;
+				continue;
 			}
 
 			if (inode instanceof GroupNode && !((GroupNode) inode).getModel().isEditorClosed()) {
 				// do not select open groups, else the children of the group
-				return;
+				continue;
 			}
 
-			Node node = inode.getNode();
-			Bounds b = node.localToScene(node.getBoundsInLocal());
+			if (isInClosedGroup(inode)) {
+				continue;
+			}
+
+			Bounds b = index.getBounds(inode);
 			if (selBounds.contains(b)) {
 				list.add(inode);
 			}
-		}, false);
+		}
 
 		setSelection(new StructuredSelection(list));
 	}
 
+	private boolean isInClosedGroup(IObjectNode inode) {
+		GroupNode world = _canvas.getWorldNode();
+		Node parent = inode.getNode().getParent();
+
+		while (parent != world && parent instanceof GroupNode) {
+			if (((GroupNode) parent).getModel().isEditorClosed()) {
+				return true;
+			}
+			parent = parent.getParent();
+		}
+
+		return false;
+	}
+
 	public Node findBestToPick(Node picked) {
 		if (picked == null) {
 			return null;
@@ -30,8 +30,15 @@ public class UsingPrefabStatusContextViewer implements IStatusContextViewer {
 	public void setInput(RefactoringStatusContext input) {
 		CanvasFileRefactoringStatusContext context = (CanvasFileRefactoringStatusContext) input;
 		IFile clientFile = context.getCorrespondingElement();
-		Path screenshot = CanvasUI.getCanvasScreenshotFile(clientFile, true);
+		Path screenshot = CanvasUI.getCanvasScreenshotFile(clientFile, false);
 		_control.setImageFile(screenshot.toFile().getAbsolutePath());
+
+		// it is called in the UI thread, so do not wait for the screenshot
+		CanvasUI.requestCanvasScreenshot(clientFile, path -> {
+			if (!_control.isDisposed()) {
+				_control.setImageFile(path.toFile().getAbsolutePath());
+			}
+		});
 	}
 
 }
@@ -137,6 +137,10 @@ public abstract class BaseObjectControl<T extends BaseObjectModel> {
 		transforms.clear();
 
 		updateTransforms(transforms);
+
+		if (_canvas != null) {
+			_canvas.getSceneIndex().invalidate(_inode);
+		}
 	}
 
 	protected void updatePositionFromModel() {
@@ -23,9 +23,11 @@ package phasereditor.canvas.ui.shapes;
 
 import java.util.function.Consumer;
 
+import javafx.collections.ListChangeListener;
 import javafx.scene.Node;
 import javafx.scene.layout.Pane;
 import phasereditor.canvas.core.GroupModel;
+import phasereditor.canvas.ui.editors.ObjectCanvas;
 
 /**
  * @author arian
@@ -38,6 +40,13 @@ public class GroupNode extends Pane implements IObjectNode {
 	GroupNode(GroupControl control) {
 		_control = control;
 		setPickOnBounds(false);
+
+		getChildren().addListener((ListChangeListener<Node>) change -> {
+			ObjectCanvas canvas = _control.getCanvas();
+			if (canvas != null) {
+				canvas.getSceneIndex().childrenChanged(change);
+			}
+		});
 	}
 
 	@Override
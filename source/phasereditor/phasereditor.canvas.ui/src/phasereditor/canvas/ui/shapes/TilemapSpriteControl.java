@@ -29,6 +29,7 @@ import phasereditor.assetpack.core.IAssetFrameModel;
 import phasereditor.assetpack.core.ImageAssetModel;
 import phasereditor.assetpack.core.ImageAssetModel.Frame;
 import phasereditor.assetpack.core.TilemapAssetModel;
+import phasereditor.assetpack.core.TilemapCSVData;
 import phasereditor.canvas.core.TilemapSpriteModel;
 import phasereditor.canvas.ui.editors.ObjectCanvas;
 import phasereditor.canvas.ui.editors.grid.PGridBooleanProperty;
@@ -54,9 +55,9 @@ public class TilemapSpriteControl extends BaseSpriteControl<TilemapSpriteModel>
 	public double getTextureWidth() {
 		TilemapAssetModel asset = getModel().getAssetKey();
 		if (asset.isCSVFormat()) {
-			int[][] map = asset.getCsvData();
-			if (map.length > 0) {
-				return map[0].length * getModel().getTileWidth();
+			TilemapCSVData map = asset.getCsvData();
+			if (!map.isEmpty()) {
+				return map.getColumns() * getModel().getTileWidth();
 			}
 		}
 		return 100;
@@ -66,9 +67,9 @@ public class TilemapSpriteControl extends BaseSpriteControl<TilemapSpriteModel>
 	public double getTextureHeight() {
 		TilemapAssetModel asset = getModel().getAssetKey();
 		if (asset.isCSVFormat()) {
-			int[][] map = asset.getCsvData();
-			if (map.length > 0) {
-				return map.length * getModel().getTileHeight();
+			TilemapCSVData map = asset.getCsvData();
+			if (!map.isEmpty()) {
+				return map.getRows() * getModel().getTileHeight();
 			}
 		}
 		return 100;
@@ -21,52 +21,104 @@
 // USE OR OTHER DEALINGS IN THE SOFTWARE.
 package phasereditor.canvas.ui.shapes;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.eclipse.core.resources.IFile;
 
-import javafx.geometry.Point2D;
-import javafx.geometry.Rectangle2D;
-import javafx.scene.CacheHint;
+import javafx.beans.InvalidationListener;
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
 import javafx.scene.Node;
+import javafx.scene.Scene;
 import javafx.scene.control.Label;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
-import javafx.scene.shape.Rectangle;
 import phasereditor.assetpack.core.ImageAssetModel;
 import phasereditor.assetpack.core.TilemapAssetModel;
+import phasereditor.assetpack.core.TilemapCSVData;
 import phasereditor.canvas.core.TilemapSpriteModel;
 import phasereditor.ui.ImageCache;
 
 /**
+ * The tiles are baked in chunk images, of {@link #CHUNK_SIZE} x
+ * {@link #CHUNK_SIZE} tiles. Only the chunks inside the viewport are
+ * rasterized, and only the chunks with changed cells are rasterized again when
+ * the map is updated.
+ * 
  * @author arian
  */
 public class TilemapSpriteNode extends Pane implements ISpriteNode {
 
+	private static final int CHUNK_SIZE = 32;
+
+	/**
+	 * The max width or height of a chunk image, in pixels.
+	 */
+	private static final int MAX_CHUNK_PIXELS = 2048;
+
 	private TilemapSpriteControl _control;
 
+	private TilemapCSVData _map;
+	private int _tileW;
+	private int _tileH;
+	private Image _tileset;
+	private Color[] _colors;
+	private int _chunkCols;
+	private int _chunkRows;
+	private List<Chunk> _chunks;
+
+	private InvalidationListener _viewportListener;
+
+	static class Chunk {
+		int x;
+		int y;
+		int cols;
+		int rows;
+		ImageView view;
+		boolean dirty;
+	}
+
 	public TilemapSpriteNode(TilemapSpriteControl control) {
 		_control = control;
+		_chunks = new ArrayList<>();
 
-		setCache(true);
-		setCacheHint(CacheHint.SPEED);
+		_viewportListener = o -> requestLayout();
+
+		localToSceneTransformProperty().addListener(_viewportListener);
+
+		sceneProperty().addListener((o, oldScene, newScene) -> {
+			if (oldScene != null) {
+				oldScene.widthProperty().removeListener(_viewportListener);
+				oldScene.heightProperty().removeListener(_viewportListener);
+			}
+
+			if (newScene != null) {
+				newScene.widthProperty().addListener(_viewportListener);
+				newScene.heightProperty().addListener(_viewportListener);
+			}
+
+			requestLayout();
+		});
 
 		updateContent();
 	}
 
 	@Override
 	public boolean contains(double localX, double localY) {
-		for (Node node : getChildren()) {
-			if (node.getOpacity() > 0) {
-				Point2D p = node.parentToLocal(localX, localY);
-				if (node.contains(p)) {
-					return true;
-				}
-			}
+		if (_map == null || localX < 0 || localY < 0) {
+			return false;
 		}
-		return false;
+
+		int i = (int) (localY / _tileH);
+		int j = (int) (localX / _tileW);
+
+		return i < _map.getRows() && j < _map.getColumns() && _map.get(i, j) >= 0;
 	}
 
 	public void updateContent() {
@@ -78,6 +130,8 @@ public class TilemapSpriteNode extends Pane implements ISpriteNode {
 	}
 
 	private void createMap_JSON() {
+		clearMap();
+
 		Label label = new Label("Tilemap JSON");
 		getChildren().setAll(label);
 	}
@@ -85,9 +139,10 @@ public class TilemapSpriteNode extends Pane implements ISpriteNode {
 	private void createMap_CSV() {
 		TilemapAssetModel asset = getModel().getAssetKey();
 
-		int[][] map = asset.getCsvData();
+		TilemapCSVData map = asset.getCsvData();
 
-		if (map.length == 0) {
+		if (map.isEmpty()) {
+			clearMap();
 			getChildren().setAll(new Label("Tilemap CSV: empty map"));
 		} else {
 			ImageAssetModel tilesetAsset = getModel().getTilesetImage();
@@ -97,97 +152,221 @@ public class TilemapSpriteNode extends Pane implements ISpriteNode {
 
 				if (file != null && file.exists()) {
 					Image image = ImageCache.getFXImage(file, false);
-					buildMap(image);
+					buildMap(map, image);
 					return;
 				}
 			}
 
-			buildFallbackMap();
+			buildMap(map, null);
 		}
 	}
 
-	private void buildMap(Image tileset) {
+	private void clearMap() {
+		_map = null;
+		_tileset = null;
+		_chunks.clear();
+		setMinSize(USE_COMPUTED_SIZE, USE_COMPUTED_SIZE);
+		setPrefSize(USE_COMPUTED_SIZE, USE_COMPUTED_SIZE);
+		setMaxSize(USE_COMPUTED_SIZE, USE_COMPUTED_SIZE);
+	}
+
+	/**
+	 * Updates the chunks with the new map.
+	 * 
+	 * @param tileset
+	 *            The tileset image, or <code>null</code> to paint the tiles with
+	 *            generated colors.
+	 */
+	private void buildMap(TilemapCSVData map, Image tileset) {
 		int tileW = getModel().getTileWidth();
 		int tileH = getModel().getTileHeight();
 
-		TilemapAssetModel asset = getModel().getAssetKey();
+		int width = map.getColumns();
+		int height = map.getRows();
 
-		int[][] map = asset.getCsvData();
+		int chunkCols = Math.max(1, Math.min(CHUNK_SIZE, MAX_CHUNK_PIXELS / Math.max(1, tileW)));
+		int chunkRows = Math.max(1, Math.min(CHUNK_SIZE, MAX_CHUNK_PIXELS / Math.max(1, tileH)));
 
-		Node[] list = new Node[map.length * map[0].length];
-		int q = 0;
+		Color[] colors = null;
 
-		for (int i = 0; i < map.length; i++) {
-			int[] row = map[i];
+		if (tileset == null) {
+			colors = generateColors(Math.max(1, map.getMaxTile()));
+		}
 
-			for (int j = 0; j < row.length; j++) {
-				int frame = map[i][j];
-				Node node;
-				if (frame < 0) {
-					node = new Rectangle(tileW, tileH);
-					node.setOpacity(0);
-				} else {
+		boolean sameLayout = _map != null && tileW == _tileW && tileH == _tileH && tileset == _tileset
+				&& chunkCols == _chunkCols && chunkRows == _chunkRows && _map.getColumns() == width
+				&& _map.getRows() == height && (tileset != null || colors.length == _colors.length);
 
-					ImageView view = new ImageView(tileset);
+		TilemapCSVData oldMap = _map;
 
-					node = view;
+		_map = map;
 
-					int tilesetW = (int) tileset.getWidth();
-					int srcX = frame * tileW % tilesetW;
-					int srcY = frame * tileW / tilesetW * tileH;
+		_tileW = tileW;
+		_tileH = tileH;
+		_tileset = tileset;
+		_colors = colors;
+		_chunkCols = chunkCols;
+		_chunkRows = chunkRows;
 
-					view.setViewport(new Rectangle2D(srcX, srcY, tileW, tileH));
+		if (sameLayout) {
+			if (oldMap != map) {
+				// redraw only the chunks with changed cells
+				for (Chunk chunk : _chunks) {
+					if (!chunk.dirty && !sameCells(oldMap, map, chunk)) {
+						chunk.dirty = true;
+					}
+				}
+			}
+		} else {
+			_chunks.clear();
+
+			List<Node> views = new ArrayList<>();
+
+			for (int y = 0; y < height; y += chunkRows) {
+				for (int x = 0; x < width; x += chunkCols) {
+					Chunk chunk = new Chunk();
+					chunk.x = x;
+					chunk.y = y;
+					chunk.cols = Math.min(chunkCols, width - x);
+					chunk.rows = Math.min(chunkRows, height - y);
+					chunk.dirty = true;
+					chunk.view = new ImageView();
+					chunk.view.relocate(x * tileW, y * tileH);
+					chunk.view.setVisible(false);
+
+					_chunks.add(chunk);
+					views.add(chunk.view);
 				}
+			}
+
+			getChildren().setAll(views);
+
+			setMinSize(width * tileW, height * tileH);
+			setPrefSize(width * tileW, height * tileH);
+			setMaxSize(width * tileW, height * tileH);
+		}
+
+		requestLayout();
+	}
 
-				node.relocate(j * tileW, i * tileH);
-				list[q++] = node;
+	/**
+	 * Compares the cells of the chunk in two maps of the same size.
+	 */
+	private static boolean sameCells(TilemapCSVData map1, TilemapCSVData map2, Chunk chunk) {
+		int[] cells1 = map1.getCells();
+		int[] cells2 = map2.getCells();
+		int cols = map1.getColumns();
+
+		for (int i = chunk.y; i < chunk.y + chunk.rows; i++) {
+			int from = i * cols + chunk.x;
+
+			for (int k = from; k < from + chunk.cols; k++) {
+				if (cells1[k] != cells2[k]) {
+					return false;
+				}
 			}
 		}
-		getChildren().setAll(Arrays.asList(list));
+
+		return true;
 	}
 
-	private void buildFallbackMap() {
+	@Override
+	protected void layoutChildren() {
+		super.layoutChildren();
 
-		int tileW = getModel().getTileWidth();
-		int tileH = getModel().getTileHeight();
+		if (_map == null) {
+			return;
+		}
 
-		TilemapAssetModel asset = getModel().getAssetKey();
+		// cull the chunks outside the viewport
+
+		Scene scene = getScene();
+		Bounds viewport = scene == null ? null
+				: sceneToLocal(new BoundingBox(0, 0, scene.getWidth(), scene.getHeight()));
 
-		int[][] map = asset.getCsvData();
+		for (Chunk chunk : _chunks) {
+			double x = chunk.x * _tileW;
+			double y = chunk.y * _tileH;
 
-		int max = 0;
-		for (int i = 0; i < map.length; i++) {
-			for (int j = 0; j < map[i].length; j++) {
-				max = Math.max(map[i][j], max);
+			boolean visible = viewport == null || viewport.intersects(x, y, chunk.cols * _tileW, chunk.rows * _tileH);
+
+			if (visible) {
+				if (chunk.dirty || chunk.view.getImage() == null) {
+					rasterize(chunk);
+				}
+			} else if (chunk.view.getImage() != null) {
+				// release the memory of the chunks out of the view
+				chunk.view.setImage(null);
 			}
+
+			chunk.view.setVisible(visible);
 		}
+	}
+
+	private void rasterize(Chunk chunk) {
+		int tileW = _tileW;
+		int tileH = _tileH;
 
-		Color[] colors = generateColors(max);
+		WritableImage image = new WritableImage(chunk.cols * tileW, chunk.rows * tileH);
+		PixelWriter writer = image.getPixelWriter();
 
-		Rectangle[] list = new Rectangle[map.length * map[0].length];
-		int q = 0;
+		PixelReader reader = _tileset == null ? null : _tileset.getPixelReader();
+		int tilesetW = _tileset == null ? 0 : (int) _tileset.getWidth();
+		int tilesetH = _tileset == null ? 0 : (int) _tileset.getHeight();
 
-		for (int i = 0; i < map.length; i++) {
-			int[] row = map[i];
+		int[] cells = _map.getCells();
+		int cols = _map.getColumns();
 
-			for (int j = 0; j < row.length; j++) {
-				Rectangle r = new Rectangle(tileW, tileH);
+		for (int i = 0; i < chunk.rows; i++) {
+			int rowStart = (chunk.y + i) * cols + chunk.x;
 
-				int frame = map[i][j];
+			for (int j = 0; j < chunk.cols; j++) {
+				int frame = cells[rowStart + j];
 
 				if (frame < 0) {
-					r.setOpacity(0);
-				} else {
-					Color c = colors[frame % colors.length];
-					r.setFill(c);
+					continue;
 				}
 
-				r.setLayoutX(j * tileW);
-				r.setLayoutY(i * tileH);
-				list[q++] = r;
+				int dstX = j * tileW;
+				int dstY = i * tileH;
+
+				if (_tileset == null) {
+					int argb = toArgb(_colors[frame % _colors.length]);
+
+					for (int y = 0; y < tileH; y++) {
+						for (int x = 0; x < tileW; x++) {
+							writer.setArgb(dstX + x, dstY + y, argb);
+						}
+					}
+
+					continue;
+				}
+
+				if (reader == null || tilesetW == 0) {
+					// the tileset is not loaded yet
+					return;
+				}
+
+				int srcX = frame * tileW % tilesetW;
+				int srcY = frame * tileW / tilesetW * tileH;
+
+				// clip the tile to the tileset bounds
+				int w = Math.min(tileW, tilesetW - srcX);
+				int h = Math.min(tileH, tilesetH - srcY);
+
+				if (w > 0 && h > 0) {
+					writer.setPixels(dstX, dstY, w, h, reader, srcX, srcY);
+				}
 			}
 		}
-		getChildren().setAll(Arrays.asList(list));
+
+		chunk.view.setImage(image);
+		chunk.dirty = false;
+	}
+
+	private static int toArgb(Color c) {
+		return (int) Math.round(c.getOpacity() * 255) << 24 | (int) Math.round(c.getRed() * 255) << 16
+				| (int) Math.round(c.getGreen() * 255) << 8 | (int) Math.round(c.getBlue() * 255);
 	}
 
 	private static Color[] generateColors(int n) {
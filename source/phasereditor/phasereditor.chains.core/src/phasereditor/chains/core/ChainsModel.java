@@ -23,10 +23,13 @@ package phasereditor.chains.core;
 
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -40,11 +43,14 @@ import phasereditor.inspect.core.jsdoc.PhaserMethod;
 import phasereditor.inspect.core.jsdoc.PhaserMethodArg;
 import phasereditor.inspect.core.jsdoc.PhaserType;
 import phasereditor.inspect.core.jsdoc.PhaserVariable;
+import phasereditor.project.core.TrigramIndex;
 
 public class ChainsModel {
 	private ArrayList<ChainItem> _chains;
 	private List<String> _examplesFiles;
 	private List<Line> _examplesLines;
+	private TrigramIndex _chainsIndex;
+	private TrigramIndex _examplesIndex;
 	private PhaserJSDoc _jsdoc;
 
 	public ChainsModel() {
@@ -137,9 +143,37 @@ public class ChainsModel {
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
+
+		// search indexes
+
+		List<String> displays = new ArrayList<>(_chains.size());
+		for (ChainItem item : _chains) {
+			displays.add(item.getDisplay());
+		}
+		_chainsIndex = new TrigramIndex(displays);
+
+		List<String> texts = new ArrayList<>(_examplesLines.size());
+		for (Line line : _examplesLines) {
+			texts.add(line.text);
+		}
+		_examplesIndex = new TrigramIndex(texts);
 	}
 
 	public List<Match> searchChains(String aQuery, int limit) {
+		List<Match> matches = new ArrayList<>();
+		searchChains(aQuery, limit, matches::add);
+		return matches;
+	}
+
+	/**
+	 * Search the chains matching the query, and pass them to the visitor as
+	 * they are found.
+	 * 
+	 * @param visitor
+	 *            It receives the matches, it returns <code>false</code> to stop
+	 *            the search.
+	 */
+	public void searchChains(String aQuery, int limit, Predicate<Match> visitor) {
 		String query = aQuery.toLowerCase();
 		boolean showall = query.trim().length() == 0;
 
@@ -147,29 +181,44 @@ public class ChainsModel {
 			query = "state." + query.substring(5);
 		}
 
-		List<Match> matches = new ArrayList<>();
-		query = quote(query);
-		Pattern pattern = Pattern.compile(query, Pattern.CASE_INSENSITIVE);
+		int[] candidates = showall ? null : _chainsIndex.getCandidates(getLiteralFragments(query));
+		int size = candidates == null ? _chains.size() : candidates.length;
+		int count = 0;
 
-		for (ChainItem item : _chains) {
-			Matcher matcher = pattern.matcher(item.getDisplay());
-			if (showall || matcher.matches()) {
-				Match match = new Match();
-				match.item = item;
-				if (showall) {
-					match.start = 0;
-					match.length = 0;
-				} else {
-					match.start = matcher.start(1);
-					match.length = matcher.end(1) - match.start;
-				}
-				matches.add(match);
-				if (matches.size() >= limit) {
-					break;
+		Pattern pattern = Pattern.compile(quote(query), Pattern.CASE_INSENSITIVE);
+
+		for (int i = 0; i < size && count < limit; i++) {
+			ChainItem item = _chains.get(candidates == null ? i : candidates[i]);
+			Match match = match(pattern, item.getDisplay(), item, showall);
+			if (match != null) {
+				count++;
+				if (!visitor.test(match)) {
+					return;
 				}
 			}
 		}
-		return matches;
+	}
+
+	private static Match match(Pattern pattern, String text, Object item, boolean showall) {
+		if (showall) {
+			Match match = new Match();
+			match.item = item;
+			match.start = 0;
+			match.length = 0;
+			return match;
+		}
+
+		Matcher matcher = pattern.matcher(text);
+
+		if (matcher.matches()) {
+			Match match = new Match();
+			match.item = item;
+			match.start = matcher.start(1);
+			match.length = matcher.end(1) - match.start;
+			return match;
+		}
+
+		return null;
 	}
 
 	private static String quote(String query) {
@@ -182,57 +231,76 @@ public class ChainsModel {
 		return patternStart + "(" + pattern + ")" + patternEnd;
 	}
 
+	/**
+	 * Get the fragments of the query that should be present in a matching
+	 * text. The query is split by the <code>*</code> wildcards. If the query
+	 * contains other regex operators, it returns an empty list, because it is
+	 * not easy to say what is required.
+	 */
+	private static List<String> getLiteralFragments(String query) {
+		for (char c : "[]{}|?+^$\\".toCharArray()) {
+			if (query.indexOf(c) >= 0) {
+				return Collections.emptyList();
+			}
+		}
+
+		return Arrays.asList(query.split("\\*"));
+	}
+
 	public List<Match> searchExamples(String aQuery, int limit) {
+		List<Match> matches = new ArrayList<>();
+		searchExamples(aQuery, limit, matches::add);
+		return matches;
+	}
+
+	/**
+	 * Search the example files and lines matching the query, and pass them to
+	 * the visitor as they are found.
+	 * 
+	 * @param visitor
+	 *            It receives the matches, it returns <code>false</code> to stop
+	 *            the search.
+	 */
+	public void searchExamples(String aQuery, int limit, Predicate<Match> visitor) {
 		String query = aQuery.toLowerCase();
 		boolean showall = query.trim().length() == 0;
-		List<Match> matches = new ArrayList<>();
+
 		if (query.length() > 2 || showall) {
-			query = quote(query);
-			Pattern pattern = Pattern.compile(query, Pattern.CASE_INSENSITIVE);
+			Pattern pattern = Pattern.compile(quote(query), Pattern.CASE_INSENSITIVE);
+			int count = 0;
 
 			// search of file names
 
 			for (String filename : _examplesFiles) {
-				Matcher matcher = pattern.matcher(filename);
-				if (showall || matcher.matches()) {
-					Match match = new Match();
-					match.item = filename;
-					if (showall) {
-						match.start = 0;
-						match.length = 0;
-					} else {
-						match.start = matcher.start(1);
-						match.length = matcher.end(1) - match.start;
-					}
-					matches.add(match);
-					if (matches.size() >= limit) {
-						break;
+				if (count >= limit) {
+					return;
+				}
+
+				Match match = match(pattern, filename, filename, showall);
+				if (match != null) {
+					count++;
+					if (!visitor.test(match)) {
+						return;
 					}
 				}
 			}
 
 			// search on lines
 
-			for (Line line : _examplesLines) {
-				if (matches.size() >= limit) {
-					break;
-				}
-				Matcher matcher = pattern.matcher(line.text);
-				if (showall || matcher.matches()) {
-					Match match = new Match();
-					match.item = line;
-					if (showall) {
-						match.start = 0;
-						match.length = 0;
-					} else {
-						match.start = matcher.start(1);
-						match.length = matcher.end(1) - match.start;
+			int[] candidates = showall ? null : _examplesIndex.getCandidates(getLiteralFragments(query));
+			int size = candidates == null ? _examplesLines.size() : candidates.length;
+
+			for (int i = 0; i < size && count < limit; i++) {
+				Line line = _examplesLines.get(candidates == null ? i : candidates[i]);
+				Match match = match(pattern, line.text, line, showall);
+				if (match != null) {
+					count++;
+					if (!visitor.test(match)) {
+						return;
 					}
-					matches.add(match);
 				}
 			}
 		}
-		return matches;
 	}
 
 	public boolean isPhaserType(String typeName) {
@@ -21,9 +21,12 @@
 // USE OR OTHER DEALINGS IN THE SOFTWARE.
 package phasereditor.chains.ui.views;
 
+import static java.lang.System.currentTimeMillis;
+
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.eclipse.core.runtime.CoreException;
@@ -107,6 +110,9 @@ public class ChainsView extends ViewPart {
 	private TableColumn _examplesTableColumn;
 	private WebkitBrowser _docBrowser;
 	protected CTabFolder _tabFolder;
+	protected Job _searchJob;
+
+	static final int SEARCH_LIMIT = 100;
 
 	class ChainsLabelProvider extends StyledCellLabelProvider {
 
@@ -510,25 +516,116 @@ public class ChainsView extends ViewPart {
 		}
 
 		String query = _queryText.getText();
-		int chainsSize = 0;
-		int examplesSize = 0;
-		int chainsLimit = 100;
+
+		if (_searchJob != null) {
+			_searchJob.cancel();
+			_searchJob = null;
+		}
+
+		_chainsViewer.setInput(new ArrayList<Match>());
+		_examplesViewer.setInput(new ArrayList<Match>());
+
+		updateColumnText(_chainTableColumn, "Chains", 0);
+		updateColumnText(_examplesTableColumn, "Examples", 0);
 
 		if (_chainsModel != null) {
-			List<Match> list = _chainsModel.searchChains(query, chainsLimit);
-			_chainsViewer.setInput(list);
-			chainsSize = list.size();
+			_searchJob = new SearchJob(query);
+			_searchJob.schedule();
+		}
+	}
+
+	static void updateColumnText(TableColumn column, String title, int size) {
+		column.setText(title + " (" + (size == SEARCH_LIMIT ? size + "+" : Integer.valueOf(size)) + ")");
+	}
+
+	/**
+	 * Searches the chains and examples in background. The matches are added to
+	 * the viewers in small batches, as they are found.
+	 */
+	class SearchJob extends Job {
+		private String _query;
+
+		public SearchJob(String query) {
+			super("Searching chains...");
+			_query = query;
+			setSystem(true);
+		}
+
+		@SuppressWarnings("synthetic-access")
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			MatchBatches chains = new MatchBatches(this, _chainsViewer, _chainTableColumn, "Chains", monitor);
+			_chainsModel.searchChains(_query, SEARCH_LIMIT, chains::add);
+			chains.flush();
+
+			MatchBatches examples = new MatchBatches(this, _examplesViewer, _examplesTableColumn, "Examples",
+					monitor);
+			_chainsModel.searchExamples(_query, SEARCH_LIMIT, examples::add);
+			examples.flush();
+
+			return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+		}
+	}
+
+	class MatchBatches {
+		private static final int BATCH_SIZE = 20;
+		private static final long BATCH_TIME = 50;
+
+		private Job _job;
+		private TableViewer _viewer;
+		private TableColumn _column;
+		private String _title;
+		private IProgressMonitor _monitor;
+		private List<Match> _batch;
+		private int _count;
+		private long _lastFlush;
+
+		public MatchBatches(Job job, TableViewer viewer, TableColumn column, String title, IProgressMonitor monitor) {
+			_job = job;
+			_viewer = viewer;
+			_column = column;
+			_title = title;
+			_monitor = monitor;
+			_batch = new ArrayList<>();
+			_lastFlush = currentTimeMillis();
+		}
+
+		public boolean add(Match match) {
+			if (_monitor.isCanceled()) {
+				return false;
+			}
+
+			_batch.add(match);
+			_count++;
 
-			list = _chainsModel.searchExamples(query, chainsLimit);
-			_examplesViewer.setInput(list);
-			examplesSize = list.size();
+			if (_batch.size() >= BATCH_SIZE || currentTimeMillis() - _lastFlush > BATCH_TIME) {
+				flush();
+			}
+
+			return true;
 		}
 
-		_chainTableColumn.setText(
-				"Chains (" + (chainsSize == chainsLimit ? chainsSize + "+" : Integer.valueOf(chainsSize)) + ")");
+		@SuppressWarnings("unchecked")
+		public void flush() {
+			List<Match> batch = _batch;
+			int count = _count;
+
+			_batch = new ArrayList<>();
+			_lastFlush = currentTimeMillis();
 
-		_examplesTableColumn.setText("Examples ("
-				+ (examplesSize == chainsLimit ? examplesSize + "+" : Integer.valueOf(examplesSize)) + ")");
+			Display.getDefault().asyncExec(() -> {
+				if (_searchJob != _job || _viewer.getTable().isDisposed()) {
+					return;
+				}
+
+				// keep the input in sync, it is used when the viewer is
+				// refreshed
+				((List<Match>) _viewer.getInput()).addAll(batch);
+				_viewer.add(batch.toArray());
+
+				updateColumnText(_column, _title, count);
+			});
+		}
 	}
 
 	private void afterCreateWidgets() {
@@ -582,6 +679,14 @@ public class ChainsView extends ViewPart {
 		IMenuManager menuManager = getViewSite().getActionBars().getMenuManager();
 	}
 
+	@Override
+	public void dispose() {
+		if (_searchJob != null) {
+			_searchJob.cancel();
+		}
+		super.dispose();
+	}
+
 	@Override
 	public void setFocus() {
 		_queryText.setFocus();
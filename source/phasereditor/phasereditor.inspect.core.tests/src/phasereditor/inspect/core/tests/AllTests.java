@@ -34,7 +34,9 @@ import org.junit.runners.Suite.SuiteClasses;
 
 		Canvas_Phaser_Help_Test.class,
 
-		Phaser_Member_Exists_Test.class
+		Phaser_Member_Exists_Test.class,
+
+		Phaser_JSDoc_Snapshot_Test.class
 
 })
 public class AllTests {
@@ -0,0 +1,112 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2018 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.inspect.core.tests;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import phasereditor.inspect.core.InspectCore;
+import phasereditor.inspect.core.jsdoc.IPhaserMember;
+import phasereditor.inspect.core.jsdoc.PhaserJSDoc;
+import phasereditor.inspect.core.jsdoc.PhaserJSDocSnapshot;
+import phasereditor.inspect.core.jsdoc.PhaserMethod;
+import phasereditor.inspect.core.jsdoc.PhaserType;
+import phasereditor.inspect.core.jsdoc.PhaserVariable;
+
+@SuppressWarnings("static-method")
+public class Phaser_JSDoc_Snapshot_Test {
+
+	@Test
+	public void test() throws IOException {
+		Path wsPath = Paths.get(".").toAbsolutePath().getParent().getParent();
+		Path sourceProjectPath = wsPath.resolve(InspectCore.RESOURCES_PHASER_CODE_PLUGIN);
+		Path metadataProjectPath = wsPath.resolve(InspectCore.RESOURCES_METADATA_PLUGIN);
+		Path docsJsonFile = metadataProjectPath.resolve("phaser-custom/jsdoc/docs.json");
+		PhaserJSDoc jsDoc = new PhaserJSDoc(sourceProjectPath.resolve("phaser-master/src"), docsJsonFile);
+
+		Path snapshotFile = Files.createTempFile("docs", ".bin");
+
+		// the snapshot is mapped, it cannot be deleted in Windows
+		snapshotFile.toFile().deleteOnExit();
+
+		PhaserJSDocSnapshot.write(jsDoc, docsJsonFile, snapshotFile);
+
+		// a snapshot of other docs file is ignored
+
+		Assert.assertNull(PhaserJSDocSnapshot.open(snapshotFile, 0));
+
+		PhaserJSDocSnapshot snapshot = PhaserJSDocSnapshot.open(snapshotFile,
+				PhaserJSDocSnapshot.checksum(docsJsonFile));
+
+		Assert.assertNotNull(snapshot);
+
+		// the snapshot finds the same members
+
+		for (Entry<String, IPhaserMember> entry : jsDoc.getMembersMap().entrySet()) {
+			String name = entry.getKey();
+			IPhaserMember expected = entry.getValue();
+			IPhaserMember result = snapshot.findMember(name);
+
+			Assert.assertNotNull(name, result);
+			Assert.assertEquals(name, expected.getClass(), result.getClass());
+			Assert.assertEquals(name, expected.getName(), result.getName());
+			Assert.assertEquals(name, expected.getHelp(), result.getHelp());
+			Assert.assertEquals(name, expected.getLine(), result.getLine());
+
+			if (expected.getDeclType() != null) {
+				Assert.assertEquals(name, expected.getDeclType().getName(), result.getDeclType().getName());
+			}
+
+			if (expected instanceof PhaserMethod) {
+				Assert.assertTrue(name, Arrays.equals(((PhaserMethod) expected).getReturnTypes(),
+						((PhaserMethod) result).getReturnTypes()));
+			} else if (expected instanceof PhaserVariable) {
+				Assert.assertTrue(name, Arrays.equals(((PhaserVariable) expected).getTypes(),
+						((PhaserVariable) result).getTypes()));
+			}
+		}
+
+		// the snapshot has the same types, with the same members
+
+		Map<String, PhaserType> types = snapshot.getTypesMap();
+
+		Assert.assertEquals(jsDoc.getTypesMap().keySet(), types.keySet());
+
+		for (PhaserType type : jsDoc.getTypes()) {
+			PhaserType result = types.get(type.getName());
+			Assert.assertEquals(type.getName(), type.getExtends(), result.getExtends());
+			Assert.assertEquals(type.getName(), type.getMemberMap().keySet(), result.getMemberMap().keySet());
+			Assert.assertEquals(type.getName(), type.getMethods().size(), result.getMethods().size());
+			Assert.assertEquals(type.getName(), type.getProperties().size(), result.getProperties().size());
+			Assert.assertEquals(type.getName(), type.getConstants().size(), result.getConstants().size());
+		}
+	}
+
+}
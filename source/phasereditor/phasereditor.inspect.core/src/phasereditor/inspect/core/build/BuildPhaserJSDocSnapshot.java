@@ -0,0 +1,60 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2018 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.inspect.core.build;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import phasereditor.inspect.core.InspectCore;
+import phasereditor.inspect.core.jsdoc.PhaserJSDoc;
+import phasereditor.inspect.core.jsdoc.PhaserJSDocSnapshot;
+
+/**
+ * Writes the snapshot of the Phaser JSDoc next to the <code>docs.json</code>
+ * file. Run it every time the <code>docs.json</code> file is updated, else the
+ * editor ignores the snapshot and parses the JSON file.
+ * 
+ * @author arian
+ *
+ */
+class BuildPhaserJSDocSnapshot {
+	public static void main(String[] args) throws IOException {
+		Path wsPath = Paths.get(".").toAbsolutePath().getParent().getParent();
+		Path srcFolder = wsPath.resolve(InspectCore.RESOURCES_PHASER_CODE_PLUGIN).resolve("phaser-master/src");
+		Path docsFolder = wsPath.resolve(InspectCore.RESOURCES_METADATA_PLUGIN).resolve("phaser-custom/jsdoc");
+		Path docsJsonFile = docsFolder.resolve("docs.json");
+		Path snapshotFile = docsFolder.resolve(PhaserJSDocSnapshot.SNAPSHOT_FILE_NAME);
+
+		PhaserJSDoc jsdoc = new PhaserJSDoc(srcFolder, docsJsonFile);
+		PhaserJSDocSnapshot.write(jsdoc, docsJsonFile, snapshotFile);
+
+		// verify
+
+		PhaserJSDocSnapshot snapshot = PhaserJSDocSnapshot.open(snapshotFile,
+				PhaserJSDocSnapshot.checksum(docsJsonFile));
+
+		if (snapshot == null || snapshot.getTypesMap().size() != jsdoc.getTypesMap().size()) {
+			throw new IllegalStateException("The snapshot is not valid.");
+		}
+	}
+}
@@ -42,8 +42,9 @@ import org.eclipse.core.runtime.AssertionFailedException;
 import org.eclipse.wst.jsdt.core.IMember;
 import org.json.JSONArray;
 import org.json.JSONObject;
-import org.json.JSONTokener;
+import org.json.JSONReader;
 
+import phasereditor.inspect.core.Activator;
 import phasereditor.inspect.core.InspectCore;
 
 public class PhaserJSDoc {
@@ -58,7 +59,7 @@ public class PhaserJSDoc {
 			Path srcFolder = InspectCore.getBundleFile(InspectCore.RESOURCES_PHASER_CODE_PLUGIN, "phaser-master/src");
 
 			try {
-				_instance = new PhaserJSDoc(srcFolder, docsJsonFile);
+				_instance = load(srcFolder, docsJsonFile);
 				out.println("Build Phaser JSDoc " + (currentTimeMillis() - t));
 			} catch (IOException e) {
 				e.printStackTrace();
@@ -68,44 +69,120 @@ public class PhaserJSDoc {
 		return _instance;
 	}
 
+	/**
+	 * Loads the JSDoc from the snapshot bundled with the docs file (see
+	 * <code>BuildPhaserJSDocSnapshot</code>) or from the snapshot cached in the
+	 * state location. If both are missing or outdated, the docs file is parsed
+	 * and a new snapshot is cached for the next time.
+	 */
+	private static PhaserJSDoc load(Path srcFolder, Path docsJsonFile) throws IOException {
+		if (!Files.exists(docsJsonFile)) {
+			return new PhaserJSDoc(srcFolder, docsJsonFile);
+		}
+
+		long checksum = PhaserJSDocSnapshot.checksum(docsJsonFile);
+
+		Path bundledSnapshot = docsJsonFile.resolveSibling(PhaserJSDocSnapshot.SNAPSHOT_FILE_NAME);
+		Path cachedSnapshot = null;
+
+		Activator activator = Activator.getDefault();
+		if (activator != null) {
+			cachedSnapshot = activator.getStateLocation().toFile().toPath()
+					.resolve("jsdoc/" + PhaserJSDocSnapshot.SNAPSHOT_FILE_NAME);
+		}
+
+		for (Path file : new Path[] { bundledSnapshot, cachedSnapshot }) {
+			if (file == null) {
+				continue;
+			}
+
+			try {
+				PhaserJSDocSnapshot snapshot = PhaserJSDocSnapshot.open(file, checksum);
+				if (snapshot != null) {
+					return new PhaserJSDoc(srcFolder, snapshot);
+				}
+			} catch (IOException | RuntimeException e) {
+				// a corrupted snapshot, just ignore it
+				InspectCore.logError(new Exception("Cannot read the JSDoc snapshot " + file, e));
+			}
+		}
+
+		PhaserJSDoc jsdoc = new PhaserJSDoc(srcFolder, docsJsonFile);
+
+		if (cachedSnapshot != null) {
+			try {
+				PhaserJSDocSnapshot.write(jsdoc, docsJsonFile, cachedSnapshot);
+			} catch (IOException e) {
+				InspectCore.logError(e);
+			}
+		}
+
+		return jsdoc;
+	}
+
 	private Map<String, PhaserType> _typesMap;
 	private Map<String, IPhaserMember> _membersMap;
 	private List<PhaserConstant> _globalConstants;
+	private PhaserJSDocSnapshot _snapshot;
 
 	private Path _srcFolder;
 
 	public PhaserJSDoc(Path srcFolder, Path docsJsonFile) throws IOException {
 		_srcFolder = srcFolder;
 		_globalConstants = new ArrayList<>();
-		_membersMap = new HashMap<>();
 
 		_typesMap = buildPhaserJSDoc(docsJsonFile);
+		_membersMap = buildMembersMap();
+	}
+
+	/**
+	 * Creates a JSDoc backed by a snapshot. The types are created when they
+	 * are requested.
+	 */
+	PhaserJSDoc(Path srcFolder, PhaserJSDocSnapshot snapshot) {
+		_srcFolder = srcFolder;
+		_snapshot = snapshot;
+		_globalConstants = snapshot.getGlobalConstants();
+	}
+
+	private Map<String, IPhaserMember> buildMembersMap() {
+		Map<String, IPhaserMember> membersMap = new HashMap<>();
 
 		for (PhaserType type : _typesMap.values()) {
 			String typeName1 = type.getName();
 			String typeName2 = typeName1.replace(".", "_");
 
 			for (String typeName : new String[] { typeName1, typeName2 }) {
-				_membersMap.put(typeName, type);
-				_membersMap.put(typeName + ".constructor", type);
+				membersMap.put(typeName, type);
+				membersMap.put(typeName + ".constructor", type);
 
 				for (PhaserMember m : type.getMethods()) {
-					_membersMap.put(typeName + "." + m.getName(), m);
+					membersMap.put(typeName + "." + m.getName(), m);
 				}
 
 				for (PhaserMember m : type.getProperties()) {
-					_membersMap.put(typeName + "." + m.getName(), m);
+					membersMap.put(typeName + "." + m.getName(), m);
 				}
 
 				for (PhaserMember m : type.getConstants()) {
-					_membersMap.put(typeName + "." + m.getName(), m);
+					membersMap.put(typeName + "." + m.getName(), m);
 				}
 			}
 		}
 
 		for (PhaserConstant cons : _globalConstants) {
-			_membersMap.put("Phaser." + cons.getName(), cons);
+			membersMap.put("Phaser." + cons.getName(), cons);
 		}
+
+		return membersMap;
+	}
+
+	private IPhaserMember findMember(String name) {
+		if (_snapshot == null) {
+			return _membersMap.get(name);
+		}
+
+		return _snapshot.findMember(name);
 	}
 
 	public Path getTypePath(PhaserType type) {
@@ -116,19 +193,30 @@ public class PhaserJSDoc {
 		return _srcFolder.resolve(type.getFile());
 	}
 
-	public Map<String, PhaserType> getTypesMap() {
+	public synchronized Map<String, PhaserType> getTypesMap() {
+		if (_typesMap == null) {
+			_typesMap = _snapshot.getTypesMap();
+		}
 		return _typesMap;
 	}
 
 	public PhaserType getType(String name) {
-		return _typesMap.get(name);
+		if (_snapshot == null) {
+			return _typesMap.get(name);
+		}
+
+		return _snapshot.getType(name);
 	}
 
 	public Collection<PhaserType> getTypes() {
-		return _typesMap.values();
+		return getTypesMap().values();
 	}
 
-	public Map<String, IPhaserMember> getMembersMap() {
+	public synchronized Map<String, IPhaserMember> getMembersMap() {
+		if (_membersMap == null) {
+			getTypesMap();
+			_membersMap = buildMembersMap();
+		}
 		return _membersMap;
 	}
 
@@ -138,7 +226,7 @@ public class PhaserJSDoc {
 
 	public String getJSDoc(IMember member) {
 		String name = InspectCore.getFullName(member);
-		Object phaserMember = _membersMap.get(name);
+		Object phaserMember = findMember(name);
 
 		if (phaserMember == null) {
 			out.println("<b>Cannot find JSDoc of " + name + "</b>");
@@ -150,7 +238,7 @@ public class PhaserJSDoc {
 
 	public boolean isPhaserMember(IMember member) {
 		String name = InspectCore.getFullName(member);
-		boolean b = _membersMap.containsKey(name);
+		boolean b = findMember(name) != null;
 		return b;
 	}
 
@@ -160,7 +248,7 @@ public class PhaserJSDoc {
 		}
 
 		try (InputStream input = Files.newInputStream(docsJsonFile)) {
-			JSONArray jsdocElements = new JSONArray(new JSONTokener(input));
+			JSONArray jsdocElements = new JSONReader(input).nextArray();
 
 			// Set<String> kinds = new HashSet<>();
 			// Set<String> scopes = new HashSet<>();
@@ -675,7 +763,7 @@ public class PhaserJSDoc {
 	}
 
 	public String getMemberHelp(String memberFullName) {
-		IPhaserMember member = _membersMap.get(memberFullName);
+		IPhaserMember member = findMember(memberFullName);
 		if (member == null) {
 			return "<No help available>";
 		}
@@ -683,7 +771,7 @@ public class PhaserJSDoc {
 	}
 
 	public String getMethodArgHelp(String methodName, String argName) {
-		IPhaserMember member = _membersMap.get(methodName);
+		IPhaserMember member = findMember(methodName);
 		List<PhaserMethodArg> args = Collections.emptyList();
 
 		if (member instanceof PhaserMethod) {
@@ -0,0 +1,787 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2018 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.inspect.core.jsdoc;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * A binary, memory-mapped, version of the resolved Phaser JSDoc model. It is
+ * written from a {@link PhaserJSDoc} built with the <code>docs.json</code>
+ * file, and it stores the checksum of that file, so an outdated snapshot is
+ * not used.
+ * 
+ * <p>
+ * The strings are stored once, in a table. The types are created only when
+ * they are requested, together with the types they inherit members from.
+ * </p>
+ * 
+ * @author arian
+ *
+ */
+public class PhaserJSDocSnapshot {
+	public static final String SNAPSHOT_FILE_NAME = "docs.bin";
+
+	private static final int MAGIC = 0x504A5344; // PJSD
+	private static final int VERSION = 1;
+
+	private static final byte KIND_METHOD = 0;
+	private static final byte KIND_PROPERTY = 1;
+	private static final byte KIND_CONSTANT = 2;
+	private static final byte KIND_ARG = 3;
+
+	private static final byte VALUE_NULL = 0;
+	private static final byte VALUE_STRING = 1;
+	private static final byte VALUE_INTEGER = 2;
+	private static final byte VALUE_LONG = 3;
+	private static final byte VALUE_DOUBLE = 4;
+	private static final byte VALUE_BOOLEAN = 5;
+	private static final byte VALUE_JSON_NULL = 6;
+	private static final byte VALUE_JSON_OBJECT = 7;
+	private static final byte VALUE_JSON_ARRAY = 8;
+	private static final byte VALUE_NUMBER = 9;
+
+	private final MappedByteBuffer _buffer;
+	private final int _stringsCount;
+	private final int _stringOffsetsPosition;
+	private final int _stringDataPosition;
+	private final String[] _strings;
+	private final int[] _typePositions;
+	private final PhaserType[] _types;
+	private final PhaserMember[][] _ownMembers;
+	private final Map<String, Integer> _typeIndex;
+	private final List<PhaserConstant> _globalConstants;
+	private final Map<String, PhaserConstant> _globalConstantsMap;
+
+	private PhaserJSDocSnapshot(MappedByteBuffer buffer) {
+		_buffer = buffer;
+
+		// header was already verified
+
+		_buffer.position(24);
+
+		_stringsCount = _buffer.getInt();
+		_stringOffsetsPosition = _buffer.position();
+		_stringDataPosition = _stringOffsetsPosition + (_stringsCount + 1) * 4;
+		_strings = new String[_stringsCount];
+
+		_buffer.position(_stringDataPosition + _buffer.getInt(_stringOffsetsPosition + _stringsCount * 4));
+
+		int typesCount = _buffer.getInt();
+		_typePositions = new int[typesCount];
+		_types = new PhaserType[typesCount];
+		_ownMembers = new PhaserMember[typesCount][];
+		_typeIndex = new HashMap<>(typesCount * 4);
+
+		String[] names = new String[typesCount];
+
+		for (int i = 0; i < typesCount; i++) {
+			names[i] = readString();
+			_typePositions[i] = _buffer.getInt();
+		}
+
+		// like in the members map, a type can be referenced with underscores
+		// instead of dots
+
+		for (int i = 0; i < typesCount; i++) {
+			_typeIndex.put(names[i].replace(".", "_"), Integer.valueOf(i));
+		}
+
+		for (int i = 0; i < typesCount; i++) {
+			_typeIndex.put(names[i], Integer.valueOf(i));
+		}
+
+		int constantsCount = _buffer.getInt();
+		_globalConstants = new ArrayList<>(constantsCount);
+		_globalConstantsMap = new HashMap<>();
+
+		for (int i = 0; i < constantsCount; i++) {
+			PhaserConstant cons = (PhaserConstant) readMember(null);
+			_globalConstants.add(cons);
+			_globalConstantsMap.put("Phaser." + cons.getName(), cons);
+		}
+	}
+
+	/**
+	 * Computes the checksum of the docs file. A snapshot is valid only for the
+	 * docs file with the same checksum.
+	 */
+	public static long checksum(Path docsJsonFile) throws IOException {
+		CRC32 crc = new CRC32();
+
+		try (FileChannel channel = FileChannel.open(docsJsonFile, StandardOpenOption.READ)) {
+			crc.update(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+		}
+
+		return crc.getValue();
+	}
+
+	/**
+	 * Opens the snapshot file.
+	 * 
+	 * @return The snapshot, or <code>null</code> if the file does not exist, it
+	 *         has an unknown format or it was written with other docs file.
+	 */
+	public static PhaserJSDocSnapshot open(Path file, long checksum) throws IOException {
+		if (!Files.exists(file)) {
+			return null;
+		}
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(24);
+
+			while (header.hasRemaining()) {
+				if (channel.read(header) < 0) {
+					return null;
+				}
+			}
+
+			header.flip();
+
+			if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+				return null;
+			}
+
+			header.getLong(); // the docs file size, informative
+
+			if (header.getLong() != checksum) {
+				return null;
+			}
+
+			return new PhaserJSDocSnapshot(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	public List<PhaserConstant> getGlobalConstants() {
+		return _globalConstants;
+	}
+
+	public synchronized PhaserType getType(String name) {
+		Integer index = _typeIndex.get(name);
+
+		if (index == null) {
+			return null;
+		}
+
+		PhaserType type = getType(index.intValue());
+
+		// the index contains the names with underscores too
+		return type.getName().equals(name) ? type : null;
+	}
+
+	/**
+	 * Creates all the types. It is used by the clients that need all of them,
+	 * like the chains.
+	 */
+	public synchronized Map<String, PhaserType> getTypesMap() {
+		Map<String, PhaserType> map = new HashMap<>();
+
+		for (int i = 0; i < _types.length; i++) {
+			PhaserType type = getType(i);
+			map.put(type.getName(), type);
+		}
+
+		return map;
+	}
+
+	/**
+	 * Finds a member by its full name, in the same way it is found in the
+	 * {@link PhaserJSDoc#getMembersMap()}.
+	 */
+	public synchronized IPhaserMember findMember(String fullName) {
+		PhaserConstant cons = _globalConstantsMap.get(fullName);
+
+		if (cons != null) {
+			return cons;
+		}
+
+		// A name like Phaser.Physics.Arcade.Body could be a type or a member
+		// of other type. In the members map, the last type visited wins, so
+		// the types are stored in the same order they are visited.
+
+		IPhaserMember found = null;
+		int foundIndex = -1;
+
+		Integer index = _typeIndex.get(fullName);
+
+		if (index != null) {
+			found = getType(index.intValue());
+			foundIndex = index.intValue();
+		}
+
+		for (int i = fullName.lastIndexOf('.'); i > 0; i = fullName.lastIndexOf('.', i - 1)) {
+			index = _typeIndex.get(fullName.substring(0, i));
+
+			if (index != null && index.intValue() > foundIndex) {
+				PhaserType type = getType(index.intValue());
+				String memberName = fullName.substring(i + 1);
+
+				IPhaserMember member = memberName.equals("constructor") ? type : type.getMemberMap().get(memberName);
+
+				if (member != null) {
+					found = member;
+					foundIndex = index.intValue();
+				}
+			}
+		}
+
+		return found;
+	}
+
+	private PhaserType getType(int index) {
+		PhaserType type = _types[index];
+
+		if (type != null) {
+			return type;
+		}
+
+		type = new PhaserType();
+
+		// register it before to read the references, an inherited member
+		// could be declared in a type that is being created.
+		_types[index] = type;
+
+		_buffer.position(_typePositions[index]);
+
+		type.setName(readString());
+		type.setHelp(readString());
+		readMeta(type);
+		type.setStatic(_buffer.get() == 1);
+		type.setConstructor(_buffer.get() == 1);
+
+		int n = _buffer.getInt();
+		List<String> extend = new ArrayList<>(n);
+		for (int i = 0; i < n; i++) {
+			extend.add(readString());
+		}
+		type.setExtends(extend);
+
+		n = _buffer.getInt();
+		for (int i = 0; i < n; i++) {
+			type.getConstructorArgs().add((PhaserMethodArg) readMember(null));
+		}
+
+		n = _buffer.getInt();
+		PhaserMember[] own = new PhaserMember[n];
+		for (int i = 0; i < n; i++) {
+			own[i] = readMember(type);
+		}
+		_ownMembers[index] = own;
+
+		// the references to the members of the super types are read after
+		// the own members, because reading them changes the buffer position
+
+		int mapCount = _buffer.getInt();
+		int[] refs = new int[mapCount * 2];
+		for (int i = 0; i < refs.length; i++) {
+			refs[i] = _buffer.getInt();
+		}
+
+		int[][] lists = new int[3][];
+		for (int k = 0; k < 3; k++) {
+			lists[k] = new int[_buffer.getInt() * 2];
+			for (int i = 0; i < lists[k].length; i++) {
+				lists[k][i] = _buffer.getInt();
+			}
+		}
+
+		Map<String, PhaserMember> memberMap = type.getMemberMap();
+		for (int i = 0; i < refs.length; i += 2) {
+			PhaserMember member = resolveMember(refs[i], refs[i + 1]);
+			memberMap.put(member.getName(), member);
+		}
+
+		for (int i = 0; i < lists[0].length; i += 2) {
+			type.getMethods().add((PhaserMethod) resolveMember(lists[0][i], lists[0][i + 1]));
+		}
+
+		for (int i = 0; i < lists[1].length; i += 2) {
+			type.getProperties().add((PhaserProperty) resolveMember(lists[1][i], lists[1][i + 1]));
+		}
+
+		for (int i = 0; i < lists[2].length; i += 2) {
+			type.getConstants().add((PhaserConstant) resolveMember(lists[2][i], lists[2][i + 1]));
+		}
+
+		return type;
+	}
+
+	private PhaserMember resolveMember(int typeIndex, int memberIndex) {
+		getType(typeIndex);
+		return _ownMembers[typeIndex][memberIndex];
+	}
+
+	private PhaserMember readMember(PhaserType declType) {
+		byte kind = _buffer.get();
+
+		PhaserMember member;
+
+		switch (kind) {
+		case KIND_METHOD: {
+			PhaserMethod method = new PhaserMethod();
+			method.setDeclType(declType);
+			member = method;
+			break;
+		}
+		case KIND_PROPERTY: {
+			PhaserProperty property = new PhaserProperty();
+			property.setDeclType(declType);
+			member = property;
+			break;
+		}
+		case KIND_CONSTANT: {
+			PhaserConstant cons = new PhaserConstant();
+			cons.setDeclType(declType);
+			member = cons;
+			break;
+		}
+		case KIND_ARG:
+			member = new PhaserMethodArg();
+			break;
+		default:
+			throw new IllegalStateException("Unknown member kind " + kind);
+		}
+
+		member.setName(readString());
+		member.setHelp(readString());
+		readMeta(member);
+		member.setStatic(_buffer.get() == 1);
+
+		if (member instanceof PhaserVariable) {
+			PhaserVariable var = (PhaserVariable) member;
+			var.setTypes(readStringArray());
+			var.setDefaultValue(readValue());
+			var.setOptional(_buffer.get() == 1);
+
+			if (member instanceof PhaserProperty) {
+				((PhaserProperty) member).setReadOnly(_buffer.get() == 1);
+			}
+		} else {
+			PhaserMethod method = (PhaserMethod) member;
+			method.setReturnTypes(readStringArray());
+			method.setReturnHelp(readString());
+
+			int n = _buffer.getInt();
+			for (int i = 0; i < n; i++) {
+				PhaserMethodArg arg = (PhaserMethodArg) readMember(null);
+				method.getArgs().add(arg);
+				method.getArgsMap().put(arg.getName(), arg);
+			}
+		}
+
+		return member;
+	}
+
+	private void readMeta(IPhaserMember member) {
+		String file = readString();
+		member.setFile(file == null ? null : Paths.get(file));
+		member.setLine(_buffer.getInt());
+		member.setOffset(_buffer.getInt());
+	}
+
+	private String[] readStringArray() {
+		int n = _buffer.getInt();
+
+		if (n < 0) {
+			return null;
+		}
+
+		String[] array = new String[n];
+		for (int i = 0; i < n; i++) {
+			array[i] = readString();
+		}
+		return array;
+	}
+
+	private Object readValue() {
+		byte tag = _buffer.get();
+
+		switch (tag) {
+		case VALUE_NULL:
+			return null;
+		case VALUE_STRING:
+			return readString();
+		case VALUE_INTEGER:
+			return Integer.valueOf(_buffer.getInt());
+		case VALUE_LONG:
+			return Long.valueOf(_buffer.getLong());
+		case VALUE_DOUBLE:
+			return Double.valueOf(_buffer.getDouble());
+		case VALUE_BOOLEAN:
+			return Boolean.valueOf(_buffer.get() == 1);
+		case VALUE_JSON_NULL:
+			return JSONObject.NULL;
+		case VALUE_JSON_OBJECT:
+			return new JSONObject(readString());
+		case VALUE_JSON_ARRAY:
+			return new JSONArray(readString());
+		case VALUE_NUMBER:
+			return new BigDecimal(readString());
+		default:
+			throw new IllegalStateException("Unknown value tag " + tag);
+		}
+	}
+
+	private String readString() {
+		return getString(_buffer.getInt());
+	}
+
+	private String getString(int id) {
+		if (id < 0) {
+			return null;
+		}
+
+		String str = _strings[id];
+
+		if (str == null) {
+			int start = _buffer.getInt(_stringOffsetsPosition + id * 4);
+			int end = _buffer.getInt(_stringOffsetsPosition + (id + 1) * 4);
+			byte[] bytes = new byte[end - start];
+
+			ByteBuffer slice = _buffer.duplicate();
+			slice.position(_stringDataPosition + start);
+			slice.get(bytes);
+
+			str = new String(bytes, StandardCharsets.UTF_8);
+			_strings[id] = str;
+		}
+
+		return str;
+	}
+
+	/**
+	 * Writes the snapshot of the given JSDoc. The file is written in a temporal
+	 * file and then moved, so a reader never sees a partial snapshot.
+	 * 
+	 * @param docsJsonFile
+	 *            The docs file used to build the JSDoc.
+	 */
+	public static void write(PhaserJSDoc jsdoc, Path docsJsonFile, Path file) throws IOException {
+		new Writer(jsdoc).write(Files.size(docsJsonFile), checksum(docsJsonFile), file);
+	}
+
+	private static class Writer {
+		private final Map<String, Integer> _stringIds;
+		private final List<PhaserType> _typeList;
+		private final Map<PhaserMember, int[]> _memberRefs;
+		private final PhaserJSDoc _jsdoc;
+
+		public Writer(PhaserJSDoc jsdoc) {
+			_jsdoc = jsdoc;
+			_stringIds = new LinkedHashMap<>();
+			// keep the order of the types map, see findMember()
+			_typeList = new ArrayList<>(jsdoc.getTypes());
+			_memberRefs = new IdentityHashMap<>();
+
+			for (int i = 0; i < _typeList.size(); i++) {
+				PhaserType type = _typeList.get(i);
+
+				int j = 0;
+				for (PhaserMember member : type.getMemberMap().values()) {
+					if (member.getDeclType() == type) {
+						_memberRefs.put(member, new int[] { i, j++ });
+					}
+				}
+			}
+		}
+
+		public void write(long docsSize, long checksum, Path file) throws IOException {
+			// the types and constants section is written first, to collect
+			// the strings
+
+			ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+			DataOutputStream body = new DataOutputStream(bodyBytes);
+
+			List<byte[]> typeBlocks = new ArrayList<>();
+			for (PhaserType type : _typeList) {
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				writeType(new DataOutputStream(bytes), type);
+				typeBlocks.add(bytes.toByteArray());
+			}
+
+			List<PhaserConstant> constants = _jsdoc.getGlobalConstants();
+			ByteArrayOutputStream constantsBytes = new ByteArrayOutputStream();
+			{
+				DataOutputStream data = new DataOutputStream(constantsBytes);
+				data.writeInt(constants.size());
+				for (PhaserConstant cons : constants) {
+					writeMember(data, cons);
+				}
+			}
+
+			// the strings table
+
+			ByteArrayOutputStream stringBytes = new ByteArrayOutputStream();
+			int[] offsets = new int[_stringIds.size() + 1];
+			{
+				int i = 0;
+				for (String str : _stringIds.keySet()) {
+					offsets[i++] = stringBytes.size();
+					stringBytes.write(str.getBytes(StandardCharsets.UTF_8));
+				}
+				offsets[i] = stringBytes.size();
+			}
+
+			// the types table, with the absolute position of every type
+
+			int position = 24 + 4 + offsets.length * 4 + stringBytes.size();
+			position += 4 + _typeList.size() * 8 + constantsBytes.size();
+
+			body.writeInt(_typeList.size());
+			for (int i = 0; i < _typeList.size(); i++) {
+				body.writeInt(stringId(_typeList.get(i).getName()));
+				body.writeInt(position);
+				position += typeBlocks.get(i).length;
+			}
+
+			body.write(constantsBytes.toByteArray());
+
+			for (byte[] block : typeBlocks) {
+				body.write(block);
+			}
+
+			body.flush();
+
+			Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+			Files.createDirectories(file.toAbsolutePath().getParent());
+
+			try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(temp))) {
+				DataOutputStream data = new DataOutputStream(output);
+
+				data.writeInt(MAGIC);
+				data.writeInt(VERSION);
+				data.writeLong(docsSize);
+				data.writeLong(checksum);
+
+				data.writeInt(_stringIds.size());
+				for (int offset : offsets) {
+					data.writeInt(offset);
+				}
+				stringBytes.writeTo(data);
+
+				bodyBytes.writeTo(data);
+
+				data.flush();
+			}
+
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+
+		private void writeType(DataOutputStream data, PhaserType type) throws IOException {
+			data.writeInt(stringId(type.getName()));
+			data.writeInt(stringId(type.getHelp()));
+			writeMeta(data, type);
+			data.writeByte(type.isStatic() ? 1 : 0);
+			data.writeByte(type.isConstructor() ? 1 : 0);
+
+			List<String> extend = type.getExtends();
+			data.writeInt(extend.size());
+			for (String name : extend) {
+				data.writeInt(stringId(name));
+			}
+
+			List<PhaserMethodArg> args = type.getConstructorArgs();
+			data.writeInt(args.size());
+			for (PhaserMethodArg arg : args) {
+				writeMember(data, arg);
+			}
+
+			Collection<PhaserMember> members = type.getMemberMap().values();
+
+			List<PhaserMember> own = new ArrayList<>();
+			for (PhaserMember member : members) {
+				if (member.getDeclType() == type) {
+					own.add(member);
+				}
+			}
+
+			data.writeInt(own.size());
+			for (PhaserMember member : own) {
+				writeMember(data, member);
+			}
+
+			data.writeInt(members.size());
+			for (PhaserMember member : members) {
+				writeMemberRef(data, member);
+			}
+
+			writeMemberRefs(data, type.getMethods());
+			writeMemberRefs(data, type.getProperties());
+			writeMemberRefs(data, type.getConstants());
+		}
+
+		private void writeMemberRefs(DataOutputStream data, List<? extends PhaserMember> list) throws IOException {
+			data.writeInt(list.size());
+			for (PhaserMember member : list) {
+				writeMemberRef(data, member);
+			}
+		}
+
+		private void writeMemberRef(DataOutputStream data, PhaserMember member) throws IOException {
+			int[] ref = _memberRefs.get(member);
+
+			if (ref == null) {
+				throw new IOException("The member " + member.getName() + " is not declared in "
+						+ member.getDeclType().getName());
+			}
+
+			data.writeInt(ref[0]);
+			data.writeInt(ref[1]);
+		}
+
+		private void writeMember(DataOutputStream data, PhaserMember member) throws IOException {
+			byte kind;
+
+			if (member instanceof PhaserMethod) {
+				kind = KIND_METHOD;
+			} else if (member instanceof PhaserProperty) {
+				kind = KIND_PROPERTY;
+			} else if (member instanceof PhaserConstant) {
+				kind = KIND_CONSTANT;
+			} else {
+				kind = KIND_ARG;
+			}
+
+			data.writeByte(kind);
+			data.writeInt(stringId(member.getName()));
+			data.writeInt(stringId(member.getHelp()));
+			writeMeta(data, member);
+			data.writeByte(member.isStatic() ? 1 : 0);
+
+			if (member instanceof PhaserVariable) {
+				PhaserVariable var = (PhaserVariable) member;
+				writeStringArray(data, var.getTypes());
+				writeValue(data, var.getDefaultValue());
+				data.writeByte(var.isOptional() ? 1 : 0);
+
+				if (member instanceof PhaserProperty) {
+					data.writeByte(((PhaserProperty) member).isReadOnly() ? 1 : 0);
+				}
+			} else {
+				PhaserMethod method = (PhaserMethod) member;
+				writeStringArray(data, method.getReturnTypes());
+				data.writeInt(stringId(method.getReturnHelp()));
+
+				List<PhaserMethodArg> args = method.getArgs();
+				data.writeInt(args.size());
+				for (PhaserMethodArg arg : args) {
+					writeMember(data, arg);
+				}
+			}
+		}
+
+		private void writeMeta(DataOutputStream data, IPhaserMember member) throws IOException {
+			Path file = member.getFile();
+			data.writeInt(stringId(file == null ? null : file.toString()));
+			data.writeInt(member.getLine());
+			data.writeInt(member.getOffset());
+		}
+
+		private void writeStringArray(DataOutputStream data, String[] array) throws IOException {
+			if (array == null) {
+				data.writeInt(-1);
+				return;
+			}
+
+			data.writeInt(array.length);
+			for (String str : array) {
+				data.writeInt(stringId(str));
+			}
+		}
+
+		private void writeValue(DataOutputStream data, Object value) throws IOException {
+			if (value == null) {
+				data.writeByte(VALUE_NULL);
+			} else if (value == JSONObject.NULL) {
+				data.writeByte(VALUE_JSON_NULL);
+			} else if (value instanceof String) {
+				data.writeByte(VALUE_STRING);
+				data.writeInt(stringId((String) value));
+			} else if (value instanceof Integer) {
+				data.writeByte(VALUE_INTEGER);
+				data.writeInt(((Integer) value).intValue());
+			} else if (value instanceof Long) {
+				data.writeByte(VALUE_LONG);
+				data.writeLong(((Long) value).longValue());
+			} else if (value instanceof Double) {
+				data.writeByte(VALUE_DOUBLE);
+				data.writeDouble(((Double) value).doubleValue());
+			} else if (value instanceof Boolean) {
+				data.writeByte(VALUE_BOOLEAN);
+				data.writeByte(((Boolean) value).booleanValue() ? 1 : 0);
+			} else if (value instanceof JSONObject) {
+				data.writeByte(VALUE_JSON_OBJECT);
+				data.writeInt(stringId(value.toString()));
+			} else if (value instanceof JSONArray) {
+				data.writeByte(VALUE_JSON_ARRAY);
+				data.writeInt(stringId(value.toString()));
+			} else if (value instanceof Number) {
+				data.writeByte(VALUE_NUMBER);
+				data.writeInt(stringId(value.toString()));
+			} else {
+				data.writeByte(VALUE_STRING);
+				data.writeInt(stringId(value.toString()));
+			}
+		}
+
+		private int stringId(String str) {
+			if (str == null) {
+				return -1;
+			}
+
+			Integer id = _stringIds.get(str);
+
+			if (id == null) {
+				id = Integer.valueOf(_stringIds.size());
+				_stringIds.put(str, id);
+			}
+
+			return id.intValue();
+		}
+	}
+}
@@ -52,6 +52,8 @@ public class Activator extends AbstractUIPlugin {
 	public void start(BundleContext context) throws Exception {
 		super.start(context);
 		plugin = this;
+
+		getPreferenceStore().setDefault(OptiPNGCore.PREF_OPTI_PNG_CACHE_SIZE, OptiPNGCore.DEFAULT_CACHE_SIZE);
 	}
 
 	/*
@@ -21,22 +21,21 @@
 // USE OR OTHER DEALINGS IN THE SOFTWARE.
 package phasereditor.optipng.core;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.security.MessageDigest;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IResource;
-import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.QualifiedName;
 import org.eclipse.jface.preference.IPreferenceStore;
 
-import phasereditor.inspect.core.InspectCore;
+import phasereditor.optipng.core.PNGOptimizer.Result;
 
 public class OptiPNGCore {
 	public static final String PLUGIN_ID = Activator.PLUGIN_ID;
@@ -45,74 +44,125 @@ public class OptiPNGCore {
 
 	public static final String PREF_OPTI_PNG_LEVEL = PLUGIN_ID + "compressionLeve;";
 
+	/**
+	 * Parameters of the OptiPNG command line. Only the level (like
+	 * <code>-o5</code>) is supported by the optimizer, it overrides
+	 * {@link #PREF_OPTI_PNG_LEVEL}. The rest are ignored.
+	 */
 	public static final String PREF_OPTI_PNG_EXTRA_PARAMS = PLUGIN_ID + "extraParams";
 
+	/**
+	 * The maximum size (in MB) of the optimization cache. When it is exceeded,
+	 * the least recently used entries are removed.
+	 */
+	public static final String PREF_OPTI_PNG_CACHE_SIZE = PLUGIN_ID + "cacheSize";
+
+	public static final int DEFAULT_CACHE_SIZE = 256;
+
+	/**
+	 * The system property to set the folder of the optimization cache. By
+	 * default it is in the plugin state location.
+	 */
+	public static final String CACHE_DIR_PROPERTY = "phasereditor.optipng.cache";
+
+	private static PNGOptimizerCache _cache;
+
 	public static void updateHashCache(IResource resource) throws Exception {
 		String hash2 = computeHash(resource);
 		resource.setPersistentProperty(PERSIST_KEY, hash2);
 	}
 
-	public static void optimize(IPath path) {
-		String ospath = path.toOSString();
-		IPreferenceStore prefs = getPreferenceStore();
+	public static int getOptimizationLevel() {
+		IPreferenceStore store = getPreferenceStore();
 
-		String level = prefs.getString(PREF_OPTI_PNG_LEVEL);
-		String extra = prefs.getString(PREF_OPTI_PNG_EXTRA_PARAMS);
+		int level = PNGOptimizer.parseLevel(store.getString(PREF_OPTI_PNG_LEVEL));
 
-		try {
-			List<String> params = new ArrayList<>(Arrays.asList(level, "-quiet", ospath));
-			params.addAll(Arrays.asList(extra.split(" ")));
+		// like in the command line, the last level wins
+		for (String param : store.getString(PREF_OPTI_PNG_EXTRA_PARAMS).trim().split("\\s+")) {
+			if (param.matches("-o[0-7]")) {
+				level = PNGOptimizer.parseLevel(param);
+			}
+		}
+
+		return level;
+	}
+
+	/**
+	 * @return The maximum size of the cache, in bytes.
+	 */
+	public static long getCacheMaxSize() {
+		int size = getPreferenceStore().getInt(PREF_OPTI_PNG_CACHE_SIZE);
+
+		if (size <= 0) {
+			size = DEFAULT_CACHE_SIZE;
+		}
 
-			ProcessBuilder procBuilder = InspectCore.createProcessBuilder("optipng/optipng",
-					params.toArray(new String[params.size()]));
+		return size * 1024L * 1024L;
+	}
+
+	public static synchronized PNGOptimizerCache getCache() {
+		if (_cache == null) {
+			String dir = System.getProperty(CACHE_DIR_PROPERTY);
+			Path path;
 
-			Process proc = procBuilder.start();
-			int code = proc.waitFor();
-			if (code != 0) {
-				throw new IOException("Something wrong happened, exit code for "
-						+ Arrays.toString(procBuilder.command().toArray()) + " is " + code);
+			if (dir == null) {
+				path = Activator.getDefault().getStateLocation().append("cache").toFile().toPath();
+			} else {
+				path = Paths.get(dir);
 			}
-		} catch (Exception e) {
-			e.printStackTrace();
-			throw new RuntimeException(e);
+
+			_cache = new PNGOptimizerCache(path);
 		}
+
+		return _cache;
+	}
+
+	/**
+	 * Optimizes the files in parallel, with the level of the preferences.
+	 * 
+	 * @param listener
+	 *            Called (from a worker thread) when a file is processed. It can
+	 *            be <code>null</code>.
+	 * @param monitor
+	 *            It can be <code>null</code>. If it is cancelled, the pending
+	 *            files are not processed.
+	 */
+	public static List<Result> optimize(List<Path> files, Consumer<Result> listener, IProgressMonitor monitor) {
+		PNGOptimizerCache cache = getCache();
+
+		List<Result> results = PNGOptimizer.optimize(files, getOptimizationLevel(), cache, listener,
+				() -> monitor != null && monitor.isCanceled());
+
+		cache.prune(getCacheMaxSize());
+
+		return results;
 	}
 
 	private static String computeHash(IResource resource) throws Exception {
 		if (resource instanceof IFile) {
-			return getMD5Checksum(getInputStreamFromFileSystem(resource));
+			return getMD5Checksum(Files.newInputStream(resource.getLocation().toFile().toPath()));
 		}
 		return "";
 	}
 
-	private static InputStream getInputStreamFromFileSystem(IResource resource) throws FileNotFoundException {
-		return new FileInputStream(resource.getLocation().toFile());
-	}
-
 	private static byte[] createChecksum(InputStream input) throws Exception {
-		byte[] buffer = new byte[1024];
+		byte[] buffer = new byte[64 * 1024];
 		MessageDigest complete = MessageDigest.getInstance("MD5");
 		int numRead;
 
-		do {
-			numRead = input.read(buffer);
-			if (numRead > 0) {
+		try {
+			while ((numRead = input.read(buffer)) != -1) {
 				complete.update(buffer, 0, numRead);
 			}
-		} while (numRead != -1);
+		} finally {
+			input.close();
+		}
 
-		input.close();
 		return complete.digest();
 	}
 
 	public static String getMD5Checksum(InputStream input) throws Exception {
-		byte[] b = createChecksum(input);
-		String result = "";
-
-		for (int i = 0; i < b.length; i++) {
-			result += Integer.toString((b[i] & 0xff) + 0x100, 16).substring(1);
-		}
-		return result;
+		return PNGOptimizerCache.toHex(createChecksum(input));
 	}
 
 	public static IPreferenceStore getPreferenceStore() {
@@ -0,0 +1,795 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2018 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.optipng.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A lossless PNG recompressor. It tries different combinations of scanline
+ * filters and zlib settings, and keeps the smallest result. The pixels, the
+ * palette and the color related chunks are not modified, but the text and time
+ * chunks are removed.
+ * 
+ * <p>
+ * The optimization level follows the OptiPNG levels: a higher level makes
+ * more trials.
+ * </p>
+ * 
+ * @author arian
+ *
+ */
+public class PNGOptimizer {
+	private static final byte[] SIGNATURE = { (byte) 137, 80, 78, 71, 13, 10, 26, 10 };
+
+	private static final Set<String> STRIPPED_CHUNKS = new HashSet<>(Arrays.asList("tEXt", "zTXt", "iTXt", "tIME"));
+
+	/**
+	 * The filter type to select the filter of every row, using the minimum sum
+	 * of absolute differences heuristic.
+	 */
+	private static final int ADAPTIVE_FILTER = 5;
+
+	private static final int[][] ADAM7 = { //
+			{ 0, 0, 8, 8 }, //
+			{ 4, 0, 8, 8 }, //
+			{ 0, 4, 4, 8 }, //
+			{ 2, 0, 4, 4 }, //
+			{ 0, 2, 2, 4 }, //
+			{ 1, 0, 2, 2 }, //
+			{ 0, 1, 1, 2 } //
+	};
+
+	public static final int DEFAULT_LEVEL = 2;
+
+	private int _level;
+
+	public PNGOptimizer(int level) {
+		_level = Math.max(0, Math.min(7, level));
+	}
+
+	public int getLevel() {
+		return _level;
+	}
+
+	/**
+	 * Parses an OptiPNG level parameter, like <code>-o5</code>.
+	 */
+	public static int parseLevel(String param) {
+		if (param != null && param.matches("-o[0-7]")) {
+			return param.charAt(2) - '0';
+		}
+
+		return DEFAULT_LEVEL;
+	}
+
+	public static class Result {
+		private Path _file;
+		private long _oldSize;
+		private long _newSize;
+		private boolean _cached;
+		private Exception _error;
+
+		public Result(Path file, long oldSize, long newSize, boolean cached, Exception error) {
+			_file = file;
+			_oldSize = oldSize;
+			_newSize = newSize;
+			_cached = cached;
+			_error = error;
+		}
+
+		public Path getFile() {
+			return _file;
+		}
+
+		public long getOldSize() {
+			return _oldSize;
+		}
+
+		public long getNewSize() {
+			return _newSize;
+		}
+
+		public boolean isCached() {
+			return _cached;
+		}
+
+		public Exception getError() {
+			return _error;
+		}
+	}
+
+	/**
+	 * Optimizes the files in parallel, and replaces them with the optimized
+	 * version.
+	 * 
+	 * @param cache
+	 *            The cache of the optimizations. It can be <code>null</code>.
+	 * @param listener
+	 *            Called (from a worker thread) when a file is processed. It can
+	 *            be <code>null</code>.
+	 * @param cancelled
+	 *            Checked before to process a file.
+	 * @return The results of the processed files.
+	 */
+	public static List<Result> optimize(List<Path> files, int level, PNGOptimizerCache cache,
+			Consumer<Result> listener, BooleanSupplier cancelled) {
+
+		List<Callable<Result>> tasks = new ArrayList<>();
+
+		for (Path file : files) {
+			tasks.add(() -> {
+				if (cancelled.getAsBoolean()) {
+					return null;
+				}
+
+				Result result = optimize(file, level, cache);
+
+				if (listener != null) {
+					listener.accept(result);
+				}
+
+				return result;
+			});
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+		try {
+			List<Result> results = new ArrayList<>();
+
+			for (Future<Result> future : pool.invokeAll(tasks)) {
+				Result result = future.get();
+				if (result != null) {
+					results.add(result);
+				}
+			}
+
+			return results;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static Result optimize(Path file, int level, PNGOptimizerCache cache) {
+		long oldSize = 0;
+
+		try {
+			byte[] content = Files.readAllBytes(file);
+			oldSize = content.length;
+
+			String key = cache == null ? null : PNGOptimizerCache.computeKey(content, level);
+			byte[] optimized = key == null ? null : cache.get(key);
+			boolean cached = optimized != null;
+
+			if (cached) {
+				if (optimized == PNGOptimizerCache.OPTIMAL) {
+					optimized = null;
+				}
+			} else {
+				optimized = new PNGOptimizer(level).optimize(content);
+
+				if (cache != null) {
+					cache.put(key, optimized);
+
+					if (optimized != null) {
+						// so it is not optimized again the next time
+						cache.put(PNGOptimizerCache.computeKey(optimized, level), null);
+					}
+				}
+			}
+
+			if (optimized == null) {
+				return new Result(file, oldSize, oldSize, cached, null);
+			}
+
+			Path tmp = Files.createTempFile(file.toAbsolutePath().getParent(), "optipng", ".tmp");
+			Files.write(tmp, optimized);
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+			return new Result(file, oldSize, optimized.length, cached, null);
+		} catch (Exception e) {
+			return new Result(file, oldSize, oldSize, false, e);
+		}
+	}
+
+	/**
+	 * Optimizes the PNG files from the command line, it is used in headless
+	 * environments like the CI.
+	 * 
+	 * <pre>
+	 * PNGOptimizer [-o0..-o7] [-cache dir] file-or-folder...
+	 * </pre>
+	 */
+	public static void main(String[] args) throws IOException {
+		int level = DEFAULT_LEVEL;
+		PNGOptimizerCache cache = null;
+		List<Path> files = new ArrayList<>();
+
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+
+			if (arg.startsWith("-o")) {
+				level = parseLevel(arg);
+			} else if (arg.equals("-cache")) {
+				cache = new PNGOptimizerCache(Paths.get(args[++i]));
+			} else {
+				try (Stream<Path> stream = Files.walk(Paths.get(arg))) {
+					files.addAll(stream.filter(p -> p.getFileName().toString().toLowerCase().endsWith(".png"))
+							.collect(Collectors.toList()));
+				}
+			}
+		}
+
+		long start = System.currentTimeMillis();
+
+		List<Result> results = optimize(files, level, cache, r -> {
+			if (r.getError() != null) {
+				System.err.println(r.getFile() + ": " + r.getError().getMessage());
+			}
+		}, () -> false);
+
+		long oldTotal = 0;
+		long newTotal = 0;
+
+		for (Result result : results) {
+			oldTotal += result.getOldSize();
+			newTotal += result.getNewSize();
+		}
+
+		System.out.println("Optimized " + results.size() + " files in " + (System.currentTimeMillis() - start)
+				+ "ms: " + oldTotal + " -> " + newTotal + " bytes");
+	}
+
+	static class Chunk {
+		String type;
+		byte[] data;
+	}
+
+	/**
+	 * A sub-image of the PNG data. A non-interlaced image has one segment, an
+	 * interlaced image has one segment per (non empty) Adam7 pass.
+	 */
+	static class Segment {
+		int rows;
+		int rowBytes;
+	}
+
+	/**
+	 * Optimizes the PNG content.
+	 * 
+	 * @return The optimized content, or <code>null</code> if it cannot be made
+	 *         smaller, or if it is a kind of PNG that is not supported (like
+	 *         APNG).
+	 * @throws IOException
+	 *             If the content is not a valid PNG.
+	 */
+	public byte[] optimize(byte[] png) throws IOException {
+		List<Chunk> chunks = readChunks(png);
+
+		Chunk ihdr = chunks.get(0);
+
+		if (!ihdr.type.equals("IHDR") || ihdr.data.length != 13) {
+			throw new IOException("Missing IHDR chunk");
+		}
+
+		ByteBuffer header = ByteBuffer.wrap(ihdr.data);
+		int width = header.getInt();
+		int height = header.getInt();
+		int bitDepth = header.get() & 0xff;
+		int colorType = header.get() & 0xff;
+		int compression = header.get() & 0xff;
+		int filterMethod = header.get() & 0xff;
+		int interlace = header.get() & 0xff;
+
+		if (compression != 0 || filterMethod != 0 || interlace > 1) {
+			return null;
+		}
+
+		int channels;
+		switch (colorType) {
+		case 0:
+		case 3:
+			channels = 1;
+			break;
+		case 2:
+			channels = 3;
+			break;
+		case 4:
+			channels = 2;
+			break;
+		case 6:
+			channels = 4;
+			break;
+		default:
+			throw new IOException("Unknown color type " + colorType);
+		}
+
+		int bitsPerPixel = channels * bitDepth;
+		int bpp = Math.max(1, bitsPerPixel / 8);
+
+		// the chunks around the image data
+
+		List<Chunk> before = new ArrayList<>();
+		List<Chunk> after = new ArrayList<>();
+		ByteArrayOutputStream idat = new ByteArrayOutputStream();
+
+		for (Chunk chunk : chunks.subList(1, chunks.size())) {
+			switch (chunk.type) {
+			case "acTL":
+				// APNG, the frames are in fdAT chunks, leave it as is
+				return null;
+			case "IDAT":
+				idat.write(chunk.data);
+				break;
+			case "IEND":
+				break;
+			default:
+				if (!STRIPPED_CHUNKS.contains(chunk.type)) {
+					(idat.size() == 0 ? before : after).add(chunk);
+				}
+				break;
+			}
+		}
+
+		List<Segment> segments = getSegments(width, height, bitsPerPixel, interlace);
+
+		byte[] raw = inflate(idat.toByteArray(), getFilteredSize(segments));
+		byte[] pixels = unfilter(raw, segments, bpp);
+
+		// the trials
+
+		byte[] best = null;
+		byte[] bestFiltered = null;
+
+		for (int filter : getFilterTrials(colorType, bitDepth)) {
+			byte[] filtered = filter(pixels, segments, bpp, filter);
+
+			for (int strategy : getStrategyTrials()) {
+				for (int level : getCompressionLevelTrials()) {
+					byte[] compressed = deflate(filtered, level, strategy, best == null ? -1 : best.length);
+					if (compressed != null && (best == null || compressed.length < best.length)) {
+						best = compressed;
+						bestFiltered = filtered;
+					}
+				}
+			}
+		}
+
+		// check the result has the same pixels, it is cheap compared with
+		// the trials
+
+		if (!Arrays.equals(pixels, unfilter(inflate(best, bestFiltered.length), segments, bpp))) {
+			throw new IOException("The optimized image does not match the original");
+		}
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream(png.length);
+		DataOutputStream data = new DataOutputStream(output);
+
+		data.write(SIGNATURE);
+
+		writeChunk(data, "IHDR", ihdr.data);
+
+		for (Chunk chunk : before) {
+			writeChunk(data, chunk.type, chunk.data);
+		}
+
+		writeChunk(data, "IDAT", best);
+
+		for (Chunk chunk : after) {
+			writeChunk(data, chunk.type, chunk.data);
+		}
+
+		writeChunk(data, "IEND", new byte[0]);
+
+		data.flush();
+
+		if (output.size() >= png.length) {
+			return null;
+		}
+
+		return output.toByteArray();
+	}
+
+	private int[] getFilterTrials(int colorType, int bitDepth) {
+		// the PNG spec recommends no filter for palette and low bit depth
+		// images, and the adaptive filter for the others.
+		boolean noFilterFirst = colorType == 3 || bitDepth < 8;
+
+		if (_level <= 1) {
+			return new int[] { noFilterFirst ? 0 : ADAPTIVE_FILTER };
+		}
+
+		if (_level == 2) {
+			return new int[] { 0, ADAPTIVE_FILTER };
+		}
+
+		return new int[] { 0, 1, 2, 3, 4, ADAPTIVE_FILTER };
+	}
+
+	private int[] getStrategyTrials() {
+		if (_level <= 1) {
+			return new int[] { Deflater.DEFAULT_STRATEGY };
+		}
+
+		if (_level <= 4) {
+			return new int[] { Deflater.DEFAULT_STRATEGY, Deflater.FILTERED };
+		}
+
+		return new int[] { Deflater.DEFAULT_STRATEGY, Deflater.FILTERED, Deflater.HUFFMAN_ONLY };
+	}
+
+	private int[] getCompressionLevelTrials() {
+		if (_level >= 6) {
+			return new int[] { 9, 8, 6 };
+		}
+
+		return new int[] { 9 };
+	}
+
+	private static List<Segment> getSegments(int width, int height, int bitsPerPixel, int interlace) {
+		List<Segment> list = new ArrayList<>();
+
+		if (interlace == 0) {
+			Segment segment = new Segment();
+			segment.rows = height;
+			segment.rowBytes = (int) (((long) width * bitsPerPixel + 7) / 8);
+			list.add(segment);
+		} else {
+			for (int[] pass : ADAM7) {
+				int passWidth = (width - pass[0] + pass[2] - 1) / pass[2];
+				int passHeight = (height - pass[1] + pass[3] - 1) / pass[3];
+
+				if (passWidth > 0 && passHeight > 0) {
+					Segment segment = new Segment();
+					segment.rows = passHeight;
+					segment.rowBytes = (int) (((long) passWidth * bitsPerPixel + 7) / 8);
+					list.add(segment);
+				}
+			}
+		}
+
+		return list;
+	}
+
+	private static int getFilteredSize(List<Segment> segments) {
+		long size = 0;
+
+		for (Segment segment : segments) {
+			size += (long) segment.rows * (segment.rowBytes + 1);
+		}
+
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Image too big");
+		}
+
+		return (int) size;
+	}
+
+	private static byte[] unfilter(byte[] raw, List<Segment> segments, int bpp) throws IOException {
+		byte[] pixels = new byte[raw.length - countRows(segments)];
+		int in = 0;
+		int out = 0;
+
+		for (Segment segment : segments) {
+			int rowBytes = segment.rowBytes;
+
+			for (int row = 0; row < segment.rows; row++) {
+				int filter = raw[in++];
+				int prev = out - rowBytes;
+
+				for (int i = 0; i < rowBytes; i++) {
+					int x = raw[in + i] & 0xff;
+					int a = i >= bpp ? pixels[out + i - bpp] & 0xff : 0;
+					int b = row > 0 ? pixels[prev + i] & 0xff : 0;
+					int c = row > 0 && i >= bpp ? pixels[prev + i - bpp] & 0xff : 0;
+
+					switch (filter) {
+					case 0:
+						break;
+					case 1:
+						x += a;
+						break;
+					case 2:
+						x += b;
+						break;
+					case 3:
+						x += (a + b) >>> 1;
+						break;
+					case 4:
+						x += paeth(a, b, c);
+						break;
+					default:
+						throw new IOException("Unknown filter type " + filter);
+					}
+
+					pixels[out + i] = (byte) x;
+				}
+
+				in += rowBytes;
+				out += rowBytes;
+			}
+		}
+
+		return pixels;
+	}
+
+	private static byte[] filter(byte[] pixels, List<Segment> segments, int bpp, int filterType) {
+		byte[] filtered = new byte[pixels.length + countRows(segments)];
+		int in = 0;
+		int out = 0;
+
+		for (Segment segment : segments) {
+			int rowBytes = segment.rowBytes;
+
+			for (int row = 0; row < segment.rows; row++) {
+				int filter = filterType;
+
+				if (filter == ADAPTIVE_FILTER) {
+					long bestSum = Long.MAX_VALUE;
+
+					for (int f = 0; f < 5; f++) {
+						long sum = filterRow(pixels, in, row > 0 ? in - rowBytes : -1, rowBytes, bpp, f, null, 0);
+						if (sum < bestSum) {
+							bestSum = sum;
+							filter = f;
+						}
+					}
+				}
+
+				filtered[out] = (byte) filter;
+				filterRow(pixels, in, row > 0 ? in - rowBytes : -1, rowBytes, bpp, filter, filtered, out + 1);
+
+				in += rowBytes;
+				out += rowBytes + 1;
+			}
+		}
+
+		return filtered;
+	}
+
+	/**
+	 * Filters a row.
+	 * 
+	 * @param prev
+	 *            The start of the previous row, or -1 if it is the first row.
+	 * @param dst
+	 *            The filtered row is written here. It can be null, to only
+	 *            compute the sum.
+	 * @return The sum of the absolute values (as signed bytes) of the filtered
+	 *         row.
+	 */
+	private static long filterRow(byte[] pixels, int cur, int prev, int rowBytes, int bpp, int filter, byte[] dst,
+			int dstOffset) {
+		long sum = 0;
+
+		for (int i = 0; i < rowBytes; i++) {
+			int x = pixels[cur + i] & 0xff;
+			int a = i >= bpp ? pixels[cur + i - bpp] & 0xff : 0;
+			int b = prev >= 0 ? pixels[prev + i] & 0xff : 0;
+			int c = prev >= 0 && i >= bpp ? pixels[prev + i - bpp] & 0xff : 0;
+
+			switch (filter) {
+			case 1:
+				x -= a;
+				break;
+			case 2:
+				x -= b;
+				break;
+			case 3:
+				x -= (a + b) >>> 1;
+				break;
+			case 4:
+				x -= paeth(a, b, c);
+				break;
+			default:
+				break;
+			}
+
+			byte v = (byte) x;
+
+			if (dst != null) {
+				dst[dstOffset + i] = v;
+			}
+
+			sum += Math.abs(v);
+		}
+
+		return sum;
+	}
+
+	private static int paeth(int a, int b, int c) {
+		int p = a + b - c;
+		int pa = Math.abs(p - a);
+		int pb = Math.abs(p - b);
+		int pc = Math.abs(p - c);
+
+		if (pa <= pb && pa <= pc) {
+			return a;
+		}
+
+		if (pb <= pc) {
+			return b;
+		}
+
+		return c;
+	}
+
+	private static int countRows(List<Segment> segments) {
+		int n = 0;
+
+		for (Segment segment : segments) {
+			n += segment.rows;
+		}
+
+		return n;
+	}
+
+	private static byte[] inflate(byte[] data, int size) throws IOException {
+		Inflater inflater = new Inflater();
+
+		try {
+			inflater.setInput(data);
+
+			byte[] result = new byte[size];
+			int n = 0;
+
+			while (n < size && !inflater.finished()) {
+				int count = inflater.inflate(result, n, size - n);
+
+				if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+
+				n += count;
+			}
+
+			if (n < size) {
+				throw new IOException("Truncated image data");
+			}
+
+			return result;
+		} catch (DataFormatException e) {
+			throw new IOException(e);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * Compresses the data.
+	 * 
+	 * @param limit
+	 *            If it is positive, the compression is aborted (and returns
+	 *            <code>null</code>) when the result reaches this size.
+	 */
+	private static byte[] deflate(byte[] data, int level, int strategy, int limit) {
+		Deflater deflater = new Deflater(level);
+
+		try {
+			deflater.setStrategy(strategy);
+			deflater.setInput(data);
+			deflater.finish();
+
+			ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+			byte[] buf = new byte[64 * 1024];
+
+			while (!deflater.finished()) {
+				int n = deflater.deflate(buf);
+				output.write(buf, 0, n);
+
+				if (limit > 0 && output.size() >= limit) {
+					return null;
+				}
+			}
+
+			return output.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private static List<Chunk> readChunks(byte[] png) throws IOException {
+		if (png.length < SIGNATURE.length + 12
+				|| !Arrays.equals(SIGNATURE, Arrays.copyOf(png, SIGNATURE.length))) {
+			throw new IOException("Not a PNG file");
+		}
+
+		List<Chunk> chunks = new ArrayList<>();
+		ByteBuffer buf = ByteBuffer.wrap(png);
+		buf.position(SIGNATURE.length);
+
+		while (buf.remaining() >= 12) {
+			int length = buf.getInt();
+
+			if (length < 0 || length > buf.remaining() - 8) {
+				throw new IOException("Invalid chunk length");
+			}
+
+			byte[] type = new byte[4];
+			buf.get(type);
+
+			Chunk chunk = new Chunk();
+			chunk.type = new String(type, StandardCharsets.ISO_8859_1);
+			chunk.data = new byte[length];
+			buf.get(chunk.data);
+
+			CRC32 crc = new CRC32();
+			crc.update(type);
+			crc.update(chunk.data);
+
+			if ((int) crc.getValue() != buf.getInt()) {
+				throw new IOException("Invalid CRC in chunk " + chunk.type);
+			}
+
+			chunks.add(chunk);
+
+			if (chunk.type.equals("IEND")) {
+				break;
+			}
+		}
+
+		if (chunks.isEmpty() || !chunks.get(chunks.size() - 1).type.equals("IEND")) {
+			throw new IOException("Missing IEND chunk");
+		}
+
+		return chunks;
+	}
+
+	private static void writeChunk(DataOutputStream output, String type, byte[] data) throws IOException {
+		byte[] typeBytes = type.getBytes(StandardCharsets.ISO_8859_1);
+
+		CRC32 crc = new CRC32();
+		crc.update(typeBytes);
+		crc.update(data);
+
+		output.writeInt(data.length);
+		output.write(typeBytes);
+		output.write(data);
+		output.writeInt((int) crc.getValue());
+	}
+}
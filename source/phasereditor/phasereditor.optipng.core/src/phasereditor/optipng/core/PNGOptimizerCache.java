@@ -0,0 +1,215 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2018 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.optipng.core;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * A content addressed cache of optimized PNGs. The key is the SHA-256 of the
+ * original content plus the optimization level, so a file optimized in a
+ * project (or in a CI machine) is not optimized again if it is found in another
+ * place. The files that cannot be optimized are recorded too, with an empty
+ * marker file. The modification time of an entry is updated when it is read,
+ * so {@link #prune(long)} removes the least recently used entries.
+ * 
+ * @author arian
+ *
+ */
+public class PNGOptimizerCache {
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	/**
+	 * The size counted for an entry, in addition to its content. The optimal
+	 * markers are empty, but they take a disk block.
+	 */
+	private static final int ENTRY_OVERHEAD = 4096;
+
+	/**
+	 * The value returned by {@link #get(String)} when the content is already
+	 * optimal.
+	 */
+	public static final byte[] OPTIMAL = new byte[0];
+
+	private Path _dir;
+
+	public PNGOptimizerCache(Path dir) {
+		_dir = dir;
+	}
+
+	public Path getDir() {
+		return _dir;
+	}
+
+	public static String computeKey(byte[] content, int level) {
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-256");
+			return toHex(md.digest(content)) + "-o" + level;
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public static String toHex(byte[] bytes) {
+		char[] chars = new char[bytes.length * 2];
+
+		for (int i = 0; i < bytes.length; i++) {
+			int b = bytes[i] & 0xff;
+			chars[i * 2] = HEX[b >>> 4];
+			chars[i * 2 + 1] = HEX[b & 0xf];
+		}
+
+		return new String(chars);
+	}
+
+	/**
+	 * @return The optimized content, {@link #OPTIMAL} if the content cannot be
+	 *         optimized, or <code>null</code> if the key is not in the cache.
+	 */
+	public byte[] get(String key) {
+		Path dir = getKeyDir(key);
+
+		Path marker = dir.resolve(key + ".optimal");
+
+		if (Files.exists(marker)) {
+			touch(marker);
+			return OPTIMAL;
+		}
+
+		try {
+			Path file = dir.resolve(key + ".png");
+			byte[] content = Files.readAllBytes(file);
+			touch(file);
+			return content;
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Stores the optimization of a content.
+	 * 
+	 * @param optimized
+	 *            The optimized content, or <code>null</code> if the content is
+	 *            already optimal.
+	 */
+	public void put(String key, byte[] optimized) {
+		Path dir = getKeyDir(key);
+
+		try {
+			Files.createDirectories(dir);
+
+			Path file = dir.resolve(key + (optimized == null ? ".optimal" : ".png"));
+			Path tmp = Files.createTempFile(dir, key, ".tmp");
+
+			Files.write(tmp, optimized == null ? OPTIMAL : optimized);
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			// the cache is just an optimization
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Removes the least recently used entries, until the size of the cache is
+	 * not greater than the given size.
+	 * 
+	 * @param maxSize
+	 *            The maximum size in bytes.
+	 */
+	public synchronized void prune(long maxSize) {
+		if (!Files.isDirectory(_dir)) {
+			return;
+		}
+
+		class Entry {
+			Path path;
+			long size;
+			long time;
+		}
+
+		List<Entry> entries = new ArrayList<>();
+		long total = 0;
+
+		try (Stream<Path> stream = Files.walk(_dir, 2)) {
+			for (Path path : (Iterable<Path>) stream::iterator) {
+				BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+
+				if (attrs.isRegularFile()) {
+					Entry entry = new Entry();
+					entry.path = path;
+					entry.size = attrs.size() + ENTRY_OVERHEAD;
+					entry.time = attrs.lastModifiedTime().toMillis();
+					entries.add(entry);
+					total += entry.size;
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			return;
+		}
+
+		if (total <= maxSize) {
+			return;
+		}
+
+		entries.sort((a, b) -> Long.compare(a.time, b.time));
+
+		for (Entry entry : entries) {
+			if (total <= maxSize) {
+				break;
+			}
+
+			try {
+				Files.deleteIfExists(entry.path);
+				total -= entry.size;
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	private static void touch(Path file) {
+		try {
+			Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (IOException e) {
+			// it is just to keep the entry longer
+		}
+	}
+
+	private Path getKeyDir(String key) {
+		return _dir.resolve(key.substring(0, 2));
+	}
+}
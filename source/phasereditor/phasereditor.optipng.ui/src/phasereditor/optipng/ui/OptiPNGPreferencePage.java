@@ -23,6 +23,7 @@ package phasereditor.optipng.ui;
 
 import org.eclipse.jface.preference.ComboFieldEditor;
 import org.eclipse.jface.preference.FieldEditorPreferencePage;
+import org.eclipse.jface.preference.IntegerFieldEditor;
 import org.eclipse.jface.preference.StringFieldEditor;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.ui.IWorkbench;
@@ -40,7 +41,7 @@ public class OptiPNGPreferencePage extends FieldEditorPreferencePage implements
 	@Override
 	public void init(IWorkbench workbench) {
 		setPreferenceStore(OptiPNGCore.getPreferenceStore());
-		setDescription("Configure OptiPNG settings. For a better understanding visit the http://optipng.sourceforge.net.");
+		setDescription("Configure the PNG optimization. The levels are the same of OptiPNG, a higher level makes more compression trials. Of the additional parameters, only the level (like -o5) is used.");
 	}
 
 	@Override
@@ -67,5 +68,13 @@ public class OptiPNGPreferencePage extends FieldEditorPreferencePage implements
 					"Additional Parameters", parent);
 			addField(paramsEditor);
 		}
+
+		{
+			IntegerFieldEditor cacheEditor = new IntegerFieldEditor(
+					OptiPNGCore.PREF_OPTI_PNG_CACHE_SIZE,
+					"Cache Size (MB)", parent);
+			cacheEditor.setValidRange(1, Integer.MAX_VALUE);
+			addField(cacheEditor);
+		}
 	}
 }
\ No newline at end of file
@@ -23,9 +23,13 @@ package phasereditor.optipng.ui;
 
 import static java.lang.System.out;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IResourceVisitor;
@@ -62,9 +66,9 @@ public class OptimizeImagesDialog extends Dialog {
 	List<IResource> _selection;
 	Label _labelTitle;
 	TableViewer _tableViewer;
-	HashMap<IResource, String> _oldSizeMap;
-	HashMap<IResource, String> _newSizeMap;
-	HashMap<IResource, String> _reductionMap;
+	Map<IResource, String> _oldSizeMap;
+	Map<IResource, String> _newSizeMap;
+	Map<IResource, String> _reductionMap;
 
 	/**
 	 * Create the dialog.
@@ -93,7 +97,7 @@ public class OptimizeImagesDialog extends Dialog {
 
 		_labelTitle = new Label(container, SWT.NONE);
 		_labelTitle.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, false, false, 1, 1));
-		_labelTitle.setText("Running OptiPNG on...");
+		_labelTitle.setText("Optimizing...");
 
 		_tableViewer = new TableViewer(container, SWT.BORDER | SWT.FULL_SELECTION);
 		_table = _tableViewer.getTable();
@@ -181,12 +185,12 @@ public class OptimizeImagesDialog extends Dialog {
 	protected Control createContents(Composite parent) {
 		Control contents = super.createContents(parent);
 		getButton(OK).setEnabled(false);
-		_labelTitle.setText("Running OptiPNG");
+		_labelTitle.setText("Optimizing");
 		try {
 			List<IResource> list = new ArrayList<>();
 			_oldSizeMap = new HashMap<>();
-			_newSizeMap = new HashMap<>();
-			_reductionMap = new HashMap<>();
+			_newSizeMap = new ConcurrentHashMap<>();
+			_reductionMap = new ConcurrentHashMap<>();
 			for (IResource res : _selection) {
 				res.accept(new IResourceVisitor() {
 
@@ -209,49 +213,60 @@ public class OptimizeImagesDialog extends Dialog {
 			}
 			_tableViewer.setInput(list);
 
-			WorkspaceJob job = new WorkspaceJob("Run OptiPNG on selection") {
+			WorkspaceJob job = new WorkspaceJob("Optimize PNG files in the selection") {
 
 				@Override
 				public IStatus runInWorkspace(IProgressMonitor monitor) throws CoreException {
 					try {
 						monitor.beginTask("Optimizing PNGs", list.size());
-						for (IResource resource : list) {
-
-							Display.getDefault().asyncExec(new Runnable() {
 
-								@Override
-								public void run() {
-									_labelTitle.setText("Optimizing " + resource.getName());
-								}
-							});
+						Map<Path, IResource> fileMap = new HashMap<>();
+						for (IResource resource : list) {
+							fileMap.put(resource.getLocation().toFile().toPath(), resource);
+						}
 
-							IPath path = resource.getLocation();
+						AtomicInteger count = new AtomicInteger();
 
-							long len1 = path.toFile().length();
+						OptiPNGCore.optimize(new ArrayList<>(fileMap.keySet()), result -> {
+							IResource resource = fileMap.get(result.getFile());
 
-							out.println("OptiPNG Dialog: optimize " + path.toFile().getAbsolutePath());
+							if (result.getError() != null) {
+								out.println("OptiPNG Dialog: cannot optimize " + result.getFile() + ": "
+										+ result.getError().getMessage());
+							}
 
-							OptiPNGCore.optimize(path);
-							OptiPNGCore.updateHashCache(resource);
+							try {
+								OptiPNGCore.updateHashCache(resource);
+							} catch (Exception e) {
+								e.printStackTrace();
+							}
 
-							long len2 = path.toFile().length();
+							long len1 = result.getOldSize();
+							long len2 = result.getNewSize();
 
-							int reduction = (int) (100 - (double) len2 / (double) len1 * 100);
+							int reduction = len1 == 0 ? 0 : (int) (100 - (double) len2 / (double) len1 * 100);
 
-							_reductionMap.put(resource, reduction + "%");
-							_newSizeMap.put(resource, getFileSize(resource));
+							_reductionMap.put(resource, result.getError() == null ? reduction + "%" : "Error");
+							_newSizeMap.put(resource, len2 / 1024 + "KB");
 
 							monitor.worked(1);
 
+							int n = count.incrementAndGet();
+
 							Display.getDefault().asyncExec(new Runnable() {
 
 								@Override
 								public void run() {
+									if (_table.isDisposed()) {
+										return;
+									}
+									_labelTitle.setText("Optimized " + n + " of " + list.size());
 									_tableViewer.refresh(resource);
 									_tableViewer.reveal(resource);
 								}
 							});
-						}
+						}, monitor);
+
 						monitor.done();
 						return Status.OK_STATUS;
 					} catch (Exception e) {
@@ -0,0 +1,130 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2018 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.project.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.core.resources.IProject;
+
+/**
+ * The time spent by every participant in a project build.
+ * 
+ * @author arian
+ *
+ */
+public class BuildMetrics {
+
+	public static class ParticipantTime {
+		private String _participantId;
+		private String _threadName;
+		private long _startMillis;
+		private long _timeMillis;
+		private boolean _failed;
+
+		public ParticipantTime(String participantId, String threadName, long startMillis, long timeMillis,
+				boolean failed) {
+			super();
+			_participantId = participantId;
+			_threadName = threadName;
+			_startMillis = startMillis;
+			_timeMillis = timeMillis;
+			_failed = failed;
+		}
+
+		public String getParticipantId() {
+			return _participantId;
+		}
+
+		public String getThreadName() {
+			return _threadName;
+		}
+
+		/**
+		 * @return The start time, relative to the start of the build.
+		 */
+		public long getStartMillis() {
+			return _startMillis;
+		}
+
+		public long getTimeMillis() {
+			return _timeMillis;
+		}
+
+		public boolean isFailed() {
+			return _failed;
+		}
+
+		@Override
+		public String toString() {
+			return _participantId + " " + _timeMillis + "ms [" + _threadName + "]" + (_failed ? " (failed)" : "");
+		}
+	}
+
+	private IProject _project;
+	private String _kind;
+	private long _timeMillis;
+	private List<ParticipantTime> _participantTimes;
+
+	public BuildMetrics(IProject project, String kind) {
+		_project = project;
+		_kind = kind;
+		_participantTimes = new ArrayList<>();
+	}
+
+	public IProject getProject() {
+		return _project;
+	}
+
+	/**
+	 * @return The build operation: <code>startup</code>, <code>build</code>
+	 *         or <code>fullBuild</code>.
+	 */
+	public String getKind() {
+		return _kind;
+	}
+
+	public long getTimeMillis() {
+		return _timeMillis;
+	}
+
+	void setTimeMillis(long timeMillis) {
+		_timeMillis = timeMillis;
+	}
+
+	void addParticipantTime(ParticipantTime time) {
+		_participantTimes.add(time);
+	}
+
+	/**
+	 * @return The participant times, in the order they finished.
+	 */
+	public List<ParticipantTime> getParticipantTimes() {
+		return Collections.unmodifiableList(_participantTimes);
+	}
+
+	@Override
+	public String toString() {
+		return _kind + " [" + _project.getName() + "] " + _timeMillis + "ms " + _participantTimes;
+	}
+}
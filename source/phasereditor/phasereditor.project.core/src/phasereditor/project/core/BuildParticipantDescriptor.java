@@ -0,0 +1,96 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2018 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.project.core;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The information declared in a <code>buildParticipant</code> extension.
+ * 
+ * @author arian
+ *
+ */
+public class BuildParticipantDescriptor {
+	private String _id;
+	private IProjectBuildParticipant _participant;
+	private double _order;
+	private List<String> _dependsOn;
+	private boolean _concurrent;
+
+	/**
+	 * @param id
+	 *            The extension id.
+	 * @param participant
+	 *            The participant handler.
+	 * @param order
+	 *            The declared order.
+	 * @param dependsOn
+	 *            The id of the participants that should run before this one, or
+	 *            <code>null</code> if it was not declared. In that case this
+	 *            participant depends on all the participants with a lower
+	 *            order.
+	 * @param concurrent
+	 *            If the participant can be executed in a worker thread. A
+	 *            participant that modifies the workspace (like creating
+	 *            markers) should not be concurrent, because the builder thread
+	 *            holds the workspace lock.
+	 */
+	public BuildParticipantDescriptor(String id, IProjectBuildParticipant participant, double order,
+			List<String> dependsOn, boolean concurrent) {
+		super();
+		_id = id;
+		_participant = participant;
+		_order = order;
+		_dependsOn = dependsOn == null ? null : Collections.unmodifiableList(dependsOn);
+		_concurrent = concurrent;
+	}
+
+	public String getId() {
+		return _id;
+	}
+
+	public IProjectBuildParticipant getParticipant() {
+		return _participant;
+	}
+
+	public double getOrder() {
+		return _order;
+	}
+
+	public List<String> getDependsOn() {
+		return _dependsOn;
+	}
+
+	public boolean isDependsOnDeclared() {
+		return _dependsOn != null;
+	}
+
+	public boolean isConcurrent() {
+		return _concurrent;
+	}
+
+	@Override
+	public String toString() {
+		return _id + " (" + _participant.getClass().getSimpleName() + ")";
+	}
+}
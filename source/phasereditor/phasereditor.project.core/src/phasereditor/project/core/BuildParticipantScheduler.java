@@ -0,0 +1,245 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2018 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.project.core;
+
+import static java.lang.System.currentTimeMillis;
+import static java.lang.System.out;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+import phasereditor.project.core.BuildMetrics.ParticipantTime;
+
+/**
+ * Executes the build participants following the dependencies declared in the
+ * extensions. The participants marked as <code>concurrent</code> are executed
+ * in a bounded pool of worker threads, the others are executed in the builder
+ * thread.
+ * 
+ * @author arian
+ *
+ */
+public class BuildParticipantScheduler {
+
+	public interface IParticipantAction {
+		public void run(IProjectBuildParticipant participant) throws Exception;
+	}
+
+	private static ExecutorService _pool;
+
+	private static synchronized ExecutorService getPool() {
+		if (_pool == null) {
+			int n = Integer.getInteger("phasereditor.builder.threads",
+					Math.min(4, Runtime.getRuntime().availableProcessors())).intValue();
+			n = Math.max(1, n);
+
+			int[] counter = { 0 };
+
+			_pool = Executors.newFixedThreadPool(n, r -> {
+				Thread th = new Thread(r, "Phaser Builder Worker " + ++counter[0]);
+				th.setDaemon(true);
+				return th;
+			});
+		}
+		return _pool;
+	}
+
+	private IProject _project;
+	private List<BuildParticipantDescriptor> _descriptors;
+	private Map<BuildParticipantDescriptor, Set<BuildParticipantDescriptor>> _dependencies;
+
+	public BuildParticipantScheduler(IProject project, List<BuildParticipantDescriptor> descriptors) {
+		_project = project;
+		_descriptors = descriptors;
+		_dependencies = computeDependencies(descriptors);
+	}
+
+	private static Map<BuildParticipantDescriptor, Set<BuildParticipantDescriptor>> computeDependencies(
+			List<BuildParticipantDescriptor> descriptors) {
+
+		Map<String, BuildParticipantDescriptor> idMap = new HashMap<>();
+		for (BuildParticipantDescriptor desc : descriptors) {
+			idMap.put(desc.getId(), desc);
+		}
+
+		Map<BuildParticipantDescriptor, Set<BuildParticipantDescriptor>> map = new HashMap<>();
+
+		for (BuildParticipantDescriptor desc : descriptors) {
+			Set<BuildParticipantDescriptor> deps = new HashSet<>();
+
+			if (desc.isDependsOnDeclared()) {
+				for (String id : desc.getDependsOn()) {
+					BuildParticipantDescriptor dep = idMap.get(id);
+					// the dependency could be in a plugin that is not installed
+					if (dep != null && dep != desc) {
+						deps.add(dep);
+					}
+				}
+			} else {
+				// legacy participant, it runs after all the participants with
+				// a lower order.
+				for (BuildParticipantDescriptor dep : descriptors) {
+					if (dep.getOrder() < desc.getOrder()) {
+						deps.add(dep);
+					}
+				}
+			}
+
+			map.put(desc, deps);
+		}
+
+		return map;
+	}
+
+	/**
+	 * Run the action on all the participants.
+	 * 
+	 * @param kind
+	 *            The build operation, used in the metrics and the log.
+	 * @param action
+	 *            The action to run on every participant.
+	 * @param monitor
+	 *            The progress monitor. It is used only from the calling thread.
+	 * @return The time spent by every participant.
+	 */
+	public BuildMetrics run(String kind, IParticipantAction action, IProgressMonitor monitor) {
+		BuildMetrics metrics = new BuildMetrics(_project, kind);
+
+		long buildStart = currentTimeMillis();
+
+		Set<BuildParticipantDescriptor> pending = new LinkedHashSet<>(_descriptors);
+		Set<BuildParticipantDescriptor> done = new HashSet<>();
+
+		CompletionService<ParticipantTime> completion = new ExecutorCompletionService<>(getPool());
+		Map<Future<ParticipantTime>, BuildParticipantDescriptor> running = new HashMap<>();
+
+		boolean canceled = false;
+
+		while (!pending.isEmpty() || !running.isEmpty()) {
+
+			if (!canceled && monitor.isCanceled()) {
+				// do not start more participants, just wait for the running
+				// ones.
+				canceled = true;
+				pending.clear();
+			}
+
+			BuildParticipantDescriptor local = null;
+
+			for (BuildParticipantDescriptor desc : new ArrayList<>(pending)) {
+				if (!done.containsAll(_dependencies.get(desc))) {
+					continue;
+				}
+
+				if (desc.isConcurrent()) {
+					pending.remove(desc);
+					monitor.subTask("Building " + desc.getParticipant().getClass().getSimpleName());
+					Future<ParticipantTime> future = completion
+							.submit(() -> runParticipant(desc, action, buildStart));
+					running.put(future, desc);
+				} else if (local == null) {
+					local = desc;
+				}
+			}
+
+			if (local == null && running.isEmpty() && !pending.isEmpty()) {
+				// there is a dependency cycle, break it following the order
+				local = pending.iterator().next();
+				ProjectCore.logError(new IllegalStateException("Build participants dependency cycle at " + local));
+			}
+
+			if (local != null) {
+				pending.remove(local);
+				monitor.subTask("Building " + local.getParticipant().getClass().getSimpleName());
+				ParticipantTime time = runParticipant(local, action, buildStart);
+				participantDone(local, time, metrics, done, monitor);
+				continue;
+			}
+
+			try {
+				Future<ParticipantTime> future = completion.poll(100, TimeUnit.MILLISECONDS);
+				if (future != null) {
+					BuildParticipantDescriptor desc = running.remove(future);
+					participantDone(desc, future.get(), metrics, done, monitor);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				canceled = true;
+				pending.clear();
+			} catch (ExecutionException e) {
+				// runParticipant() catches all the participant errors
+				ProjectCore.logError(e);
+			}
+		}
+
+		metrics.setTimeMillis(currentTimeMillis() - buildStart);
+
+		if (canceled) {
+			throw new OperationCanceledException();
+		}
+
+		return metrics;
+	}
+
+	private static void participantDone(BuildParticipantDescriptor desc, ParticipantTime time, BuildMetrics metrics,
+			Set<BuildParticipantDescriptor> done, IProgressMonitor monitor) {
+		done.add(desc);
+		metrics.addParticipantTime(time);
+		monitor.worked(1);
+	}
+
+	private static ParticipantTime runParticipant(BuildParticipantDescriptor desc, IParticipantAction action,
+			long buildStart) {
+		String threadName = Thread.currentThread().getName();
+		long start = currentTimeMillis();
+		boolean failed = false;
+
+		try {
+			action.run(desc.getParticipant());
+		} catch (Exception e) {
+			failed = true;
+			ProjectCore.logError(e);
+		}
+
+		long time = currentTimeMillis() - start;
+
+		out.println("\t" + desc + " (done in " + time + "ms) [" + threadName + "]");
+
+		return new ParticipantTime(desc.getId(), threadName, start - buildStart, time, failed);
+	}
+}
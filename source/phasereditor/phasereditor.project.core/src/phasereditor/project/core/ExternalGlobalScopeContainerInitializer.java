@@ -21,9 +21,12 @@
 // USE OR OTHER DEALINGS IN THE SOFTWARE.
 package phasereditor.project.core;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
 
 import org.eclipse.wst.jsdt.core.JsGlobalScopeContainerInitializer;
 import org.eclipse.wst.jsdt.core.compiler.libraries.LibraryLocation;
@@ -71,11 +74,112 @@ public abstract class ExternalGlobalScopeContainerInitializer extends JsGlobalSc
 	@Override
 	public LibraryLocation getLibraryLocation() {
 		if (_libLocation == null) {
+			String workingFileName = computeWorkingFileName();
+			_libFileNameArray = new char[][] { workingFileName.toCharArray() };
 			_libLocation = new ExternalLibraryLocation();
+			deleteStaleWorkingFiles(workingFileName);
 		}
 		return _libLocation;
 	}
 
+	/**
+	 * The version of the library, used to name the working copy. By default it is
+	 * <code>null</code>, so only the content checksum is used.
+	 */
+	protected String getLibraryVersion() {
+		return null;
+	}
+
+	/**
+	 * The name of the copy of the library in the JSDT libraries folder. It
+	 * includes the version and the checksum of the library file, like
+	 * <code>phaser-api-2.6.2-1a2b3c4d.js</code>. When the library changes (like
+	 * in a Phaser update) it gets a new working copy, so JSDT does not keep using
+	 * a stale one. It does not change how the library is parsed or indexed.
+	 */
+	private String computeWorkingFileName() {
+		java.nio.file.Path file = getLibFolderPath().resolve(_libFileName);
+
+		CRC32 crc = new CRC32();
+
+		// the file is not mapped, a mapping keeps it locked on Windows until
+		// the buffer is collected
+		try {
+			crc.update(Files.readAllBytes(file));
+		} catch (IOException e) {
+			ProjectCore.logError(e);
+			return _libFileName;
+		}
+
+		StringBuilder sb = new StringBuilder(getWorkingFilePrefix());
+
+		String version = getLibraryVersion();
+
+		if (version != null) {
+			sb.append(version).append("-");
+		}
+
+		sb.append(Long.toHexString(crc.getValue())).append(".js");
+
+		return sb.toString();
+	}
+
+	private String getWorkingFilePrefix() {
+		String name = _libFileName;
+
+		if (name.endsWith(".js")) {
+			name = name.substring(0, name.length() - 3);
+		}
+
+		return name + "-";
+	}
+
+	/**
+	 * The pattern of the names computed by {@link #computeWorkingFileName()}, for
+	 * any version and checksum.
+	 */
+	private Pattern getWorkingFilePattern() {
+		StringBuilder sb = new StringBuilder(Pattern.quote(getWorkingFilePrefix()));
+
+		if (getLibraryVersion() != null) {
+			sb.append("\\d[\\w.\\-]*-");
+		}
+
+		sb.append("[0-9a-f]{1,8}\\.js");
+
+		return Pattern.compile(sb.toString());
+	}
+
+	/**
+	 * Removes the working copies of other versions of the library, and the copy
+	 * of the old (not versioned) name.
+	 */
+	private void deleteStaleWorkingFiles(String workingFileName) {
+		File[] files = _libLocation.getWorkingLibPath().toFile().listFiles();
+
+		if (files == null) {
+			return;
+		}
+
+		Pattern pattern = getWorkingFilePattern();
+
+		for (File file : files) {
+			String name = file.getName();
+
+			if (name.equals(workingFileName)) {
+				continue;
+			}
+
+			if (name.equals(_libFileName) || pattern.matcher(name).matches()) {
+				try {
+					Files.deleteIfExists(file.toPath());
+				} catch (IOException e) {
+					ProjectCore.logError(e);
+				}
+			}
+		}
+	}
+
 	@Override
 	public String getDescription() {
 		return _description;
@@ -67,10 +67,14 @@ public abstract class FileDataCache<TData> {
 		_cache.put(project, map);
 	}
 
-	public synchronized void buildDelta(IProject project, IResourceDelta delta) throws CoreException {
+	public void buildDelta(IProject project, IResourceDelta delta) throws CoreException {
+		buildDelta(project, ResourceDeltaIndex.build(delta));
+	}
+
+	public synchronized void buildDelta(IProject project, ResourceDeltaIndex index) {
 		Map<IPath, TData> map = getProjectMap(project);
 
-		delta.accept(new IResourceDeltaVisitor2() {
+		index.accept(new IResourceDeltaVisitor2() {
 
 			@Override
 			public void fileAdded(IFile file) {
@@ -62,7 +62,7 @@ public abstract class FileDataCacheBuilderParticipant<TData> implements IProject
 	@Override
 	public void build(IProject project, IResourceDelta delta, Map<String, Object> env) {
 		try {
-			getFileDataCache().buildDelta(project, delta);
+			getFileDataCache().buildDelta(project, ResourceDeltaIndex.getIndex(env, delta));
 		} catch (CoreException e) {
 			ProjectCore.logError(e);
 		}
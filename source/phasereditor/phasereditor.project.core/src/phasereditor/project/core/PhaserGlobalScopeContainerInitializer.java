@@ -45,6 +45,11 @@ public class PhaserGlobalScopeContainerInitializer extends ExternalGlobalScopeCo
 		return folder;
 	}
 
+	@Override
+	protected String getLibraryVersion() {
+		return InspectCore.PHASER_VERSION;
+	}
+
 	@Override
 	public boolean allowAttachJsDoc() {
 		return true;
@@ -26,6 +26,7 @@ import static java.lang.System.out;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
@@ -37,12 +38,14 @@ import org.eclipse.core.resources.IncrementalProjectBuilder;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
 
 public class PhaserProjectBuilder extends IncrementalProjectBuilder {
 
 	private static HashMap<IProject, Runnable> _actions = new HashMap<>();
 	private static boolean _registeredProjectDeleteListener = false;
 	private static boolean _startedFirstTime;
+	private static Map<IProject, BuildMetrics> _metrics = new ConcurrentHashMap<>();
 
 	public PhaserProjectBuilder() {
 		if (!_registeredProjectDeleteListener) {
@@ -97,20 +100,17 @@ public class PhaserProjectBuilder extends IncrementalProjectBuilder {
 
 		IProject project = getProject();
 
-		Map<String, Object> env = new HashMap<>();
+		Map<String, Object> env = new ConcurrentHashMap<>();
 
 		out.println("PhaserProjectBuilder.startupOnInitialize (start) [" + project.getName() + "]");
 
-		List<IProjectBuildParticipant> list = ProjectCore.getBuildParticipants();
+		BuildParticipantScheduler scheduler = new BuildParticipantScheduler(project,
+				ProjectCore.getBuildParticipantDescriptors());
 
-		for (IProjectBuildParticipant participant : list) {
-			try {
-				out.println("\t" + participant + " (building)");
-				participant.startupOnInitialize(project, env);
-			} catch (Exception e) {
-				ProjectCore.logError(e);
-			}
-		}
+		BuildMetrics metrics = scheduler.run("startup", participant -> participant.startupOnInitialize(project, env),
+				new NullProgressMonitor());
+
+		setLastBuildMetrics(metrics);
 
 		out.println("PhaserProjectBuilder.startupOnInitialize (done) [" + project.getName() + "]");
 
@@ -168,27 +168,30 @@ public class PhaserProjectBuilder extends IncrementalProjectBuilder {
 
 		// call all build participant!!!
 
-		Map<String, Object> env = new HashMap<>();
-		List<IProjectBuildParticipant> list = ProjectCore.getBuildParticipants();
+		Map<String, Object> env = new ConcurrentHashMap<>();
+		List<BuildParticipantDescriptor> list = ProjectCore.getBuildParticipantDescriptors();
+
+		IResourceDelta delta = fullBuild ? null : getDelta(project);
+
+		if (delta != null) {
+			// walk the delta only once, the participants use the index
+			ResourceDeltaIndex.setIndex(env, ResourceDeltaIndex.build(delta));
+		}
 
 		monitor.beginTask("Building Phaser elements", list.size());
 
-		for (IProjectBuildParticipant participant : list) {
-			try {
-				monitor.subTask("Building " + participant.getClass().getSimpleName());
-				out.println("\t" + participant + " (building)");
+		BuildParticipantScheduler scheduler = new BuildParticipantScheduler(project, list);
 
-				if (fullBuild) {
-					participant.fullBuild(project, env);
-				} else {
-					participant.build(project, getDelta(project), env);
-				}
-				monitor.worked(1);
-			} catch (Exception e) {
-				ProjectCore.logError(e);
-			}
+		BuildMetrics metrics;
+
+		if (fullBuild) {
+			metrics = scheduler.run("fullBuild", participant -> participant.fullBuild(project, env), monitor);
+		} else {
+			metrics = scheduler.run("build", participant -> participant.build(project, delta, env), monitor);
 		}
 
+		setLastBuildMetrics(metrics);
+
 		monitor.done();
 
 		if (fullBuild) {
@@ -202,6 +205,21 @@ public class PhaserProjectBuilder extends IncrementalProjectBuilder {
 		return null;
 	}
 
+	private static void setLastBuildMetrics(BuildMetrics metrics) {
+		_metrics.put(metrics.getProject(), metrics);
+		out.println("\t" + metrics.getKind() + " in " + metrics.getTimeMillis() + "ms");
+	}
+
+	/**
+	 * The time spent by the participants in the last build of the project.
+	 * 
+	 * @return The metrics or <code>null</code> if the project was not built
+	 *         yet.
+	 */
+	public static BuildMetrics getLastBuildMetrics(IProject project) {
+		return _metrics.get(project);
+	}
+
 	public static void setActionAfterFirstBuild(IProject project, Runnable runnable) {
 		_actions.put(project, runnable);
 	}
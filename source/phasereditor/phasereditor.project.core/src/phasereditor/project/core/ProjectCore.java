@@ -28,7 +28,6 @@ import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -127,34 +126,55 @@ public class ProjectCore {
 
 	public static List<IProjectBuildParticipant> getBuildParticipants() {
 		List<IProjectBuildParticipant> list = new ArrayList<>();
+		for (BuildParticipantDescriptor desc : getBuildParticipantDescriptors()) {
+			list.add(desc.getParticipant());
+		}
+		return list;
+	}
+
+	/**
+	 * The build participants, sorted by the declared order.
+	 */
+	public static List<BuildParticipantDescriptor> getBuildParticipantDescriptors() {
+		List<BuildParticipantDescriptor> list = new ArrayList<>();
 		IExtensionPoint point = Platform.getExtensionRegistry()
 				.getExtensionPoint("phasereditor.project.core.buildParticipant");
 
-		Map<IProjectBuildParticipant, String> orderMap = new HashMap<>();
-
 		for (IConfigurationElement element : point.getConfigurationElements()) {
 			try {
 				IProjectBuildParticipant participant = (IProjectBuildParticipant) element
 						.createExecutableExtension("handler");
-				list.add(participant);
-				String order = element.getAttribute("order");
-				orderMap.put(participant, order);
+
+				String id = element.getAttribute("id");
+
+				double order;
+				try {
+					order = Double.parseDouble(element.getAttribute("order"));
+				} catch (Exception e) {
+					order = 0;
+				}
+
+				List<String> dependsOn = null;
+				String dependsOnAttr = element.getAttribute("dependsOn");
+				if (dependsOnAttr != null) {
+					dependsOn = new ArrayList<>();
+					for (String dep : dependsOnAttr.split(",")) {
+						dep = dep.trim();
+						if (dep.length() > 0) {
+							dependsOn.add(dep);
+						}
+					}
+				}
+
+				boolean concurrent = Boolean.parseBoolean(element.getAttribute("concurrent"));
+
+				list.add(new BuildParticipantDescriptor(id, participant, order, dependsOn, concurrent));
 			} catch (Exception e) {
 				ProjectCore.logError(e);
 			}
 		}
 
-		list.sort((a, b) -> {
-
-			try {
-				String order1 = orderMap.get(a);
-				String order2 = orderMap.get(b);
-				int c = new Double(Double.parseDouble(order1)).compareTo(new Double(Double.parseDouble(order2)));
-				return c;
-			} catch (Exception e) {
-				return 0;
-			}
-		});
+		list.sort((a, b) -> Double.compare(a.getOrder(), b.getOrder()));
 
 		return list;
 	}
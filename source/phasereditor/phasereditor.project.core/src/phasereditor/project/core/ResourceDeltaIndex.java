@@ -0,0 +1,355 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2018 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.project.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.content.IContentDescription;
+import org.eclipse.core.runtime.content.IContentType;
+
+/**
+ * An immutable index of the files of a resource delta. The builder walks the
+ * delta only once and put the index in the build environment, so the
+ * participants do not need to walk the delta again or to query the content
+ * type of the files.
+ * 
+ * @author arian
+ *
+ */
+public class ResourceDeltaIndex {
+
+	private static final String ENV_KEY = "phasereditor.project.core.resourceDeltaIndex";
+
+	public static class FileDelta {
+		private IFile _file;
+		private int _kind;
+		private int _flags;
+		private IPath _movedFromPath;
+		private IPath _movedToPath;
+		private String _contentTypeId;
+		private String _extension;
+
+		FileDelta(IResourceDelta delta) {
+			_file = (IFile) delta.getResource();
+			_kind = delta.getKind();
+			_flags = delta.getFlags();
+			_movedFromPath = delta.getMovedFromPath();
+			_movedToPath = delta.getMovedToPath();
+
+			String ext = _file.getFileExtension();
+			_extension = ext == null ? "" : ext.toLowerCase();
+
+			if (_kind != IResourceDelta.REMOVED) {
+				_contentTypeId = computeContentTypeId(_file);
+			}
+		}
+
+		private static String computeContentTypeId(IFile file) {
+			try {
+				if (!file.exists()) {
+					return null;
+				}
+
+				IContentDescription desc = file.getContentDescription();
+
+				if (desc == null) {
+					return null;
+				}
+
+				IContentType type = desc.getContentType();
+
+				return type == null ? null : type.getId();
+			} catch (CoreException e) {
+				// the file is not synchronized
+				return null;
+			}
+		}
+
+		public IFile getFile() {
+			return _file;
+		}
+
+		/**
+		 * @return The kind of the delta, like {@link IResourceDelta#ADDED}.
+		 */
+		public int getKind() {
+			return _kind;
+		}
+
+		public int getFlags() {
+			return _flags;
+		}
+
+		public IPath getMovedFromPath() {
+			return _movedFromPath;
+		}
+
+		public IPath getMovedToPath() {
+			return _movedToPath;
+		}
+
+		/**
+		 * @return The content type of the file, or <code>null</code> if the file
+		 *         was removed or it has not a content type.
+		 */
+		public String getContentTypeId() {
+			return _contentTypeId;
+		}
+
+		/**
+		 * @return The lower case file extension, or an empty string.
+		 */
+		public String getExtension() {
+			return _extension;
+		}
+
+		/**
+		 * @return If the file was moved here from other location.
+		 */
+		public boolean isMovedFrom() {
+			return _kind == IResourceDelta.ADDED
+					&& (_flags & IResourceDelta.MOVED_FROM) == IResourceDelta.MOVED_FROM;
+		}
+
+		/**
+		 * @return If the file was moved from here to other location.
+		 */
+		public boolean isMovedTo() {
+			return _kind == IResourceDelta.REMOVED && (_flags & IResourceDelta.MOVED_TO) == IResourceDelta.MOVED_TO;
+		}
+
+		@Override
+		public String toString() {
+			return _file.getFullPath() + " (" + _kind + ")";
+		}
+	}
+
+	private List<FileDelta> _fileDeltas;
+	private List<FileDelta> _added;
+	private List<FileDelta> _removed;
+	private List<FileDelta> _changed;
+	private List<FileDelta> _moved;
+	private Map<IFile, FileDelta> _fileMap;
+	private Map<String, List<FileDelta>> _contentTypeMap;
+	private Map<String, List<FileDelta>> _extensionMap;
+
+	private ResourceDeltaIndex() {
+		_fileDeltas = new ArrayList<>();
+		_added = new ArrayList<>();
+		_removed = new ArrayList<>();
+		_changed = new ArrayList<>();
+		_moved = new ArrayList<>();
+		_fileMap = new HashMap<>();
+		_contentTypeMap = new HashMap<>();
+		_extensionMap = new HashMap<>();
+	}
+
+	public static ResourceDeltaIndex build(IResourceDelta delta) throws CoreException {
+		ResourceDeltaIndex index = new ResourceDeltaIndex();
+
+		if (delta != null) {
+			delta.accept(d -> {
+				IResource resource = d.getResource();
+				if (resource instanceof IFile) {
+					index.add(new FileDelta(d));
+				}
+				return true;
+			});
+		}
+
+		index.freeze();
+
+		return index;
+	}
+
+	private void add(FileDelta fileDelta) {
+		_fileDeltas.add(fileDelta);
+
+		switch (fileDelta.getKind()) {
+		case IResourceDelta.ADDED:
+			if (fileDelta.isMovedFrom()) {
+				_moved.add(fileDelta);
+			} else {
+				_added.add(fileDelta);
+			}
+			break;
+		case IResourceDelta.REMOVED:
+			if (fileDelta.isMovedTo()) {
+				// it will be reported as a move by the ADDED delta, but keep
+				// the file map pointing to the new state of the file
+				return;
+			}
+			_removed.add(fileDelta);
+			break;
+		case IResourceDelta.CHANGED:
+			_changed.add(fileDelta);
+			break;
+		default:
+			return;
+		}
+
+		_fileMap.put(fileDelta.getFile(), fileDelta);
+
+		String contentType = fileDelta.getContentTypeId();
+		if (contentType != null) {
+			_contentTypeMap.computeIfAbsent(contentType, k -> new ArrayList<>()).add(fileDelta);
+		}
+
+		_extensionMap.computeIfAbsent(fileDelta.getExtension(), k -> new ArrayList<>()).add(fileDelta);
+	}
+
+	private void freeze() {
+		_fileDeltas = Collections.unmodifiableList(_fileDeltas);
+		_added = Collections.unmodifiableList(_added);
+		_removed = Collections.unmodifiableList(_removed);
+		_changed = Collections.unmodifiableList(_changed);
+		_moved = Collections.unmodifiableList(_moved);
+
+		_contentTypeMap.replaceAll((k, v) -> Collections.unmodifiableList(v));
+		_extensionMap.replaceAll((k, v) -> Collections.unmodifiableList(v));
+	}
+
+	/**
+	 * Get the index shared by the build participants.
+	 * 
+	 * @param env
+	 *            The build environment.
+	 * @param delta
+	 *            The delta to index if it is not present in the environment
+	 *            (for example, when the participant is not called by the
+	 *            builder).
+	 * @return The delta index.
+	 */
+	public static ResourceDeltaIndex getIndex(Map<String, Object> env, IResourceDelta delta) throws CoreException {
+		ResourceDeltaIndex index = (ResourceDeltaIndex) env.get(ENV_KEY);
+
+		if (index == null) {
+			index = build(delta);
+		}
+
+		return index;
+	}
+
+	public static void setIndex(Map<String, Object> env, ResourceDeltaIndex index) {
+		env.put(ENV_KEY, index);
+	}
+
+	/**
+	 * @return All the file deltas, in the order of the delta tree, including
+	 *         the {@link FileDelta#isMovedTo()} ones.
+	 */
+	public List<FileDelta> getFileDeltas() {
+		return _fileDeltas;
+	}
+
+	public List<FileDelta> getAddedFiles() {
+		return _added;
+	}
+
+	public List<FileDelta> getRemovedFiles() {
+		return _removed;
+	}
+
+	public List<FileDelta> getChangedFiles() {
+		return _changed;
+	}
+
+	/**
+	 * @return The files moved to a new location. The delta is the one of the
+	 *         new file, with the {@link FileDelta#getMovedFromPath()} set.
+	 */
+	public List<FileDelta> getMovedFiles() {
+		return _moved;
+	}
+
+	/**
+	 * @return The delta of the file (added, removed, changed or moved) or
+	 *         <code>null</code> if the file is not in the delta.
+	 */
+	public FileDelta getFileDelta(IFile file) {
+		return _fileMap.get(file);
+	}
+
+	public String getContentTypeId(IFile file) {
+		FileDelta fileDelta = _fileMap.get(file);
+		return fileDelta == null ? null : fileDelta.getContentTypeId();
+	}
+
+	public List<FileDelta> getFilesByContentType(String contentTypeId) {
+		return _contentTypeMap.getOrDefault(contentTypeId, Collections.emptyList());
+	}
+
+	/**
+	 * @param extension
+	 *            The lower case extension, without the dot.
+	 */
+	public List<FileDelta> getFilesByExtension(String extension) {
+		return _extensionMap.getOrDefault(extension, Collections.emptyList());
+	}
+
+	public boolean isEmpty() {
+		return _fileDeltas.isEmpty();
+	}
+
+	/**
+	 * Replay the file events to the visitor, in the same order and with the
+	 * same semantic of a {@link IResourceDelta#accept(org.eclipse.core.resources.IResourceDeltaVisitor)}
+	 * call.
+	 */
+	public void accept(IResourceDeltaVisitor2 visitor) {
+		for (FileDelta fileDelta : _fileDeltas) {
+			IFile file = fileDelta.getFile();
+
+			switch (fileDelta.getKind()) {
+			case IResourceDelta.ADDED:
+				if (fileDelta.isMovedFrom()) {
+					visitor.fileMovedTo(file, fileDelta.getMovedFromPath(), file.getFullPath());
+				} else {
+					visitor.fileAdded(file);
+				}
+				visitor.fileVisited(file);
+				break;
+			case IResourceDelta.REMOVED:
+				if (!fileDelta.isMovedTo()) {
+					visitor.fileRemoved(file);
+					visitor.fileVisited(file);
+				}
+				break;
+			case IResourceDelta.CHANGED:
+				visitor.fileChanged(file);
+				visitor.fileVisited(file);
+				break;
+			default:
+				break;
+			}
+		}
+	}
+}
@@ -0,0 +1,169 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2018 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.project.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An inverted index of the (lower case) trigrams of a list of texts. It is used
+ * to get the candidate texts of a query, before to verify them with the query
+ * pattern.
+ * 
+ * @author arian
+ *
+ */
+public class TrigramIndex {
+	private static final int[] EMPTY = new int[0];
+
+	private final Map<Long, int[]> _postings;
+	private final int _size;
+
+	public TrigramIndex(List<String> texts) {
+		_size = texts.size();
+
+		// first pass, count the texts of every trigram
+
+		Map<Long, int[]> counts = new HashMap<>();
+		long[][] textGrams = new long[_size][];
+
+		for (int i = 0; i < _size; i++) {
+			long[] grams = trigrams(texts.get(i).toLowerCase());
+			textGrams[i] = grams;
+			for (long gram : grams) {
+				counts.computeIfAbsent(Long.valueOf(gram), k -> new int[2])[0]++;
+			}
+		}
+
+		// second pass, fill the posting lists, sorted by text index. The
+		// count array is reused as [size, cursor].
+
+		_postings = new HashMap<>(counts.size() * 2);
+
+		for (Map.Entry<Long, int[]> entry : counts.entrySet()) {
+			_postings.put(entry.getKey(), new int[entry.getValue()[0]]);
+		}
+
+		for (int i = 0; i < _size; i++) {
+			for (long gram : textGrams[i]) {
+				Long key = Long.valueOf(gram);
+				int[] count = counts.get(key);
+				_postings.get(key)[count[1]++] = i;
+			}
+		}
+	}
+
+	public int size() {
+		return _size;
+	}
+
+	/**
+	 * Get the indexes of the texts containing all the given fragments, or
+	 * better, all the trigrams of the fragments. The result could contain
+	 * false positives, so the texts should be verified.
+	 * 
+	 * @param fragments
+	 *            The literal fragments of the query, in lower case.
+	 * @return The sorted indexes of the candidate texts, or <code>null</code>
+	 *         if the fragments are too short to filter the texts.
+	 */
+	public int[] getCandidates(List<String> fragments) {
+		List<int[]> lists = new ArrayList<>();
+
+		for (String fragment : fragments) {
+			for (long gram : trigrams(fragment)) {
+				int[] list = _postings.get(Long.valueOf(gram));
+				if (list == null) {
+					return EMPTY;
+				}
+				lists.add(list);
+			}
+		}
+
+		if (lists.isEmpty()) {
+			return null;
+		}
+
+		// intersect the shortest lists first
+
+		lists.sort((a, b) -> a.length - b.length);
+
+		int[] result = lists.get(0);
+
+		for (int i = 1; i < lists.size() && result.length > 0; i++) {
+			result = intersect(result, lists.get(i));
+		}
+
+		return result;
+	}
+
+	private static int[] intersect(int[] a, int[] b) {
+		int[] result = new int[Math.min(a.length, b.length)];
+		int n = 0;
+		int i = 0;
+		int j = 0;
+
+		while (i < a.length && j < b.length) {
+			if (a[i] < b[j]) {
+				i++;
+			} else if (a[i] > b[j]) {
+				j++;
+			} else {
+				result[n++] = a[i];
+				i++;
+				j++;
+			}
+		}
+
+		return n == result.length ? result : Arrays.copyOf(result, n);
+	}
+
+	private static long[] trigrams(String str) {
+		int n = str.length() - 2;
+
+		if (n <= 0) {
+			return new long[0];
+		}
+
+		long[] grams = new long[n];
+
+		for (int i = 0; i < n; i++) {
+			grams[i] = ((long) str.charAt(i) << 32) | ((long) str.charAt(i + 1) << 16) | str.charAt(i + 2);
+		}
+
+		// remove duplicated
+
+		Arrays.sort(grams);
+
+		int size = 1;
+		for (int i = 1; i < n; i++) {
+			if (grams[i] != grams[size - 1]) {
+				grams[size++] = grams[i];
+			}
+		}
+
+		return size == n ? grams : Arrays.copyOf(grams, size);
+	}
+}
@@ -28,6 +28,16 @@ import org.eclipse.swt.graphics.RGB;
  *
  */
 public abstract class BaseCodeGenerator implements ICodeGenerator {
+	private static final String[] INDENT_TABS;
+
+	static {
+		INDENT_TABS = new String[16];
+		INDENT_TABS[0] = "";
+		for (int i = 1; i < INDENT_TABS.length; i++) {
+			INDENT_TABS[i] = INDENT_TABS[i - 1] + "\t";
+		}
+	}
+
 	private final StringBuilder _sb;
 	private String _replace;
 	private int _indent;
@@ -41,6 +51,11 @@ public abstract class BaseCodeGenerator implements ICodeGenerator {
 	public final String generate(String replace) {
 		_replace = replace == null ? "" : replace;
 
+		// the same buffer is used if the generator is called again
+		_sb.setLength(0);
+		_sb.ensureCapacity(_replace.length());
+		_indent = 0;
+
 		internalGenerate();
 
 		return _sb.toString();
@@ -154,6 +169,10 @@ public abstract class BaseCodeGenerator implements ICodeGenerator {
 	}
 
 	public String getIndentTabs() {
+		if (_indent >= 0 && _indent < INDENT_TABS.length) {
+			return INDENT_TABS[_indent];
+		}
+
 		StringBuilder sb = new StringBuilder();
 		for (int i = 0; i < _indent; i++) {
 			sb.append("\t");
@@ -22,8 +22,13 @@
 package phasereditor.text.ui;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.swt.graphics.Image;
 
@@ -54,6 +59,7 @@ import phasereditor.assetpack.ui.preview.SpritesheetAssetInformationControl;
 import phasereditor.assetpack.ui.preview.TilemapJSONAssetInformationControl;
 import phasereditor.assetpack.ui.preview.TilemapTilesetInformationControl;
 import phasereditor.assetpack.ui.preview.VideoAssetScreenshotInformationControl;
+import phasereditor.text.ui.ProposalCatalog.Entry;
 import phasereditor.ui.info.GenericInformationControlCreator;
 
 public class AssetProposalComputer extends BaseProposalComputer {
@@ -65,6 +71,7 @@ public class AssetProposalComputer extends BaseProposalComputer {
 	private static final int SECTION_KEY_ORDER = 1000;
 	protected static Image _elementImage;
 	private static AssetLabelProvider _labelProvider;
+	private static Map<AssetPackModel, ProposalCatalog> _catalogs = new IdentityHashMap<>();
 
 	static {
 		_elementImage = AssetLabelProvider.getElementImage();
@@ -77,145 +84,241 @@ public class AssetProposalComputer extends BaseProposalComputer {
 	@Override
 	protected List<ProposalData> computeProjectProposals(IProject project) {
 		List<ProposalData> list = new ArrayList<>();
-		List<AssetPackModel> models = AssetPackCore.getAssetPackModels(project);
 
-		for (AssetPackModel model : models) {
-			list.addAll(computeAssetProposals(model));
+		for (ProposalCatalog catalog : getCatalogs(project)) {
+			list.addAll(ProposalCatalog.createProposalData(catalog.getEntries()));
 		}
 
 		return list;
 	}
 
-	private static List<ProposalData> computeAssetProposals(AssetPackModel pack) {
-		List<ProposalData> list = new ArrayList<>();
+	@Override
+	protected List<ProposalData> computeMatchingProposals(IProject project, String token, int limit) {
+		List<ProposalCatalog> catalogs = getCatalogs(project);
+		List<Entry> hits = new ArrayList<>();
+
+		for (ProposalCatalog catalog : catalogs) {
+			catalog.collectPrefixMatches(token, hits, limit);
+		}
+
+		for (ProposalCatalog catalog : catalogs) {
+			catalog.collectSubstringMatches(token, hits, limit);
+		}
+
+		return ProposalCatalog.createProposalData(hits);
+	}
+
+	/**
+	 * Get the catalogs of the packs of the project, building those missing. The
+	 * catalogs of the packs not present anymore in the project are discarded.
+	 */
+	private static List<ProposalCatalog> getCatalogs(IProject project) {
+		List<AssetPackModel> packs = AssetPackCore.getAssetPackModels(project);
+		List<ProposalCatalog> result = new ArrayList<>(packs.size());
+
+		synchronized (_catalogs) {
+			Set<AssetPackModel> current = new HashSet<>(packs);
+			_catalogs.keySet().removeIf(pack -> !current.contains(pack) && isPackOf(pack, project));
+		}
+
+		for (AssetPackModel pack : packs) {
+			ProposalCatalog catalog;
+
+			synchronized (_catalogs) {
+				catalog = _catalogs.get(pack);
+			}
+
+			if (catalog == null) {
+				catalog = buildCatalog(pack);
+
+				synchronized (_catalogs) {
+					_catalogs.put(pack, catalog);
+				}
+			}
+
+			result.add(catalog);
+		}
+
+		return result;
+	}
+
+	private static boolean isPackOf(AssetPackModel pack, IProject project) {
+		IFile file = pack.getFile();
+		return file == null || project.equals(file.getProject());
+	}
+
+	/**
+	 * Discards the catalog of the given pack, it is built again the next time
+	 * it is needed.
+	 */
+	public static void invalidateCatalog(AssetPackModel pack) {
+		synchronized (_catalogs) {
+			_catalogs.remove(pack);
+		}
+	}
+
+	/**
+	 * Discards the catalogs of all the packs of the project.
+	 */
+	public static void invalidateCatalogs(IProject project) {
+		synchronized (_catalogs) {
+			_catalogs.keySet().removeIf(pack -> isPackOf(pack, project));
+		}
+	}
+
+	private static ProposalCatalog buildCatalog(AssetPackModel pack) {
+		List<Entry> list = new ArrayList<>();
 		List<AssetSectionModel> sections = pack.getSections();
 
 		for (AssetSectionModel section : sections) {
 
 			// section key
 
-			String assetKey = section.getKey();
-			if (assetKey != null) {
-				String display = "\"" + assetKey + "\" - section";
-				ProposalData propData = new ProposalData(section, assetKey, display, SECTION_KEY_ORDER);
-				propData.setImage(AssetLabelProvider.getKeyImage());
-				propData.setControlCreator(new GenericInformationControlCreator(OtherAssetInformationControl.class,
-						OtherAssetInformationControl::new));
-				list.add(propData);
+			String sectionKey = section.getKey();
+			if (sectionKey != null) {
+				list.add(new Entry(sectionKey, () -> {
+					String display = "\"" + sectionKey + "\" - section";
+					ProposalData propData = new ProposalData(section, sectionKey, display, SECTION_KEY_ORDER);
+					propData.setImage(AssetLabelProvider.getKeyImage());
+					propData.setControlCreator(new GenericInformationControlCreator(OtherAssetInformationControl.class,
+							OtherAssetInformationControl::new));
+					return propData;
+				}));
 			}
 
 			// asset key
 
 			for (AssetModel asset : section.getAssets()) {
-				assetKey = asset.getKey();
-				AssetType type = asset.getType();
+				String assetKey = asset.getKey() == null ? "<key no set>" : asset.getKey();
 
-				if (assetKey == null) {
-					assetKey = "<key no set>";
-				}
+				list.add(new Entry(assetKey, () -> createAssetProposal(asset, assetKey)));
 
-				ProposalData propData;
-				{
-					String display = "\"" + assetKey + "\" - " + type;
-					propData = new ProposalData(asset, assetKey, display, ASSET_KEY_ORDER + type.ordinal());
-					propData.setControlCreator(new GenericInformationControlCreator(OtherAssetInformationControl.class,
-							OtherAssetInformationControl::new));
-					propData.setImage(_labelProvider.getImage(asset));
-					list.add(propData);
-				}
-				
-				switch (type) {
-				case image:
-					propData.setControlCreator(new GenericInformationControlCreator(ImageAssetInformationControl.class,
-							ImageAssetInformationControl::new));
-					break;
-				case spritesheet:
-					propData.setControlCreator(new GenericInformationControlCreator(
-							SpritesheetAssetInformationControl.class, SpritesheetAssetInformationControl::new));
-					break;
-				case bitmapFont:
-					propData.setControlCreator(new GenericInformationControlCreator(
-							BitmapFontAssetInformationControl.class, BitmapFontAssetInformationControl::new));
-					break;
+				switch (asset.getType()) {
 				case audiosprite:
-					propData.setControlCreator(new GenericInformationControlCreator(
-							AudioSpriteAssetInformationControl.class, AudioSpriteAssetInformationControl::new));
 					List<AssetAudioSprite> spritemap = ((AudioSpriteAssetModel) asset).getSpriteMap();
 					for (AssetAudioSprite sprite : spritemap) {
 						if (sprite.getName() != null) {
-							String display = "\"" + sprite.getName() + "\" - sprite of audiosprite";
-							ProposalData proposal = new ProposalData(sprite, sprite.getName(), display,
-									SPRITE_AUDIO_ORDER);
-							proposal.setControlCreator(new GenericInformationControlCreator(
-									AudioSpriteAssetElementInformationControl.class,
-									AudioSpriteAssetElementInformationControl::new));
-							proposal.setImage(_labelProvider.getImage(asset));
-							list.add(proposal);
+							list.add(new Entry(sprite.getName(), () -> {
+								String display = "\"" + sprite.getName() + "\" - sprite of audiosprite";
+								ProposalData proposal = new ProposalData(sprite, sprite.getName(), display,
+										SPRITE_AUDIO_ORDER);
+								proposal.setControlCreator(new GenericInformationControlCreator(
+										AudioSpriteAssetElementInformationControl.class,
+										AudioSpriteAssetElementInformationControl::new));
+								proposal.setImage(_labelProvider.getImage(asset));
+								return proposal;
+							}));
 						}
 					}
 					break;
 				case atlas:
-					propData.setControlCreator(new GenericInformationControlCreator(AtlasAssetInformationControl.class,
-							AtlasAssetInformationControl::new));
-
 					List<Frame> frames = ((AtlasAssetModel) asset).getAtlasFrames();
 					for (Frame frame : frames) {
 						String name = frame.getName();
 						if (name != null) {
-							String display = "\"" + name + "\" - sprite of atlas";
-							ProposalData proposal = new ProposalData(frame, name, display, SPRITE_ATLAS_ORDER);
-							proposal.setControlCreator(new GenericInformationControlCreator(
-									AtlasFrameInformationControl.class, AtlasFrameInformationControl::new));
-							proposal.setImage(_labelProvider.getImage(frame));
-							list.add(proposal);
+							list.add(new Entry(name, () -> {
+								String display = "\"" + name + "\" - sprite of atlas";
+								ProposalData proposal = new ProposalData(frame, name, display, SPRITE_ATLAS_ORDER);
+								proposal.setControlCreator(new GenericInformationControlCreator(
+										AtlasFrameInformationControl.class, AtlasFrameInformationControl::new));
+								proposal.setImage(_labelProvider.getImage(frame));
+								return proposal;
+							}));
 						}
 					}
 					break;
 				case tilemap: {
-					propData.setControlCreator(new GenericInformationControlCreator(
-							TilemapJSONAssetInformationControl.class, TilemapJSONAssetInformationControl::new));
-
 					TilemapJSON tilemap = ((TilemapAssetModel) asset).getTilemapJSON();
 
 					for (Layer layer : tilemap.getLayers()) {
-						String display = "\"" + layer.getName() + "\" - layer of tilemap";
-						ProposalData proposal = new ProposalData(layer, layer.getName(), display, TILEMAP_ORDER);
-						proposal.setImage(_elementImage);
-						list.add(proposal);
+						list.add(new Entry(layer.getName(), () -> {
+							String display = "\"" + layer.getName() + "\" - layer of tilemap";
+							ProposalData proposal = new ProposalData(layer, layer.getName(), display, TILEMAP_ORDER);
+							proposal.setImage(_elementImage);
+							return proposal;
+						}));
 					}
 					for (Tileset tileset : tilemap.getTilesets()) {
-						String display = "\"" + tileset.getName() + "\" - tileset of tilemap";
-						ProposalData proposal = new ProposalData(tileset, tileset.getName(), display, TILEMAP_ORDER);
-						proposal.setControlCreator(new GenericInformationControlCreator(
-								TilemapTilesetInformationControl.class, TilemapTilesetInformationControl::new));
-						proposal.setImage(_elementImage);
-						list.add(proposal);
+						list.add(new Entry(tileset.getName(), () -> {
+							String display = "\"" + tileset.getName() + "\" - tileset of tilemap";
+							ProposalData proposal = new ProposalData(tileset, tileset.getName(), display,
+									TILEMAP_ORDER);
+							proposal.setControlCreator(new GenericInformationControlCreator(
+									TilemapTilesetInformationControl.class, TilemapTilesetInformationControl::new));
+							proposal.setImage(_elementImage);
+							return proposal;
+						}));
 					}
 					break;
 				}
 				case physics: {
-					GenericInformationControlCreator controlCreator = new GenericInformationControlCreator(
-							PhysicsAssetInformationControl.class, PhysicsAssetInformationControl::new);
-					propData.setControlCreator(controlCreator);
 					List<PhysicsAssetModel.SpriteData> sprites = ((PhysicsAssetModel) asset).getSprites();
 					for (PhysicsAssetModel.SpriteData sprite : sprites) {
-						String display = "\"" + sprite.getName() + "\" - sprite of physics";
-						ProposalData proposal = new ProposalData(sprite, sprite.getName(), display, TILEMAP_ORDER);
-						proposal.setControlCreator(controlCreator);
-						proposal.setImage(_elementImage);
-						list.add(proposal);
+						list.add(new Entry(sprite.getName(), () -> {
+							String display = "\"" + sprite.getName() + "\" - sprite of physics";
+							ProposalData proposal = new ProposalData(sprite, sprite.getName(), display, TILEMAP_ORDER);
+							proposal.setControlCreator(new GenericInformationControlCreator(
+									PhysicsAssetInformationControl.class, PhysicsAssetInformationControl::new));
+							proposal.setImage(_elementImage);
+							return proposal;
+						}));
 					}
 					break;
 				}
-				case video:
-					propData.setControlCreator(new GenericInformationControlCreator(VideoAssetScreenshotInformationControl.class,
-							VideoAssetScreenshotInformationControl::new));
-					break;
 				default:
 					break;
 				}
 			}
 		}
-		return list;
+
+		return new ProposalCatalog(list);
+	}
+
+	private static ProposalData createAssetProposal(AssetModel asset, String assetKey) {
+		AssetType type = asset.getType();
+		String display = "\"" + assetKey + "\" - " + type;
+		ProposalData propData = new ProposalData(asset, assetKey, display, ASSET_KEY_ORDER + type.ordinal());
+		propData.setImage(_labelProvider.getImage(asset));
+
+		switch (type) {
+		case image:
+			propData.setControlCreator(new GenericInformationControlCreator(ImageAssetInformationControl.class,
+					ImageAssetInformationControl::new));
+			break;
+		case spritesheet:
+			propData.setControlCreator(new GenericInformationControlCreator(SpritesheetAssetInformationControl.class,
+					SpritesheetAssetInformationControl::new));
+			break;
+		case bitmapFont:
+			propData.setControlCreator(new GenericInformationControlCreator(BitmapFontAssetInformationControl.class,
+					BitmapFontAssetInformationControl::new));
+			break;
+		case audiosprite:
+			propData.setControlCreator(new GenericInformationControlCreator(AudioSpriteAssetInformationControl.class,
+					AudioSpriteAssetInformationControl::new));
+			break;
+		case atlas:
+			propData.setControlCreator(new GenericInformationControlCreator(AtlasAssetInformationControl.class,
+					AtlasAssetInformationControl::new));
+			break;
+		case tilemap:
+			propData.setControlCreator(new GenericInformationControlCreator(TilemapJSONAssetInformationControl.class,
+					TilemapJSONAssetInformationControl::new));
+			break;
+		case physics:
+			propData.setControlCreator(new GenericInformationControlCreator(PhysicsAssetInformationControl.class,
+					PhysicsAssetInformationControl::new));
+			break;
+		case video:
+			propData.setControlCreator(new GenericInformationControlCreator(
+					VideoAssetScreenshotInformationControl.class, VideoAssetScreenshotInformationControl::new));
+			break;
+		default:
+			propData.setControlCreator(new GenericInformationControlCreator(OtherAssetInformationControl.class,
+					OtherAssetInformationControl::new));
+			break;
+		}
+
+		return propData;
 	}
 }
@@ -36,6 +36,11 @@ import org.eclipse.wst.jsdt.ui.text.java.JavaContentAssistInvocationContext;
 
 public abstract class BaseProposalComputer implements IJavaCompletionProposalComputer {
 
+	/**
+	 * The maximum number of proposals computed in a content assist request.
+	 */
+	protected static final int MAX_PROPOSALS = 200;
+
 	@Override
 	public List<ICompletionProposal> computeCompletionProposals(ContentAssistInvocationContext context,
 			IProgressMonitor monitor) {
@@ -48,30 +53,16 @@ public abstract class BaseProposalComputer implements IJavaCompletionProposalCom
 			char[] token = coreContext.getToken();
 			if (token != null) {
 				IProject project = javaContext.getCompilationUnit().getJavaScriptProject().getProject();
-				List<ProposalData> propDataList = computeProjectProposals(project);
-
-				if (propDataList.size() > 0) {
-
-					String prefix = new String(token).toLowerCase();
-
-					List<ICompletionProposal> list = new ArrayList<>();
+				String prefix = new String(token).toLowerCase();
+				List<ProposalData> propDataList = computeMatchingProposals(project, prefix, MAX_PROPOSALS);
 
-					for (ProposalData propData : propDataList) {
-						String name = propData.getName().toLowerCase();
+				List<ICompletionProposal> list = new ArrayList<>(propDataList.size());
 
-						int index = name.indexOf(prefix);
-						if (index >= 0) {
-							CompletionProposal proposal = createCompletionProposal(coreContext, propData);
-							if (index == 0) {
-								list.add(0, proposal);
-							} else {
-								list.add(proposal);
-							}
-						}
-					}
-
-					return list;
+				for (ProposalData propData : propDataList) {
+					list.add(createCompletionProposal(coreContext, propData));
 				}
+
+				return list;
 			}
 		}
 		return Collections.emptyList();
@@ -79,6 +70,38 @@ public abstract class BaseProposalComputer implements IJavaCompletionProposalCom
 
 	protected abstract List<ProposalData> computeProjectProposals(IProject project);
 
+	/**
+	 * Computes the proposals with a name containing the token, first those
+	 * starting with the token. By default it filters all the project proposals,
+	 * computers with a lot of proposals should override it to look up an index.
+	 * 
+	 * @param token
+	 *            The lower case token.
+	 * @param limit
+	 *            The maximum number of proposals to return.
+	 */
+	protected List<ProposalData> computeMatchingProposals(IProject project, String token, int limit) {
+		List<ProposalData> prefixList = new ArrayList<>();
+		List<ProposalData> containsList = new ArrayList<>();
+
+		for (ProposalData propData : computeProjectProposals(project)) {
+			int index = propData.getName().toLowerCase().indexOf(token);
+			if (index == 0) {
+				prefixList.add(propData);
+			} else if (index > 0) {
+				containsList.add(propData);
+			}
+		}
+
+		prefixList.addAll(containsList);
+
+		if (prefixList.size() > limit) {
+			return prefixList.subList(0, limit);
+		}
+
+		return prefixList;
+	}
+
 	private static CompletionProposal createCompletionProposal(CompletionContext coreContext, ProposalData propData) {
 
 		int len = propData.getName().length();
@@ -0,0 +1,162 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2015, 2018 Arian Fornaris
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the
+// "Software"), to deal in the Software without restriction, including
+// without limitation the rights to use, copy, modify, merge, publish,
+// distribute, sublicense, and/or sell copies of the Software, and to permit
+// persons to whom the Software is furnished to do so, subject to the
+// following conditions: The above copyright notice and this permission
+// notice shall be included in all copies or substantial portions of the
+// Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+// OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+// MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN
+// NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+// DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+// OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE
+// USE OR OTHER DEALINGS IN THE SOFTWARE.
+package phasereditor.text.ui;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+import phasereditor.project.core.TrigramIndex;
+
+/**
+ * An immutable index of completion entries. The names are sorted, so the
+ * entries starting with a token are found with a binary search, and a trigram
+ * index is used to find the entries containing the token. The
+ * {@link ProposalData} of an entry is created only when it is requested, so
+ * images and information controls are built only for the proposals that are
+ * shown.
+ * 
+ * @author arian
+ *
+ */
+public class ProposalCatalog {
+
+	public static class Entry {
+		private final String _name;
+		private final String _lowerName;
+		private final Supplier<ProposalData> _factory;
+
+		public Entry(String name, Supplier<ProposalData> factory) {
+			_name = name;
+			_lowerName = name.toLowerCase();
+			_factory = factory;
+		}
+
+		public String getName() {
+			return _name;
+		}
+
+		public ProposalData createProposalData() {
+			return _factory.get();
+		}
+	}
+
+	private final Entry[] _entries;
+	private final TrigramIndex _trigramIndex;
+
+	public ProposalCatalog(List<Entry> entries) {
+		_entries = entries.toArray(new Entry[entries.size()]);
+
+		Arrays.sort(_entries, (a, b) -> a._lowerName.compareTo(b._lowerName));
+
+		List<String> names = new ArrayList<>(_entries.length);
+		for (Entry entry : _entries) {
+			names.add(entry._lowerName);
+		}
+
+		_trigramIndex = new TrigramIndex(names);
+	}
+
+	public int size() {
+		return _entries.length;
+	}
+
+	public List<Entry> getEntries() {
+		return Collections.unmodifiableList(Arrays.asList(_entries));
+	}
+
+	/**
+	 * Adds to the result the entries with a name starting with the given token,
+	 * until the result reaches the limit.
+	 * 
+	 * @param token
+	 *            The lower case token.
+	 */
+	public void collectPrefixMatches(String token, List<Entry> result, int limit) {
+		int i = lowerBound(token);
+
+		while (i < _entries.length && result.size() < limit && _entries[i]._lowerName.startsWith(token)) {
+			result.add(_entries[i]);
+			i++;
+		}
+	}
+
+	/**
+	 * Adds to the result the entries with a name containing the given token but
+	 * not starting with it, until the result reaches the limit.
+	 * 
+	 * @param token
+	 *            The lower case token.
+	 */
+	public void collectSubstringMatches(String token, List<Entry> result, int limit) {
+		if (token.length() == 0) {
+			// all the entries are prefix matches
+			return;
+		}
+
+		if (token.length() < 3) {
+			for (int i = 0; i < _entries.length && result.size() < limit; i++) {
+				if (_entries[i]._lowerName.indexOf(token) > 0) {
+					result.add(_entries[i]);
+				}
+			}
+			return;
+		}
+
+		// verify only the entries containing all the trigrams of the token
+
+		int[] candidates = _trigramIndex.getCandidates(Collections.singletonList(token));
+
+		for (int i = 0; i < candidates.length && result.size() < limit; i++) {
+			Entry entry = _entries[candidates[i]];
+			if (entry._lowerName.indexOf(token) > 0) {
+				result.add(entry);
+			}
+		}
+	}
+
+	private int lowerBound(String token) {
+		int low = 0;
+		int high = _entries.length;
+
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (_entries[mid]._lowerName.compareTo(token) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+
+		return low;
+	}
+
+	public static List<ProposalData> createProposalData(List<Entry> entries) {
+		List<ProposalData> list = new ArrayList<>(entries.size());
+		for (Entry entry : entries) {
+			list.add(entry.createProposalData());
+		}
+		return list;
+	}
+}
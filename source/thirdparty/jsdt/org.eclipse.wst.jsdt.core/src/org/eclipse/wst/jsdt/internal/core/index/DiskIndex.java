@@ -11,11 +11,18 @@
 package org.eclipse.wst.jsdt.internal.core.index;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.io.UTFDataFormatException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.eclipse.core.runtime.ISafeRunnable;
 import org.eclipse.wst.jsdt.core.compiler.CharOperation;
@@ -44,18 +51,22 @@ private HashtableOfIntValues categoryOffsets, categoryEnds;
 
 private volatile int cacheUserCount;
 private String[][] cachedChunks; // decompressed chunks of document names
+private LinkedHashMap recentChunks; // chunk number -> decompressed chunk of document names, kept across queries
+private ByteBuffer fileBuffer; // the index file, mapped while queries are running
 private HashtableOfObject categoryTables; // category name -> HashtableOfObject(words -> int[] of document #'s) or offset if not read yet
 private char[] cachedCategoryName;
 
 private Object fStopQueryAction;
 
 private static final int DEFAULT_BUFFER_SIZE = 2048;
-private static int BUFFER_READ_SIZE = DEFAULT_BUFFER_SIZE;
 private static final int BUFFER_WRITE_SIZE = DEFAULT_BUFFER_SIZE;
 private byte[] streamBuffer;
-private int bufferIndex, bufferEnd; // used when reading from the file into the streamBuffer
+private int bufferIndex; // used when writing data to the streamBuffer
 private int streamEnd; // used when writing data from the streamBuffer to the file
 
+private static final int RECENT_CHUNKS_SIZE = 16;
+private static boolean MAP_FILES = true; // turned off if a mapped file cannot be released
+
 public static final String SIGNATURE= "INDEX VERSION 1.3"; //$NON-NLS-1$
 private static final char[] SIGNATURE_CHARS = SIGNATURE.toCharArray();
 public static boolean DEBUG = false;
@@ -105,6 +116,8 @@ DiskIndex(String fileName) {
 	this.documentReferenceSize = -1;
 	this.cacheUserCount = -1;
 	this.cachedChunks = null;
+	this.recentChunks = null;
+	this.fileBuffer = null;
 	this.categoryTables = null;
 	this.cachedCategoryName = null;
 	this.categoryOffsets = null;
@@ -228,25 +241,17 @@ HashtableOfObject addQueryResults(char[][] categories, char[] key, int matchRule
 private synchronized void cacheDocumentNames() throws IOException {
 	// will need all document names so get them now
 	this.cachedChunks = new String[this.numberOfChunks][];
-	FileInputStream stream = new FileInputStream(this.indexFile);
 	try {
-		if (this.numberOfChunks > 5) BUFFER_READ_SIZE <<= 1;
-		int offset = this.chunkOffsets[0];
-		stream.skip(offset);
-		this.streamBuffer = new byte[BUFFER_READ_SIZE];
-		this.bufferIndex = 0;
-		this.bufferEnd = stream.read(this.streamBuffer, 0, this.streamBuffer.length);
+		ByteBuffer buffer = getFileBuffer(this.chunkOffsets[0]);
 		for (int i = 0; i < this.numberOfChunks; i++) {
 			int size = i == this.numberOfChunks - 1 ? this.sizeOfLastChunk : CHUNK_SIZE;
-			readChunk(this.cachedChunks[i] = new String[size], stream, 0, size);
+			readChunk(this.cachedChunks[i] = new String[size], buffer, 0, size);
 		}
 	} catch (IOException e) {
 		this.cachedChunks = null;
 		throw e;
 	} finally {
-		stream.close();
-		this.streamBuffer = null;
-		BUFFER_READ_SIZE = DEFAULT_BUFFER_SIZE;
+		releaseFileBufferIfIdle();
 	}
 }
 private String[] computeDocumentNames(String[] onDiskNames, int[] positions, SimpleLookupTable indexedDocuments, MemoryIndex memoryIndex) {
@@ -372,20 +377,10 @@ private void copyQueryResults(HashtableOfObject categoryToWords, int newPosition
 void initialize(boolean reuseExistingFile) throws IOException {
 	if (this.indexFile.exists()) {
 		if (reuseExistingFile) {
-			RandomAccessFile file = new RandomAccessFile(this.indexFile, "r"); //$NON-NLS-1$
-			try {
-				String signature = file.readUTF();
-				if (!signature.equals(SIGNATURE))
-					throw new IOException(Messages.exception_wrongFormat);
-
-				this.headerInfoOffset = file.readInt();
-				if (this.headerInfoOffset > 0) // file is empty if its not set
-					readHeaderInfo(file);
-			} finally {
-				file.close();
-			}
+			readHeader();
 			return;
 		}
+		releaseFileBuffer();
 		if (!this.indexFile.delete()) {
 			if (DEBUG)
 				System.out.println("initialize - Failed to delete index " + this.indexFile); //$NON-NLS-1$
@@ -536,6 +531,7 @@ DiskIndex mergeWith(MemoryIndex memoryIndex) throws IOException {
 		newDiskIndex.writeOffsetToHeader(offsetToHeader);
 
 		// rename file by deleting previous index file & renaming temp one
+		releaseFileBuffer();
 		if (this.indexFile.exists() && !this.indexFile.delete()) {
 			if (DEBUG)
 				System.out.println("mergeWith - Failed to delete " + this.indexFile); //$NON-NLS-1$
@@ -560,21 +556,15 @@ private synchronized String[] readAllDocumentNames() throws IOException {
 	if (this.numberOfChunks <= 0)
 		return CharOperation.NO_STRINGS;
 
-	FileInputStream stream = new FileInputStream(this.indexFile);
 	try {
-		int offset = this.chunkOffsets[0];
-		stream.skip(offset);
-		this.streamBuffer = new byte[BUFFER_READ_SIZE];
-		this.bufferIndex = 0;
-		this.bufferEnd = stream.read(this.streamBuffer, 0, this.streamBuffer.length);
+		ByteBuffer buffer = getFileBuffer(this.chunkOffsets[0]);
 		int lastIndex = this.numberOfChunks - 1;
 		String[] docNames = new String[lastIndex * CHUNK_SIZE + sizeOfLastChunk];
 		for (int i = 0; i < this.numberOfChunks; i++)
-			readChunk(docNames, stream, i * CHUNK_SIZE, i < lastIndex ? CHUNK_SIZE : sizeOfLastChunk);
+			readChunk(docNames, buffer, i * CHUNK_SIZE, i < lastIndex ? CHUNK_SIZE : sizeOfLastChunk);
 		return docNames;
 	} finally {
-		stream.close();
-		this.streamBuffer = null;
+		releaseFileBufferIfIdle();
 	}
 }
 private synchronized HashtableOfObject readCategoryTable(char[] categoryName, boolean readDocNumbers) throws IOException {
@@ -589,27 +579,16 @@ private synchronized HashtableOfObject readCategoryTable(char[] categoryName, bo
 	} else {
 		HashtableOfObject cachedTable = (HashtableOfObject) this.categoryTables.get(categoryName);
 		if (cachedTable != null) {
-			if (readDocNumbers) { // must cache remaining document number arrays
-				Object[] arrayOffsets = cachedTable.valueTable;
-				for (int i = 0, l = arrayOffsets.length; i < l; i++)
-					if (arrayOffsets[i] instanceof Integer)
-						arrayOffsets[i] = readDocumentNumbers(arrayOffsets[i]);
-			}
+			if (readDocNumbers) // must cache remaining document number arrays
+				readDocumentArrays(cachedTable);
 			return cachedTable;
 		}
 	}
 
-	FileInputStream stream = new FileInputStream(this.indexFile);
 	HashtableOfObject categoryTable = null;
-	char[][] matchingWords = null;
-	int count = 0;
-	int firstOffset = -1;
-	this.streamBuffer = new byte[BUFFER_READ_SIZE];
 	try {
-		stream.skip(offset);
-		this.bufferIndex = 0;
-		this.bufferEnd = stream.read(this.streamBuffer, 0, this.streamBuffer.length);
-		int size = readStreamInt(stream);
+		ByteBuffer buffer = getFileBuffer(offset);
+		int size = buffer.getInt();
 		try {
 			if (size < 0) { // DEBUG
 				System.err.println("-------------------- DEBUG --------------------"); //$NON-NLS-1$
@@ -630,68 +609,57 @@ private synchronized HashtableOfObject readCategoryTable(char[] categoryName, bo
 			throw oom;
 		}
 		int largeArraySize = 256;
+		int referenceSize = this.documentReferenceSize == 1 || this.documentReferenceSize == 2 ? this.documentReferenceSize : 4;
 		for (int i = 0; i < size; i++) {
-			char[] word = readStreamChars(stream);
-			int arrayOffset = readStreamInt(stream);
+			char[] word = readChars(buffer);
+			int arrayPosition = buffer.position();
+			int arrayOffset = buffer.getInt();
 			// if arrayOffset is:
 			//		<= 0 then the array size == 1 with the value -> -arrayOffset
 			//		> 1 & < 256 then the size of the array is > 1 & < 256, the document array follows immediately
 			//		256 if the array size >= 256 followed by another int which is the offset to the array (written prior to the table)
+			// arrays are decoded when needed (see readDocumentNumbers()), both kinds are remembered by the offset of their size
 			if (arrayOffset <= 0) {
 				categoryTable.put(word, new int[] {-arrayOffset}); // store 1 element array by negating documentNumber
 			} else if (arrayOffset < largeArraySize) {
-				categoryTable.put(word, readStreamDocumentArray(stream, arrayOffset)); // read in-lined array providing size
+				categoryTable.put(word, Integer.valueOf(arrayPosition)); // in-lined array, skip it
+				buffer.position(buffer.position() + arrayOffset * referenceSize);
 			} else {
-				arrayOffset = readStreamInt(stream); // read actual offset
-				if (readDocNumbers) {
-					if (matchingWords == null)
-						matchingWords = new char[size][];
-					if (count == 0)
-						firstOffset = arrayOffset;
-					matchingWords[count++] = word;
-				}
-				categoryTable.put(word, Integer.valueOf(arrayOffset)); // offset to array in the file
+				categoryTable.put(word, Integer.valueOf(buffer.getInt())); // offset to array in the file
 			}
 		}
+		if (readDocNumbers)
+			readDocumentArrays(categoryTable);
 		this.categoryTables.put(INTERNED_CATEGORY_NAMES.get(categoryName), categoryTable);
 		// cache the table as long as its not too big
 		// in practice, some tables can be greater than 500K when they contain more than 10K elements
 		this.cachedCategoryName = categoryTable.elementSize < 20000 ? categoryName : null;
-	} catch (IOException ioe) {
-		this.streamBuffer = null;
-		throw ioe;
+	} catch (BufferUnderflowException e) {
+		throw new IOException(Messages.exception_wrongFormat);
 	} finally {
-		stream.close();
+		releaseFileBufferIfIdle();
 	}
-
-	if (matchingWords != null && count > 0) {
-		stream = new FileInputStream(this.indexFile);
-		try {
-			stream.skip(firstOffset);
-			this.bufferIndex = 0;
-			this.bufferEnd = stream.read(this.streamBuffer, 0, this.streamBuffer.length);
-			for (int i = 0; i < count; i++) { // each array follows the previous one
-				categoryTable.put(matchingWords[i], readStreamDocumentArray(stream, readStreamInt(stream)));
-			}
-		} catch (IOException ioe) {
-			this.streamBuffer = null;
-			throw ioe;
-		} finally {
-			stream.close();
-		}
-	}
-	this.streamBuffer = null;
 	return categoryTable;
 }
-private void readChunk(String[] docNames, FileInputStream stream, int index, int size) throws IOException {
-	String current = new String(readStreamChars(stream));
+private void readDocumentArrays(HashtableOfObject categoryTable) throws IOException {
+	Object[] arrayOffsets = categoryTable.valueTable;
+	try {
+		for (int i = 0, l = arrayOffsets.length; i < l; i++)
+			if (arrayOffsets[i] instanceof Integer)
+				arrayOffsets[i] = readDocumentArray(getFileBuffer(((Integer) arrayOffsets[i]).intValue()));
+	} catch (BufferUnderflowException e) {
+		throw new IOException(Messages.exception_wrongFormat);
+	} finally {
+		releaseFileBufferIfIdle();
+	}
+}
+private void readChunk(String[] docNames, ByteBuffer buffer, int index, int size) throws IOException {
+	String current = new String(readChars(buffer));
 	docNames[index++] = current;
 	for (int i = 1; i < size; i++) {
-		if (stream != null && this.bufferIndex + 2 >= this.bufferEnd)
-			readStreamBuffer(stream);
-		int start = streamBuffer[this.bufferIndex++] & 0xFF;
-		int end = streamBuffer[this.bufferIndex++] & 0xFF;
-		String next  = new String(readStreamChars(stream));
+		int start = buffer.get() & 0xFF;
+		int end = buffer.get() & 0xFF;
+		String next  = new String(readChars(buffer));
 		if (start > 0) {
 			if (end > 0) {
 				int length = current.length();
@@ -708,41 +676,45 @@ private void readChunk(String[] docNames, FileInputStream stream, int index, int
 	}
 }
 synchronized String readDocumentName(int docNumber) throws IOException {
-	if (this.cachedChunks == null)
+	// during a query every chunk is decoded only once, recentChunks keeps the last ones across queries
+	if (this.cachedChunks == null && this.cacheUserCount >= 0)
 		this.cachedChunks = new String[this.numberOfChunks][];
 
 	int chunkNumber = docNumber / CHUNK_SIZE;
-	String[] chunk = this.cachedChunks[chunkNumber];
+	String[] chunk = this.cachedChunks == null ? null : this.cachedChunks[chunkNumber];
 	if (chunk == null) {
-		boolean isLastChunk = chunkNumber == this.numberOfChunks - 1;
-		int start = this.chunkOffsets[chunkNumber];
-		int numberOfBytes = (isLastChunk ? this.startOfCategoryTables : this.chunkOffsets[chunkNumber + 1]) - start;
-		if (numberOfBytes < 0)
-			throw new IllegalArgumentException();
-		this.streamBuffer = new byte[numberOfBytes];
-		this.bufferIndex = 0;
-		FileInputStream file = new FileInputStream(this.indexFile);
-		try {
-			file.skip(start);
-			if (file.read(this.streamBuffer, 0, numberOfBytes) != numberOfBytes)
-				throw new IOException();
-		} catch (IOException ioe) {
-			this.streamBuffer = null;
-			throw ioe;
-		} finally {
-			file.close();
+		if (this.recentChunks == null) {
+			this.recentChunks = new LinkedHashMap(RECENT_CHUNKS_SIZE, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+				protected boolean removeEldestEntry(Map.Entry eldest) {
+					return size() > RECENT_CHUNKS_SIZE;
+				}
+			};
 		}
-		int numberOfNames = isLastChunk ? this.sizeOfLastChunk : CHUNK_SIZE;
-		chunk = new String[numberOfNames];
-		try {
-			readChunk(chunk, null, 0, numberOfNames);
-		} catch (IOException ioe) {
-			this.streamBuffer = null;
-			throw ioe;
+		Integer key = Integer.valueOf(chunkNumber);
+		chunk = (String[]) this.recentChunks.get(key);
+		if (chunk == null) {
+			boolean isLastChunk = chunkNumber == this.numberOfChunks - 1;
+			int start = this.chunkOffsets[chunkNumber];
+			int numberOfBytes = (isLastChunk ? this.startOfCategoryTables : this.chunkOffsets[chunkNumber + 1]) - start;
+			if (numberOfBytes < 0)
+				throw new IllegalArgumentException();
+			int numberOfNames = isLastChunk ? this.sizeOfLastChunk : CHUNK_SIZE;
+			chunk = new String[numberOfNames];
+			try {
+				ByteBuffer buffer = getFileBuffer(start);
+				buffer.limit(start + numberOfBytes);
+				readChunk(chunk, buffer, 0, numberOfNames);
+			} catch (BufferUnderflowException e) {
+				throw new IOException(Messages.exception_wrongFormat);
+			} finally {
+				releaseFileBufferIfIdle();
+			}
+			this.recentChunks.put(key, chunk);
 		}
-		this.cachedChunks[chunkNumber] = chunk;
+		if (this.cachedChunks != null)
+			this.cachedChunks[chunkNumber] = chunk;
 	}
-	this.streamBuffer = null;
 	return chunk[docNumber - (chunkNumber * CHUNK_SIZE)];
 }
 synchronized int[] readDocumentNumbers(Object arrayOffset) throws IOException {
@@ -750,41 +722,51 @@ synchronized int[] readDocumentNumbers(Object arrayOffset) throws IOException {
 	if (arrayOffset instanceof int[])
 		return (int[]) arrayOffset;
 
-	FileInputStream stream = new FileInputStream(this.indexFile);
 	try {
-		int offset = ((Integer) arrayOffset).intValue();
-		stream.skip(offset);
-		this.streamBuffer = new byte[BUFFER_READ_SIZE];
-		this.bufferIndex = 0;
-		this.bufferEnd = stream.read(this.streamBuffer, 0, this.streamBuffer.length);
-		return readStreamDocumentArray(stream, readStreamInt(stream));
+		return readDocumentArray(getFileBuffer(((Integer) arrayOffset).intValue()));
+	} catch (BufferUnderflowException e) {
+		throw new IOException(Messages.exception_wrongFormat);
 	} finally {
-		stream.close();
-		this.streamBuffer = null;
+		releaseFileBufferIfIdle();
 	}
 }
-private void readHeaderInfo(RandomAccessFile file) throws IOException {
-	file.seek(this.headerInfoOffset);
-
+private synchronized void readHeader() throws IOException {
+	try {
+		ByteBuffer buffer = getFileBuffer(0);
+		if (!CharOperation.equals(readChars(buffer), SIGNATURE_CHARS))
+			throw new IOException(Messages.exception_wrongFormat);
+
+		this.headerInfoOffset = buffer.getInt();
+		if (this.headerInfoOffset > 0) // file is empty if its not set
+			readHeaderInfo(getFileBuffer(this.headerInfoOffset));
+	} catch (BufferUnderflowException e) {
+		throw new IOException(Messages.exception_wrongFormat);
+	} catch (IllegalArgumentException e) { // bad offset
+		throw new IOException(Messages.exception_wrongFormat);
+	} finally {
+		releaseFileBufferIfIdle();
+	}
+}
+private void readHeaderInfo(ByteBuffer buffer) throws IOException {
 	// must be same order as writeHeaderInfo()
-	this.numberOfChunks = file.readInt();
-	this.sizeOfLastChunk = file.readUnsignedByte();
-	this.documentReferenceSize = file.readUnsignedByte();
+	this.numberOfChunks = buffer.getInt();
+	this.sizeOfLastChunk = buffer.get() & 0xFF;
+	this.documentReferenceSize = buffer.get() & 0xFF;
 
 	this.chunkOffsets = new int[this.numberOfChunks];
 	for (int i = 0; i < this.numberOfChunks; i++)
-		this.chunkOffsets[i] = file.readInt();
+		this.chunkOffsets[i] = buffer.getInt();
 
-	this.startOfCategoryTables = file.readInt();
+	this.startOfCategoryTables = buffer.getInt();
 
-	int size = file.readInt();
+	int size = buffer.getInt();
 	this.categoryOffsets = new HashtableOfIntValues(size);
 	this.categoryEnds = new HashtableOfIntValues(size);
 	char[] previousCategory = null;
 	int offset = -1;
 	for (int i = 0; i < size; i++) {
-		char[] categoryName = INTERNED_CATEGORY_NAMES.get(file.readUTF().toCharArray());
-		offset = file.readInt();
+		char[] categoryName = INTERNED_CATEGORY_NAMES.get(readChars(buffer));
+		offset = buffer.getInt();
 		this.categoryOffsets.put(categoryName, offset); // cache offset to category table
 		if (previousCategory != null) {
 			this.categoryEnds.put(previousCategory, offset); // cache end of the category table
@@ -796,6 +778,75 @@ private void readHeaderInfo(RandomAccessFile file) throws IOException {
 	}
 	this.categoryTables = new HashtableOfObject(3);
 }
+/*
+ * Answers a view of the index file positioned at the given offset. The file is mapped once
+ * and kept while queries are running, see releaseFileBufferIfIdle().
+ * Must be called while holding the lock of this index.
+ */
+private ByteBuffer getFileBuffer(int offset) throws IOException {
+	if (this.fileBuffer == null) {
+		RandomAccessFile file = new RandomAccessFile(this.indexFile, "r"); //$NON-NLS-1$
+		try {
+			FileChannel channel = file.getChannel();
+			int size = (int) channel.size();
+			if (MAP_FILES) {
+				this.fileBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			} else {
+				ByteBuffer buffer = ByteBuffer.allocate(size);
+				while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+					// read the whole file
+				}
+				buffer.flip();
+				this.fileBuffer = buffer;
+			}
+		} finally {
+			file.close();
+		}
+	}
+	ByteBuffer buffer = this.fileBuffer.duplicate();
+	buffer.position(offset);
+	return buffer;
+}
+/*
+ * Releases the mapping of the index file, it must not be kept once the index is idle:
+ * a mapped file cannot be deleted on some platforms.
+ */
+synchronized void releaseFileBuffer() {
+	ByteBuffer buffer = this.fileBuffer;
+	this.fileBuffer = null;
+	if (buffer instanceof MappedByteBuffer && !unmap(buffer)) {
+		if (DEBUG)
+			System.out.println("releaseFileBuffer - Cannot unmap index files, they will be read in memory"); //$NON-NLS-1$
+		MAP_FILES = false;
+	}
+}
+private void releaseFileBufferIfIdle() {
+	if (this.cacheUserCount < 0)
+		releaseFileBuffer();
+}
+private static boolean unmap(ByteBuffer buffer) {
+	try {
+		// Java 9 and later
+		Class unsafeClass = Class.forName("sun.misc.Unsafe"); //$NON-NLS-1$
+		Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe"); //$NON-NLS-1$
+		theUnsafe.setAccessible(true);
+		Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", new Class[] {ByteBuffer.class}); //$NON-NLS-1$
+		invokeCleaner.invoke(theUnsafe.get(null), new Object[] {buffer});
+		return true;
+	} catch (Exception e) {
+		// try with the cleaner of the buffer
+	}
+	try {
+		Method cleanerMethod = buffer.getClass().getMethod("cleaner", new Class[0]); //$NON-NLS-1$
+		cleanerMethod.setAccessible(true);
+		Object cleaner = cleanerMethod.invoke(buffer, new Object[0]);
+		if (cleaner != null)
+			cleaner.getClass().getMethod("clean", new Class[0]).invoke(cleaner, new Object[0]); //$NON-NLS-1$
+		return true;
+	} catch (Exception e) {
+		return false;
+	}
+}
 void startQuery() {
 	this.cacheUserCount++;
 	synchronized (DiskIndex.this) {
@@ -821,6 +872,7 @@ void stopQuery() {
 						return;
 					// clear cached items
 					DiskIndex.this.cachedChunks = null;
+					DiskIndex.this.releaseFileBuffer();
 					if (DiskIndex.this.categoryTables != null) {
 						if (DiskIndex.this.cachedCategoryName == null) {
 							DiskIndex.this.categoryTables = null;
@@ -843,20 +895,8 @@ void stopQuery() {
 		}, 2000);
 	}
 }
-private void readStreamBuffer(FileInputStream stream) throws IOException {
-	// if we're about to read a known amount at the end of the existing buffer, but it does not completely fit
-	// so we need to shift the remaining bytes to be read, and fill the buffer from the stream
-	if (this.bufferEnd < this.streamBuffer.length)
-		return; // we're at the end of the stream - nothing left to read
-
-	int bytesInBuffer = this.bufferEnd - this.bufferIndex;
-	if (bytesInBuffer > 0)
-		System.arraycopy(this.streamBuffer, this.bufferIndex, this.streamBuffer, 0, bytesInBuffer);
-	this.bufferEnd = bytesInBuffer + stream.read(this.streamBuffer, bytesInBuffer, this.bufferIndex);
-	this.bufferIndex = 0;
-}
 /**
- * Reads in a string from the specified data input stream. The
+ * Reads in a string from the specified buffer. The
  * string has been encoded using a modified UTF-8 format.
  * <p>
  * The first two bytes are read as an unsigned short.
@@ -864,126 +904,85 @@ private void readStreamBuffer(FileInputStream stream) throws IOException {
  * not the length of the resulting string. The following bytes are then
  * interpreted as bytes encoding characters in the UTF-8 format
  * and are converted into characters.
- * <p>
- * This method blocks until all the bytes are read, the end of the
- * stream is detected, or an exception is thrown.
+ * Unlike {@link java.io.DataInput#readUTF()}, the length written by
+ * writeStreamChars() is the number of chars.
  *
- * @param      stream   a data input stream.
+ * @param      buffer   the buffer, positioned at the string.
  * @return     UTF decoded string as a char array
- * @exception  java.io.EOFException if this end of data input is reached while reading it.
- * @exception  IOException if an I/O error occurs while reading data input.
+ * @exception  java.nio.BufferUnderflowException if the end of the buffer is reached while reading it.
  * @exception  UTFDataFormatException  if the bytes do not represent a
  *               valid UTF-8 encoding of a Unicode string.
  */
-private char[] readStreamChars(FileInputStream stream) throws IOException {
+private char[] readChars(ByteBuffer buffer) throws IOException {
 	// read chars array length
-	if (stream != null && this.bufferIndex + 2 >= this.bufferEnd)
-		readStreamBuffer(stream);
-	int length = (streamBuffer[this.bufferIndex++] & 0xFF) << 8;
-	length += this.streamBuffer[this.bufferIndex++] & 0xFF;
+	int length = (buffer.get() & 0xFF) << 8;
+	length += buffer.get() & 0xFF;
 
 	// fill the chars from bytes buffer
 	char[] word = new char[length];
 	int i = 0;
 	while (i < length) {
-		// how many characters can be decoded without refilling the buffer?
-		int charsInBuffer = i + ((this.bufferEnd - this.bufferIndex) / 3);
-		// all the characters must already be in the buffer if we're at the end of the stream
-		if (charsInBuffer > length || this.bufferEnd != this.streamBuffer.length || stream == null)
-			charsInBuffer = length;
-		while (i < charsInBuffer) {
-			byte b = this.streamBuffer[this.bufferIndex++];
-			switch (b & 0xF0) {
-				case 0x00 :
-				case 0x10 :
-				case 0x20 :
-				case 0x30 :
-				case 0x40 :
-				case 0x50 :
-				case 0x60 :
-				case 0x70 :
-					word[i++]= (char) b;
-					break;
-				case 0xC0 :
-				case 0xD0 :
-					char next = (char) this.streamBuffer[this.bufferIndex++];
-					if ((next & 0xC0) != 0x80) {
-						throw new UTFDataFormatException();
-					}
-					char ch = (char) ((b & 0x1F) << 6);
-					ch |= next & 0x3F;
-					word[i++] = ch;
-					break;
-				case 0xE0 :
-					char first = (char) this.streamBuffer[this.bufferIndex++];
-					char second = (char) this.streamBuffer[this.bufferIndex++];
-					if ((first & second & 0xC0) != 0x80) {
-						throw new UTFDataFormatException();
-					}
-					ch = (char) ((b & 0x0F) << 12);
-					ch |= ((first& 0x3F) << 6);
-					ch |= second & 0x3F;
-					word[i++] = ch;
-					break;
-				default:
+		byte b = buffer.get();
+		switch (b & 0xF0) {
+			case 0x00 :
+			case 0x10 :
+			case 0x20 :
+			case 0x30 :
+			case 0x40 :
+			case 0x50 :
+			case 0x60 :
+			case 0x70 :
+				word[i++]= (char) b;
+				break;
+			case 0xC0 :
+			case 0xD0 :
+				char next = (char) buffer.get();
+				if ((next & 0xC0) != 0x80) {
 					throw new UTFDataFormatException();
-			}
+				}
+				char ch = (char) ((b & 0x1F) << 6);
+				ch |= next & 0x3F;
+				word[i++] = ch;
+				break;
+			case 0xE0 :
+				char first = (char) buffer.get();
+				char second = (char) buffer.get();
+				if ((first & second & 0xC0) != 0x80) {
+					throw new UTFDataFormatException();
+				}
+				ch = (char) ((b & 0x0F) << 12);
+				ch |= ((first& 0x3F) << 6);
+				ch |= second & 0x3F;
+				word[i++] = ch;
+				break;
+			default:
+				throw new UTFDataFormatException();
 		}
-		if (i < length && stream != null)
-			readStreamBuffer(stream);
 	}
 	return word;
 }
-private int[] readStreamDocumentArray(FileInputStream stream, int arraySize) throws IOException {
+/*
+ * Reads an array of document numbers preceded by its size.
+ */
+private int[] readDocumentArray(ByteBuffer buffer) {
+	int arraySize = buffer.getInt();
 	int[] indexes = new int[arraySize];
-	if (arraySize == 0) return indexes;
-
-	int i = 0;
 	switch (this.documentReferenceSize) {
 		case 1 :
-			while (i < arraySize) {
-				// how many bytes without refilling the buffer?
-				int bytesInBuffer = i + this.bufferEnd - this.bufferIndex;
-				if (bytesInBuffer > arraySize)
-					bytesInBuffer = arraySize;
-				while (i < bytesInBuffer) {
-					indexes[i++] = this.streamBuffer[this.bufferIndex++] & 0xFF;
-				}
-				if (i < arraySize && stream != null)
-					readStreamBuffer(stream);
-			}
+			for (int i = 0; i < arraySize; i++)
+				indexes[i] = buffer.get() & 0xFF;
 			break;
 		case 2 :
-			while (i < arraySize) {
-				// how many shorts without refilling the buffer?
-				int shortsInBuffer = i + ((this.bufferEnd - this.bufferIndex) / 2);
-				if (shortsInBuffer > arraySize)
-					shortsInBuffer = arraySize;
-				while (i < shortsInBuffer) {
-					int val = (this.streamBuffer[this.bufferIndex++] & 0xFF) << 8;
-					indexes[i++] = val + (this.streamBuffer[this.bufferIndex++] & 0xFF);
-				}
-				if (i < arraySize && stream != null)
-					readStreamBuffer(stream);
-			}
+			for (int i = 0; i < arraySize; i++)
+				indexes[i] = buffer.getShort() & 0xFFFF;
 			break;
 		default :
-			while (i < arraySize) {
-				indexes[i++] = readStreamInt(stream);
-			}
+			for (int i = 0; i < arraySize; i++)
+				indexes[i] = buffer.getInt();
 			break;
 	}
 	return indexes;
 }
-private int readStreamInt(FileInputStream stream) throws IOException {
-	if (this.bufferIndex + 4 >= this.bufferEnd) {
-		readStreamBuffer(stream);
-	}
-	int val = (streamBuffer[this.bufferIndex++] & 0xFF) << 24;
-	val += (streamBuffer[this.bufferIndex++] & 0xFF) << 16;
-	val += (streamBuffer[this.bufferIndex++] & 0xFF) << 8;
-	return val + (streamBuffer[this.bufferIndex++] & 0xFF);
-}
 private void writeAllDocumentNames(String[] sortedDocNames, FileOutputStream stream) throws IOException {
 	if (sortedDocNames.length == 0)
 		throw new IllegalArgumentException();
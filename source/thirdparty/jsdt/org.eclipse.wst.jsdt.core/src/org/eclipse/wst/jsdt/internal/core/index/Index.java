@@ -186,6 +186,14 @@ public String[] queryDocumentNames(String substring) throws IOException {
 			documentNames[count++] = (String) paths[i];
 	return documentNames;
 }
+/**
+ * Releases the index file if it is mapped in memory, so it can be deleted.
+ * The index can still be queried afterwards.
+ */
+public void releaseFileBuffer() {
+	if (this.diskIndex != null)
+		this.diskIndex.releaseFileBuffer();
+}
 public void remove(String containerRelativePath) {
 	this.memoryIndex.remove(containerRelativePath);
 }
@@ -217,6 +225,7 @@ public String toString() {
  */
 public void reset() throws IOException {
 	this.memoryIndex = new MemoryIndex();
+	this.diskIndex.releaseFileBuffer(); // the file gets deleted
 	this.diskIndex = new DiskIndex(this.diskIndex.indexFile.getAbsolutePath());
 	this.diskIndex.initialize(false/*do not reuse the index file*/);
 }
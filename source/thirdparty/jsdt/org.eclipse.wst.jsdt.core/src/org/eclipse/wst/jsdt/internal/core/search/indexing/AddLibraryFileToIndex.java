@@ -13,6 +13,7 @@ package org.eclipse.wst.jsdt.internal.core.search.indexing;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -21,6 +22,7 @@ import org.eclipse.core.resources.IFile;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.Path;
+import org.eclipse.wst.jsdt.core.search.SearchDocument;
 import org.eclipse.wst.jsdt.core.search.SearchEngine;
 import org.eclipse.wst.jsdt.core.search.SearchParticipant;
 import org.eclipse.wst.jsdt.internal.compiler.util.SimpleLookupTable;
@@ -162,14 +164,15 @@ class AddLibraryFileToIndex extends IndexRequest {
 
 				IPath filePath = (this.absolutePath != null) ? this.absolutePath : this.containerPath;
 				File file = new File(filePath.toOSString());
+				ArrayList documents = new ArrayList();
 
 				if (file.isFile()) {
 					if (org.eclipse.wst.jsdt.internal.core.util.Util.isJavaLikeFileName(file.getName())) {
 						if (this.exclusionPatterns == null && this.inclusionPatterns == null) {
-							indexFile(file, participant, index, libraryFilePath);
+							indexFile(file, participant, documents, libraryFilePath);
 						} else {
 							if (!Util.isExcluded(file.getPath().toCharArray(), inclusionPatterns, exclusionPatterns, false)) {
-								indexFile(file, participant, index, libraryFilePath);
+								indexFile(file, participant, documents, libraryFilePath);
 							}
 						}
 					}
@@ -198,7 +201,7 @@ class AddLibraryFileToIndex extends IndexRequest {
 										inputStreamReader.close();
 									}
 									JavaSearchDocument entryDocument = new JavaSearchDocument(ze, libraryFilePath, buffer.toString().toCharArray(), participant);
-									this.manager.indexDocument(entryDocument, participant, index, this.containerPath);
+									documents.add(entryDocument);
 								}
 							}
 						} finally {
@@ -207,16 +210,25 @@ class AddLibraryFileToIndex extends IndexRequest {
 					}
 				} else {
 					if (this.exclusionPatterns == null && this.inclusionPatterns == null) {
-						indexDirectory(file, participant, index, libraryFilePath);
+						indexDirectory(file, participant, documents, libraryFilePath);
 					} else if(exclusionPatterns != null && inclusionPatterns == null) {
 						if (!Util.isExcluded(file.getPath().toCharArray(), inclusionPatterns, exclusionPatterns, true)) {
-							indexDirectory(file, participant, index, libraryFilePath);
+							indexDirectory(file, participant, documents, libraryFilePath);
 						}
 					} else {
-						indexDirectory(file, participant, index, libraryFilePath);
+						indexDirectory(file, participant, documents, libraryFilePath);
 					}
 				}
 
+				// the documents are parsed in parallel, we already own the write lock
+				SearchDocument[] documentArray = new SearchDocument[documents.size()];
+				documents.toArray(documentArray);
+				if (!this.manager.indexDocuments(documentArray, participant, index, this.containerPath, this)) {
+					if (JobManager.VERBOSE)
+						org.eclipse.wst.jsdt.internal.core.util.Util.verbose("-> indexing of " + libraryFilePath.toString() + " has been cancelled"); //$NON-NLS-1$ //$NON-NLS-2$
+					return false;
+				}
+
 				this.manager.saveIndex(index);
 				if (JobManager.VERBOSE)
 					org.eclipse.wst.jsdt.internal.core.util.Util.verbose("-> done indexing of " //$NON-NLS-1$
@@ -242,40 +254,40 @@ class AddLibraryFileToIndex extends IndexRequest {
 		return "indexing " + this.containerPath.toString(); //$NON-NLS-1$
 	}
 	
-	private void indexFile(File file,SearchParticipant participant, Index index, IPath libraryFilePath)
+	private void indexFile(File file,SearchParticipant participant, ArrayList documents, IPath libraryFilePath)
 	{
 		try {
 			final char[] classFileChars = org.eclipse.wst.jsdt.internal.compiler.util.Util.getFileCharContent(file,null);
 			String packageName=""; //$NON-NLS-1$
 			JavaSearchDocument entryDocument = new JavaSearchDocument(  new Path(file.getAbsolutePath()), classFileChars, participant,packageName);
-			this.manager.indexDocument(entryDocument, participant, index, this.containerPath);
+			documents.add(entryDocument);
 		} catch (Exception ex)
 		{}
 
 	}
 
-	private void indexDirectory(File file,SearchParticipant participant, Index index, IPath libraryFilePath)
+	private void indexDirectory(File file,SearchParticipant participant, ArrayList documents, IPath libraryFilePath)
 	{
 		File[] files = file.listFiles();
 		if (files!=null)
 		 for (int i = 0; i < files.length; i++) {
 			if (files[i].isDirectory()) {
 				if (this.exclusionPatterns == null && this.inclusionPatterns == null) {
-					 indexDirectory(files[i], participant, index, libraryFilePath);
+					 indexDirectory(files[i], participant, documents, libraryFilePath);
 				} else if(exclusionPatterns != null && inclusionPatterns == null) {
 					if (!Util.isExcluded(files[i].getPath().toCharArray(), inclusionPatterns, exclusionPatterns, true)) {
-						 indexDirectory(files[i], participant, index, libraryFilePath);
+						 indexDirectory(files[i], participant, documents, libraryFilePath);
 					}
 				} else {
-					 indexDirectory(files[i], participant, index, libraryFilePath);
+					 indexDirectory(files[i], participant, documents, libraryFilePath);
 				}
 			}
 			else if (Util.isClassFileName(files[i].getName())) {
 				if (this.exclusionPatterns == null && this.inclusionPatterns == null) {
-					indexFile(files[i], participant, index, libraryFilePath);
+					indexFile(files[i], participant, documents, libraryFilePath);
 				} else {
 					if (!Util.isExcluded(files[i].getPath().toCharArray(), inclusionPatterns, exclusionPatterns, false)) {
-						indexFile(files[i], participant, index, libraryFilePath);
+						indexFile(files[i], participant, documents, libraryFilePath);
 					}
 				}
 			}
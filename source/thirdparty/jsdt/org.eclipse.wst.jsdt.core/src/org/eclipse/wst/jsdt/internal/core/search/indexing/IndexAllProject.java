@@ -12,6 +12,7 @@ package org.eclipse.wst.jsdt.internal.core.search.indexing;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.HashSet;
 
 import org.eclipse.core.filesystem.EFS;
@@ -26,7 +27,6 @@ import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.wst.jsdt.core.IIncludePathEntry;
 import org.eclipse.wst.jsdt.core.JavaScriptCore;
-import org.eclipse.wst.jsdt.internal.compiler.SourceElementParser;
 import org.eclipse.wst.jsdt.internal.compiler.util.SimpleLookupTable;
 import org.eclipse.wst.jsdt.internal.core.ClasspathEntry;
 import org.eclipse.wst.jsdt.internal.core.JavaProject;
@@ -207,7 +207,7 @@ public class IndexAllProject extends IndexRequest {
 				}
 			}
 
-			SourceElementParser parser = this.manager.getSourceElementParser(javaProject, null/*requestor will be set by indexer*/);
+			ArrayList addedFiles = new ArrayList();
 			Object[] names = indexedFileNames.keyTable;
 			Object[] values = indexedFileNames.valueTable;
 			for (int i = 0, namesLength = names.length; i < namesLength; i++) {
@@ -220,10 +220,15 @@ public class IndexAllProject extends IndexRequest {
 						if (value == DELETED)
 							this.manager.remove(name, this.containerPath);
 						else
-							this.manager.addSource((IFile) value, this.containerPath, parser);
+							addedFiles.add(value);
 					}
 				}
 			}
+			if (!addedFiles.isEmpty()) {
+				IFile[] files = new IFile[addedFiles.size()];
+				addedFiles.toArray(files);
+				this.manager.addSources(files, this.containerPath, javaProject);
+			}
 
 			// request to save index when all cus have been indexed... also sets state to SAVED_STATE
 			this.manager.request(new SaveIndex(this.containerPath, this.manager));
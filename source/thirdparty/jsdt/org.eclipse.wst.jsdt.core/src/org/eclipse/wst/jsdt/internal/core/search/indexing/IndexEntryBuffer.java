@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright (c) 2000, 2007 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.wst.jsdt.internal.core.search.indexing;
+
+import org.eclipse.wst.jsdt.internal.core.index.Index;
+
+/**
+ * Records the index entries of a single document so they can be produced
+ * away from the index (e.g. on a worker thread) and added to it later.
+ */
+class IndexEntryBuffer {
+
+	private char[][] categories = new char[64][];
+	private char[][] keys = new char[64][];
+	private int size = 0;
+
+void add(char[] category, char[] key) {
+	if (this.size == this.keys.length) {
+		int newLength = this.size * 2;
+		System.arraycopy(this.categories, 0, this.categories = new char[newLength][], 0, this.size);
+		System.arraycopy(this.keys, 0, this.keys = new char[newLength][], 0, this.size);
+	}
+	this.categories[this.size] = category;
+	this.keys[this.size++] = key;
+}
+/**
+ * Replaces the entries of the document in the given index with the recorded ones.
+ * Must own the write lock of the index monitor.
+ */
+void addTo(Index index, String containerRelativePath) {
+	index.remove(containerRelativePath); // in case the document was already indexed
+	for (int i = 0; i < this.size; i++)
+		index.addIndexEntry(this.categories[i], this.keys[i], containerRelativePath);
+}
+}
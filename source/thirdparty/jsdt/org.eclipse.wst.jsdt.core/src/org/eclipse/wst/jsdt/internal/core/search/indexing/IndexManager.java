@@ -123,6 +123,19 @@ public void addSource(IFile resource, IPath containerPath, SourceElementParser p
 	IPath indexLocation = computeIndexLocation(containerPath);
 	scheduleDocumentIndexing(document, containerPath, indexLocation, participant);
 }
+/**
+ * Trigger addition of several resources to an index, they are parsed in parallel
+ * Note: the actual operation is performed in background
+ */
+public void addSources(IFile[] resources, IPath containerPath, IJavaScriptProject project) {
+	if (JavaScriptCore.getPlugin() == null) return;
+	SearchParticipant participant = SearchEngine.getDefaultSearchParticipant();
+	SearchDocument[] documents = new SearchDocument[resources.length];
+	for (int i = 0; i < resources.length; i++)
+		documents[i] = participant.getDocument(resources[i].getFullPath().toString());
+	IPath indexLocation = computeIndexLocation(containerPath);
+	scheduleDocumentsIndexing(documents, containerPath, indexLocation, participant, project);
+}
 /*
  * Removes unused indexes from disk.
  */
@@ -353,6 +366,14 @@ public void indexDocument(SearchDocument searchDocument, SearchParticipant searc
 		((InternalSearchDocument) searchDocument).index = null;
 	}
 }
+/**
+ * Indexes the given documents, in parallel if enabled (see {@link ParallelIndexer}).
+ * The caller must own the write lock of the index monitor.
+ * Returns false if the request got cancelled.
+ */
+public boolean indexDocuments(SearchDocument[] searchDocuments, SearchParticipant searchParticipant, Index index, IPath indexLocation, IndexRequest request) {
+	return new ParallelIndexer(this, searchParticipant, indexLocation, null, request).indexDocuments(searchDocuments, index, null);
+}
 /**
  * Trigger addition of the entire content of a project
  * Note: the actual operation is performed in background
@@ -556,6 +577,7 @@ public synchronized void removeIndex(IPath containerPath) {
 	File indexFile = null;
 	if (index != null) {
 		index.monitor = null;
+		index.releaseFileBuffer();
 		indexFile = index.getIndexFile();
 	}
 	if (indexFile == null)
@@ -581,6 +603,7 @@ public synchronized void removeIndexPath(IPath path) {
 		if (path.isPrefixOf(indexLocation)) {
 			Index index = (Index) valueTable[i];
 			index.monitor = null;
+			index.releaseFileBuffer();
 			if (locations == null)
 				locations = new IPath[max];
 			locations[count++] = indexLocation;
@@ -762,6 +785,28 @@ public void scheduleDocumentIndexing(final SearchDocument searchDocument, IPath
 		}
 	});
 }
+public void scheduleDocumentsIndexing(final SearchDocument[] searchDocuments, IPath container, final IPath indexLocation, final SearchParticipant searchParticipant, final IJavaScriptProject project) {
+	request(new IndexRequest(container, this) {
+		public boolean execute(IProgressMonitor progressMonitor) {
+			if (this.isCancelled || progressMonitor != null && progressMonitor.isCanceled()) return true;
+
+			Index index = getIndex(this.containerPath, indexLocation, true, /*reuse index file*/ true /*create if none*/);
+			if (index == null) return true;
+			ReadWriteMonitor monitor = index.monitor;
+			if (monitor == null) return true; // index got deleted since acquired
+
+			// the write lock is only held while merging the parsed documents
+			return new ParallelIndexer(IndexManager.this, searchParticipant, indexLocation, project, this).indexDocuments(searchDocuments, index, monitor);
+		}
+		public String toString() {
+			return "indexing " + searchDocuments.length + " documents of " + this.containerPath; //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	});
+}
+public void shutdown() {
+	super.shutdown();
+	ParallelIndexer.shutdown();
+}
 
 public String toString() {
 	StringBuffer buffer = new StringBuffer(10);
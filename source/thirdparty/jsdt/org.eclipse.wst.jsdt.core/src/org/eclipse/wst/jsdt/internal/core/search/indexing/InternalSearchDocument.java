@@ -20,11 +20,15 @@ public class InternalSearchDocument {
 	Index index;
 	private String containerRelativePath;
 	SourceElementParser parser;
+	/* when set, the entries are recorded here instead of being added to the index */
+	IndexEntryBuffer entries;
 	/*
 	 * Hidden by API SearchDocument subclass
 	 */
 	public void addIndexEntry(char[] category, char[] key) {
-		if (this.index != null)
+		if (this.entries != null)
+			this.entries.add(category, key);
+		else if (this.index != null)
 			index.addIndexEntry(category, key, getContainerRelativePath());
 	}
 	private String getContainerRelativePath() {
@@ -36,7 +40,8 @@ public class InternalSearchDocument {
 	 * Hidden by API SearchDocument subclass
 	 */
 	public void removeAllIndexEntries() {
-		if (this.index != null)
+		// recorded entries replace the existing ones when they are added to the index
+		if (this.entries == null && this.index != null)
 			index.remove(getContainerRelativePath());
 	}
 	/*
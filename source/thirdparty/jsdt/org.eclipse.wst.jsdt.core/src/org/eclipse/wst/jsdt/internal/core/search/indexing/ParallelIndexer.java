@@ -0,0 +1,231 @@
+/*******************************************************************************
+ * Copyright (c) 2000, 2007 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.wst.jsdt.internal.core.search.indexing;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.wst.jsdt.core.IJavaScriptProject;
+import org.eclipse.wst.jsdt.core.search.SearchDocument;
+import org.eclipse.wst.jsdt.core.search.SearchParticipant;
+import org.eclipse.wst.jsdt.internal.compiler.SourceElementParser;
+import org.eclipse.wst.jsdt.internal.core.index.Index;
+import org.eclipse.wst.jsdt.internal.core.search.processing.JobManager;
+import org.eclipse.wst.jsdt.internal.core.util.Util;
+
+/**
+ * Indexes a batch of documents on a pool of worker threads.
+ * <p>
+ * Every document is a separate task on the shared queue of the pool, so an idle
+ * worker always takes the next pending document and a big file does not hold back
+ * the rest of the batch. Workers only parse: the index entries of a document are
+ * recorded in an {@link IndexEntryBuffer}. The thread running the job merges the
+ * buffers into the index as they complete, so the memory index is still modified
+ * by a single thread and under the write lock of its {@link ReadWriteMonitor}.
+ * </p>
+ * <p>
+ * The number of workers is read from the <code>org.eclipse.wst.jsdt.core.indexer.threads</code>
+ * system property. With one worker (or a single document) the documents are
+ * indexed sequentially on the calling thread, as before.
+ * </p>
+ */
+class ParallelIndexer {
+
+	public static final String THREADS_PROPERTY = "org.eclipse.wst.jsdt.core.indexer.threads"; //$NON-NLS-1$
+	public static final int THREADS = computeThreads();
+
+	private static ExecutorService executor;
+
+	IndexManager manager;
+	SearchParticipant participant;
+	IPath indexLocation;
+	IJavaScriptProject project;
+	IndexRequest request;
+
+	/* idle parsers of this batch, parsers are not thread safe so a worker takes one for each document */
+	ArrayList parsers = new ArrayList();
+
+/**
+ * @param project the project used to configure the source parsers, or <code>null</code>
+ *        to let the participant create a parser for each document
+ * @param request the job doing the indexing, polled for cancellation. May be <code>null</code>.
+ */
+ParallelIndexer(IndexManager manager, SearchParticipant participant, IPath indexLocation, IJavaScriptProject project, IndexRequest request) {
+	this.manager = manager;
+	this.participant = participant;
+	this.indexLocation = indexLocation;
+	this.project = project;
+	this.request = request;
+}
+private static int computeThreads() {
+	int processors = Runtime.getRuntime().availableProcessors();
+	Integer threads = Integer.getInteger(THREADS_PROPERTY, Math.min(Math.max(processors - 1, 1), 4));
+	return Math.max(threads.intValue(), 1);
+}
+private static synchronized ExecutorService getExecutor() {
+	if (executor == null) {
+		executor = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+			private int count = 0;
+			public synchronized Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "JavaScript Indexer Worker #" + (++this.count)); //$NON-NLS-1$
+				thread.setDaemon(true);
+				thread.setPriority(Thread.NORM_PRIORITY - 1);
+				return thread;
+			}
+		});
+	}
+	return executor;
+}
+static synchronized void shutdown() {
+	if (executor != null) {
+		executor.shutdownNow();
+		executor = null;
+	}
+}
+private boolean isCancelled() {
+	return this.request != null && this.request.isCancelled;
+}
+/**
+ * Indexes the given documents into the index.
+ *
+ * @param monitor the monitor of the index, or <code>null</code> if the caller
+ *        already owns its write lock
+ * @return <code>false</code> if the indexing was cancelled
+ */
+boolean indexDocuments(SearchDocument[] documents, Index index, ReadWriteMonitor monitor) {
+	if (THREADS == 1 || documents.length < 2)
+		return indexSequentially(documents, index, monitor);
+
+	long initialTime = System.currentTimeMillis();
+	CompletionService service = new ExecutorCompletionService(getExecutor());
+	Future[] futures = new Future[documents.length];
+	for (int i = 0; i < documents.length; i++) {
+		final SearchDocument document = documents[i];
+		futures[i] = service.submit(new Callable() {
+			public Object call() {
+				return parse(document);
+			}
+		});
+	}
+
+	int merged = 0;
+	try {
+		while (merged < documents.length) {
+			Future future = service.take();
+			if (isCancelled()) {
+				cancel(futures);
+				return false;
+			}
+			if (monitor != null)
+				monitor.enterWrite(); // ask permission to write
+			try {
+				// merge everything already parsed while owning the lock
+				do {
+					merge(getDocument(future), index);
+					merged++;
+				} while (merged < documents.length && (future = service.poll()) != null);
+			} finally {
+				if (monitor != null)
+					monitor.exitWrite(); // free write lock
+			}
+		}
+	} catch (InterruptedException e) {
+		cancel(futures);
+		Thread.currentThread().interrupt();
+		return false;
+	}
+	if (JobManager.VERBOSE)
+		Util.verbose("-> indexed " + documents.length + " documents with " + THREADS + " threads in " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			+ (System.currentTimeMillis() - initialTime) + "ms"); //$NON-NLS-1$
+	return true;
+}
+private boolean indexSequentially(SearchDocument[] documents, Index index, ReadWriteMonitor monitor) {
+	SourceElementParser parser = this.project == null ? null : this.manager.getSourceElementParser(this.project, null/*requestor will be set by indexer*/);
+	for (int i = 0; i < documents.length; i++) {
+		if (isCancelled()) return false;
+
+		SearchDocument document = documents[i];
+		if (parser != null)
+			((InternalSearchDocument) document).parser = parser;
+		if (monitor != null)
+			monitor.enterWrite(); // ask permission to write
+		try {
+			this.manager.indexDocument(document, this.participant, index, this.indexLocation);
+		} finally {
+			if (monitor != null)
+				monitor.exitWrite(); // free write lock
+		}
+	}
+	return true;
+}
+/*
+ * Runs on a worker thread. Answers the document with its entries recorded, or null if it was skipped.
+ */
+SearchDocument parse(SearchDocument document) {
+	if (isCancelled()) return null;
+
+	InternalSearchDocument internalDocument = document;
+	SourceElementParser parser = null;
+	if (this.project != null) {
+		synchronized (this.parsers) {
+			if (!this.parsers.isEmpty())
+				parser = (SourceElementParser) this.parsers.remove(this.parsers.size() - 1);
+		}
+		if (parser == null)
+			parser = this.manager.getSourceElementParser(this.project, null/*requestor will be set by indexer*/);
+		internalDocument.parser = parser;
+	}
+	internalDocument.entries = new IndexEntryBuffer();
+	try {
+		this.participant.indexDocument(document, this.indexLocation);
+	} catch (RuntimeException e) {
+		Util.log(e, "Error while indexing " + document.getPath()); //$NON-NLS-1$
+		internalDocument.entries = null;
+		return null;
+	} finally {
+		internalDocument.parser = null;
+		if (parser != null) {
+			synchronized (this.parsers) {
+				this.parsers.add(parser);
+			}
+		}
+	}
+	return document;
+}
+private static SearchDocument getDocument(Future future) throws InterruptedException {
+	try {
+		return (SearchDocument) future.get();
+	} catch (ExecutionException e) {
+		Util.log(e.getCause(), "Error while indexing"); //$NON-NLS-1$
+		return null;
+	}
+}
+private void merge(SearchDocument document, Index index) {
+	if (document == null) return;
+
+	InternalSearchDocument internalDocument = document;
+	IndexEntryBuffer entries = internalDocument.entries;
+	internalDocument.entries = null;
+	entries.addTo(index, index.containerRelativePath(document.getPath()));
+}
+private static void cancel(Future[] futures) {
+	for (int i = 0; i < futures.length; i++)
+		futures[i].cancel(false);
+}
+}
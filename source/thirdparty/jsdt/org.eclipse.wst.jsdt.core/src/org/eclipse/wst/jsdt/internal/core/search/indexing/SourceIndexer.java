@@ -14,6 +14,7 @@ package org.eclipse.wst.jsdt.internal.core.search.indexing;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
@@ -138,15 +139,19 @@ public class SourceIndexer extends AbstractIndexer implements SuffixConstants {
 			ZipFile zip = null;
 			try {
 				zip = new ZipFile(file);
+				ArrayList documents = new ArrayList();
 				for (Enumeration e = zip.entries(); e.hasMoreElements();) {
 					// iterate each entry to index it
 					ZipEntry ze = (ZipEntry) e.nextElement();
 					if (Util.isClassFileName(ze.getName())) {
 						final byte[] classFileBytes = org.eclipse.wst.jsdt.internal.compiler.util.Util.getZipEntryByteContent(ze, zip);
 						JavaSearchDocument entryDocument = new JavaSearchDocument(ze, jarPath, ByteBuffer.wrap(classFileBytes).asCharBuffer().array(), participant);
-						indexManager.indexDocument(entryDocument, participant, index, jarPath);
+						documents.add(entryDocument);
 					}
 				}
+				SearchDocument[] documentArray = new SearchDocument[documents.size()];
+				documents.toArray(documentArray);
+				indexManager.indexDocuments(documentArray, participant, index, jarPath, null);
 				indexManager.saveIndex(index);
 			}
 			catch (ZipException e1) {